@@ -117,6 +117,26 @@ public final class Utils
    */
   private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
 
+  /**
+   * Maximum number of idle document builders kept in the shared parser pool
+   */
+  private static final int PARSER_POOL_SIZE = 50;
+
+  /**
+   * Configured document builder factories, one per thread as factories are not guaranteed to be thread-safe
+   */
+  private static final ThreadLocal<DocumentBuilderFactory> DOCUMENT_BUILDER_FACTORY = new ThreadLocal<>();
+
+  /**
+   * Configured transformer factories, one per thread as factories are not guaranteed to be thread-safe
+   */
+  private static final ThreadLocal<TransformerFactory> TRANSFORMER_FACTORY = new ThreadLocal<>();
+
+  /**
+   * Shared parser pool, see {@link #getBasicParserPool()}
+   */
+  private static volatile BasicParserPool sharedParserPool;
+
   /**
    * Load the error page.
    */
@@ -657,16 +677,35 @@ public final class Utils
   }
 
   /**
-   * Returns an initialized {@link BasicParserPool} ready to use, configured with security features preventing several
-   * XXE attacks.
+   * Returns the shared, initialized {@link BasicParserPool} ready to use, configured with security features preventing
+   * several XXE attacks. The pool is thread-safe and created only once, it must not be reconfigured or destroyed by the
+   * caller.
    *
    * @return the parser pool
    * @throws ComponentInitializationException
    */
   public static BasicParserPool getBasicParserPool() throws ComponentInitializationException
+  {
+    BasicParserPool ppMgr = sharedParserPool;
+    if (ppMgr == null)
+    {
+      synchronized (Utils.class)
+      {
+        if (sharedParserPool == null)
+        {
+          sharedParserPool = createBasicParserPool();
+        }
+        ppMgr = sharedParserPool;
+      }
+    }
+    return ppMgr;
+  }
+
+  private static BasicParserPool createBasicParserPool() throws ComponentInitializationException
   {
     BasicParserPool ppMgr = new BasicParserPool();
     ppMgr.setNamespaceAware(true);
+    ppMgr.setMaxPoolSize(PARSER_POOL_SIZE);
 
     final HashMap<String, Boolean> features = new HashMap<>();
     features.put(XMLConstants.FEATURE_SECURE_PROCESSING, true);
@@ -684,12 +723,23 @@ public final class Utils
 
   /**
    * Returns an initialized {@link DocumentBuilder} ready to use, configured with security features preventing several
-   * XXE attacks.
+   * XXE attacks. The underlying factory is created once per thread.
    *
    * @return the document builder
    * @throws ParserConfigurationException
    */
   public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException
+  {
+    DocumentBuilderFactory dbf = DOCUMENT_BUILDER_FACTORY.get();
+    if (dbf == null)
+    {
+      dbf = createDocumentBuilderFactory();
+      DOCUMENT_BUILDER_FACTORY.set(dbf);
+    }
+    return dbf.newDocumentBuilder();
+  }
+
+  private static DocumentBuilderFactory createDocumentBuilderFactory() throws ParserConfigurationException
   {
     DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
     dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
@@ -700,23 +750,34 @@ public final class Utils
     dbf.setXIncludeAware(false);
     dbf.setExpandEntityReferences(false);
     dbf.setNamespaceAware(true);
-    return dbf.newDocumentBuilder();
+    return dbf;
   }
 
   /**
    * Returns an initialized {@link Transformer} ready to use, configured with security features preventing several XXE
-   * attacks.
+   * attacks. The underlying factory is created once per thread, the returned transformer is always a new instance.
    *
    * @return the transformer
    * @throws TransformerConfigurationException
    */
   public static Transformer getTransformer() throws TransformerConfigurationException
+  {
+    TransformerFactory tf = TRANSFORMER_FACTORY.get();
+    if (tf == null)
+    {
+      tf = createTransformerFactory();
+      TRANSFORMER_FACTORY.set(tf);
+    }
+    return tf.newTransformer();
+  }
+
+  private static TransformerFactory createTransformerFactory() throws TransformerConfigurationException
   {
     TransformerFactory tf = TransformerFactory.newInstance();
     tf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
     tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
     tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-    return tf.newTransformer();
+    return tf;
   }
 
   /**
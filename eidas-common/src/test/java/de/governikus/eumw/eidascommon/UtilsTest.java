@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidascommon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXParseException;
+
+import net.shibboleth.utilities.java.support.xml.BasicParserPool;
+import net.shibboleth.utilities.java.support.xml.XMLParserException;
+
+
+public class UtilsTest
+{
+
+  private static final String XML = "<root xmlns=\"urn:test\"><child>value</child></root>";
+
+  private static final String XML_WITH_DOCTYPE = "<?xml version=\"1.0\"?><!DOCTYPE root [<!ENTITY xxe SYSTEM "
+                                                 + "\"file:///etc/passwd\">]><root>&xxe;</root>";
+
+  @Test
+  public void testParserPoolIsShared() throws Exception
+  {
+    BasicParserPool pool = Utils.getBasicParserPool();
+    assertSame(pool, Utils.getBasicParserPool());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<String>> futures = new ArrayList<>();
+      for ( int i = 0 ; i < 100 ; i++ )
+      {
+        futures.add(executor.submit(() -> Utils.getBasicParserPool()
+                                               .parse(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)))
+                                               .getDocumentElement()
+                                               .getTextContent()));
+      }
+      for ( Future<String> future : futures )
+      {
+        assertEquals("value", future.get(30, TimeUnit.SECONDS));
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSharedParserPoolRejectsDoctype() throws Exception
+  {
+    BasicParserPool pool = Utils.getBasicParserPool();
+    assertThrows(XMLParserException.class,
+                 () -> pool.parse(new ByteArrayInputStream(XML_WITH_DOCTYPE.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  @Test
+  public void testDocumentBuilderKeepsSecurityFeatures() throws Exception
+  {
+    // the factory is reused for the second builder of this thread
+    for ( int i = 0 ; i < 2 ; i++ )
+    {
+      Document document = Utils.getDocumentBuilder()
+                               .parse(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)));
+      assertEquals("urn:test", document.getDocumentElement().getNamespaceURI());
+      assertThrows(SAXParseException.class,
+                   () -> Utils.getDocumentBuilder()
+                              .parse(new ByteArrayInputStream(XML_WITH_DOCTYPE.getBytes(StandardCharsets.UTF_8))));
+    }
+  }
+}
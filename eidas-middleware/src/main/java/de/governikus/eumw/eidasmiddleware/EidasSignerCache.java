@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware;
+
+import java.security.GeneralSecurityException;
+
+import de.governikus.eumw.eidasstarterkit.EidasSigner;
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Holds a ready-to-use {@link EidasSigner} so that the signature key does not have to be read from its key store for
+ * every SAML message. The signer is created again as soon as the object it was created from (the configured key pair
+ * or the HSM key store) or the given version changes.
+ */
+public class EidasSignerCache
+{
+
+  private volatile CachedSigner cachedSigner;
+
+  /**
+   * Get the cached signer or create a new one if the source has changed.
+   *
+   * @param source the object the signer is created from, compared by identity
+   * @param version a version of the source, e.g. the key state of the HSM
+   * @param factory creates the signer if there is no usable cached signer
+   * @return the signer
+   * @throws GeneralSecurityException if the signer cannot be created
+   */
+  public EidasSigner getSigner(Object source, long version, SignerFactory factory) throws GeneralSecurityException
+  {
+    CachedSigner current = cachedSigner;
+    if (current != null && current.source == source && current.version == version)
+    {
+      return current.signer;
+    }
+    EidasSigner signer = factory.create();
+    cachedSigner = new CachedSigner(source, version, signer);
+    return signer;
+  }
+
+  /**
+   * Creates a new {@link EidasSigner}
+   */
+  @FunctionalInterface
+  public interface SignerFactory
+  {
+
+    EidasSigner create() throws GeneralSecurityException;
+  }
+
+  @AllArgsConstructor
+  private static class CachedSigner
+  {
+
+    private final Object source;
+
+    private final long version;
+
+    private final EidasSigner signer;
+  }
+}
@@ -9,15 +9,21 @@
 
 package de.governikus.eumw.eidasmiddleware;
 
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.UnrecoverableKeyException;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.transform.TransformerException;
+
 import org.apache.commons.lang3.ArrayUtils;
+import org.opensaml.core.config.InitializationException;
+import org.opensaml.core.xml.io.MarshallingException;
+import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.stereotype.Service;
 
@@ -30,9 +36,12 @@ import de.governikus.eumw.eidasstarterkit.EidasSaml;
 import de.governikus.eumw.eidasstarterkit.EidasSigner;
 import de.governikus.eumw.eidasstarterkit.person_attributes.EidasPersonAttributes;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationSnapshot;
 import de.governikus.eumw.poseidas.server.idprovider.config.KeyPair;
 import de.governikus.eumw.poseidas.server.pki.HSMServiceHolder;
 import de.governikus.eumw.poseidas.service.MetadataService;
+import de.governikus.eumw.poseidas.service.SignedMetadata;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,98 +56,169 @@ import lombok.extern.slf4j.Slf4j;
 public class MetadataServiceImpl implements MetadataService
 {
 
+  /**
+   * Maximum time a created metadata document is served before it is created again with a new validUntil
+   */
+  private static final Duration MAX_METADATA_AGE = Duration.ofDays(1);
+
   private final BuildProperties buildProperties;
 
   private final HSMServiceHolder hsmServiceHolder;
 
   private final ConfigurationService configurationService;
 
+  private final EidasSignerCache signerCache = new EidasSignerCache();
+
+  private volatile CachedMetadata cachedMetadata;
+
   /**
    * {@inheritDoc}
    */
   @Override
   public byte[] getMetadata()
   {
-    ArrayList<EidasPersonAttributes> list = new ArrayList<>();
-    list.add(EidasNaturalPersonAttributes.FAMILY_NAME);
-    list.add(EidasNaturalPersonAttributes.FIRST_NAME);
-    list.add(EidasNaturalPersonAttributes.CURRENT_ADDRESS);
-    list.add(EidasNaturalPersonAttributes.PERSON_IDENTIFIER);
-    list.add(EidasNaturalPersonAttributes.BIRTH_NAME);
-    list.add(EidasNaturalPersonAttributes.PLACE_OF_BIRTH);
-    list.add(EidasNaturalPersonAttributes.DATE_OF_BIRTH);
-    list.add(EidasNaturalPersonAttributes.NATIONALITY);
+    SignedMetadata signedMetadata = getSignedMetadata();
+    return signedMetadata == null ? ArrayUtils.EMPTY_BYTE_ARRAY : signedMetadata.getDocument();
+  }
 
-    List<EidasNameIdType> supportedNameIdTypes = new ArrayList<>();
-    supportedNameIdTypes.add(EidasNameIdType.UNSPECIFIED);
+  /**
+   * Returns the signed metadata of this middleware. The metadata is created and signed only if the configuration or
+   * the signature key have changed or if the cached document has reached its maximum age, otherwise the cached document
+   * is returned.
+   */
+  @Override
+  public SignedMetadata getSignedMetadata()
+  {
     try
     {
-      var optionalEidasMiddlewareConfig = configurationService.getConfiguration();
+      ConfigurationSnapshot snapshot = configurationService.getConfigurationSnapshot();
+      var optionalEidasMiddlewareConfig = snapshot.getConfiguration();
       if (optionalEidasMiddlewareConfig.isEmpty())
       {
         log.debug("Cannot create middleware metadata without a configuration");
-        return ArrayUtils.EMPTY_BYTE_ARRAY;
+        return null;
       }
-      var eidasMiddlewareConfig = optionalEidasMiddlewareConfig.get();
-      EidasSigner signer = getEidasSigner(eidasMiddlewareConfig);
+      EidasSigner signer = getEidasSigner(optionalEidasMiddlewareConfig.get());
 
-      Instant validUntil;
-      if (eidasMiddlewareConfig.getEidasConfiguration().getMetadataValidity() == 0)
+      CachedMetadata current = cachedMetadata;
+      if (current != null && current.isUsable(snapshot, signer, Instant.now()))
       {
-        validUntil = Instant.now().plus(30, ChronoUnit.DAYS);
+        return current.metadata;
       }
-      else
+      synchronized (this)
       {
-        validUntil = Instant.now()
-                            .plus(eidasMiddlewareConfig.getEidasConfiguration().getMetadataValidity(), ChronoUnit.DAYS);
+        current = cachedMetadata;
+        if (current != null && current.isUsable(snapshot, signer, Instant.now()))
+        {
+          return current.metadata;
+        }
+        cachedMetadata = createMetadata(snapshot, optionalEidasMiddlewareConfig.get(), signer);
+        return cachedMetadata.metadata;
       }
-      String middlewareVersion = buildProperties.getVersion();
-      boolean requesterIdFlag = true;
-      return EidasSaml.createMetaDataService("_eumiddleware",
-                                             configurationService.getServerURLWithEidasContextPath()
-                                                              + ContextPaths.METADATA,
-                                             validUntil,
-                                             signer.getSigCert(),
-                                             null,
-                                             EidasMapper.toEidasOrganisation(eidasMiddlewareConfig.getEidasConfiguration()
-                                                                                                  .getOrganization()),
-                                             EidasMapper.toEidasContactPerson(eidasMiddlewareConfig.getEidasConfiguration()
-                                                                                                   .getContactPerson()),
-                                             EidasMapper.toEidasContactPerson(eidasMiddlewareConfig.getEidasConfiguration()
-                                                                                                   .getContactPerson()),
-                                             configurationService.getServerURLWithEidasContextPath() + ContextPaths.REQUEST_RECEIVER,
-                                             configurationService.getServerURLWithEidasContextPath() + ContextPaths.REQUEST_RECEIVER,
-                                             supportedNameIdTypes,
-                                             list,
-                                             signer,
-                                             middlewareVersion,
-                                             eidasMiddlewareConfig.getEidasConfiguration().isDoSign(),
-                                             requesterIdFlag,
-                                             // Country Code is always 'DE' for eIDAS-Service metadata.
-                                             "DE");
     }
     catch (Exception e)
     {
       log.error("Cannot create metadata for this middleware", e);
     }
-    return ArrayUtils.EMPTY_BYTE_ARRAY;
+    return null;
+  }
+
+  private CachedMetadata createMetadata(ConfigurationSnapshot snapshot,
+                                        EidasMiddlewareConfig eidasMiddlewareConfig,
+                                        EidasSigner signer)
+    throws IOException, GeneralSecurityException, MarshallingException, SignatureException, TransformerException,
+    InitializationException
+  {
+    ArrayList<EidasPersonAttributes> list = new ArrayList<>();
+    list.add(EidasNaturalPersonAttributes.FAMILY_NAME);
+    list.add(EidasNaturalPersonAttributes.FIRST_NAME);
+    list.add(EidasNaturalPersonAttributes.CURRENT_ADDRESS);
+    list.add(EidasNaturalPersonAttributes.PERSON_IDENTIFIER);
+    list.add(EidasNaturalPersonAttributes.BIRTH_NAME);
+    list.add(EidasNaturalPersonAttributes.PLACE_OF_BIRTH);
+    list.add(EidasNaturalPersonAttributes.DATE_OF_BIRTH);
+    list.add(EidasNaturalPersonAttributes.NATIONALITY);
+
+    List<EidasNameIdType> supportedNameIdTypes = new ArrayList<>();
+    supportedNameIdTypes.add(EidasNameIdType.UNSPECIFIED);
+    Instant validUntil;
+    if (eidasMiddlewareConfig.getEidasConfiguration().getMetadataValidity() == 0)
+    {
+      validUntil = Instant.now().plus(30, ChronoUnit.DAYS);
+    }
+    else
+    {
+      validUntil = Instant.now()
+                          .plus(eidasMiddlewareConfig.getEidasConfiguration().getMetadataValidity(), ChronoUnit.DAYS);
+    }
+    String middlewareVersion = buildProperties.getVersion();
+    boolean requesterIdFlag = true;
+    byte[] metadata = EidasSaml.createMetaDataService("_eumiddleware",
+                                                      configurationService.getServerURLWithEidasContextPath()
+                                                                       + ContextPaths.METADATA,
+                                                      validUntil,
+                                                      signer.getSigCert(),
+                                                      null,
+                                                      EidasMapper.toEidasOrganisation(eidasMiddlewareConfig.getEidasConfiguration()
+                                                                                                           .getOrganization()),
+                                                      EidasMapper.toEidasContactPerson(eidasMiddlewareConfig.getEidasConfiguration()
+                                                                                                            .getContactPerson()),
+                                                      EidasMapper.toEidasContactPerson(eidasMiddlewareConfig.getEidasConfiguration()
+                                                                                                            .getContactPerson()),
+                                                      configurationService.getServerURLWithEidasContextPath() + ContextPaths.REQUEST_RECEIVER,
+                                                      configurationService.getServerURLWithEidasContextPath() + ContextPaths.REQUEST_RECEIVER,
+                                                      supportedNameIdTypes,
+                                                      list,
+                                                      signer,
+                                                      middlewareVersion,
+                                                      eidasMiddlewareConfig.getEidasConfiguration().isDoSign(),
+                                                      requesterIdFlag,
+                                                      // Country Code is always 'DE' for eIDAS-Service metadata.
+                                                      "DE");
+    Instant now = Instant.now();
+    Duration maxAge = Duration.between(now, validUntil).dividedBy(2);
+    if (maxAge.compareTo(MAX_METADATA_AGE) > 0)
+    {
+      maxAge = MAX_METADATA_AGE;
+    }
+    return new CachedMetadata(new SignedMetadata(metadata, now), snapshot.getVersion(), signer, now.plus(maxAge));
   }
 
-  private EidasSigner getEidasSigner(EidasMiddlewareConfig eidasMiddlewareConfig)
-    throws UnrecoverableKeyException, KeyStoreException, NoSuchAlgorithmException
+  private EidasSigner getEidasSigner(EidasMiddlewareConfig eidasMiddlewareConfig) throws GeneralSecurityException
   {
-    EidasSigner signer;
-    if (hsmServiceHolder.getKeyStore() == null)
+    KeyStore hsmKeyStore = hsmServiceHolder.getKeyStore();
+    if (hsmKeyStore == null)
     {
       KeyPair signatureKeyPair = configurationService.getSamlKeyPair(eidasMiddlewareConfig.getEidasConfiguration()
                                                                                           .getSignatureKeyPairName());
-      signer = new EidasSigner(true, signatureKeyPair.getKey(), signatureKeyPair.getCertificate());
+      return signerCache.getSigner(signatureKeyPair,
+                                   0,
+                                   () -> new EidasSigner(true, signatureKeyPair.getKey(),
+                                                         signatureKeyPair.getCertificate()));
     }
-    else
+    return signerCache.getSigner(hsmKeyStore,
+                                 hsmServiceHolder.getKeyStateVersion(),
+                                 () -> new EidasSigner(hsmKeyStore));
+  }
+
+  /**
+   * The last created metadata together with the state it was created from
+   */
+  @AllArgsConstructor
+  private static class CachedMetadata
+  {
+
+    private final SignedMetadata metadata;
+
+    private final long configurationVersion;
+
+    private final EidasSigner signer;
+
+    private final Instant refreshAfter;
+
+    boolean isUsable(ConfigurationSnapshot snapshot, EidasSigner currentSigner, Instant now)
     {
-      signer = new EidasSigner(hsmServiceHolder.getKeyStore());
+      return configurationVersion == snapshot.getVersion() && signer == currentSigner && now.isBefore(refreshAfter);
     }
-    return signer;
   }
-
 }
@@ -16,7 +16,7 @@ import java.util.concurrent.TimeUnit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,14 +27,14 @@ import lombok.extern.slf4j.Slf4j;
 public class RequestSessionTimer
 {
 
-  private final RequestSessionRepository requestSessionRepository;
+  private final RequestSessionStore requestSessionStore;
 
   @Scheduled(fixedRate = 1, timeUnit = TimeUnit.HOURS)
   public void deleteOldRequestSessions()
   {
     log.debug("Deleting old request sessions");
-    long deletedSessions = requestSessionRepository.removeAllByCreationTimeBefore(Instant.now()
-                                                                                         .minus(24, ChronoUnit.HOURS));
+    long deletedSessions = requestSessionStore.removeAllByCreationTimeBefore(Instant.now()
+                                                                                    .minus(24, ChronoUnit.HOURS));
     log.debug("Deleted {} old request sessions", deletedSessions);
   }
 }
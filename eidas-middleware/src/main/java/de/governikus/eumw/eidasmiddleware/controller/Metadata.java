@@ -9,8 +9,6 @@
 
 package de.governikus.eumw.eidasmiddleware.controller;
 
-import java.nio.charset.StandardCharsets;
-
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.http.HttpStatus;
@@ -23,6 +21,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import de.governikus.eumw.eidascommon.ContextPaths;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.service.MetadataService;
+import de.governikus.eumw.poseidas.service.SignedMetadata;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -41,13 +40,14 @@ public class Metadata
   private final ConfigurationService configurationService;
 
   /**
-   * Return the SAML Metadata for this middleware
+   * Return the SAML Metadata for this middleware. The response carries an ETag and a Last-Modified header so that
+   * conditional requests for unchanged metadata are answered with 304 Not Modified.
    */
   @GetMapping(produces = MediaType.APPLICATION_XML_VALUE)
   public ResponseEntity<String> sendMetadata()
   {
     // at this endpoint metadata is only available when signed
-    var optionalConfiguration = configurationService.getConfiguration();
+    var optionalConfiguration = configurationService.getConfigurationSnapshot().getConfiguration();
     if (optionalConfiguration.isEmpty())
     {
       log.debug("Cannot return metadata with missing configuration");
@@ -58,11 +58,15 @@ public class Metadata
       log.debug("Metadata signing is disabled, therefore the metadata is not served via HTTP");
       return new ResponseEntity<>(HttpStatus.GONE);
     }
-    byte[] out = metadataService.getMetadata();
-    if (ArrayUtils.isEmpty(out))
+    SignedMetadata signedMetadata = metadataService.getSignedMetadata();
+    if (signedMetadata == null || ArrayUtils.isEmpty(signedMetadata.getDocument()))
     {
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
     }
-    return new ResponseEntity<>(new String(out, StandardCharsets.UTF_8), HttpStatus.OK);
+    // Spring answers If-None-Match and If-Modified-Since with 304 based on these headers
+    return ResponseEntity.ok()
+                         .eTag(signedMetadata.getEtag())
+                         .lastModified(signedMetadata.getCreated())
+                         .body(signedMetadata.getDocumentAsString());
   }
 }
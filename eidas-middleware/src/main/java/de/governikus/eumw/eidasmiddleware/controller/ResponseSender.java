@@ -24,6 +24,7 @@ import org.springframework.web.servlet.ModelAndView;
 
 import de.governikus.eumw.eidascommon.ContextPaths;
 import de.governikus.eumw.eidasmiddleware.RequestProcessingException;
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
 import de.governikus.eumw.eidasmiddleware.handler.ResponseHandler;
 
 import lombok.extern.slf4j.Slf4j;
@@ -83,17 +84,20 @@ public class ResponseSender
 
     try
     {
-      String authnRequestId = responseHandler.getAuthnRequestIdForRefId(refID);
+      // resolve the request session once and use it for all parts of the response
+      RequestSession requestSession = responseHandler.getRequestSessionForRefID(refID);
+      String authnRequestId = requestSession.getReqId();
       if (httpSession.getAttribute(authnRequestId) == null)
       {
         throw new RequestProcessingException(MISSING_SESSION_ERROR_MESSAGE);
       }
 
-      String samlResponse = responseHandler.getResultForRefID(refID);
+      String samlResponse = responseHandler.getResultForRequestSession(refID, requestSession);
 
-      SamlResponseRecord samlResponseRecord = new SamlResponseRecord(samlResponse,
-                                                                     responseHandler.getConsumerURLForRefID(refID),
-                                                                     responseHandler.getRelayStateForRefID(refID));
+      String consumerURL = responseHandler.getConsumerURLForRequestSession(requestSession);
+
+      SamlResponseRecord samlResponseRecord = new SamlResponseRecord(samlResponse, consumerURL,
+                                                                     requestSession.getRelayState());
       ModelAndView response = getResponseModelAndView(samlResponseRecord, authnRequestId);
       httpSession.setAttribute(authnRequestId, samlResponseRecord);
       return response;
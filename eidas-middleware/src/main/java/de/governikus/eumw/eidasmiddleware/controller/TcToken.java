@@ -28,7 +28,7 @@ import de.governikus.eumw.eidascommon.ContextPaths;
 import de.governikus.eumw.eidascommon.ErrorCodeException;
 import de.governikus.eumw.eidascommon.Utils;
 import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasNaturalPersonAttributes;
 import de.governikus.eumw.poseidas.eidmodel.data.EIDKeys;
 import de.governikus.eumw.poseidas.paosservlet.authentication.AuthenticationConstants;
@@ -51,7 +51,7 @@ import lombok.extern.slf4j.Slf4j;
 public class TcToken
 {
 
-  private final RequestSessionRepository requestSessionRepository;
+  private final RequestSessionStore requestSessionStore;
 
   private final ConfigurationService configurationService;
 
@@ -95,11 +95,11 @@ public class TcToken
     RequestSession samlReqSession = null;
     try
     {
-      samlReqSession = requestSessionRepository.getReferenceById(sessionID);
+      samlReqSession = requestSessionStore.findById(sessionID).orElse(null);
     }
     catch (Exception e)
     {
-      log.error("can not access DB for entry {}", sessionID, e);
+      log.error("can not access request session store for entry {}", sessionID, e);
       resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
 
@@ -212,7 +212,7 @@ public class TcToken
     String refID = URLEncoder.encode(eidResult.getRequestId(), StandardCharsets.UTF_8);
 
     reqParser.setEidRef(refID);
-    requestSessionRepository.save(reqParser);
+    requestSessionStore.save(reqParser);
 
     if (!eidResult.getResultMajor().equals(Constants.EID_MAJOR_OK))
     {
@@ -44,7 +44,7 @@ import de.governikus.eumw.eidascommon.Utils;
 import de.governikus.eumw.eidasmiddleware.RequestProcessingException;
 import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
 import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasRequest;
 import de.governikus.eumw.eidasstarterkit.EidasSaml;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationException;
@@ -72,7 +72,7 @@ public class RequestHandler
   /**
    * store the incoming requests
    */
-  private final RequestSessionRepository requestSessionRepository;
+  private final RequestSessionStore requestSessionStore;
 
   /**
    * access the config of the middleware
@@ -250,7 +250,7 @@ public class RequestHandler
       {
         throw new ErrorCodeException(ErrorCode.MISSING_REQUEST_ID);
       }
-      if (requestSessionRepository.findById(authnRequestID).isPresent())
+      if (requestSessionStore.findById(authnRequestID).isPresent())
       {
         throw new ErrorCodeException(ErrorCode.DUPLICATE_REQUEST_ID, authnRequestID);
       }
@@ -304,7 +304,7 @@ public class RequestHandler
     }
 
     // Save the SAML request for later use
-    requestSessionRepository.save(new RequestSession(relayState, eidasReq, getReqProviderName(eidasReq)));
+    requestSessionStore.save(new RequestSession(relayState, eidasReq, getReqProviderName(eidasReq)));
   }
 
   private AuthnRequest getAuthnRequest(InputStream is)
@@ -11,6 +11,7 @@ package de.governikus.eumw.eidasmiddleware.handler;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -25,11 +26,12 @@ import org.springframework.stereotype.Service;
 import de.governikus.eumw.eidascommon.Constants;
 import de.governikus.eumw.eidascommon.ContextPaths;
 import de.governikus.eumw.eidascommon.ErrorCode;
+import de.governikus.eumw.eidasmiddleware.EidasSignerCache;
 import de.governikus.eumw.eidasmiddleware.RequestProcessingException;
 import de.governikus.eumw.eidasmiddleware.WebServiceHelper;
 import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
 import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasAttribute;
 import de.governikus.eumw.eidasstarterkit.EidasEncrypter;
 import de.governikus.eumw.eidasstarterkit.EidasLoaEnum;
@@ -91,7 +93,7 @@ public class ResponseHandler
 
   private static final String CANNOT_CREATE_SAML_RESPONSE = "Cannot create SAML response";
 
-  private final RequestSessionRepository requestSessionRepository;
+  private final RequestSessionStore requestSessionStore;
 
   private final ConfigurationService configurationService;
 
@@ -101,9 +103,11 @@ public class ResponseHandler
 
   private final CvcTlsCheck cvcTlsCheck;
 
+  private final EidasSignerCache signerCache = new EidasSignerCache();
+
   private RequestSession getSAMLReqSession(String refID)
   {
-    return requestSessionRepository.findByEidRef(refID).orElseGet(() -> {
+    return requestSessionStore.findByEidRef(refID).orElseGet(() -> {
       log.error("Cannot get request session for refID: {}", refID);
       return null;
     });
@@ -111,7 +115,7 @@ public class ResponseHandler
 
   private RequestSession getSAMLReqSessionByRequestId(String requestId)
   {
-    return requestSessionRepository.findById(requestId).orElseGet(() -> {
+    return requestSessionStore.findById(requestId).orElseGet(() -> {
       log.error("Cannot get request session for refID: {}", requestId);
       return null;
     });
@@ -124,12 +128,36 @@ public class ResponseHandler
    * @return The SAML response, already encrypted if necessary, signed and base64 encoded
    */
   public String getResultForRefID(String refID)
+  {
+    return getResultForRequestSession(refID, getRequestSessionForRefID(refID));
+  }
+
+  /**
+   * Get the request session for this refID
+   *
+   * @param refID The refID that was sent from the AusweisApp
+   * @return The request session, never <code>null</code>
+   * @throws RequestProcessingException if there is no request session for this refID
+   */
+  public RequestSession getRequestSessionForRefID(String refID)
   {
     RequestSession samlReqSession = getSAMLReqSession(refID);
     if (samlReqSession == null)
     {
       throw new RequestProcessingException(UNKNOWN_REF_ID);
     }
+    return samlReqSession;
+  }
+
+  /**
+   * Get the SAML response string for an already resolved request session
+   *
+   * @param refID The refID that was sent from the AusweisApp
+   * @param samlReqSession The request session belonging to this refID
+   * @return The SAML response, already encrypted if necessary, signed and base64 encoded
+   */
+  public String getResultForRequestSession(String refID, RequestSession samlReqSession)
+  {
     RequestingServiceProvider reqSP = configurationService.getProviderByEntityID(samlReqSession.getReqProviderEntityId());
 
     EIDResultResponse eidResponse = eidInternal.getResult(refID, 0);
@@ -200,8 +228,8 @@ public class ResponseHandler
 
   private EidasSigner getEidasSigner() throws IOException, GeneralSecurityException
   {
-    EidasSigner signer;
-    if (hsmServiceHolder.getKeyStore() == null)
+    KeyStore hsmKeyStore = hsmServiceHolder.getKeyStore();
+    if (hsmKeyStore == null)
     {
       var optionalConfiguration = configurationService.getConfiguration();
       if (optionalConfiguration.isEmpty())
@@ -212,13 +240,15 @@ public class ResponseHandler
       var signatureKeyPair = configurationService.getSamlKeyPair(optionalConfiguration.get()
                                                                                       .getEidasConfiguration()
                                                                                       .getSignatureKeyPairName());
-      signer = new EidasSigner(true, signatureKeyPair.getKey(), signatureKeyPair.getCertificate());
-    }
-    else
-    {
-      signer = new EidasSigner(hsmServiceHolder.getKeyStore());
-    }
-    return signer;
+      // The key pair is cached by the configuration service, so the signer is reused until the configuration changes
+      return signerCache.getSigner(signatureKeyPair,
+                                   0,
+                                   () -> new EidasSigner(true, signatureKeyPair.getKey(),
+                                                         signatureKeyPair.getCertificate()));
+    }
+    return signerCache.getSigner(hsmKeyStore,
+                                 hsmServiceHolder.getKeyStateVersion(),
+                                 () -> new EidasSigner(hsmKeyStore));
   }
 
   private String prepareLogMessage(RequestingServiceProvider reqSP, String samlRequestId, String errorCodeDescription)
@@ -607,23 +637,21 @@ public class ResponseHandler
 
   public String getConsumerURLForRefID(String refID)
   {
-    RequestSession samlReqSession = getSAMLReqSession(refID);
-    if (samlReqSession == null)
-    {
-      throw new RequestProcessingException(UNKNOWN_REF_ID);
-    }
+    return getConsumerURLForRequestSession(getRequestSessionForRefID(refID));
+  }
+
+  /**
+   * Gets the consumer url from the service provider of an already resolved request session.
+   */
+  public String getConsumerURLForRequestSession(RequestSession samlReqSession)
+  {
     RequestingServiceProvider reqSP = configurationService.getProviderByEntityID(samlReqSession.getReqProviderEntityId());
     return reqSP.getAssertionConsumerURL();
   }
 
   public String getRelayStateForRefID(String refID)
   {
-    RequestSession samlReqSession = getSAMLReqSession(refID);
-    if (samlReqSession == null)
-    {
-      throw new RequestProcessingException(UNKNOWN_REF_ID);
-    }
-    return samlReqSession.getRelayState();
+    return getRequestSessionForRefID(refID).getRelayState();
   }
 
   /**
@@ -648,12 +676,7 @@ public class ResponseHandler
    */
   public String getAuthnRequestIdForRefId(String refId)
   {
-    RequestSession samlReqSession = getSAMLReqSession(refId);
-    if (samlReqSession == null)
-    {
-      throw new RequestProcessingException(UNKNOWN_REF_ID);
-    }
-    return samlReqSession.getReqId();
+    return getRequestSessionForRefID(refId).getReqId();
   }
 
 }
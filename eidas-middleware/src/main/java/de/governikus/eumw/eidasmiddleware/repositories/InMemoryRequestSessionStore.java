@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware.repositories;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link RequestSessionStore} that keeps the request sessions in memory, indexed by the request ID and by the refID of
+ * the eID process. Sessions older than the configured time to live are no longer returned, and if the maximum number
+ * of sessions is exceeded, the oldest sessions are dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "middleware.requestsession.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRequestSessionStore implements RequestSessionStore
+{
+
+  private final Map<String, RequestSession> sessionsById = new ConcurrentHashMap<>();
+
+  private final Map<String, String> reqIdsByEidRef = new ConcurrentHashMap<>();
+
+  private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final int maxSize;
+
+  private final Duration timeToLive;
+
+  private final Clock clock;
+
+  @Autowired
+  public InMemoryRequestSessionStore(@Value("${middleware.requestsession.maxsize:100000}") int maxSize,
+                                     @Value("${middleware.requestsession.ttl:24h}") Duration timeToLive)
+  {
+    this(maxSize, timeToLive, Clock.systemUTC());
+  }
+
+  InMemoryRequestSessionStore(int maxSize, Duration timeToLive, Clock clock)
+  {
+    if (maxSize < 1)
+    {
+      throw new IllegalArgumentException("maxSize must be at least 1");
+    }
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+  }
+
+  @Override
+  public RequestSession save(RequestSession requestSession)
+  {
+    String reqId = requestSession.getReqId();
+    RequestSession previous = sessionsById.put(reqId, requestSession);
+    if (previous == null)
+    {
+      insertionOrder.add(reqId);
+      evictOverflow();
+    }
+    else if (previous.getEidRef() != null && !previous.getEidRef().equals(requestSession.getEidRef()))
+    {
+      reqIdsByEidRef.remove(previous.getEidRef(), reqId);
+    }
+    if (requestSession.getEidRef() != null)
+    {
+      reqIdsByEidRef.put(requestSession.getEidRef(), reqId);
+    }
+    return requestSession;
+  }
+
+  @Override
+  public Optional<RequestSession> findById(String reqId)
+  {
+    if (reqId == null)
+    {
+      return Optional.empty();
+    }
+    RequestSession requestSession = sessionsById.get(reqId);
+    if (requestSession == null)
+    {
+      return Optional.empty();
+    }
+    if (isExpired(requestSession, clock.instant().minus(timeToLive)))
+    {
+      remove(requestSession);
+      return Optional.empty();
+    }
+    return Optional.of(requestSession);
+  }
+
+  @Override
+  public Optional<RequestSession> findByEidRef(String eidRef)
+  {
+    if (eidRef == null)
+    {
+      return Optional.empty();
+    }
+    String reqId = reqIdsByEidRef.get(eidRef);
+    if (reqId == null)
+    {
+      return Optional.empty();
+    }
+    Optional<RequestSession> requestSession = findById(reqId);
+    if (requestSession.isEmpty() || !eidRef.equals(requestSession.get().getEidRef()))
+    {
+      // the session has been removed or got a new refID in the meantime
+      reqIdsByEidRef.remove(eidRef, reqId);
+      return Optional.empty();
+    }
+    return requestSession;
+  }
+
+  @Override
+  public long removeAllByCreationTimeBefore(Instant creationTime)
+  {
+    long removed = sessionsById.values()
+                               .stream()
+                               .filter(s -> isExpired(s, creationTime))
+                               .filter(this::remove)
+                               .count();
+    insertionOrder.removeIf(reqId -> !sessionsById.containsKey(reqId));
+    return removed;
+  }
+
+  /**
+   * @return the number of request sessions currently held, including expired ones not yet removed
+   */
+  public int size()
+  {
+    return sessionsById.size();
+  }
+
+  private void evictOverflow()
+  {
+    while (sessionsById.size() > maxSize)
+    {
+      String oldest = insertionOrder.poll();
+      if (oldest == null)
+      {
+        return;
+      }
+      RequestSession requestSession = sessionsById.get(oldest);
+      if (requestSession != null && remove(requestSession))
+      {
+        log.warn("Maximum number of {} request sessions reached, dropped request session {}", maxSize, oldest);
+      }
+    }
+  }
+
+  private boolean remove(RequestSession requestSession)
+  {
+    if (!sessionsById.remove(requestSession.getReqId(), requestSession))
+    {
+      return false;
+    }
+    if (requestSession.getEidRef() != null)
+    {
+      reqIdsByEidRef.remove(requestSession.getEidRef(), requestSession.getReqId());
+    }
+    return true;
+  }
+
+  private static boolean isExpired(RequestSession requestSession, Instant notBefore)
+  {
+    return requestSession.getCreationTime() == null || requestSession.getCreationTime().isBefore(notBefore);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * {@link RequestSessionStore} that persists the request sessions in the database
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "middleware.requestsession.store", havingValue = "database")
+public class JpaRequestSessionStore implements RequestSessionStore
+{
+
+  private final RequestSessionRepository requestSessionRepository;
+
+  @Override
+  public RequestSession save(RequestSession requestSession)
+  {
+    return requestSessionRepository.save(requestSession);
+  }
+
+  @Override
+  public Optional<RequestSession> findById(String reqId)
+  {
+    return requestSessionRepository.findById(reqId);
+  }
+
+  @Override
+  public Optional<RequestSession> findByEidRef(String eidRef)
+  {
+    return requestSessionRepository.findByEidRef(eidRef);
+  }
+
+  @Override
+  public long removeAllByCreationTimeBefore(Instant creationTime)
+  {
+    return requestSessionRepository.removeAllByCreationTimeBefore(creationTime);
+  }
+}
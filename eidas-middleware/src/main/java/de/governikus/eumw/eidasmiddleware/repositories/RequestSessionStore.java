@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
+
+
+/**
+ * Storage for the {@link RequestSession} objects that link an incoming SAML request to the eID process. The store to
+ * use is selected with the property <code>middleware.requestsession.store</code>: <code>memory</code> (default) keeps
+ * the sessions in this instance only, <code>database</code> persists them using {@link RequestSessionRepository}.
+ */
+public interface RequestSessionStore
+{
+
+  /**
+   * Store a new request session or update an existing one with the same request ID
+   *
+   * @param requestSession the session to store
+   * @return the stored session
+   */
+  RequestSession save(RequestSession requestSession);
+
+  /**
+   * Find a request session by the ID of the SAML request
+   */
+  Optional<RequestSession> findById(String reqId);
+
+  /**
+   * Find a request session by the refID of the eID process
+   */
+  Optional<RequestSession> findByEidRef(String eidRef);
+
+  /**
+   * Remove all request sessions that were created before the given time
+   *
+   * @return the number of removed sessions
+   */
+  long removeAllByCreationTimeBefore(Instant creationTime);
+}
@@ -40,6 +40,7 @@ import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationReposit
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.pki.HSMServiceHolder;
 import de.governikus.eumw.poseidas.service.MetadataService;
+import de.governikus.eumw.poseidas.service.SignedMetadata;
 import de.governikus.eumw.utils.xml.XmlHelper;
 import lombok.extern.slf4j.Slf4j;
 
@@ -123,6 +124,20 @@ class MetadataServiceImplTest
     Assertions.assertFalse(metadataAsString.contains("KeyDescriptor use=\"encryption\""));
   }
 
+  @Test
+  void whenGetSignedMetadataCalledTwiceExpectCachedDocument()
+  {
+    Mockito.when(buildProperties.getVersion()).thenReturn("2.0");
+    SignedMetadata first = metadataService.getSignedMetadata();
+    Assertions.assertNotNull(first);
+    Assertions.assertTrue(ArrayUtils.isNotEmpty(first.getDocument()));
+    Assertions.assertTrue(first.getEtag().startsWith("\"") && first.getEtag().endsWith("\""));
+
+    // The document is not signed again as long as nothing has changed
+    Assertions.assertSame(first, metadataService.getSignedMetadata());
+    Assertions.assertArrayEquals(first.getDocument(), metadataService.getMetadata());
+  }
+
   private byte[] createConfiguration() throws IOException
   {
     EidasMiddlewareConfig config = new EidasMiddlewareConfig();
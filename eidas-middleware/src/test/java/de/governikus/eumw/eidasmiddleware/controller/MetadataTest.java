@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import de.governikus.eumw.config.ContactType;
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import de.governikus.eumw.config.KeyPairType;
+import de.governikus.eumw.config.KeyStoreType;
+import de.governikus.eumw.config.KeyStoreTypeType;
+import de.governikus.eumw.config.OrganizationType;
+import de.governikus.eumw.eidascommon.ContextPaths;
+import de.governikus.eumw.eidasmiddleware.MetadataServiceImpl;
+import de.governikus.eumw.poseidas.server.idprovider.config.Configuration;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationRepository;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationTestHelper;
+import de.governikus.eumw.poseidas.server.pki.HSMServiceHolder;
+import de.governikus.eumw.utils.xml.XmlHelper;
+
+
+/**
+ * Test the conditional requests of the metadata endpoint
+ */
+@ExtendWith(MockitoExtension.class)
+class MetadataTest
+{
+
+  private static final String MIDDLEWARE_SIGN = "middleware-sign";
+
+  private static final String METADATA_PATH = ContextPaths.EIDAS_CONTEXT_PATH + ContextPaths.METADATA;
+
+  @Mock
+  private BuildProperties buildProperties;
+
+  @Mock
+  private HSMServiceHolder hsmServiceHolder;
+
+  @Mock
+  private ConfigurationRepository configurationRepository;
+
+  private ConfigurationService configurationService;
+
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    Configuration configuration = new Configuration();
+    configuration.setXmlConfigBlob(XmlHelper.marshalObject(createConfiguration("displayname"))
+                                            .getBytes(StandardCharsets.UTF_8));
+    Mockito.when(configurationRepository.findById(1L)).thenReturn(Optional.of(configuration));
+    Mockito.when(buildProperties.getVersion()).thenReturn("2.0");
+    configurationService = new ConfigurationService(configurationRepository);
+    mockMvc = MockMvcBuilders.standaloneSetup(new Metadata(new MetadataServiceImpl(buildProperties, hsmServiceHolder,
+                                                                                   configurationService),
+                                                           configurationService))
+                             .build();
+  }
+
+  @Test
+  void testUnchangedMetadataIsNotSentAgain() throws Exception
+  {
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get(METADATA_PATH))
+                         .andExpect(MockMvcResultMatchers.status().isOk())
+                         .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.LAST_MODIFIED))
+                         .andReturn()
+                         .getResponse()
+                         .getHeader(HttpHeaders.ETAG);
+    Assertions.assertNotNull(etag);
+
+    mockMvc.perform(MockMvcRequestBuilders.get(METADATA_PATH).header(HttpHeaders.IF_NONE_MATCH, etag))
+           .andExpect(MockMvcResultMatchers.status().isNotModified())
+           .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, etag))
+           .andExpect(MockMvcResultMatchers.content().string(""));
+  }
+
+  @Test
+  void testChangedConfigurationChangesEtag() throws Exception
+  {
+    Mockito.when(configurationRepository.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get(METADATA_PATH))
+                         .andExpect(MockMvcResultMatchers.status().isOk())
+                         .andReturn()
+                         .getResponse()
+                         .getHeader(HttpHeaders.ETAG);
+
+    configurationService.saveConfiguration(createConfiguration("changed-displayname"), false);
+
+    // the old ETag no longer matches, so the new metadata is sent
+    var response = mockMvc.perform(MockMvcRequestBuilders.get(METADATA_PATH).header(HttpHeaders.IF_NONE_MATCH, etag))
+                          .andExpect(MockMvcResultMatchers.status().isOk())
+                          .andReturn()
+                          .getResponse();
+    Assertions.assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+    Assertions.assertTrue(response.getContentAsString().contains("changed-displayname"));
+  }
+
+  private EidasMiddlewareConfig createConfiguration(String organizationDisplayName) throws Exception
+  {
+    EidasMiddlewareConfig config = ConfigurationTestHelper.createValidConfiguration();
+    config.getKeyData()
+          .getKeyStore()
+          .add(new KeyStoreType(MIDDLEWARE_SIGN,
+                                MetadataTest.class.getResourceAsStream("/eidasmiddlewareProperties/middleware-sign.p12")
+                                                  .readAllBytes(),
+                                KeyStoreTypeType.PKCS_12, "123456"));
+    config.getKeyData().getKeyPair().add(new KeyPairType(MIDDLEWARE_SIGN, MIDDLEWARE_SIGN, "123456", MIDDLEWARE_SIGN));
+    config.getEidasConfiguration().setSignatureKeyPairName(MIDDLEWARE_SIGN);
+    config.getEidasConfiguration()
+          .setContactPerson(new ContactType("company", "givenname", "surname", "email", "telephone"));
+    config.getEidasConfiguration()
+          .setOrganization(new OrganizationType(organizationDisplayName, "name", "language", "url"));
+    return config;
+  }
+}
@@ -14,6 +14,7 @@ import org.springframework.ui.ModelMap;
 import org.springframework.web.servlet.ModelAndView;
 
 import de.governikus.eumw.eidascommon.ContextPaths;
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
 import de.governikus.eumw.eidasmiddleware.handler.ResponseHandler;
 
 
@@ -30,6 +31,9 @@ class ResponseSenderTest
   @Mock
   private ResponseHandler responseHandler;
 
+  @Mock
+  private RequestSession requestSession;
+
   private ResponseSender responseSender;
 
   @BeforeEach
@@ -75,7 +79,8 @@ class ResponseSenderTest
   {
     MockHttpSession httpSession = new MockHttpSession();
     httpSession.setNew(false);
-    Mockito.when(responseHandler.getAuthnRequestIdForRefId(DUMMY_REF_ID)).thenReturn(DUMMY_AUTHN_REQUEST_ID);
+    Mockito.when(requestSession.getReqId()).thenReturn(DUMMY_AUTHN_REQUEST_ID);
+    Mockito.when(responseHandler.getRequestSessionForRefID(DUMMY_REF_ID)).thenReturn(requestSession);
     ModelAndView modelAndView = responseSender.doGet(DUMMY_REF_ID, httpSession);
     Assertions.assertEquals("error", modelAndView.getViewName());
     ModelMap modelMap = modelAndView.getModelMap();
@@ -89,12 +94,16 @@ class ResponseSenderTest
     MockHttpSession httpSession = new MockHttpSession();
     httpSession.setNew(false);
     httpSession.setAttribute(DUMMY_AUTHN_REQUEST_ID, new ResponseSender.SamlResponseRecord(null, null, null));
-    Mockito.when(responseHandler.getAuthnRequestIdForRefId(DUMMY_REF_ID)).thenReturn(DUMMY_AUTHN_REQUEST_ID);
-    Mockito.when(responseHandler.getResultForRefID(DUMMY_REF_ID)).thenReturn(DUMMY_SAML_RESPONSE);
-    Mockito.when(responseHandler.getConsumerURLForRefID(DUMMY_REF_ID)).thenReturn("dummyURL");
-    Mockito.when(responseHandler.getRelayStateForRefID(DUMMY_REF_ID)).thenReturn("dummyRelayState");
+    Mockito.when(requestSession.getReqId()).thenReturn(DUMMY_AUTHN_REQUEST_ID);
+    Mockito.when(requestSession.getRelayState()).thenReturn("dummyRelayState");
+    Mockito.when(responseHandler.getRequestSessionForRefID(DUMMY_REF_ID)).thenReturn(requestSession);
+    Mockito.when(responseHandler.getResultForRequestSession(DUMMY_REF_ID, requestSession))
+           .thenReturn(DUMMY_SAML_RESPONSE);
+    Mockito.when(responseHandler.getConsumerURLForRequestSession(requestSession)).thenReturn("dummyURL");
     ModelAndView modelAndView = responseSender.doGet(DUMMY_REF_ID, httpSession);
 
+    Mockito.verify(responseHandler, Mockito.times(1)).getRequestSessionForRefID(DUMMY_REF_ID);
+
     Assertions.assertNotNull(httpSession.getAttribute(DUMMY_AUTHN_REQUEST_ID));
     Assertions.assertEquals("response", modelAndView.getViewName());
     ModelMap modelMap = modelAndView.getModelMap();
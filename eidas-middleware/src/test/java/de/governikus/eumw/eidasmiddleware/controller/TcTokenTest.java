@@ -12,7 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasNaturalPersonAttributes;
 import de.governikus.eumw.poseidas.ecardcore.model.ResultMajor;
 import de.governikus.eumw.poseidas.ecardcore.model.ResultMinor;
@@ -31,7 +31,7 @@ class TcTokenTest
   private static final String REQUEST_ID = "request-id";
 
   @Mock
-  private RequestSessionRepository requestSessionRepository;
+  private RequestSessionStore requestSessionStore;
 
   @Mock
   private ConfigurationService configurationService;
@@ -42,11 +42,11 @@ class TcTokenTest
   @Test
   void doGetWithValidSessionIDReturnsTcToken() throws Exception
   {
-    TcToken token = new TcToken(requestSessionRepository, configurationService, eidInternal);
+    TcToken token = new TcToken(requestSessionStore, configurationService, eidInternal);
 
     RequestSession mockSession = Mockito.mock(RequestSession.class);
 
-    Mockito.when(requestSessionRepository.getReferenceById(SESSION_ID)).thenReturn(mockSession);
+    Mockito.when(requestSessionStore.findById(SESSION_ID)).thenReturn(Optional.of(mockSession));
 
     Mockito.when(mockSession.getReqProviderName()).thenReturn(ConfigurationTestHelper.SP_NAME);
 
@@ -84,7 +84,7 @@ class TcTokenTest
   @Test
   void testDoGetWithNoSessionIdReturnsBadRequest()
   {
-    TcToken token = new TcToken(requestSessionRepository, configurationService, eidInternal);
+    TcToken token = new TcToken(requestSessionStore, configurationService, eidInternal);
 
     MockHttpServletResponse mockHttpServletResponse = new MockHttpServletResponse();
     token.doGet(null, mockHttpServletResponse);
@@ -94,8 +94,8 @@ class TcTokenTest
   @Test
   void testDoGetWithSessionIdNotFoundReturnsBadRequest()
   {
-    TcToken token = new TcToken(requestSessionRepository, configurationService, eidInternal);
-    Mockito.when(requestSessionRepository.getReferenceById(SESSION_ID)).thenReturn(null);
+    TcToken token = new TcToken(requestSessionStore, configurationService, eidInternal);
+    Mockito.when(requestSessionStore.findById(SESSION_ID)).thenReturn(Optional.empty());
 
     MockHttpServletResponse mockHttpServletResponse = new MockHttpServletResponse();
     token.doGet(SESSION_ID, mockHttpServletResponse);
@@ -105,9 +105,9 @@ class TcTokenTest
   @Test
   void testDoGetWithEmptyConfigurationReturnsServerError()
   {
-    TcToken token = new TcToken(requestSessionRepository, configurationService, eidInternal);
+    TcToken token = new TcToken(requestSessionStore, configurationService, eidInternal);
     RequestSession mockSession = Mockito.mock(RequestSession.class);
-    Mockito.when(requestSessionRepository.getReferenceById(SESSION_ID)).thenReturn(mockSession);
+    Mockito.when(requestSessionStore.findById(SESSION_ID)).thenReturn(Optional.of(mockSession));
     Mockito.when(configurationService.getConfiguration()).thenReturn(Optional.empty());
 
     MockHttpServletResponse mockHttpServletResponse = new MockHttpServletResponse();
@@ -118,11 +118,11 @@ class TcTokenTest
   @Test
   void testDoGetWithResultMajorNotOkReturnsBadRequest() throws Exception
   {
-    TcToken token = new TcToken(requestSessionRepository, configurationService, eidInternal);
+    TcToken token = new TcToken(requestSessionStore, configurationService, eidInternal);
 
     RequestSession mockSession = Mockito.mock(RequestSession.class);
 
-    Mockito.when(requestSessionRepository.getReferenceById(SESSION_ID)).thenReturn(mockSession);
+    Mockito.when(requestSessionStore.findById(SESSION_ID)).thenReturn(Optional.of(mockSession));
 
     Mockito.when(mockSession.getReqProviderName()).thenReturn(ConfigurationTestHelper.SP_NAME);
 
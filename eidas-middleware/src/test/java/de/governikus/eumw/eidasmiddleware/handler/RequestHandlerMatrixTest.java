@@ -44,7 +44,7 @@ import de.governikus.eumw.config.EidasMiddlewareConfig;
 import de.governikus.eumw.config.ServiceProviderType;
 import de.governikus.eumw.eidascommon.ErrorCodeWithResponseException;
 import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasLoaEnum;
 import de.governikus.eumw.eidasstarterkit.EidasNameIdType;
 import de.governikus.eumw.eidasstarterkit.EidasNaturalPersonAttributes;
@@ -75,7 +75,7 @@ class RequestHandlerMatrixTest
   private static final String DEFAULT_PASSWORD = "123456";
 
   @MockBean
-  private RequestSessionRepository requestSessionRepository;
+  private RequestSessionStore requestSessionStore;
 
   @MockBean
   private ConfigurationService mockConfigurationService;
@@ -128,7 +128,7 @@ class RequestHandlerMatrixTest
                                            testPrerequisites.requesterId,
                                            testPrerequisites.spTypeRequest);
 
-    RequestHandler requestHandler = new RequestHandler(requestSessionRepository, mockConfigurationService);
+    RequestHandler requestHandler = new RequestHandler(requestSessionStore, mockConfigurationService);
     EidasRequest eIDASRequest = requestHandler.handleSAMLPostRequest("RELAY_STATE", samlRequest);
     Assertions.assertNotNull(eIDASRequest.getId());
   }
@@ -145,7 +145,7 @@ class RequestHandlerMatrixTest
                                            testPrerequisites.requesterId,
                                            testPrerequisites.spTypeRequest);
 
-    RequestHandler requestHandler = new RequestHandler(requestSessionRepository, mockConfigurationService);
+    RequestHandler requestHandler = new RequestHandler(requestSessionStore, mockConfigurationService);
     Assertions.assertThrows(ErrorCodeWithResponseException.class,
                             () -> requestHandler.handleSAMLPostRequest("RELAY_STATE", samlRequest));
   }
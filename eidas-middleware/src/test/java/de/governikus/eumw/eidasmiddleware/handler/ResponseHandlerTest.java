@@ -48,7 +48,7 @@ import de.governikus.eumw.eidascommon.Utils;
 import de.governikus.eumw.eidasmiddleware.RequestProcessingException;
 import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
 import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
-import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionRepository;
+import de.governikus.eumw.eidasmiddleware.repositories.RequestSessionStore;
 import de.governikus.eumw.eidasstarterkit.EidasAttribute;
 import de.governikus.eumw.eidasstarterkit.EidasLoaEnum;
 import de.governikus.eumw.eidasstarterkit.EidasNaturalPersonAttributes;
@@ -110,7 +110,7 @@ class ResponseHandlerTest
   private final KeyStore signatureKeystore;
 
   @Mock
-  private RequestSessionRepository requestSessionRepository;
+  private RequestSessionStore requestSessionStore;
 
   @Mock
   private ConfigurationService mockConfigurationService;
@@ -156,7 +156,7 @@ class ResponseHandlerTest
   @BeforeEach
   void setUp()
   {
-    systemUnderTest = spy(new ResponseHandler(requestSessionRepository, mockConfigurationService, mockHsmServiceHolder,
+    systemUnderTest = spy(new ResponseHandler(requestSessionStore, mockConfigurationService, mockHsmServiceHolder,
                                               mockEidInternal, mockCvcTlsCheck));
   }
 
@@ -169,7 +169,7 @@ class ResponseHandlerTest
   @Test
   void testGetResultForRefIDNotFoundSqlException() throws SQLException, ErrorCodeException
   {
-    when(requestSessionRepository.findByEidRef("")).thenReturn(Optional.empty());
+    when(requestSessionStore.findByEidRef("")).thenReturn(Optional.empty());
     Assertions.assertThrows(RequestProcessingException.class, () -> systemUnderTest.getResultForRefID(""));
   }
 
@@ -180,7 +180,7 @@ class ResponseHandlerTest
   {
     // Mock Session Store
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     // Mock EID Response
     EIDResultResponse mockEidResultResponse = mock(EIDResultResponse.class);
@@ -240,7 +240,7 @@ class ResponseHandlerTest
   {
     // Mock Session Store
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     // Mock EID Response
     EIDResultResponse mockEidResultResponse = mock(EIDResultResponse.class);
@@ -276,7 +276,7 @@ class ResponseHandlerTest
   {
     // Mock Session Store
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     // Mock EID Response
     EIDResultResponse mockEidResultResponse = mock(EIDResultResponse.class);
@@ -313,7 +313,7 @@ class ResponseHandlerTest
   {
     // Mock Session Store
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     // Mock EID Response
     EIDResultResponse mockEidResultResponse = mock(EIDResultResponse.class);
@@ -359,7 +359,7 @@ class ResponseHandlerTest
   @Test
   void testGetConsumerURLForRefIDUnkonwnRef() throws SQLException, ErrorCodeException
   {
-    when(requestSessionRepository.findByEidRef("")).thenReturn(Optional.empty());
+    when(requestSessionStore.findByEidRef("")).thenReturn(Optional.empty());
     Assertions.assertThrows(RequestProcessingException.class, () -> systemUnderTest.getConsumerURLForRefID(""));
   }
 
@@ -368,7 +368,7 @@ class ResponseHandlerTest
   {
     // Mock request session
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     // Mock ServiceProvider
     RequestingServiceProvider mockRequestingServiceProvider = mock(RequestingServiceProvider.class);
@@ -385,7 +385,7 @@ class ResponseHandlerTest
   @Test
   void testGetRelayStateForRefIDUnkonwnRef() throws SQLException, ErrorCodeException
   {
-    when(requestSessionRepository.findByEidRef("")).thenReturn(Optional.empty());
+    when(requestSessionStore.findByEidRef("")).thenReturn(Optional.empty());
     Assertions.assertThrows(RequestProcessingException.class, () -> systemUnderTest.getRelayStateForRefID(""));
   }
 
@@ -394,7 +394,7 @@ class ResponseHandlerTest
   {
     // Mock request session
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
     when(mockRequestSession.getRelayState()).thenReturn(anyString());
 
     Assertions.assertDoesNotThrow(() -> systemUnderTest.getRelayStateForRefID(""));
@@ -406,7 +406,7 @@ class ResponseHandlerTest
   {
     // Mock request session
     RequestSession mockRequestSession = mock(RequestSession.class);
-    when(requestSessionRepository.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findByEidRef(anyString())).thenReturn(Optional.of(mockRequestSession));
 
     Assertions.assertDoesNotThrow(() -> systemUnderTest.getRelayStateForRefID(""));
     Assertions.assertEquals(null, systemUnderTest.getRelayStateForRefID(""));
@@ -703,7 +703,7 @@ class ResponseHandlerTest
     when(mockCvcResults.isCvcValidity()).thenReturn(true);
     when(mockCvcResults.isCvcTlsMatch()).thenReturn(true);
     when(mockCvcResults.isCvcUrlMatch()).thenReturn(true);
-    ResponseHandler responseHandler = new ResponseHandler(requestSessionRepository, mockConfigurationService,
+    ResponseHandler responseHandler = new ResponseHandler(requestSessionStore, mockConfigurationService,
                                                           mockHsmServiceHolder, mockEidInternal, mockCvcTlsCheck);
     String dummyResponse = responseHandler.prepareDummyResponse(REQUEST_ID, null);
 
@@ -739,7 +739,7 @@ class ResponseHandlerTest
     when(mockCvcResults.isCvcValidity()).thenReturn(true);
     when(mockCvcResults.isCvcTlsMatch()).thenReturn(true);
     when(mockCvcResults.isCvcUrlMatch()).thenReturn(true);
-    ResponseHandler responseHandler = new ResponseHandler(requestSessionRepository, mockConfigurationService,
+    ResponseHandler responseHandler = new ResponseHandler(requestSessionStore, mockConfigurationService,
                                                           mockHsmServiceHolder, mockEidInternal, mockCvcTlsCheck);
     String dummyResponse = responseHandler.prepareDummyResponse(REQUEST_ID, TestCaseEnum.CANCELLATION_BY_USER);
 
@@ -775,7 +775,7 @@ class ResponseHandlerTest
     when(mockCvcResults.isCvcValidity()).thenReturn(true);
     when(mockCvcResults.isCvcTlsMatch()).thenReturn(true);
     when(mockCvcResults.isCvcUrlMatch()).thenReturn(true);
-    ResponseHandler responseHandler = new ResponseHandler(requestSessionRepository, mockConfigurationService,
+    ResponseHandler responseHandler = new ResponseHandler(requestSessionStore, mockConfigurationService,
                                                           mockHsmServiceHolder, mockEidInternal, mockCvcTlsCheck);
     String dummyResponse = responseHandler.prepareDummyResponse(REQUEST_ID, TestCaseEnum.WRONG_SIGNATURE);
 
@@ -805,7 +805,7 @@ class ResponseHandlerTest
     when(mockCvcResults.isCvcValidity()).thenReturn(true);
     when(mockCvcResults.isCvcTlsMatch()).thenReturn(true);
     when(mockCvcResults.isCvcUrlMatch()).thenReturn(true);
-    ResponseHandler responseHandler = new ResponseHandler(requestSessionRepository, mockConfigurationService,
+    ResponseHandler responseHandler = new ResponseHandler(requestSessionStore, mockConfigurationService,
                                                           mockHsmServiceHolder, mockEidInternal, mockCvcTlsCheck);
     String dummyResponse = responseHandler.prepareDummyResponse(REQUEST_ID, TestCaseEnum.UNKNOWN);
 
@@ -837,7 +837,7 @@ class ResponseHandlerTest
     checkResults.setCvcUrlMatch(true);
     checkResults.setCvcTlsMatch(true);
     when(mockCvcTlsCheck.checkCvcProvider(anyString())).thenReturn(checkResults);
-    ResponseHandler responseHandler = new ResponseHandler(requestSessionRepository, mockConfigurationService,
+    ResponseHandler responseHandler = new ResponseHandler(requestSessionStore, mockConfigurationService,
                                                           mockHsmServiceHolder, mockEidInternal, mockCvcTlsCheck);
     String dummyResponse = responseHandler.prepareDummyResponse(REQUEST_ID, TestCaseEnum.UNKNOWN);
 
@@ -904,7 +904,7 @@ class ResponseHandlerTest
   private void prepareMocks(KeyStore keystore, String alias, String password)
     throws SQLException, ErrorCodeException, IOException, GeneralSecurityException
   {
-    when(requestSessionRepository.findById(anyString())).thenReturn(Optional.of(mockRequestSession));
+    when(requestSessionStore.findById(anyString())).thenReturn(Optional.of(mockRequestSession));
     when(mockRequestSession.getReqProviderEntityId()).thenReturn(ENTITY_ID);
     when(mockConfigurationService.getProviderByEntityID(ENTITY_ID)).thenReturn(mockRequestingServiceProvider);
     when(mockHsmServiceHolder.getKeyStore()).thenReturn(null);
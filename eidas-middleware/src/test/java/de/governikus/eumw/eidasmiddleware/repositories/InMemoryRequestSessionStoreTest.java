@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2022 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.eidasmiddleware.repositories;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.governikus.eumw.eidasmiddleware.entities.RequestSession;
+import de.governikus.eumw.eidasstarterkit.EidasNaturalPersonAttributes;
+import de.governikus.eumw.eidasstarterkit.EidasRequest;
+
+
+class InMemoryRequestSessionStoreTest
+{
+
+  @Test
+  void testFindByIdAndEidRef()
+  {
+    InMemoryRequestSessionStore store = new InMemoryRequestSessionStore(10, Duration.ofHours(24));
+    RequestSession requestSession = store.save(createRequestSession("id"));
+
+    Assertions.assertSame(requestSession, store.findById("id").orElseThrow());
+    Assertions.assertTrue(store.findByEidRef("eidRef").isEmpty());
+
+    requestSession.setEidRef("eidRef");
+    store.save(requestSession);
+    Assertions.assertSame(requestSession, store.findByEidRef("eidRef").orElseThrow());
+    Assertions.assertEquals(1, store.size());
+
+    // a changed refID must not be found under the old value anymore
+    requestSession.setEidRef("otherEidRef");
+    store.save(requestSession);
+    Assertions.assertTrue(store.findByEidRef("eidRef").isEmpty());
+    Assertions.assertSame(requestSession, store.findByEidRef("otherEidRef").orElseThrow());
+  }
+
+  @Test
+  void testExpiredSessionsAreNotReturned()
+  {
+    Clock later = Clock.fixed(Instant.now().plus(2, ChronoUnit.HOURS), ZoneOffset.UTC);
+    InMemoryRequestSessionStore store = new InMemoryRequestSessionStore(10, Duration.ofHours(1), later);
+    RequestSession requestSession = createRequestSession("id");
+    requestSession.setEidRef("eidRef");
+    store.save(requestSession);
+
+    Assertions.assertTrue(store.findByEidRef("eidRef").isEmpty());
+    Assertions.assertTrue(store.findById("id").isEmpty());
+    Assertions.assertEquals(0, store.size());
+  }
+
+  @Test
+  void testRemoveAllByCreationTimeBefore()
+  {
+    InMemoryRequestSessionStore store = new InMemoryRequestSessionStore(10, Duration.ofHours(24));
+    store.save(createRequestSession("id"));
+
+    Assertions.assertEquals(0, store.removeAllByCreationTimeBefore(Instant.now().minus(1, ChronoUnit.HOURS)));
+    Assertions.assertEquals(1, store.size());
+    Assertions.assertEquals(1, store.removeAllByCreationTimeBefore(Instant.now().plus(1, ChronoUnit.SECONDS)));
+    Assertions.assertEquals(0, store.size());
+  }
+
+  @Test
+  void testOldestSessionsAreDroppedWhenFull()
+  {
+    InMemoryRequestSessionStore store = new InMemoryRequestSessionStore(2, Duration.ofHours(24));
+    for ( int i = 0 ; i < 3 ; i++ )
+    {
+      RequestSession requestSession = createRequestSession("id" + i);
+      requestSession.setEidRef("eidRef" + i);
+      store.save(requestSession);
+    }
+
+    Assertions.assertEquals(2, store.size());
+    Assertions.assertTrue(store.findById("id0").isEmpty());
+    Assertions.assertTrue(store.findByEidRef("eidRef0").isEmpty());
+    Assertions.assertTrue(store.findByEidRef("eidRef1").isPresent());
+    Assertions.assertTrue(store.findByEidRef("eidRef2").isPresent());
+  }
+
+  private RequestSession createRequestSession(String id)
+  {
+    EidasRequest eidasRequest = Mockito.mock(EidasRequest.class);
+    Mockito.when(eidasRequest.getId()).thenReturn(id);
+    Mockito.when(eidasRequest.getRequestedAttributes())
+           .thenReturn(Map.of(EidasNaturalPersonAttributes.BIRTH_NAME, true));
+    return new RequestSession("relayState", eidasRequest, "providerName");
+  }
+}
@@ -65,6 +65,8 @@ public class EidasSaml
 
   private static boolean isInit = false;
 
+  private static volatile Schema samlSchema;
+
   /**
    * Inits the OpenSAML library and the EidasSaml Starterkit library. It is necessary to call this method!
    */
@@ -460,18 +462,7 @@ public class EidasSaml
     throws SAXException, IOException
   {
 
-    SchemaFactory sf = Utils.getSchemaFactory();
-
-    StreamSource s2 = new StreamSource(EidasSaml.class.getResourceAsStream("saml-schema-protocol-2_0.xsd"));
-    StreamSource s1 = new StreamSource(EidasSaml.class.getResourceAsStream("saml-schema-assertion-2_0.xsd"));
-    StreamSource s3 = new StreamSource(EidasSaml.class.getResourceAsStream("xenc-schema.xsd"));
-    StreamSource s4 = new StreamSource(EidasSaml.class.getResourceAsStream("xmldsig-core-schema.xsd"));
-    StreamSource s5 = new StreamSource(EidasSaml.class.getResourceAsStream("NaturalPersonShema.xsd"));
-    StreamSource s6 = new StreamSource(EidasSaml.class.getResourceAsStream("xenc-schema-11.xsd"));
-
-
-    Schema schema = sf.newSchema(new StreamSource[]{s5, s4, s3, s6, s1, s2,});
-    Validator validator = Utils.getValidator(schema);
+    Validator validator = Utils.getValidator(getSamlSchema());
     validator.validate(new StreamSource(is));
     if (resetStreamAfterValidation)
     {
@@ -479,6 +470,36 @@ public class EidasSaml
     }
   }
 
+  /**
+   * Returns the compiled schema used by {@link #validateXMLRequest(InputStream, boolean)}. The schema is compiled only
+   * once as {@link Schema} objects are immutable and thread-safe.
+   */
+  private static Schema getSamlSchema() throws SAXException
+  {
+    Schema schema = samlSchema;
+    if (schema == null)
+    {
+      synchronized (EidasSaml.class)
+      {
+        if (samlSchema == null)
+        {
+          SchemaFactory sf = Utils.getSchemaFactory();
+
+          StreamSource s2 = new StreamSource(EidasSaml.class.getResourceAsStream("saml-schema-protocol-2_0.xsd"));
+          StreamSource s1 = new StreamSource(EidasSaml.class.getResourceAsStream("saml-schema-assertion-2_0.xsd"));
+          StreamSource s3 = new StreamSource(EidasSaml.class.getResourceAsStream("xenc-schema.xsd"));
+          StreamSource s4 = new StreamSource(EidasSaml.class.getResourceAsStream("xmldsig-core-schema.xsd"));
+          StreamSource s5 = new StreamSource(EidasSaml.class.getResourceAsStream("NaturalPersonShema.xsd"));
+          StreamSource s6 = new StreamSource(EidasSaml.class.getResourceAsStream("xenc-schema-11.xsd"));
+
+          samlSchema = sf.newSchema(new StreamSource[]{s5, s4, s3, s6, s1, s2,});
+        }
+        schema = samlSchema;
+      }
+    }
+    return schema;
+  }
+
   /**
    * Unmarshal a SAML metadata document from an input stream
    *
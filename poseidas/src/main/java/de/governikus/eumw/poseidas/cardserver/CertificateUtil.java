@@ -240,4 +240,56 @@ public final class CertificateUtil
       }
     };
   }
+
+  /**
+   * Returns the key identifier contained in the X.509 extension <code>Authority Key Identifier</code> of the given
+   * certificate.
+   *
+   * @param certificate the certificate
+   * @return the key identifier or <code>null</code> if not present or not readable
+   */
+  public static byte[] getAuthorityKeyIdentifier(X509Certificate certificate)
+  {
+    byte[] extensionValue = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+    if (extensionValue == null)
+    {
+      return null;
+    }
+    try
+    {
+      ASN1OctetString asn1OctetString = (ASN1OctetString)ASN1Primitive.fromByteArray(extensionValue);
+      ASN1Sequence asn1Sequence = (ASN1Sequence)ASN1Primitive.fromByteArray(asn1OctetString.getOctets());
+      return ((ASN1OctetString)((ASN1TaggedObject)asn1Sequence.getObjectAt(0)).getBaseObject()).getOctets();
+    }
+    catch (Exception e)
+    {
+      log.debug("Cannot read the authority key identifier", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the value of the X.509 extension <code>Subject Key Identifier</code> of the given certificate.
+   *
+   * @param certificate the certificate
+   * @return the key identifier or <code>null</code> if not present or not readable
+   */
+  public static byte[] getSubjectKeyIdentifier(X509Certificate certificate)
+  {
+    byte[] extensionValue = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+    if (extensionValue == null)
+    {
+      return null;
+    }
+    try
+    {
+      ASN1OctetString outerOctetString = (ASN1OctetString)ASN1Primitive.fromByteArray(extensionValue);
+      return ((ASN1OctetString)ASN1Primitive.fromByteArray(outerOctetString.getOctets())).getOctets();
+    }
+    catch (Exception e)
+    {
+      log.debug("Cannot read the subject key identifier", e);
+      return null;
+    }
+  }
 }
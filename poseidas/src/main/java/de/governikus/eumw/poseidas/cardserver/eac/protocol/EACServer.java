@@ -103,6 +103,13 @@ public class EACServer
    */
   public static final int STEP_TACA_RESULT = 3;
 
+  /**
+   * ChipAuthenticationDomainParameterInfo with the standardized domain parameters 13 (brainpoolP256r1) used by the
+   * German eID cards.
+   */
+  private static final String STANDARD_CA_DOMAIN_PARAMETERS = "301c060904007f000702020302300c"
+                                                              + "060704007f0007010202010d020129";
+
   /**
    * Reference to the {@link ChipAuthenticationData} selected when creating second input.
    */
@@ -131,6 +138,33 @@ public class EACServer
     super();
   }
 
+  /**
+   * Starts filling the pool of ephemeral key pairs for the standardized domain parameters of the German eID cards in
+   * the background.
+   */
+  public static void prepareEphemeralKeyPairs()
+  {
+    try
+    {
+      EphemeralKeyPairPool.getInstance()
+                          .warmUp(new ChipAuthenticationDomainParameterInfo(Hex.parse(STANDARD_CA_DOMAIN_PARAMETERS)));
+    }
+    catch (IOException e)
+    {
+      LOG.warn("Cannot pre-generate ephemeral key pairs", e);
+    }
+  }
+
+  /**
+   * Destroys the ephemeral key pair for TA/CA if it is still present. Must be called when the session ends, also if it
+   * is aborted or timed out before the result of TA/CA is processed. Calling it more than once has no effect.
+   */
+  public synchronized void releaseEphemeralKeys()
+  {
+    EphemeralKeyPairPool.destroy(this.ephemeralTACAKeys);
+    this.ephemeralTACAKeys = null;
+  }
+
   /**
    * Produces input for TACA.
    *
@@ -209,11 +243,16 @@ public class EACServer
                                          + OIDConstants.OID_CA_ECDH);
     }
 
-    // generate key pair
-    this.ephemeralTACAKeys = kh.generateKeyPair(this.caData.getCaDomParamInfo());
-    LOG.debug("Generated key pair, public part: " + Hex.hexify(this.ephemeralTACAKeys.getPublic().getEncoded()));
-    byte[] compressedKey = kh.compressKey(this.ephemeralTACAKeys.getPublic());
-    byte[] ephemeralPublicKey = kh.ephemeralKeyBytes(this.ephemeralTACAKeys.getPublic());
+    // take pre-generated key pair if available
+    releaseEphemeralKeys();
+    KeyPair keyPair = EphemeralKeyPairPool.getInstance().take(this.caData.getCaDomParamInfo(), kh);
+    synchronized (this)
+    {
+      this.ephemeralTACAKeys = keyPair;
+    }
+    LOG.debug("Generated key pair, public part: " + Hex.hexify(keyPair.getPublic().getEncoded()));
+    byte[] compressedKey = kh.compressKey(keyPair.getPublic());
+    byte[] ephemeralPublicKey = kh.ephemeralKeyBytes(keyPair.getPublic());
 
     List<byte[]> cl = new ArrayList<>();
 
@@ -235,26 +274,35 @@ public class EACServer
       return null;
     }
 
-    byte[] signatureKey = cakProvider.getKeyByHolder(termHolder);
-    if (signatureKey != null)
-    {
-      LocalCertAndKeyProvider.getInstance().addKey(termHolder, signatureKey);
-    }
-
     EAC2InputTypeWrapper result2 = new EAC2InputTypeWrapper();
     result2.setProtocol(PROTOCOL_EAC2);
     result2.setEphemeralPublicKey(ephemeralPublicKey);
     result2.setCertificateList(cl);
 
-    // sign if possible
-    byte[] rPicc = firstOutput.getChallenge();
-    byte[] idPicc = firstOutput.getIDPICC();
-    byte[] convertedSignature = produceSignature(termCert,
-                                                 firstInput.getAuthenticatedAuxiliaryData(),
-                                                 idPicc,
-                                                 rPicc,
-                                                 compressedKey);
-    result2.setSignature(convertedSignature);
+    // sign if possible, the key is only needed for this signature
+    byte[] signatureKey = cakProvider.getKeyByHolder(termHolder);
+    if (signatureKey != null)
+    {
+      LocalCertAndKeyProvider.getInstance().addSessionKey(termHolder, signatureKey);
+    }
+    try
+    {
+      byte[] rPicc = firstOutput.getChallenge();
+      byte[] idPicc = firstOutput.getIDPICC();
+      byte[] convertedSignature = produceSignature(termCert,
+                                                   firstInput.getAuthenticatedAuxiliaryData(),
+                                                   idPicc,
+                                                   rPicc,
+                                                   compressedKey);
+      result2.setSignature(convertedSignature);
+    }
+    finally
+    {
+      if (signatureKey != null)
+      {
+        LocalCertAndKeyProvider.getInstance().removeSessionKey(termHolder);
+      }
+    }
 
 
     return result2;
@@ -381,7 +429,25 @@ public class EACServer
     }
     ChipAuthentication ca = new ChipAuthentication(this.caData, caPubKeyInfo, this.paceInfo);
 
-    boolean success = ca.processResponse(this.ephemeralTACAKeys, nonce, authToken);
+    KeyPair keyPair;
+    synchronized (this)
+    {
+      keyPair = this.ephemeralTACAKeys;
+    }
+    if (keyPair == null)
+    {
+      throw new IllegalStateException("ephemeral key pair already released");
+    }
+    boolean success;
+    try
+    {
+      success = ca.processResponse(keyPair, nonce, authToken);
+    }
+    finally
+    {
+      // the ephemeral key pair must not be used again
+      releaseEphemeralKeys();
+    }
 
     if (success)
     {
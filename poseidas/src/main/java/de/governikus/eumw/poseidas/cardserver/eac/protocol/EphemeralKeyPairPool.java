@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.cardserver.eac.protocol;
+
+import java.io.IOException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.spec.ECParameterSpec;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.DestroyFailedException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.governikus.eumw.poseidas.cardbase.AssertUtil;
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import de.governikus.eumw.poseidas.cardbase.asn1.npa.si.DomainParameterInfo;
+import de.governikus.eumw.poseidas.cardbase.crypto.ec.ECUtil;
+import de.governikus.eumw.poseidas.cardbase.crypto.key.KeyHandler;
+import de.governikus.eumw.utils.key.SecurityProvider;
+
+
+/**
+ * Pool of pre-generated ephemeral EC key pairs for Chip Authentication, one pool per set of domain parameters. The
+ * pools are filled in the background, so that the key generation is not part of the request processing.
+ * <p>
+ * Each key pair is removed from the pool when it is taken, so it is used for one session only. If the pool is empty,
+ * the key pair is generated by the caller.
+ */
+final class EphemeralKeyPairPool
+{
+
+  private static final Log LOG = LogFactory.getLog(EphemeralKeyPairPool.class);
+
+  /**
+   * Number of key pairs kept per set of domain parameters.
+   */
+  static final int DEFAULT_POOL_SIZE = 32;
+
+  /**
+   * Maximum number of sets of domain parameters with a pool, as the domain parameters are chosen by the card.
+   */
+  static final int MAX_PARAMETER_SETS = 8;
+
+  private static final EphemeralKeyPairPool INSTANCE = new EphemeralKeyPairPool(DEFAULT_POOL_SIZE);
+
+  private final int poolSize;
+
+  private final Map<String, ParameterSetPool> pools = new ConcurrentHashMap<>();
+
+  /**
+   * Number of pools created, at most {@link #MAX_PARAMETER_SETS}
+   */
+  private final AtomicInteger poolCount = new AtomicInteger();
+
+  private final ExecutorService generator = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "ephemeral-key-generator");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  /**
+   * Key pairs for one set of domain parameters.
+   */
+  private static final class ParameterSetPool
+  {
+
+    private final ECParameterSpec spec;
+
+    private final BlockingQueue<KeyPair> keyPairs;
+
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    private ParameterSetPool(ECParameterSpec spec, int poolSize)
+    {
+      this.spec = spec;
+      this.keyPairs = new ArrayBlockingQueue<>(poolSize);
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param poolSize number of key pairs kept per set of domain parameters
+   */
+  EphemeralKeyPairPool(int poolSize)
+  {
+    this.poolSize = Math.max(1, poolSize);
+  }
+
+  /**
+   * Gets the single instance.
+   *
+   * @return single instance
+   */
+  static EphemeralKeyPairPool getInstance()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * Takes a key pair for the given domain parameters from the pool, or generates one with the key handler if the pool
+   * is empty. The pool is refilled in the background.
+   *
+   * @param params domain parameters, <code>null</code> not permitted
+   * @param keyHandler key handler for generating the key pair if the pool is empty, <code>null</code> not permitted
+   * @return key pair not handed out before
+   * @throws IllegalArgumentException if any argument <code>null</code>
+   */
+  KeyPair take(DomainParameterInfo params, KeyHandler keyHandler)
+    throws IOException, NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException
+  {
+    AssertUtil.notNull(params, "domain parameter info");
+    AssertUtil.notNull(keyHandler, "key handler");
+    ParameterSetPool pool = getPool(params);
+    KeyPair keyPair = null;
+    if (pool != null)
+    {
+      keyPair = pool.keyPairs.poll();
+      refill(pool);
+    }
+    if (keyPair == null)
+    {
+      LOG.debug("No pre-generated ephemeral key pair available, generating one");
+      keyPair = keyHandler.generateKeyPair(params);
+    }
+    return keyPair;
+  }
+
+  /**
+   * Fills the pool for the given domain parameters in the background, so that the first sessions do not have to
+   * generate their key pairs.
+   *
+   * @param params domain parameters, <code>null</code> not permitted
+   * @throws IllegalArgumentException if params <code>null</code>
+   */
+  void warmUp(DomainParameterInfo params) throws IOException
+  {
+    AssertUtil.notNull(params, "domain parameter info");
+    ParameterSetPool pool = getPool(params);
+    if (pool != null)
+    {
+      refill(pool);
+    }
+  }
+
+  /**
+   * Gets the number of key pairs available in the pool for the given domain parameters.
+   *
+   * @param params domain parameters, <code>null</code> not permitted
+   * @return number of available key pairs
+   */
+  int available(DomainParameterInfo params) throws IOException
+  {
+    ParameterSetPool pool = pools.get(poolKey(params));
+    return pool == null ? 0 : pool.keyPairs.size();
+  }
+
+  private ParameterSetPool getPool(DomainParameterInfo params) throws IOException
+  {
+    String key = poolKey(params);
+    ParameterSetPool pool = pools.get(key);
+    if (pool != null)
+    {
+      return pool;
+    }
+    ECParameterSpec spec = ECUtil.parameterSpecFromDomainParameters(params);
+    return pools.compute(key, (k, existing) -> {
+      if (existing != null)
+      {
+        return existing;
+      }
+      if (poolCount.incrementAndGet() > MAX_PARAMETER_SETS)
+      {
+        // no pool for these parameters, the key pairs are generated by the callers
+        poolCount.decrementAndGet();
+        return null;
+      }
+      return new ParameterSetPool(spec, poolSize);
+    });
+  }
+
+  private static String poolKey(DomainParameterInfo params) throws IOException
+  {
+    return Hex.hexify(params.getDomainParameter().getEncoded());
+  }
+
+  private void refill(ParameterSetPool pool)
+  {
+    if (pool.keyPairs.remainingCapacity() == 0 || !pool.refilling.compareAndSet(false, true))
+    {
+      return;
+    }
+    generator.execute(() -> {
+      try
+      {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+        kpg.initialize(pool.spec);
+        while (pool.keyPairs.remainingCapacity() > 0)
+        {
+          if (!pool.keyPairs.offer(kpg.generateKeyPair()))
+          {
+            break;
+          }
+        }
+      }
+      catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e)
+      {
+        LOG.warn("Cannot pre-generate ephemeral key pairs", e);
+      }
+      finally
+      {
+        pool.refilling.set(false);
+      }
+    });
+  }
+
+  /**
+   * Destroys the private key of a key pair which is not needed any more, if the key supports it.
+   *
+   * @param keyPair key pair, may be <code>null</code>
+   */
+  static void destroy(KeyPair keyPair)
+  {
+    if (keyPair == null || keyPair.getPrivate() == null || keyPair.getPrivate().isDestroyed())
+    {
+      return;
+    }
+    try
+    {
+      keyPair.getPrivate().destroy();
+    }
+    catch (DestroyFailedException e)
+    {
+      // not supported by the key implementation, the key is only referenced by the session
+      LOG.trace("Ephemeral private key cannot be destroyed", e);
+    }
+  }
+}
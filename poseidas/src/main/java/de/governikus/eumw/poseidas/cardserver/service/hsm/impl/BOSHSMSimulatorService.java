@@ -25,8 +25,13 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import de.governikus.eumw.poseidas.cardbase.AssertUtil;
 import de.governikus.eumw.poseidas.cardbase.asn1.OID;
@@ -37,6 +42,11 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Implementation of {@link HSMService} for using no HSM.
+ * <p>
+ * The decoded private keys and initialized {@link Signature} objects are cached per alias, so that signing does not
+ * decode the key again for every signature. A cached key is only used as long as the key bytes stored in the
+ * {@link LocalCertAndKeyProvider} for the alias are unchanged, and it is dropped when the last session using a session
+ * key has removed it.
  *
  * @author Arne Stahlbock, ast@bos-bremen.de
  */
@@ -49,17 +59,48 @@ public class BOSHSMSimulatorService implements HSMService
    */
   private final LocalCertAndKeyProvider lcakp = LocalCertAndKeyProvider.getInstance();
 
+  /**
+   * Maximum number of idle {@link Signature} objects kept per alias and signature algorithm.
+   */
+  private static final int MAX_IDLE_SIGNATURES = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Decoded keys by alias.
+   */
+  private final Map<String, CachedKey> keyCache = new ConcurrentHashMap<>();
+
   /**
    * Single instance.
    */
   private static final BOSHSMSimulatorService SINGLETON = new BOSHSMSimulatorService();
 
+  /**
+   * Decoded private key together with the bytes it was decoded from and the idle signatures initialized with it.
+   */
+  private static final class CachedKey
+  {
+
+    private final byte[] keyBytes;
+
+    private final PrivateKey privateKey;
+
+    private final Map<OID, Queue<Signature>> idleSignatures = new ConcurrentHashMap<>();
+
+    private CachedKey(byte[] keyBytes, PrivateKey privateKey)
+    {
+      this.keyBytes = keyBytes;
+      this.privateKey = privateKey;
+    }
+  }
+
   /**
    * Standard constructor.
    */
   private BOSHSMSimulatorService()
   {
     super();
+    // do not keep the decoded key of a finished session
+    this.lcakp.addSessionKeyRemovalListener(alias -> this.keyCache.remove(alias));
   }
 
   /**
@@ -88,8 +129,7 @@ public class BOSHSMSimulatorService implements HSMService
 
     if (!replace && this.lcakp.getKeyByHolder(alias) != null)
     {
-      throw new IllegalArgumentException("key with requested alias (" + alias
-                                         + ") already existing, replacing not permitted");
+      throw keyAlreadyExisting(alias);
     }
 
     KeyPairGenerator kpg = KeyPairGenerator.getInstance(algorithm, SecurityProvider.BOUNCY_CASTLE_PROVIDER);
@@ -97,11 +137,26 @@ public class BOSHSMSimulatorService implements HSMService
     KeyPair kp = kpg.generateKeyPair();
 
     // this is no permanent store!
-    this.lcakp.addKey(alias, kp.getPrivate().getEncoded());
+    if (replace)
+    {
+      this.lcakp.addKey(alias, kp.getPrivate().getEncoded());
+    }
+    else if (!this.lcakp.addKeyIfAbsent(alias, kp.getPrivate().getEncoded()))
+    {
+      // another thread was faster
+      throw keyAlreadyExisting(alias);
+    }
+    this.keyCache.remove(alias);
 
     return kp;
   }
 
+  private static IllegalArgumentException keyAlreadyExisting(String alias)
+  {
+    return new IllegalArgumentException("key with requested alias (" + alias
+                                        + ") already existing, replacing not permitted");
+  }
+
   /** {@inheritDoc} */
   @Override
   public byte[] sign(String alias, OID sigAlgOID, byte[] data)
@@ -111,13 +166,53 @@ public class BOSHSMSimulatorService implements HSMService
     AssertUtil.notNull(sigAlgOID, "OID for signature algorithm");
     AssertUtil.notNullOrEmpty(data, "data to be signed");
 
+    CachedKey cachedKey = getCachedKey(alias);
+    Queue<Signature> idleSignatures = cachedKey.idleSignatures.computeIfAbsent(sigAlgOID,
+                                                                               oid -> new ConcurrentLinkedQueue<>());
+    Signature signature = idleSignatures.poll();
+    if (signature == null)
+    {
+      signature = SignatureUtil.createSignature(sigAlgOID);
+      signature.initSign(cachedKey.privateKey);
+    }
+    signature.update(data);
+    byte[] result = signature.sign();
+    // after signing, the signature is initialized with the same key again, so it can be reused
+    if (idleSignatures.size() < MAX_IDLE_SIGNATURES)
+    {
+      idleSignatures.offer(signature);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the decoded key for the alias, decoding it again if the stored key bytes have been changed.
+   */
+  private CachedKey getCachedKey(String alias) throws NoSuchAlgorithmException, InvalidKeySpecException
+  {
     byte[] keyBytes = this.lcakp.getKeyByHolder(alias);
-    PrivateKey privSignKey = buildPrivateKey(keyBytes);
+    AssertUtil.notNullOrEmpty(keyBytes, "bytes of received key");
+    CachedKey cachedKey = this.keyCache.get(alias);
+    if (cachedKey != null && Arrays.equals(cachedKey.keyBytes, keyBytes))
+    {
+      return cachedKey;
+    }
+    cachedKey = new CachedKey(keyBytes.clone(), buildPrivateKey(keyBytes));
+    this.keyCache.put(alias, cachedKey);
+    if (!Arrays.equals(keyBytes, this.lcakp.getKeyByHolder(alias)))
+    {
+      // the key has been removed or replaced meanwhile, use it for this signature only
+      this.keyCache.remove(alias, cachedKey);
+    }
+    return cachedKey;
+  }
 
-    Signature signature = SignatureUtil.createSignature(sigAlgOID);
-    signature.initSign(privSignKey);
-    signature.update(data);
-    return signature.sign();
+  /**
+   * For tests
+   */
+  boolean isCached(String alias)
+  {
+    return this.keyCache.containsKey(alias);
   }
 
   public static PrivateKey buildPrivateKey(byte[] keyBytes) throws NoSuchAlgorithmException, InvalidKeySpecException
@@ -154,6 +249,7 @@ public class BOSHSMSimulatorService implements HSMService
   public void deleteKey(String alias)
   {
     this.lcakp.removeKey(alias);
+    this.keyCache.remove(alias);
   }
 
   /** {@inheritDoc} */
@@ -234,6 +330,13 @@ public class BOSHSMSimulatorService implements HSMService
     return lcakp.getKeyByHolder(alias);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void invalidateKeyCache()
+  {
+    this.keyCache.clear();
+  }
+
   /** {@inheritDoc} */
   @Override
   public KeyStore getKeyStore()
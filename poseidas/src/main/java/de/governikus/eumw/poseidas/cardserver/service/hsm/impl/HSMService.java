@@ -258,6 +258,12 @@ public interface HSMService extends Service
    */
   public abstract byte[] exportKey(String alias) throws IOException, HSMException;
 
+  /**
+   * Discards all cached key data, must be called after keys were changed directly in the {@link #getKeyStore() key
+   * store} instead of using this service.
+   */
+  public abstract void invalidateKeyCache();
+
   /**
    * Gets the HSM based keystore if possible.
    *
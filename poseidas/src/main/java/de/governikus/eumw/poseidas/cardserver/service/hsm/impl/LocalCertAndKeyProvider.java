@@ -10,9 +10,11 @@
 package de.governikus.eumw.poseidas.cardserver.service.hsm.impl;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import de.governikus.eumw.poseidas.cardbase.AssertUtil;
 import de.governikus.eumw.poseidas.cardserver.eac.ta.CertAndKeyProvider;
@@ -21,6 +23,10 @@ import de.governikus.eumw.poseidas.cardserver.eac.ta.CertAndKeyProvider;
 /**
  * Implementation of {@link CertAndKeyProvider} used for forwarding a key to the signature handler in case no HSM is
  * used.
+ * <p>
+ * Keys forwarded for one session are registered with {@link #addSessionKey(String, byte[])} and removed again with
+ * {@link #removeSessionKey(String)} when the session does not need them any more. They are counted per holder, as
+ * concurrent sessions of the same terminal use the same key.
  *
  * @author Arne Stahlbock, ast@bos-bremen.de
  */
@@ -30,12 +36,29 @@ public class LocalCertAndKeyProvider implements CertAndKeyProvider
   /**
    * Map holding keys.
    */
-  private final Map<String, byte[]> keyMap = new HashMap<>();
+  private final Map<String, byte[]> keyMap = new ConcurrentHashMap<>();
+
+  /**
+   * Map holding the keys of sessions in progress.
+   */
+  private final Map<String, SessionKey> sessionKeyMap = new ConcurrentHashMap<>();
+
+  /**
+   * Notified with the holder when the last session using a session key has removed it.
+   */
+  private final List<Consumer<String>> sessionKeyRemovalListeners = new CopyOnWriteArrayList<>();
 
   /**
    * Reference to single instance.
    */
-  private static LocalCertAndKeyProvider INSTANCE = null;
+  private static final LocalCertAndKeyProvider INSTANCE = new LocalCertAndKeyProvider();
+
+  /**
+   * Key used by sessions in progress with the number of these sessions.
+   */
+  private record SessionKey(byte[] key, int sessions)
+  {
+  }
 
   /**
    * Private Constructor.
@@ -52,10 +75,6 @@ public class LocalCertAndKeyProvider implements CertAndKeyProvider
    */
   public static LocalCertAndKeyProvider getInstance()
   {
-    if (INSTANCE == null)
-    {
-      INSTANCE = new LocalCertAndKeyProvider();
-    }
     return INSTANCE;
   }
 
@@ -71,6 +90,11 @@ public class LocalCertAndKeyProvider implements CertAndKeyProvider
   public byte[] getKeyByHolder(String holder)
   {
     AssertUtil.notNull(holder, "holder");
+    SessionKey sessionKey = this.sessionKeyMap.get(holder);
+    if (sessionKey != null)
+    {
+      return sessionKey.key();
+    }
     return this.keyMap.get(holder);
   }
 
@@ -88,6 +112,71 @@ public class LocalCertAndKeyProvider implements CertAndKeyProvider
     this.keyMap.put(holder, key);
   }
 
+  /**
+   * Adds a key to the map if there is no key for the holder yet.
+   *
+   * @param holder holder of key, <code>null</code> not permitted
+   * @param key key as byte-array
+   * @return <code>true</code> if the key was added, <code>false</code> if there already was a key for the holder
+   * @throws IllegalArgumentException if holder <code>null</code>
+   */
+  boolean addKeyIfAbsent(String holder, byte[] key)
+  {
+    AssertUtil.notNull(holder, "holder");
+    AssertUtil.notNullOrEmpty(key, "key");
+    return this.keyMap.putIfAbsent(holder, key) == null;
+  }
+
+  /**
+   * Adds a key for a session. The key is available until {@link #removeSessionKey(String)} has been called for every
+   * session it has been added for.
+   *
+   * @param holder holder of key, <code>null</code> not permitted
+   * @param key key as byte-array
+   * @throws IllegalArgumentException if holder <code>null</code>
+   */
+  public void addSessionKey(String holder, byte[] key)
+  {
+    AssertUtil.notNull(holder, "holder");
+    AssertUtil.notNullOrEmpty(key, "key");
+    this.sessionKeyMap.compute(holder,
+                               (h, sessionKey) -> new SessionKey(key,
+                                                                 sessionKey == null ? 1 : sessionKey.sessions() + 1));
+  }
+
+  /**
+   * Removes a key added for a session, if no other session uses it.
+   *
+   * @param holder holder of key, <code>null</code> not permitted
+   * @throws IllegalArgumentException if holder <code>null</code>
+   */
+  public void removeSessionKey(String holder)
+  {
+    AssertUtil.notNull(holder, "holder");
+    SessionKey remaining = this.sessionKeyMap.computeIfPresent(holder,
+                                                               (h, sessionKey) -> sessionKey.sessions() > 1
+                                                                 ? new SessionKey(sessionKey.key(),
+                                                                                  sessionKey.sessions() - 1)
+                                                                 : null);
+    if (remaining == null)
+    {
+      this.sessionKeyRemovalListeners.forEach(listener -> listener.accept(holder));
+    }
+  }
+
+  /**
+   * Registers a listener which is notified with the holder when a session key is not used by any session any more, so
+   * that data derived from the key can be dropped.
+   *
+   * @param listener listener, <code>null</code> not permitted
+   * @throws IllegalArgumentException if listener <code>null</code>
+   */
+  void addSessionKeyRemovalListener(Consumer<String> listener)
+  {
+    AssertUtil.notNull(listener, "listener");
+    this.sessionKeyRemovalListeners.add(listener);
+  }
+
   /**
    * Removes a key from the map.
    *
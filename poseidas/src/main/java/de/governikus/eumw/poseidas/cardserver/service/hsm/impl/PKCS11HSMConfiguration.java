@@ -22,6 +22,11 @@ import lombok.Getter;
 public class PKCS11HSMConfiguration implements HSMConfiguration
 {
 
+  /**
+   * Default for the maximum number of signatures performed at the same time.
+   */
+  public static final int DEFAULT_MAX_SESSIONS = 8;
+
   /**
    * Path to PKCS#11 config file.
    */
@@ -32,6 +37,11 @@ public class PKCS11HSMConfiguration implements HSMConfiguration
    */
   private String password;
 
+  /**
+   * Maximum number of signatures performed at the same time, should not exceed the session limit of the HSM.
+   */
+  private int maxSessions;
+
   /**
    * Constructor.
    *
@@ -39,10 +49,23 @@ public class PKCS11HSMConfiguration implements HSMConfiguration
    * @param password password for the user account on PKCS#11 HSM
    */
   public PKCS11HSMConfiguration(String configName, String password)
+  {
+    this(configName, password, DEFAULT_MAX_SESSIONS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param configName path to PKCS#11 config file
+   * @param password password for the user account on PKCS#11 HSM
+   * @param maxSessions maximum number of signatures performed at the same time
+   */
+  public PKCS11HSMConfiguration(String configName, String password, int maxSessions)
   {
     AssertUtil.notNull(configName, "config file name");
     AssertUtil.notNull(password, "password");
     this.configFileName = configName;
     this.password = password;
+    this.maxSessions = maxSessions;
   }
 }
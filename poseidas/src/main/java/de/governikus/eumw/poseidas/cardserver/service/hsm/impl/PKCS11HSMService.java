@@ -9,7 +9,6 @@
 
 package de.governikus.eumw.poseidas.cardserver.service.hsm.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -22,13 +21,11 @@ import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.PublicKey;
 import java.security.Security;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import java.security.interfaces.ECPublicKey;
 import java.security.spec.AlgorithmParameterSpec;
 import java.util.ArrayList;
 import java.util.Date;
@@ -38,9 +35,7 @@ import java.util.List;
 import org.bouncycastle.operator.OperatorCreationException;
 
 import de.governikus.eumw.poseidas.cardbase.AssertUtil;
-import de.governikus.eumw.poseidas.cardbase.ByteUtil;
 import de.governikus.eumw.poseidas.cardbase.StringUtil;
-import de.governikus.eumw.poseidas.cardbase.asn1.ASN1;
 import de.governikus.eumw.poseidas.cardbase.asn1.OID;
 import de.governikus.eumw.poseidas.cardbase.constants.OIDConstants;
 import de.governikus.eumw.poseidas.cardserver.CertificateUtil;
@@ -76,6 +71,11 @@ public final class PKCS11HSMService implements HSMService
    */
   private PKCS11HSMConfiguration config;
 
+  /**
+   * Resolved signing keys, limits the signatures in progress to the session limit of the token.
+   */
+  private SigningKeyPool signingKeyPool;
+
   /**
    * Single instance.
    */
@@ -169,6 +169,7 @@ public final class PKCS11HSMService implements HSMService
                                                           lifespan,
                                                           provider);
       keyStore.setKeyEntry(alias, kp.getPrivate(), null, new Certificate[]{cert});
+      signingKeyPool.invalidate(alias);
     }
     catch (KeyStoreException e)
     {
@@ -196,24 +197,12 @@ public final class PKCS11HSMService implements HSMService
     throws IllegalArgumentException, NoSuchAlgorithmException, IOException, UnrecoverableKeyException,
     KeyStoreException, InvalidKeyException, SignatureException, IllegalStateException
   {
-    if (keyStore == null)
+    SigningKeyPool pool = signingKeyPool;
+    if (pool == null)
     {
       throw new IllegalStateException(MESSAGE_NOT_INITIALIZED);
     }
-    Signature s = Signature.getInstance(algNameFromOID(sigAlgOID), provider);
-    s.initSign((PrivateKey)keyStore.getKey(alias, null));
-
-    s.update(data);
-    byte[] sig = s.sign();
-    if (rawRequired(sigAlgOID))
-    {
-      ECPublicKey pk = (ECPublicKey)keyStore.getCertificate(alias).getPublicKey();
-      return convertToRaw(sig, pk.getParams().getCurve().getField().getFieldSize() / 8);
-    }
-    else
-    {
-      return sig;
-    }
+    return pool.sign(alias, algNameFromOID(sigAlgOID), rawRequired(sigAlgOID), data);
   }
 
   private static boolean rawRequired(OID oid)
@@ -233,20 +222,6 @@ public final class PKCS11HSMService implements HSMService
     throw new IllegalArgumentException("unknown OID");
   }
 
-  private static byte[] convertToRaw(byte[] sig, int trimLen) throws IOException
-  {
-    ASN1 asn1 = new ASN1(sig);
-    ASN1[] children = asn1.getChildElements();
-    if (children.length != 2)
-    {
-      throw new IllegalArgumentException("input is not a signature");
-    }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    baos.write(ByteUtil.trimByteArray(children[0].getValue(), trimLen));
-    baos.write(ByteUtil.trimByteArray(children[1].getValue(), trimLen));
-    return baos.toByteArray();
-  }
-
   private static String algNameFromOID(OID oid)
   {
     if (oid.equals(OIDConstants.OID_TA_ECDSA_SHA_1))
@@ -337,6 +312,10 @@ public final class PKCS11HSMService implements HSMService
     {
       throw new HSMException(e);
     }
+    finally
+    {
+      signingKeyPool.invalidate(alias);
+    }
   }
 
   /** {@inheritDoc} */
@@ -375,6 +354,7 @@ public final class PKCS11HSMService implements HSMService
     {
       keyStore = KeyStore.getInstance("PKCS11", provider);
       keyStore.load(null, this.config.getPassword().toCharArray());
+      signingKeyPool = new SigningKeyPool(keyStore, provider, this.config.getMaxSessions());
     }
     catch (KeyStoreException | NoSuchAlgorithmException | CertificateException | IOException e)
     {
@@ -395,6 +375,7 @@ public final class PKCS11HSMService implements HSMService
       throw new IllegalStateException(MESSAGE_NOT_INITIALIZED);
     }
     keyStore = null;
+    signingKeyPool = null;
     config = null;
     Security.removeProvider(provider.getName());
     provider = null;
@@ -508,6 +489,17 @@ public final class PKCS11HSMService implements HSMService
     // nothing to do
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void invalidateKeyCache()
+  {
+    SigningKeyPool pool = signingKeyPool;
+    if (pool != null)
+    {
+      pool.invalidateAll();
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public byte[] exportKey(String alias) throws HSMException
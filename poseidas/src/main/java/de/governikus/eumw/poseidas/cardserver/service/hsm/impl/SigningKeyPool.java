@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.cardserver.service.hsm.impl;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.ProviderException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Signs with the keys of a key store, keeping the resolved key handles per alias so that the key and its certificate
+ * are only looked up once on the token. The number of signatures in progress is limited to the number of sessions the
+ * token supports.
+ * <p>
+ * The initialized {@link Signature} objects are not pooled, because a PKCS#11 signature holds a session of the token
+ * as long as it is initialized.
+ */
+@Slf4j
+final class SigningKeyPool
+{
+
+  private static final String NOT_A_SIGNATURE = "input is not a signature";
+
+  private static final byte DER_SEQUENCE = 0x30;
+
+  private static final byte DER_INTEGER = 0x02;
+
+  private final KeyStore keyStore;
+
+  private final Provider provider;
+
+  @Getter
+  private final int maxSessions;
+
+  private final Semaphore sessions;
+
+  private final Map<String, SigningKey> signingKeys = new ConcurrentHashMap<>();
+
+  /**
+   * Resolved private key with the length of the coordinates of the curve if it is an EC key
+   */
+  private record SigningKey(PrivateKey privateKey, int fieldLength)
+  {
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param keyStore key store containing the keys
+   * @param provider provider for the signatures, <code>null</code> for the default provider
+   * @param maxSessions maximum number of signatures in progress at the same time
+   */
+  SigningKeyPool(KeyStore keyStore, Provider provider, int maxSessions)
+  {
+    this.keyStore = keyStore;
+    this.provider = provider;
+    this.maxSessions = Math.max(1, maxSessions);
+    this.sessions = new Semaphore(this.maxSessions, true);
+  }
+
+  /**
+   * Signs the data with the key of the given alias.
+   *
+   * @param alias alias of the key
+   * @param algorithm name of the signature algorithm
+   * @param raw <code>true</code> to return an ECDSA signature as concatenation of r and s instead of DER
+   * @param data data to be signed
+   * @return signature
+   */
+  byte[] sign(String alias, String algorithm, boolean raw, byte[] data)
+    throws NoSuchAlgorithmException, UnrecoverableKeyException, KeyStoreException, InvalidKeyException,
+    SignatureException
+  {
+    try
+    {
+      sessions.acquire();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new SignatureException("interrupted while waiting for a free session", e);
+    }
+    try
+    {
+      SigningKey cached = signingKeys.get(alias);
+      if (cached != null)
+      {
+        try
+        {
+          return sign(cached, algorithm, raw, data);
+        }
+        catch (InvalidKeyException | SignatureException | ProviderException e)
+        {
+          // the key may have been changed or deleted without this pool, try again with a new lookup
+          log.debug("Signing with cached key {} failed, looking up the key again", alias, e);
+          signingKeys.remove(alias, cached);
+        }
+      }
+      return sign(loadKey(alias), algorithm, raw, data);
+    }
+    finally
+    {
+      sessions.release();
+    }
+  }
+
+  private byte[] sign(SigningKey signingKey, String algorithm, boolean raw, byte[] data)
+    throws NoSuchAlgorithmException, InvalidKeyException, SignatureException
+  {
+    Signature signature = provider == null ? Signature.getInstance(algorithm)
+      : Signature.getInstance(algorithm, provider);
+    signature.initSign(signingKey.privateKey());
+    signature.update(data);
+    byte[] sig = signature.sign();
+    if (!raw)
+    {
+      return sig;
+    }
+    if (signingKey.fieldLength() == 0)
+    {
+      throw new InvalidKeyException("raw signature requires an EC key");
+    }
+    return convertToRaw(sig, signingKey.fieldLength());
+  }
+
+  private SigningKey loadKey(String alias)
+    throws UnrecoverableKeyException, KeyStoreException, NoSuchAlgorithmException, InvalidKeyException
+  {
+    Key key = keyStore.getKey(alias, null);
+    if (!(key instanceof PrivateKey privateKey))
+    {
+      throw new InvalidKeyException("no private key for alias " + alias);
+    }
+    Certificate certificate = keyStore.getCertificate(alias);
+    int fieldLength = 0;
+    if (certificate != null && certificate.getPublicKey() instanceof ECPublicKey ecPublicKey)
+    {
+      fieldLength = (ecPublicKey.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+    }
+    SigningKey signingKey = new SigningKey(privateKey, fieldLength);
+    signingKeys.put(alias, signingKey);
+    return signingKey;
+  }
+
+  /**
+   * Discards the resolved key of the given alias.
+   *
+   * @param alias alias of the key
+   */
+  void invalidate(String alias)
+  {
+    signingKeys.remove(alias);
+  }
+
+  /**
+   * Discards all resolved keys.
+   */
+  void invalidateAll()
+  {
+    signingKeys.clear();
+  }
+
+  /**
+   * Converts a DER encoded ECDSA signature to the concatenation of r and s, each with the given length.
+   *
+   * @param sig DER encoded signature
+   * @param fieldLength length of r and s in bytes
+   * @return raw signature
+   * @throws IllegalArgumentException if the input is not a DER encoded ECDSA signature
+   */
+  static byte[] convertToRaw(byte[] sig, int fieldLength)
+  {
+    try
+    {
+      // ECDSA-Sig-Value ::= SEQUENCE { r INTEGER, s INTEGER }
+      ByteBuffer buffer = ByteBuffer.wrap(sig);
+      if (buffer.get() != DER_SEQUENCE || readLength(buffer) != buffer.remaining())
+      {
+        throw new IllegalArgumentException(NOT_A_SIGNATURE);
+      }
+      byte[] raw = new byte[2 * fieldLength];
+      readInteger(buffer, raw, 0, fieldLength);
+      readInteger(buffer, raw, fieldLength, fieldLength);
+      if (buffer.hasRemaining())
+      {
+        throw new IllegalArgumentException(NOT_A_SIGNATURE);
+      }
+      return raw;
+    }
+    catch (BufferUnderflowException e)
+    {
+      throw new IllegalArgumentException(NOT_A_SIGNATURE, e);
+    }
+  }
+
+  private static void readInteger(ByteBuffer buffer, byte[] raw, int offset, int fieldLength)
+  {
+    if (buffer.get() != DER_INTEGER)
+    {
+      throw new IllegalArgumentException(NOT_A_SIGNATURE);
+    }
+    int length = readLength(buffer);
+    if (length == 0 || length > buffer.remaining())
+    {
+      throw new IllegalArgumentException(NOT_A_SIGNATURE);
+    }
+    int start = buffer.position();
+    int end = start + length;
+    // skip the leading zeros of the positive integer representation
+    while (start < end - 1 && buffer.get(start) == 0)
+    {
+      start++;
+    }
+    int valueLength = end - start;
+    if (valueLength > fieldLength)
+    {
+      throw new IllegalArgumentException("signature value longer than field length " + fieldLength);
+    }
+    buffer.position(start);
+    buffer.get(raw, offset + fieldLength - valueLength, valueLength);
+  }
+
+  private static int readLength(ByteBuffer buffer)
+  {
+    int first = buffer.get() & 0xFF;
+    if (first < 0x80)
+    {
+      return first;
+    }
+    int numberOfBytes = first & 0x7F;
+    if (numberOfBytes == 0 || numberOfBytes > 2)
+    {
+      throw new IllegalArgumentException(NOT_A_SIGNATURE);
+    }
+    int length = 0;
+    for ( int i = 0 ; i < numberOfBytes ; i++ )
+    {
+      length = (length << 8) | (buffer.get() & 0xFF);
+    }
+    return length;
+  }
+}
@@ -12,13 +12,14 @@ package de.governikus.eumw.poseidas.eidserver.convenience;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import de.governikus.eumw.poseidas.cardbase.AssertUtil;
 import de.governikus.eumw.poseidas.cardbase.asn1.npa.ECCVCPath;
 import de.governikus.eumw.poseidas.cardbase.asn1.npa.ECCVCertificate;
 import de.governikus.eumw.poseidas.cardserver.eac.ta.CertAndKeyProvider;
@@ -27,7 +28,9 @@ import de.governikus.eumw.poseidas.eidmodel.TerminalData;
 
 
 /**
- * Implementation of the CertAndKeyProvider from the card server package
+ * Implementation of the CertAndKeyProvider from the card server package. It is shared by all sessions, so the
+ * certificates and keys are kept in concurrent maps. A certificate is never replaced once it is set for a holder, so
+ * the resolved certificate chains are cached per root and terminal holder.
  *
  * @author <a href="mail:obe@bos-bremen.de">Ole Behrens</a>
  */
@@ -38,9 +41,18 @@ public class CertAndKeyProviderImpl implements CertAndKeyProvider
 
   private static final String LOG_PREFIX = "[Certificates and Keys]";
 
-  private final Map<String, ECCVCertificate> certMap = new HashMap<>();
+  private final Map<String, ECCVCertificate> certMap = new ConcurrentHashMap<>();
 
-  private final Map<String, byte[]> keyMap = new HashMap<>();
+  private final Map<String, byte[]> keyMap = new ConcurrentHashMap<>();
+
+  private final Map<ChainKey, List<byte[]>> chainCache = new ConcurrentHashMap<>();
+
+  /**
+   * Key of a cached certificate chain, the terminal holder contains the key version
+   */
+  private record ChainKey(String rootHolder, String termHolder)
+  {
+  }
 
 
   /**
@@ -55,13 +67,15 @@ public class CertAndKeyProviderImpl implements CertAndKeyProvider
     addCert(encoded);
     ECCVCertificate cert = new ECCVCertificate(encoded);
     String holderName = new String(cert.getCVCPart(ECCVCPath.HOLDER_REFERENCE).getValue(), StandardCharsets.UTF_8);
-    if (this.keyMap.containsKey(holderName))
+    byte[] privateKey = cvc.getPrivateKey();
+    if (privateKey == null)
     {
-      LOG.debug(LOG_PREFIX + "Terminal key already set for holder name: " + holderName);
+      // key is in the HSM
+      return;
     }
-    else
+    if (this.keyMap.putIfAbsent(holderName, privateKey) != null)
     {
-      this.keyMap.put(holderName, cvc.getPrivateKey());
+      LOG.debug(LOG_PREFIX + "Terminal key already set for holder name: " + holderName);
     }
   }
 
@@ -75,26 +89,42 @@ public class CertAndKeyProviderImpl implements CertAndKeyProvider
   {
     ECCVCertificate cert = new ECCVCertificate(certBuffer);
     String holderName = new String(cert.getCVCPart(ECCVCPath.HOLDER_REFERENCE).getValue());
-    if (this.certMap.containsKey(holderName))
+    if (this.certMap.putIfAbsent(holderName, cert) != null)
     {
       LOG.debug(LOG_PREFIX + "Terminal or DV certificate already set for holder name: " + holderName);
     }
     else
     {
       LOG.debug(LOG_PREFIX + "Terminal or DV certificate added to provider: " + holderName);
-      this.certMap.put(holderName, cert);
     }
   }
 
   @Override
   public List<byte[]> getCertChain(String rootHolder, String termHolder) throws IOException
   {
-    List<byte[]> result = new ArrayList<>();
     if (rootHolder == null || rootHolder.length() == 0 || termHolder == null || termHolder.length() == 0)
     {
       throw new IllegalArgumentException("Null or empty string not permitted for holder values");
     }
 
+    ChainKey chainKey = new ChainKey(rootHolder, termHolder);
+    List<byte[]> cached = this.chainCache.get(chainKey);
+    if (cached == null)
+    {
+      cached = buildCertChain(rootHolder, termHolder);
+      if (cached == null)
+      {
+        // not cached, the missing certificates may be added later
+        return null;
+      }
+      this.chainCache.putIfAbsent(chainKey, cached);
+    }
+    return new ArrayList<>(cached);
+  }
+
+  private List<byte[]> buildCertChain(String rootHolder, String termHolder) throws IOException
+  {
+    List<byte[]> result = new ArrayList<>();
     LOG.debug(LOG_PREFIX + "Find root '" + rootHolder + "' for term holder '" + termHolder + "'");
 
     String nextTermHolder = termHolder;
@@ -149,6 +179,7 @@ public class CertAndKeyProviderImpl implements CertAndKeyProvider
   @Override
   public byte[] getKeyByHolder(String holder)
   {
+    AssertUtil.notNull(holder, "holder");
     LOG.debug(LOG_PREFIX + " I:" + holder);
     return keyMap.get(holder);
   }
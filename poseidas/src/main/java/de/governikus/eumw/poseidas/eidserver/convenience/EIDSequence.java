@@ -47,6 +47,7 @@ import de.governikus.eumw.poseidas.eidmodel.data.EIDKeys;
 import de.governikus.eumw.poseidas.eidserver.convenience.session.SessionManager;
 import de.governikus.eumw.poseidas.eidserver.eac.EACSignedDataChecker;
 import de.governikus.eumw.poseidas.eidserver.eac.EACSignedDataController;
+import de.governikus.eumw.poseidas.eidserver.eac.MasterAndDefectLists;
 import de.governikus.eumw.poseidas.eidserver.ecardid.BlackListConnector;
 import de.governikus.eumw.poseidas.eidserver.ecardid.ECardIDServerFactory;
 import de.governikus.eumw.poseidas.eidserver.ecardid.ECardIDServerI;
@@ -54,7 +55,6 @@ import de.governikus.eumw.poseidas.eidserver.ecardid.EIDInfoContainer.EIDStatus;
 import de.governikus.eumw.poseidas.eidserver.ecardid.SessionInput;
 import de.governikus.eumw.poseidas.eidserver.model.signeddata.DefectKnown.DefectType;
 import de.governikus.eumw.poseidas.eidserver.model.signeddata.DefectList;
-import de.governikus.eumw.poseidas.eidserver.model.signeddata.MasterList;
 import de.governikus.eumw.poseidas.server.pki.CmsSignatureChecker;
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
 import iso.std.iso_iec._24727.tech.schema.DIDAuthenticate;
@@ -115,7 +115,7 @@ public class EIDSequence extends ECardConvenienceSequenceAdapter
   /**
    * Static provider for keys and certificates
    */
-  private static CertAndKeyProviderImpl cakProvider = new CertAndKeyProviderImpl();
+  private static final CertAndKeyProviderImpl cakProvider = new CertAndKeyProviderImpl();
 
   /**
    * Statics for readable logs
@@ -172,7 +172,7 @@ public class EIDSequence extends ECardConvenienceSequenceAdapter
   /**
    * Server from mCard to handle EACInput/Output
    */
-  private EACServer eacServer;
+  private volatile EACServer eacServer;
 
   /**
    * EAC1InputType stored to create the following EACTypes
@@ -365,13 +365,19 @@ public class EIDSequence extends ECardConvenienceSequenceAdapter
                                          + " session input is required");
     }
 
-    List<X509Certificate> masterList = getMasterList(sessionInput);
-    LOG.debug(logPrefix + LOG_PRE_INIT + " MasterList received from manager containing (" + masterList.size()
-              + ") Certificates");
-    signedDataChecker = new EACSignedDataChecker(masterList, logPrefix);
-    if (sessionInput.getDefectList() != null)
+    MasterAndDefectLists lists = sessionInput.getMasterAndDefectLists();
+    if (lists == null)
+    {
+      lists = MasterAndDefectLists.parse(sessionInput.getMasterList(),
+                                         sessionInput.getMasterListCerts(),
+                                         sessionInput.getDefectList());
+    }
+    LOG.debug(logPrefix + LOG_PRE_INIT + " MasterList received from manager containing ("
+              + lists.getMasterList().size() + ") Certificates");
+    signedDataChecker = new EACSignedDataChecker(lists.getMasterList(), logPrefix);
+    defectList = lists.getDefectList();
+    if (defectList != null)
     {
-      defectList = new DefectList(sessionInput.getDefectList());
       LOG.debug(logPrefix + LOG_PRE_INIT + " DefectList received from manager containing (" + defectList.size()
                 + ") defects");
     }
@@ -407,33 +413,6 @@ public class EIDSequence extends ECardConvenienceSequenceAdapter
     authenticatedAuxiliaryData.setDocumentVerificationAuxiliaryData(documentVerification);
   }
 
-  private List<X509Certificate> getMasterList(SessionInput sessionInput)
-  {
-    if (sessionInput.getMasterList() != null)
-    {
-      if (sessionInput.getMasterList().length < 1)
-      {
-        throw new IllegalArgumentException("Master list to set may not be empty");
-      }
-
-      MasterList masterListObj = new MasterList(sessionInput.getMasterList());
-      List<X509Certificate> certificates = masterListObj.getCertificates();
-      if (certificates.isEmpty())
-      {
-        throw new IllegalArgumentException("Master list is empty");
-      }
-      return certificates;
-    }
-    else if (sessionInput.getMasterListCerts() != null)
-    {
-      return sessionInput.getMasterListCerts();
-    }
-    else
-    {
-      throw new IllegalArgumentException("no Master List given in SessionInput");
-    }
-  }
-
   /**
    * All informations created by this sequence are stored here
    *
@@ -577,6 +556,20 @@ public class EIDSequence extends ECardConvenienceSequenceAdapter
                   + "Session could not be stopped, because no session manager received from factory");
       }
       finished = true;
+      release();
+    }
+  }
+
+  /**
+   * Releases the key material of the EAC protocol. Called when the session ends in any way, calling it more than once
+   * has no effect.
+   */
+  public void release()
+  {
+    EACServer server = eacServer;
+    if (server != null)
+    {
+      server.releaseEphemeralKeys();
     }
   }
 
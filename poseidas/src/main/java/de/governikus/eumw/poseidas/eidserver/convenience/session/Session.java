@@ -286,6 +286,17 @@ public class Session implements Serializable
     return validTo;
   }
 
+  /**
+   * Releases the key material of the sequence when the session is stopped or removed
+   */
+  void release()
+  {
+    if (eIDSequence != null)
+    {
+      eIDSequence.release();
+    }
+  }
+
   /**
    * Internal call to be able to get the input from a session
    *
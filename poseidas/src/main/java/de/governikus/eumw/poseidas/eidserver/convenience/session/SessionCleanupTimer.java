@@ -5,6 +5,8 @@ import java.util.concurrent.TimeUnit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import de.governikus.eumw.poseidas.paosservlet.paos.handler.MessageSessionMapper;
+
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -18,15 +20,20 @@ public class SessionCleanupTimer
 
   SessionManager sessionManager = SessionManager.getInstance();
 
+  MessageSessionMapper messageSessionMapper = MessageSessionMapper.getInstance();
+
   /**
    * This method is a timer with a delay - configured by the property <i>poseidas.session.cleanup-timer-seconds</i>. The
-   * default is 15 (seconds). The timer checks the session managers session storage for invalid sessions.
+   * default is 15 (seconds). The timer checks the session managers session storage for invalid sessions and removes the
+   * PAOS message mappings of expired or finished conversations.
    */
   @Scheduled(fixedDelayString = "${poseidas.session.cleanup-timer-seconds:15}", timeUnit = TimeUnit.SECONDS)
   public void cleanupSessions()
   {
     log.debug("Checking session manager for invalid sessions");
     sessionManager.removeInvalidSessions();
+    int removedMappings = messageSessionMapper.removeStaleEntries(sessionManager::isSessionActive);
+    log.trace("Removed {} stale message mappings, {} remaining", removedMappings, messageSessionMapper.size());
     log.trace("Finished checking session manager for invalid sessions");
   }
 }
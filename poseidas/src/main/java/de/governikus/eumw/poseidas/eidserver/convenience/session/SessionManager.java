@@ -9,7 +9,6 @@
 
 package de.governikus.eumw.poseidas.eidserver.convenience.session;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,7 +47,11 @@ public class SessionManager implements ECardIDServerI
    */
   private final Map<String, Session> sessionMap = new ConcurrentHashMap<>();
 
-  private final Set<Session> sessionLock = new HashSet<>();
+  /**
+   * Sessions that are currently used by a request. Each session is locked individually, so requests for different
+   * sessions do not contend with each other. Entries are removed on unlock, stop and cleanup of a session.
+   */
+  private final Set<Session> lockedSessions = ConcurrentHashMap.newKeySet();
 
 
   /**
@@ -78,20 +81,15 @@ public class SessionManager implements ECardIDServerI
     return InstanceHolder.INSTANCE;
   }
 
-  private boolean requestSessionLock(Session session)
+  boolean requestSessionLock(Session session)
   {
-    // Lock is currently on the whole session lock map. Putting the lock to the session object could improve performance
-    synchronized (sessionLock)
-    {
-      return sessionLock.add(session);
-    }
+    return lockedSessions.add(session);
   }
 
   public void unlockSession(Session session)
   {
-    synchronized (sessionLock)
+    if (session != null && lockedSessions.remove(session))
     {
-      sessionLock.remove(session);
       LOG.trace("Unlocked session: " + session);
     }
   }
@@ -120,12 +118,10 @@ public class SessionManager implements ECardIDServerI
       container.setResult(ResultMajor.ERROR, ResultMinor.SAL_SECURITY_CONDITION_NOT_SATISFIED, e.getMessage());
       listener.seteIDSessionComplete(input.getSessionID(), container);
     }
-    synchronized (sessionLock)
+    if (session != null)
     {
-      sessionLock.remove(session);
+      lockedSessions.remove(session);
     }
-
-
   }
 
   /**
@@ -139,6 +135,17 @@ public class SessionManager implements ECardIDServerI
     return sessionMap.containsKey(sessionID) || listener.getSessionInput(sessionID) != null;
   }
 
+  /**
+   * Checks if a session with this id is currently held by this manager.
+   *
+   * @param sessionID
+   * @return true or false
+   */
+  public boolean isSessionActive(String sessionID)
+  {
+    return sessionID != null && sessionMap.containsKey(sessionID);
+  }
+
   /**
    * Get the session object for session identifier
    *
@@ -163,6 +170,10 @@ public class SessionManager implements ECardIDServerI
       }
       startSession(sessionInput);
       session = sessionMap.get(sessionId);
+      if (session == null)
+      {
+        return null;
+      }
     }
 
     if (requestSessionLock(session))
@@ -209,14 +220,12 @@ public class SessionManager implements ECardIDServerI
 
     listener.seteIDSessionComplete(removedSession.getSessionInput().getSessionID(), eidInfoContainer);
 
-    sessionMap.remove(sessionId);
-    synchronized (sessionLock)
+    sessionMap.remove(sessionId, removedSession);
+    if (lockedSessions.remove(removedSession))
     {
-      if (sessionLock.remove(removedSession))
-      {
-        LOG.trace("Removed session lock: " + sessionId);
-      }
+      LOG.trace("Removed session lock: " + sessionId);
     }
+    removedSession.release();
 
     LOG.debug(removedSession.getSessionInput().getLogPrefix() + "Session: " + removedSession + " stopped");
   }
@@ -228,10 +237,10 @@ public class SessionManager implements ECardIDServerI
    * @param input for session to be created
    * @param session to be set
    */
-  private void sessionPut(SessionInput input, Session session)
+  void sessionPut(SessionInput input, Session session)
   {
-    // Put the session to the manager
-    sessionMap.put(input.getSessionID(), session);
+    // Put the session to the manager, a session started concurrently for the same ID is kept
+    sessionMap.putIfAbsent(input.getSessionID(), session);
   }
 
   void removeInvalidSessions()
@@ -249,13 +258,12 @@ public class SessionManager implements ECardIDServerI
     // Remove invalid sessions
     invalidSessionIds.forEach(sessionId -> {
       Session sessionToRemove = sessionMap.get(sessionId);
-      if (sessionToRemove != null)
+      // only remove the session that was found invalid, not one that has been started for the same ID meanwhile
+      if (sessionToRemove != null && sessionMap.remove(sessionId, sessionToRemove))
       {
-        sessionMap.remove(sessionId);
-        synchronized (sessionLock)
-        {
-          sessionLock.remove(sessionToRemove);
-        }
+        lockedSessions.remove(sessionToRemove);
+        // also for sessions aborted by the client after the ephemeral key was generated
+        sessionToRemove.release();
       }
     });
   }
@@ -10,15 +10,28 @@
 package de.governikus.eumw.poseidas.eidserver.crl;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.security.cert.CertificateException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.bouncycastle.asn1.DERIA5String;
@@ -54,18 +67,82 @@ import lombok.extern.slf4j.Slf4j;
 public class CertificationRevocationListImpl implements CertificationRevocationList
 {
 
+  /**
+   * Number of CRLs that are renewed in parallel
+   */
+  private static final int RENEWAL_THREADS = 4;
+
+  /**
+   * Time to wait for the renewal of a single CRL, longer than the download timeouts of the {@link HttpCrlFetcher}
+   */
+  private static final long RENEWAL_TIMEOUT_SECONDS = 90;
+
+  /**
+   * Upper bound for the number of certificates whose distribution points are cached
+   */
+  private static final int MAX_CACHED_DISTRIBUTION_POINTS = 1000;
+
   private static CertificationRevocationListImpl crl = null;
 
   private final X509Certificate cscaRootCertificate;
 
-  private CrlFetcher crlFetcher;
+  private volatile CrlFetcher crlFetcher;
 
   @Getter
   private static boolean isInitialized;
 
+  /**
+   * Folder for the local copies of the CRLs, <code>null</code> if no local copies are kept
+   */
+  private static Path storageFolder;
+
   @Getter
   private final CrlCache crlCache;
 
+  /**
+   * Local copies of the verified CRLs, <code>null</code> if no storage folder is configured
+   */
+  private final CrlFileStore crlFileStore;
+
+  /**
+   * Trusted certificates to verify the local copies of the CRLs
+   */
+  private volatile Set<X509Certificate> trustAnchors;
+
+  /**
+   * Running downloads per URL, so that concurrent requests for the same CRL share one download
+   */
+  private final Map<String, CompletableFuture<Boolean>> pendingFetches = new ConcurrentHashMap<>();
+
+  /**
+   * The CRL distribution points per certificate. The certificates are compared by their encoding, so this is a cache
+   * by certificate fingerprint.
+   */
+  private final Map<X509Certificate, List<String>> distributionPoints = new ConcurrentHashMap<>();
+
+  /**
+   * The last renewal status sent as SNMP trap, -1 if none was sent yet
+   */
+  private final AtomicInteger lastRenewalStatus = new AtomicInteger(-1);
+
+  /**
+   * Renews the cached CRLs in parallel
+   */
+  private final ExecutorService renewalExecutor = Executors.newFixedThreadPool(RENEWAL_THREADS, runnable -> {
+    Thread thread = new Thread(runnable, "crl-renewal");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Downloads CRLs in the background while the cached CRL is still served
+   */
+  private final ExecutorService refreshExecutor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "crl-refresh");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   /**
    * Constructor.
    *
@@ -103,9 +180,10 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
       this.cscaRootCertificate = cscaRootCertificate;
     }
 
+    this.trustAnchors = masterList == null ? new HashSet<>() : masterList;
     if (crlFetcher == null)
     {
-      this.crlFetcher = new HttpCrlFetcher(masterList == null ? new HashSet<>() : masterList);
+      this.crlFetcher = new HttpCrlFetcher(trustAnchors);
     }
     else
     {
@@ -113,6 +191,18 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
     }
 
     this.crlCache = new SimpleCrlCache();
+    this.crlFileStore = storageFolder == null ? null : new CrlFileStore(storageFolder);
+  }
+
+  /**
+   * Sets the folder where verified CRLs are stored so that they are available after a restart. Must be called before
+   * the class is initialized to take effect.
+   *
+   * @param folder the folder, <code>null</code> to keep no local copies
+   */
+  public static synchronized void setStorageFolder(Path folder)
+  {
+    storageFolder = folder;
   }
 
   /**
@@ -129,6 +219,7 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
     }
     log.debug("Updating trust anchors for crl fetching to {} certificates from the master list", masterList.size());
     HashSet<X509Certificate> certificates = new HashSet<>(masterList);
+    this.trustAnchors = certificates;
     this.crlFetcher = new HttpCrlFetcher(certificates);
     log.trace("Updated trust anchors for crl fetching to: \n{}",
               certificates.stream().map(X509Certificate::toString).collect(Collectors.joining("\n ===============")));
@@ -216,7 +307,7 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
       crl = new CertificationRevocationListImpl(masterList, certificate, crlFetcher, configurationService);
       crl.fetchCrlForRoot();
       isInitialized = true;
-      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.CRL_TRAP_LAST_RENEWAL_STATUS, 0);
+      crl.reportRenewalStatus(0, true);
       log.info("CRL successful initialized");
     }
     catch (CertificateValidationException e)
@@ -239,10 +330,21 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
    */
   private void fetchCrlForRoot() throws CertificateValidationException
   {
-    List<String> urls = getCrlDistributionPoints(cscaRootCertificate);
+    List<String> urls = getCachedCrlDistributionPoints(cscaRootCertificate);
     for ( String url : urls )
     {
-      crlCache.set(url, crlFetcher.get(url));
+      if (loadStoredCrl(url))
+      {
+        log.debug("Using stored CRL for URL {}", url);
+        if (crlCache.get(url).isCrlOlderThan24Hours())
+        {
+          refreshInBackground(url);
+        }
+        continue;
+      }
+      X509CRL x509CRL = crlFetcher.get(url);
+      crlCache.set(url, x509CRL);
+      storeCrl(url, x509CRL);
     }
   }
 
@@ -303,6 +405,31 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
     return urls;
   }
 
+  /**
+   * Returns the CRL distribution points of the certificate, parsing the extension only once per certificate.
+   *
+   * @param certificate from which the urls are retrieved
+   * @return List with urls where the CRLs are published
+   */
+  private List<String> getCachedCrlDistributionPoints(X509Certificate certificate)
+  {
+    if (certificate == null)
+    {
+      return List.of();
+    }
+    List<String> urls = distributionPoints.get(certificate);
+    if (urls == null)
+    {
+      urls = List.copyOf(getCrlDistributionPoints(certificate));
+      if (distributionPoints.size() >= MAX_CACHED_DISTRIBUTION_POINTS)
+      {
+        distributionPoints.clear();
+      }
+      distributionPoints.put(certificate, urls);
+    }
+    return urls;
+  }
+
   /**
    * Holds succeeded and failed crl renewals.
    *
@@ -313,52 +440,83 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
   {}
 
   /**
-   * Renews all CRLs that are stored in the {@link CrlCache}.
+   * Renews all CRLs that are stored in the {@link CrlCache}. The CRLs are downloaded in parallel, a CRL whose renewal
+   * does not finish in time counts as failed. One SNMP trap is sent for the whole renewal.
    */
   public RenewCrlsLists renewCrls()
   {
     RenewCrlsLists renewCrlsLists = new RenewCrlsLists(new ArrayList<>(), new ArrayList<>());
-    Set<String> availableUrls = crlCache.getAvailableUrls();
-    for ( String url : availableUrls )
+    Map<String, Future<Boolean>> renewals = new LinkedHashMap<>();
+    for ( String url : crlCache.getAvailableUrls() )
     {
       log.debug("Renewing CRL for URL: {}", url);
-      boolean fetchAndSaveCrl = fetchAndSaveCrl(url);
-      if (fetchAndSaveCrl)
+      renewals.put(url, renewalExecutor.submit(() -> fetch(url, false)));
+    }
+    // the renewals run in rounds of RENEWAL_THREADS, each round may take up to the timeout
+    long rounds = (renewals.size() + RENEWAL_THREADS - 1) / RENEWAL_THREADS;
+    long deadline = System.nanoTime() + rounds * TimeUnit.SECONDS.toNanos(RENEWAL_TIMEOUT_SECONDS);
+    for ( Map.Entry<String, Future<Boolean>> renewal : renewals.entrySet() )
+    {
+      if (awaitRenewal(renewal.getKey(), renewal.getValue(), deadline))
       {
-        renewCrlsLists.succeeded.add(url);
+        renewCrlsLists.succeeded.add(renewal.getKey());
       }
       else
       {
-        renewCrlsLists.failed.add(url);
+        renewCrlsLists.failed.add(renewal.getKey());
       }
     }
+    if (!renewals.isEmpty())
+    {
+      reportRenewalStatus(renewCrlsLists.failed.isEmpty() ? 0 : 1, true);
+    }
     return renewCrlsLists;
   }
 
+  private boolean awaitRenewal(String url, Future<Boolean> renewal, long deadline)
+  {
+    try
+    {
+      return renewal.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException e)
+    {
+      log.warn("Renewal of the CRL for URL {} did not finish in time", url);
+      renewal.cancel(true);
+    }
+    catch (ExecutionException e)
+    {
+      log.error("Renewal of the CRL for URL {} failed", url, e);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
   /**
    * {@inheritDoc}
+   * <p>
+   * A cached CRL that is older than the cache time but did not reach its next update is returned immediately while a
+   * new one is downloaded in the background. Only a missing or expired CRL is downloaded on the calling thread.
    */
   @Override
   public X509CRL getX509CRL(String url)
+  {
+    CrlDao crlDao = getCrlDao(url);
+    return crlDao == null ? null : crlDao.getX509CRL();
+  }
+
+  private CrlDao getCrlDao(String url)
   {
     CrlDao crlDao = crlCache.get(url);
 
-    // Check if the URL is known to the cache
-    if (crlDao == null)
+    // Check if the URL is known to the cache or a stored copy is available
+    if (crlDao == null && !loadStoredCrl(url))
     {
       log.debug("CrlCache does not contain a CRL for this URL, requesting a new one. URL: {}", url);
-      if (!fetchAndSaveCrl(url))
-      {
-        return null;
-      }
-    }
-
-    // Check if the CRL is not older than the cache time
-    crlDao = crlCache.get(url);
-    if (crlDao.isCrlOlderThan24Hours())
-    {
-      log.debug("Current CRL is older than the valid cache time, requesting a new CRL for URL {}", url);
-      if (!fetchAndSaveCrl(url))
+      if (!fetch(url))
       {
         return null;
       }
@@ -366,19 +524,113 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
 
     // Check that the CRL did not reach its own expiration date
     crlDao = crlCache.get(url);
-    if (isTimeForNextUpdate(crlDao.getX509CRL()))
+    if (crlDao != null && isTimeForNextUpdate(crlDao.getX509CRL()))
     {
       log.debug("Current CRL already reached its expiration date, requesting a new CRL for URL {}", url);
-      if (!fetchAndSaveCrl(url))
+      if (!fetch(url))
       {
         return null;
       }
+      crlDao = crlCache.get(url);
+    }
+    // Check if the CRL is not older than the cache time
+    else if (crlDao != null && crlDao.isCrlOlderThan24Hours())
+    {
+      log.debug("Current CRL is older than the valid cache time, requesting a new CRL for URL {}", url);
+      refreshInBackground(url);
     }
 
     // All checks completed, return the CRL
-    return crlDao.getX509CRL();
+    return crlDao;
+  }
+
+  /**
+   * Download the CRL on the calling thread or wait for a download of the same CRL that is already running.
+   *
+   * @param url The URL where the CRL should be fetched from
+   * @return true when the CRL could be fetched, validated and stored
+   */
+  private boolean fetch(String url)
+  {
+    return fetch(url, true);
+  }
+
+  /**
+   * Download the CRL on the calling thread or wait for a download of the same CRL that is already running.
+   *
+   * @param url The URL where the CRL should be fetched from
+   * @param reportStatus whether a change of the renewal status is to be sent as SNMP trap
+   * @return true when the CRL could be fetched, validated and stored
+   */
+  private boolean fetch(String url, boolean reportStatus)
+  {
+    CompletableFuture<Boolean> fetch = new CompletableFuture<>();
+    CompletableFuture<Boolean> pendingFetch = pendingFetches.putIfAbsent(url, fetch);
+    if (pendingFetch != null)
+    {
+      log.debug("Waiting for the running download of the CRL for URL {}", url);
+      return pendingFetch.join();
+    }
+    runFetch(url, fetch, reportStatus);
+    return fetch.join();
+  }
+
+  /**
+   * Start a download of the CRL in the background unless one is already running.
+   *
+   * @param url The URL where the CRL should be fetched from
+   */
+  private void refreshInBackground(String url)
+  {
+    CompletableFuture<Boolean> fetch = new CompletableFuture<>();
+    if (pendingFetches.putIfAbsent(url, fetch) != null)
+    {
+      return;
+    }
+    try
+    {
+      refreshExecutor.execute(() -> runFetch(url, fetch, true));
+    }
+    catch (RejectedExecutionException e)
+    {
+      log.debug("Could not start the background download of the CRL for URL {}", url, e);
+      pendingFetches.remove(url, fetch);
+      fetch.complete(false);
+    }
   }
 
+  /**
+   * Check whether a download of the CRL is running, used for testing
+   *
+   * @param url The URL of the CRL
+   * @return true while a download of the CRL has not finished
+   */
+  boolean isFetchPending(String url)
+  {
+    return pendingFetches.containsKey(url);
+  }
+
+  private void runFetch(String url, CompletableFuture<Boolean> fetch, boolean reportStatus)
+  {
+    boolean result = false;
+    try
+    {
+      result = fetchAndSaveCrl(url);
+      if (reportStatus)
+      {
+        reportRenewalStatus(result ? 0 : 1, false);
+      }
+    }
+    catch (RuntimeException e)
+    {
+      log.error("Unexpected error while requesting the CRL for URL: {}", url, e);
+    }
+    finally
+    {
+      pendingFetches.remove(url, fetch);
+      fetch.complete(result);
+    }
+  }
 
   /**
    * This method tries to fetch, validate, and store the CRL in the cache
@@ -394,19 +646,76 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
       if (x509CRL != null)
       {
         crlCache.set(url, x509CRL);
-        SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.CRL_TRAP_LAST_RENEWAL_STATUS, 0);
+        storeCrl(url, x509CRL);
         return true;
       }
     }
     catch (CertificateValidationException e)
     {
       log.error("Cannot request a valid CRL for this URL: {}", url, e);
-      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.CRL_TRAP_LAST_RENEWAL_STATUS, 1);
       return false;
     }
     return false;
   }
 
+  /**
+   * Send the CRL renewal status as SNMP trap. Downloads on demand only send a trap if the status changed, so that a
+   * failing distribution point does not cause a trap for every request.
+   *
+   * @param status 0 for success, 1 for failure
+   * @param always send the trap even if the status did not change
+   */
+  private void reportRenewalStatus(int status, boolean always)
+  {
+    if (lastRenewalStatus.getAndSet(status) != status || always)
+    {
+      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.CRL_TRAP_LAST_RENEWAL_STATUS, status);
+    }
+  }
+
+  private void storeCrl(String url, X509CRL x509CRL)
+  {
+    if (crlFileStore != null && x509CRL != null)
+    {
+      crlFileStore.write(url, x509CRL);
+    }
+  }
+
+  /**
+   * Put the stored copy of the CRL into the cache if it can be verified and did not reach its next update.
+   *
+   * @param url The URL of the CRL
+   * @return true when a usable stored CRL was put into the cache
+   */
+  private boolean loadStoredCrl(String url)
+  {
+    if (crlFileStore == null)
+    {
+      return false;
+    }
+    CrlFileStore.StoredCrl storedCrl = crlFileStore.read(url);
+    if (storedCrl == null)
+    {
+      return false;
+    }
+    try
+    {
+      HttpCrlFetcher.verify(storedCrl.crl(), trustAnchors);
+    }
+    catch (CertificateValidationException e)
+    {
+      log.warn("Ignoring stored CRL for URL {} because it cannot be verified", url, e);
+      return false;
+    }
+    if (isTimeForNextUpdate(storedCrl.crl()))
+    {
+      log.debug("Ignoring stored CRL for URL {} because it reached its expiration date", url);
+      return false;
+    }
+    crlCache.set(url, storedCrl.crl(), storedCrl.lastUpdate());
+    return true;
+  }
+
   private boolean isTimeForNextUpdate(X509CRL crl)
   {
     return crl.getNextUpdate() != null && crl.getNextUpdate().getTime() < System.currentTimeMillis();
@@ -423,13 +732,13 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
   public boolean isOnCRL(X509Certificate x509CertificateToCheck)
   {
     CertificationRevocationListImpl crlInt = CertificationRevocationListImpl.getInstance();
-    List<String> urls = CertificationRevocationListImpl.getCrlDistributionPoints(x509CertificateToCheck);
-    X509CRL x509CRL;
+    List<String> urls = crlInt.getCachedCrlDistributionPoints(x509CertificateToCheck);
+    CrlDao crlDao;
     for ( String url : urls )
     {
-      x509CRL = crlInt.getX509CRL(url);
+      crlDao = crlInt.getCrlDao(url);
 
-      if (x509CRL == null || x509CRL.isRevoked(x509CertificateToCheck))
+      if (crlDao == null || crlDao.isRevoked(x509CertificateToCheck))
       {
         log.debug("Certificate {} has been revoked!", x509CertificateToCheck.getSubjectDN().getName());
         return true;
@@ -438,13 +747,27 @@ public class CertificationRevocationListImpl implements CertificationRevocationL
     return false;
   }
 
+  /**
+   * Stops the background threads renewing and downloading CRLs. Called when the application is shut down.
+   */
+  public static synchronized void shutdown()
+  {
+    if (crl != null)
+    {
+      crl.refreshExecutor.shutdownNow();
+      crl.renewalExecutor.shutdownNow();
+    }
+  }
+
   /**
    * Only meant for test purposes to reset the singleton object after every test
    */
-  public static void reset()
+  public static synchronized void reset()
   {
+    shutdown();
     crl = null;
     isInitialized = false;
+    storageFolder = null;
   }
 
   /**
@@ -38,6 +38,15 @@ public interface CrlCache
    */
   void set(String url, X509CRL crl);
 
+  /**
+   * Sets a CRL under the specified key that was retrieved at the given time, e.g. a CRL loaded from a local copy.
+   *
+   * @param url key at which the specified crl is to be stored
+   * @param crl crl to be stored, not null
+   * @param lastUpdate time the CRL was retrieved in UNIX format
+   */
+  void set(String url, X509CRL crl, long lastUpdate);
+
   /**
    * Returns the set of URLs for which CRLs are saved
    *
@@ -9,7 +9,12 @@
 
 package de.governikus.eumw.poseidas.eidserver.crl;
 
+import java.math.BigInteger;
 import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.HashSet;
+import java.util.Set;
 
 import lombok.Getter;
 
@@ -27,6 +32,11 @@ public class CrlDao
   @Getter
   private final long lastUpdate;
 
+  /**
+   * The serial numbers of all revoked certificates for a fast lookup
+   */
+  private final Set<BigInteger> revokedSerialNumbers = new HashSet<>();
+
   /**
    * Initializes a new {@link CrlDao} object with a {@link X509CRL} and the time the CRl was updated.
    *
@@ -37,6 +47,23 @@ public class CrlDao
   {
     this.x509CRL = crl;
     this.lastUpdate = currentTimeMillis;
+    Set<? extends X509CRLEntry> revokedCertificates = crl == null ? null : crl.getRevokedCertificates();
+    if (revokedCertificates != null)
+    {
+      revokedCertificates.forEach(entry -> revokedSerialNumbers.add(entry.getSerialNumber()));
+    }
+  }
+
+  /**
+   * Checks whether the certificate is revoked by this CRL. Only if the serial number is listed, the complete check of
+   * {@link X509CRL#isRevoked(java.security.cert.Certificate)} is performed.
+   *
+   * @param certificate the certificate to check
+   * @return true if the certificate is on the CRL
+   */
+  public boolean isRevoked(X509Certificate certificate)
+  {
+    return revokedSerialNumbers.contains(certificate.getSerialNumber()) && x509CRL.isRevoked(certificate);
   }
 
   /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.eidserver.crl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import de.governikus.eumw.utils.key.SecurityProvider;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Keeps a local copy of each downloaded and verified CRL so that the {@link CrlCache} can be filled without network
+ * access after a restart. The files are named after the SHA-256 hash of the URL. A CRL read from this store must be
+ * verified again before it is used.
+ */
+@Slf4j
+public class CrlFileStore
+{
+
+  private static final String FILE_EXTENSION = ".crl";
+
+  private final Path folder;
+
+  /**
+   * @param folder the folder for the CRL files, it is created if it does not exist
+   */
+  public CrlFileStore(Path folder)
+  {
+    this.folder = folder;
+  }
+
+  /**
+   * Store the CRL for the given URL, replacing an older copy. Failures are logged only as the local copy is optional.
+   *
+   * @param url the URL the CRL was downloaded from
+   * @param crl the verified CRL
+   */
+  public void write(String url, X509CRL crl)
+  {
+    Path target = getPath(url);
+    try
+    {
+      Files.createDirectories(folder);
+      Path tempFile = Files.createTempFile(folder, target.getFileName().toString(), ".tmp");
+      try
+      {
+        Files.write(tempFile, crl.getEncoded());
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally
+      {
+        Files.deleteIfExists(tempFile);
+      }
+      log.debug("Stored CRL for URL {} in {}", url, target);
+    }
+    catch (IOException | CRLException e)
+    {
+      log.warn("Could not store CRL for URL {} in {}", url, target, e);
+    }
+  }
+
+  /**
+   * Read the stored CRL for the given URL.
+   *
+   * @param url the URL the CRL was downloaded from
+   * @return the stored CRL or <code>null</code> if there is no readable copy
+   */
+  public StoredCrl read(String url)
+  {
+    Path file = getPath(url);
+    if (!Files.isRegularFile(file))
+    {
+      return null;
+    }
+    try (InputStream inputStream = Files.newInputStream(file))
+    {
+      CertificateFactory cf = CertificateFactory.getInstance("x509", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+      X509CRL crl = (X509CRL)cf.generateCRL(inputStream);
+      return new StoredCrl(crl, Files.getLastModifiedTime(file).toMillis());
+    }
+    catch (IOException | CRLException | CertificateException e)
+    {
+      log.warn("Could not read stored CRL for URL {} from {}", url, file, e);
+      return null;
+    }
+  }
+
+  private Path getPath(String url)
+  {
+    try
+    {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+      return folder.resolve(Hex.hexify(hash) + FILE_EXTENSION);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * A CRL read from the store together with the time it was stored
+   *
+   * @param crl the CRL, not yet verified
+   * @param lastUpdate time the CRL was stored in UNIX format
+   */
+  public record StoredCrl(X509CRL crl, long lastUpdate)
+  {}
+}
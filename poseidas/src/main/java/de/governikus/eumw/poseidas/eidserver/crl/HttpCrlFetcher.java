@@ -23,8 +23,13 @@ import java.util.Optional;
 import java.util.Set;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.util.Timeout;
 import org.bouncycastle.asn1.x509.Extension;
 
 import de.governikus.eumw.poseidas.cardserver.CertificateUtil;
@@ -38,6 +43,11 @@ import de.governikus.eumw.utils.key.SecurityProvider;
 public class HttpCrlFetcher implements CrlFetcher
 {
 
+  /**
+   * Timeout for connecting to a CRL distribution point and for waiting for data from it
+   */
+  private static final Timeout DOWNLOAD_TIMEOUT = Timeout.ofSeconds(30);
+
   private final Set<X509Certificate> trustAnchors;
 
   /**
@@ -61,31 +71,43 @@ public class HttpCrlFetcher implements CrlFetcher
   }
 
   protected X509CRL download(String url) throws CertificateValidationException
+  {
+    if (url != null && url.matches("http[s]{0,1}://.*"))
+    {
+      return verify(httpDownload(url), trustAnchors);
+    }
+    return null;
+  }
+
+  /**
+   * Verifies the signature of a CRL with the trust anchor referenced by its authority key identifier.
+   *
+   * @param crl the CRL to verify
+   * @param trustAnchors the certificates that may have signed the CRL
+   * @return the given CRL
+   * @throws CertificateValidationException if no matching trust anchor is found or the signature is invalid
+   */
+  static X509CRL verify(X509CRL crl, Set<X509Certificate> trustAnchors) throws CertificateValidationException
   {
     try
     {
-      if (url != null && url.matches("http[s]{0,1}://.*"))
+      Optional<X509Certificate> signer = trustAnchors.stream()
+                                                     .filter(CertificateUtil.findIssuerByAuthorityKeyIdentifier(crl.getExtensionValue(Extension.authorityKeyIdentifier.getId())))
+                                                     .findAny();
+      if (signer.isPresent())
       {
-        X509CRL crl = httpDownload(url);
-        Optional<X509Certificate> signer = trustAnchors.stream()
-                                                       .filter(CertificateUtil.findIssuerByAuthorityKeyIdentifier(crl.getExtensionValue(Extension.authorityKeyIdentifier.getId())))
-                                                       .findAny();
-        if (signer.isPresent())
-        {
-          crl.verify(signer.get().getPublicKey(), SecurityProvider.BOUNCY_CASTLE_PROVIDER);
-          return crl;
-        }
-        else
-        {
-          throw new CertificateValidationException("Could not verify CRL");
-        }
+        crl.verify(signer.get().getPublicKey(), SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+        return crl;
+      }
+      else
+      {
+        throw new CertificateValidationException("Could not verify CRL");
       }
     }
     catch (CRLException | InvalidKeyException | NoSuchAlgorithmException | SignatureException e)
     {
       throw new CertificateValidationException("Could not verify CRL", e);
     }
-    return null;
   }
 
   protected X509CRL httpDownload(String url) throws CertificateValidationException
@@ -94,12 +116,22 @@ public class HttpCrlFetcher implements CrlFetcher
     {
       CertificateFactory cf = CertificateFactory.getInstance("x509", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
       byte[] downloadedCrlBytes;
-      try (CloseableHttpClient httpClient = HttpClientBuilder.create().useSystemProperties().build())
+      try (CloseableHttpClient httpClient = createHttpClient())
       {
-        downloadedCrlBytes = httpClient.execute(new HttpGet(url),
-                                                response -> response.getEntity().getContent().readAllBytes());
+        downloadedCrlBytes = httpClient.execute(new HttpGet(url), response -> {
+          if (response.getCode() != HttpStatus.SC_OK)
+          {
+            throw new IOException("Unexpected HTTP status " + response.getCode());
+          }
+          return response.getEntity().getContent().readAllBytes();
+        });
       }
-      return (X509CRL)cf.generateCRL(new ByteArrayInputStream(downloadedCrlBytes));
+      X509CRL crl = (X509CRL)cf.generateCRL(new ByteArrayInputStream(downloadedCrlBytes));
+      if (crl == null)
+      {
+        throw new CertificateValidationException(String.format("Failed to download CRL '%s' (no CRL received)", url));
+      }
+      return crl;
     }
     catch (IOException | CRLException | CertificateException e)
     {
@@ -107,4 +139,20 @@ public class HttpCrlFetcher implements CrlFetcher
                                                e);
     }
   }
+
+  private static CloseableHttpClient createHttpClient()
+  {
+    ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                                                        .setConnectTimeout(DOWNLOAD_TIMEOUT)
+                                                        .setSocketTimeout(DOWNLOAD_TIMEOUT)
+                                                        .build();
+    return HttpClientBuilder.create()
+                            .useSystemProperties()
+                            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                                                                                           .useSystemProperties()
+                                                                                           .setDefaultConnectionConfig(connectionConfig)
+                                                                                           .build())
+                            .setDefaultRequestConfig(RequestConfig.custom().setResponseTimeout(DOWNLOAD_TIMEOUT).build())
+                            .build();
+  }
 }
@@ -14,7 +14,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.security.cert.X509CRL;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 
 /**
@@ -24,7 +24,7 @@ import java.util.TreeMap;
 public class SimpleCrlCache implements CrlCache
 {
 
-  private final Map<String, CrlDao> storage = new TreeMap<>();
+  private final Map<String, CrlDao> storage = new ConcurrentSkipListMap<>();
 
   /**
    * {@inheritDoc}
@@ -53,6 +53,16 @@ public class SimpleCrlCache implements CrlCache
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void set(String url, X509CRL crl, long lastUpdate)
+  {
+    log.debug("CRL for URL {} retrieved at {} is saved in the CrlCache", url, lastUpdate);
+    storage.put(url, new CrlDao(crl, lastUpdate));
+  }
+
   @Override
   public Set<String> getAvailableUrls()
   {
@@ -30,6 +30,7 @@ import de.governikus.eumw.poseidas.cardserver.eac.crypto.SignedDataChecker;
 import de.governikus.eumw.poseidas.eidserver.crl.CertificationRevocationListImpl;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.pki.CmsSignatureChecker;
+import de.governikus.eumw.poseidas.server.pki.TrustAnchors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -56,6 +57,17 @@ public class EACSignedDataChecker extends EACSignedDataParser implements SignedD
    * @param logPrefix
    */
   public EACSignedDataChecker(List<X509Certificate> masterList, String logPrefix)
+  {
+    this(new TrustAnchors(masterList), logPrefix);
+  }
+
+  /**
+   * Instance using an already parsed master list
+   *
+   * @param masterList the trusted certificates of the master list
+   * @param logPrefix
+   */
+  public EACSignedDataChecker(TrustAnchors masterList, String logPrefix)
   {
     super(logPrefix);
     // The allowed Digest Algorithms and Signature Algorithms can be found in TR-3116-2 2.1.2 (Status 2023)
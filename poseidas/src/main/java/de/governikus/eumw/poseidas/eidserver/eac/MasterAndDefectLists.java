@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.eidserver.eac;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import de.governikus.eumw.poseidas.eidserver.model.signeddata.DefectList;
+import de.governikus.eumw.poseidas.eidserver.model.signeddata.MasterList;
+import de.governikus.eumw.poseidas.server.pki.TrustAnchors;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * The parsed master list and defect list of a terminal permission. Both are not changed after parsing, so one instance
+ * is shared by all sessions using the same lists.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MasterAndDefectLists
+{
+
+  /**
+   * The CSCA certificates of the master list
+   */
+  private final TrustAnchors masterList;
+
+  private final DefectList defectList;
+
+  /**
+   * Parse the lists.
+   *
+   * @param masterList the master list as signed data, may be <code>null</code> if masterListCerts is given
+   * @param masterListCerts the CSCA certificates if already known, used if masterList is <code>null</code>
+   * @param defectList the defect list as signed data
+   * @throws IllegalArgumentException if a list is missing, empty or cannot be parsed
+   */
+  public static MasterAndDefectLists parse(byte[] masterList, List<X509Certificate> masterListCerts, byte[] defectList)
+  {
+    List<X509Certificate> certificates;
+    if (masterList != null)
+    {
+      if (masterList.length < 1)
+      {
+        throw new IllegalArgumentException("Master list to set may not be empty");
+      }
+      certificates = new MasterList(masterList).getCertificates();
+      if (certificates.isEmpty())
+      {
+        throw new IllegalArgumentException("Master list is empty");
+      }
+    }
+    else if (masterListCerts != null)
+    {
+      certificates = masterListCerts;
+    }
+    else
+    {
+      throw new IllegalArgumentException("no Master List given in SessionInput");
+    }
+    return new MasterAndDefectLists(new TrustAnchors(certificates),
+                                    defectList == null ? null : new DefectList(defectList));
+  }
+}
@@ -16,6 +16,7 @@ import java.util.Set;
 
 import de.governikus.eumw.poseidas.eidmodel.TerminalData;
 import de.governikus.eumw.poseidas.eidmodel.data.EIDKeys;
+import de.governikus.eumw.poseidas.eidserver.eac.MasterAndDefectLists;
 
 
 /**
@@ -110,6 +111,16 @@ public interface SessionInput extends Serializable
    */
   public abstract byte[] getDefectList();
 
+  /**
+   * Returns the already parsed master and defect list which are shared between sessions, or <code>null</code> if the
+   * lists given by {@link #getMasterList()}, {@link #getMasterListCerts()} and {@link #getDefectList()} must be parsed
+   * for this session.
+   */
+  public default MasterAndDefectLists getMasterAndDefectLists()
+  {
+    return null;
+  }
+
   /**
    * Get the (optional) transaction info.
    *
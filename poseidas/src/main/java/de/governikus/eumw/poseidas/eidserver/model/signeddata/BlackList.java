@@ -9,36 +9,33 @@
 
 package de.governikus.eumw.poseidas.eidserver.model.signeddata;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
-import org.bouncycastle.asn1.ASN1Encodable;
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.ASN1OctetString;
-import org.bouncycastle.asn1.ASN1Primitive;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.ASN1SequenceParser;
 import org.bouncycastle.cms.CMSException;
-import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSSignedDataParser;
+import org.bouncycastle.cms.CMSTypedStream;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 
 import de.governikus.eumw.poseidas.cardbase.constants.OIDConstants;
 import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
 
 
 /**
  * The Block List as defined in TR-03129, Appendix B.
  * <p>
- * Will parse a ASN1 structure and provide access to the parsed values.
+ * Will parse a ASN1 structure and provide access to the parsed values. The structure is read with the
+ * {@link BlackListReader}, which should be used directly for large lists.
  *
  * @author Thomas Chojecki
  * @author Alexander Funk
  * @author Hauke Mehrtens
  */
 @Getter
-@Slf4j
 public class BlackList
 {
 
@@ -67,6 +64,8 @@ public class BlackList
    */
   public static final int VERSION_V2 = 1;
 
+  private static final Predicate<byte[]> ALL_SECTORS = sectorID -> true;
+
   private int version;
 
   private int type;
@@ -93,110 +92,34 @@ public class BlackList
   {
     try
     {
-      // The methods are called inn this was, so the garbage collector can throw away all the temporary
-      // classes generated in these methods, otherwise the GC only throws away the classes in methods we left.
-      parseBlkDetails(parseList((ASN1Sequence)getASN1InputStream(getSignedContent(bytes))));
-    }
-    catch (CMSException | IOException | ClassCastException e)
-    {
-      throw new IllegalArgumentException("Some problem occurred while parsing the block list. Is the list CMS signed?",
-                                         e);
-    }
-  }
-
-  private byte[] getSignedContent(byte[] bytes) throws CMSException
-  {
-    CMSSignedData s = new CMSSignedData(bytes);
-
-    if (!OIDConstants.OID_BLOCKLIST.getOIDString().equals(s.getSignedContentTypeOID()))
-    {
-      throw new IllegalArgumentException("Found no match for list object identifier: "
-                                         + OIDConstants.OID_BLOCKLIST.getOIDString());
-    }
-    return (byte[])s.getSignedContent().getContent();
-  }
-
-  private ASN1Primitive getASN1InputStream(byte[] object) throws IOException
-  {
-    try (ASN1InputStream asn1 = new ASN1InputStream(object, true))
-    {
-      return asn1.readObject();
-    }
-  }
-
-  private ASN1SequenceParser parseList(ASN1Sequence sequence) throws IOException
-  {
-    int size = sequence.size();
-
-    // if our sequence does not have 4 to 6 objects, it is no block list (see TR-03129 - v1 block list has 4 to 5
-    // objects, v2 has 4 to 6).
-    if (size < 4 || size > 6)
-    {
-      throw new IOException("Invalid structure. We expect 4 to 6 elements, but we got " + size);
-    }
-
-    // index 0 is always version
-    version = ((ASN1Integer)sequence.getObjectAt(0)).getValue().intValue();
-    if (version != VERSION_V1 && version != VERSION_V2)
-    {
-      throw new IOException("Unsupported block list version. Supported versions are " + VERSION_V1 + " and "
-                            + VERSION_V2 + " but received " + version);
-    }
-    log.trace("Found block list version {}", version);
-
-    // index 1 is always type
-    type = ((ASN1Integer)sequence.getObjectAt(1)).getValue().intValue();
-    if (type != TYPE_COMPLETE && type != TYPE_ADDED && type != TYPE_REMOVED)
-    {
-      throw new IOException("Unsupported block list type. Supported types are " + TYPE_COMPLETE + ", " + TYPE_ADDED
-                            + " and " + TYPE_REMOVED + " but received " + type);
-    }
-    log.trace("Found block list type {}", type);
-
-    // index 2 is always list ID
-    listID = ((ASN1OctetString)sequence.getObjectAt(2)).getOctets();
-    log.trace("Found block list ID {}", listID);
-
-    // complete
-    if (type == TYPE_COMPLETE)
-    {
-      ASN1Encodable object = sequence.getObjectAt(3);
-      // in complete list, index 3 can be the list content...
-      if (object instanceof ASN1Sequence seq)
+      CMSSignedDataParser cmsParser = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().build(),
+                                                              new ByteArrayInputStream(bytes));
+      if (!OIDConstants.OID_BLOCKLIST.getOIDString().equals(cmsParser.getSignedContentTypeOID()))
       {
-        return seq.parser();
+        throw new IllegalArgumentException("Found no match for list object identifier: "
+                                           + OIDConstants.OID_BLOCKLIST.getOIDString());
+      }
+      CMSTypedStream signedContent = cmsParser.getSignedContent();
+      if (signedContent == null)
+      {
+        throw new IOException("Block list does not contain signed content");
+      }
+      BlackListReader reader = new BlackListReader(signedContent.getContentStream());
+      version = reader.getVersion();
+      type = reader.getType();
+      listID = reader.getListID();
+      deltaBase = reader.getDeltaBase();
+      finalEntries = reader.getFinalEntries();
+      blacklistDetails = new ArrayList<>();
+      for ( BlackListDetails details = reader.readDetails(ALL_SECTORS) ; details != null ; details = reader.readDetails(ALL_SECTORS) )
+      {
+        blacklistDetails.add(details);
       }
-      // ...or the number of entries...
-      finalEntries = ((ASN1Integer)object).getValue().intValue();
-      log.trace("Found block list final number of entries {}", finalEntries);
-      // ...followed by the list content at index 4
-      return ((ASN1Sequence)sequence.getObjectAt(4)).parser();
-    }
-
-    // delta
-    // in delta, index 3 is always delta base
-    deltaBase = ((ASN1OctetString)sequence.getObjectAt(3)).getOctets();
-    log.trace("Found block list delta base {}", deltaBase);
-    if (version == VERSION_V1)
-    {
-      // in delta v1, index 4 is always list content
-      return ((ASN1Sequence)sequence.getObjectAt(4)).parser();
     }
-
-    // VERSION_V2
-    // in delta v2, index 4 is always number of final entries
-    finalEntries = ((ASN1Integer)sequence.getObjectAt(4)).getValue().intValue();
-    log.trace("Found block list final number of entries {}", finalEntries);
-    // in delta v2, index 5 is always list content
-    return ((ASN1Sequence)sequence.getObjectAt(5)).parser();
-  }
-
-  private void parseBlkDetails(ASN1SequenceParser parser) throws IOException
-  {
-    blacklistDetails = new LinkedList<>();
-    for ( ASN1Encodable blacklistDetailObj = parser.readObject() ; blacklistDetailObj != null ; blacklistDetailObj = parser.readObject() )
+    catch (CMSException | OperatorCreationException | IOException e)
     {
-      blacklistDetails.add(new BlackListDetails(blacklistDetailObj.toASN1Primitive().getEncoded()));
+      throw new IllegalArgumentException("Some problem occurred while parsing the block list. Is the list CMS signed?",
+                                         e);
     }
   }
 }
@@ -9,17 +9,9 @@
 
 package de.governikus.eumw.poseidas.eidserver.model.signeddata;
 
-import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
-import org.bouncycastle.asn1.ASN1Encodable;
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1OctetString;
-import org.bouncycastle.asn1.ASN1Primitive;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.ASN1SequenceParser;
-
 
 /**
  * BlackListDetails. The BlacklistDetails as defined in TR-03129, Appendix B.
@@ -29,59 +21,18 @@ import org.bouncycastle.asn1.ASN1SequenceParser;
 public class BlackListDetails
 {
 
-  private byte[] sectorID;
+  private final byte[] sectorID;
 
-  private List<byte[]> sectorSpecificIDs = null;
+  private final List<byte[]> sectorSpecificIDs;
 
   /**
-   * @param bytes
-   * @throws IOException
+   * @param sectorID the sector ID
+   * @param sectorSpecificIDs the sector specific IDs, not copied
    */
-  BlackListDetails(byte[] blackListDetails) throws IOException
-  {
-    // The methods are called inn this was, so the garbage collector can throw away all the temporary classes
-    // generated in these methods, otherwise the GC only throws away the classes in methods we left.
-    parseDetailList(parseDetails(getASN1InputStream(blackListDetails)));
-
-    // Finished parsing BlackList, check if all is done
-    if (sectorID == null || sectorSpecificIDs == null)
-    {
-      throw new IOException("Could not find any blacklistdetails in the asn1 structure. Was the right asn1 structure used?");
-    }
-  }
-
-  private ASN1Primitive getASN1InputStream(byte[] object) throws IOException
-  {
-    try (ASN1InputStream asn1 = new ASN1InputStream(object, true))
-    {
-      return asn1.readObject();
-    }
-  }
-
-  private ASN1SequenceParser parseDetails(ASN1Primitive obj) throws IOException
-  {
-    ASN1Sequence sequence = (ASN1Sequence)obj;
-    int size = sequence.size();
-
-    // if our sequence don't have 2 objects, we could not parse the list.
-    if (size != 2)
-    {
-      throw new IOException("Invalid structure. We expect 2 elements, but we got " + size);
-    }
-    sectorID = ((ASN1OctetString)sequence.getObjectAt(0)).getOctets();
-
-    ASN1Sequence seq = (ASN1Sequence)sequence.getObjectAt(1);
-    return seq.parser();
-  }
-
-  private void parseDetailList(ASN1SequenceParser parser) throws IOException
+  BlackListDetails(byte[] sectorID, List<byte[]> sectorSpecificIDs)
   {
-    sectorSpecificIDs = new LinkedList<>();
-    ASN1Encodable blacklistDetailObj;
-    while ((blacklistDetailObj = parser.readObject()) != null)
-    {
-      sectorSpecificIDs.add(((ASN1OctetString)blacklistDetailObj).getOctets());
-    }
+    this.sectorID = sectorID;
+    this.sectorSpecificIDs = sectorSpecificIDs;
   }
 
   /**
@@ -105,10 +56,11 @@ public class BlackListDetails
    * All public keys in SectorSpecificIDs <b>SHALL</b> be contained as plain public key values, i.e. excluding the
    * domain parameters. For Elliptic Curve Public Keys, the uncompressed encoding <b>MUST</b> be used.
    *
-   * @return A List with the transformed Restricted Identification public key PK<sub>ID</sub><sup>Revocation</sup>.
+   * @return An unmodifiable List with the transformed Restricted Identification public key
+   *         PK<sub>ID</sub><sup>Revocation</sup>.
    */
   public List<byte[]> getSectorSpecificIDs()
   {
-    return new LinkedList<>(sectorSpecificIDs);
+    return Collections.unmodifiableList(sectorSpecificIDs);
   }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.eidserver.model.signeddata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Reads the content of a block list as a stream, so that neither the list nor the entries of sectors that are not
+ * needed are held in memory. The header fields are available right after construction, the {@link BlackListDetails}
+ * are read one after another with {@link #readDetails(Predicate)}.
+ * <p>
+ * The reader expects the signed content of the CMS container, the signature must be checked by the caller. The stream
+ * is not closed by the reader.
+ */
+@Getter
+@Slf4j
+public class BlackListReader
+{
+
+  private final int version;
+
+  private final int type;
+
+  private final byte[] listID;
+
+  // used only in delta list, null in complete list
+  private final byte[] deltaBase;
+
+  // used only in delta list and optionally in complete list
+  private final Integer finalEntries;
+
+  @Getter(AccessLevel.NONE)
+  private final ASN1SequenceParser detailsParser;
+
+  /**
+   * Read the header fields of the block list.
+   *
+   * @param content the signed content of the block list
+   * @throws IOException if the content cannot be read or does not contain a block list
+   */
+  public BlackListReader(InputStream content) throws IOException
+  {
+    try
+    {
+      if (!(new ASN1StreamParser(content).readObject() instanceof ASN1SequenceParser listParser))
+      {
+        throw new IOException("Block list does not contain a sequence");
+      }
+
+      version = readInteger(listParser.readObject());
+      if (version != BlackList.VERSION_V1 && version != BlackList.VERSION_V2)
+      {
+        throw new IOException("Unsupported block list version. Supported versions are " + BlackList.VERSION_V1
+                              + " and " + BlackList.VERSION_V2 + " but received " + version);
+      }
+      type = readInteger(listParser.readObject());
+      listID = readOctets(listParser.readObject());
+
+      ASN1Encodable next = listParser.readObject();
+      if (type == BlackList.TYPE_COMPLETE)
+      {
+        deltaBase = null;
+        // in complete list, the list content can be preceded by the number of entries
+        if (next instanceof ASN1Integer entries)
+        {
+          finalEntries = entries.intValueExact();
+          next = listParser.readObject();
+        }
+        else
+        {
+          finalEntries = null;
+        }
+      }
+      else if (type == BlackList.TYPE_ADDED || type == BlackList.TYPE_REMOVED)
+      {
+        deltaBase = readOctets(next);
+        // in delta v2, the list content is preceded by the number of final entries
+        finalEntries = version == BlackList.VERSION_V2 ? readInteger(listParser.readObject()) : null;
+        next = listParser.readObject();
+      }
+      else
+      {
+        throw new IOException("Unsupported block list type. Supported types are " + BlackList.TYPE_COMPLETE + ", "
+                              + BlackList.TYPE_ADDED + " and " + BlackList.TYPE_REMOVED + " but received " + type);
+      }
+      if (!(next instanceof ASN1SequenceParser parser))
+      {
+        throw new IOException("Block list does not contain the list content");
+      }
+      detailsParser = parser;
+      log.trace("Found block list version {}, type {}, final number of entries {}", version, type, finalEntries);
+    }
+    catch (ClassCastException | ArithmeticException | IllegalArgumentException e)
+    {
+      throw new IOException("Invalid structure of block list", e);
+    }
+  }
+
+  /**
+   * Read the next {@link BlackListDetails} of a sector accepted by the filter. The entries of other sectors are
+   * skipped without keeping them.
+   *
+   * @param sectorFilter decides by the sector ID whether the entries of a sector are needed
+   * @return the next accepted details or <code>null</code> if there are no more
+   * @throws IOException if the block list structure is invalid
+   */
+  public BlackListDetails readDetails(Predicate<byte[]> sectorFilter) throws IOException
+  {
+    try
+    {
+      for ( ASN1Encodable details = detailsParser.readObject() ; details != null ; details = detailsParser.readObject() )
+      {
+        ASN1SequenceParser detailsSequence = (ASN1SequenceParser)details;
+        byte[] sectorID = readOctets(detailsSequence.readObject());
+        if (!(detailsSequence.readObject() instanceof ASN1SequenceParser sectorSpecificIDParser))
+        {
+          throw new IOException("Block list details do not contain the sector specific IDs");
+        }
+        boolean accepted = sectorFilter.test(sectorID.clone());
+        List<byte[]> sectorSpecificIDs = new ArrayList<>();
+        for ( ASN1Encodable id = sectorSpecificIDParser.readObject() ; id != null ; id = sectorSpecificIDParser.readObject() )
+        {
+          // the entries of a skipped sector must be read anyway to get to the next sector
+          byte[] octets = readOctets(id);
+          if (accepted)
+          {
+            sectorSpecificIDs.add(octets);
+          }
+        }
+        if (accepted)
+        {
+          return new BlackListDetails(sectorID, sectorSpecificIDs);
+        }
+      }
+      return null;
+    }
+    catch (ClassCastException | IllegalArgumentException e)
+    {
+      throw new IOException("Invalid structure of block list details", e);
+    }
+  }
+
+  private static int readInteger(ASN1Encodable object) throws IOException
+  {
+    return ((ASN1Integer)notNull(object)).intValueExact();
+  }
+
+  private static byte[] readOctets(ASN1Encodable object) throws IOException
+  {
+    return ASN1OctetString.getInstance(notNull(object).toASN1Primitive()).getOctets();
+  }
+
+  private static ASN1Encodable notNull(ASN1Encodable object) throws IOException
+  {
+    if (object == null)
+    {
+      throw new IOException("Block list ends unexpectedly");
+    }
+    return object;
+  }
+}
@@ -11,7 +11,9 @@ package de.governikus.eumw.poseidas.eidserver.model.signeddata;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -66,15 +68,32 @@ public class DefectList extends AbstractASN1List
 
   private List<Defect> defects;
 
+  /**
+   * Defects indexed by the identifier of the document signer, built once after parsing
+   */
+  private final Map<IssuerAndSerialNumber, List<Defect>> defectsBySignerIdentifier;
+
 
   /**
-   * Defect list object where the bytes are parsed implicit
+   * Defect list object where the bytes are parsed implicit. The parsed list is not changed afterwards, so one instance
+   * can be shared by all sessions.
    *
    * @param bytes representing the list
    */
   public DefectList(byte[] bytes)
   {
     super(bytes, OID_DEFECT_LIST);
+    check();
+    defects = List.copyOf(defects);
+    Map<IssuerAndSerialNumber, List<Defect>> index = new HashMap<>();
+    for ( Defect defect : defects )
+    {
+      if (defect.containsIssuerAndSerialNumber())
+      {
+        index.computeIfAbsent(defect.getSignerDocumentIdentifier(), k -> new ArrayList<>()).add(defect);
+      }
+    }
+    defectsBySignerIdentifier = index;
   }
 
 
@@ -209,19 +228,7 @@ public class DefectList extends AbstractASN1List
    */
   public List<Defect> getDefects(IssuerAndSerialNumber identifier)
   {
-    List<Defect> foundDefects = new ArrayList<>();
-    for ( Defect defect : this.defects )
-    {
-      if (defect.containsIssuerAndSerialNumber())
-      {
-        IssuerAndSerialNumber signerDocumentIdentifier = defect.getSignerDocumentIdentifier();
-        if (identifier.equals(signerDocumentIdentifier))
-        {
-          foundDefects.add(defect);
-        }
-      }
-    }
-    return foundDefects;
+    return new ArrayList<>(defectsBySignerIdentifier.getOrDefault(identifier, List.of()));
   }
 
   /**
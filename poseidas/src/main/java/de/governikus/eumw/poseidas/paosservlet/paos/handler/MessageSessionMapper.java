@@ -9,49 +9,155 @@
 
 package de.governikus.eumw.poseidas.paosservlet.paos.handler;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+import lombok.extern.slf4j.Slf4j;
 
+
+/**
+ * Maps the PAOS message IDs to the session IDs. Entries of abandoned conversations are removed after a time to live,
+ * when their session is no longer active, or if the maximum number of entries is exceeded.
+ */
+@Slf4j
 public class MessageSessionMapper
 {
 
-  private static final MessageSessionMapper SINGLETON = new MessageSessionMapper();
+  /**
+   * Same as the timeout of a session, a conversation must send its next message within this time
+   */
+  private static final Duration TIME_TO_LIVE = Duration.ofMinutes(15);
+
+  /**
+   * Entries younger than this are kept even if their session is not active (yet)
+   */
+  private static final Duration GRACE_PERIOD = Duration.ofMinutes(1);
+
+  private static final int MAX_SIZE = 100_000;
+
+  private static final MessageSessionMapper SINGLETON = new MessageSessionMapper(TIME_TO_LIVE,
+                                                                                 MAX_SIZE,
+                                                                                 Clock.systemUTC());
 
-  private final Map<String, String> msgId2sessId = new ConcurrentHashMap<>();
+  private final Map<String, Mapping> msgId2sessId = new ConcurrentHashMap<>();
 
+  private final long timeToLive;
 
-  private MessageSessionMapper()
-  {}
+  private final int maxSize;
 
+  private final Clock clock;
 
-  static MessageSessionMapper getInstance()
+
+  MessageSessionMapper(Duration timeToLive, int maxSize, Clock clock)
+  {
+    this.timeToLive = timeToLive.toMillis();
+    this.maxSize = maxSize;
+    this.clock = clock;
+  }
+
+
+  public static MessageSessionMapper getInstance()
   {
     return SINGLETON;
   }
 
   String getSessionId(String messageId)
   {
-    return msgId2sessId.get(messageId);
+    Mapping mapping = msgId2sessId.get(messageId);
+    if (mapping == null)
+    {
+      return null;
+    }
+    if (mapping.isOlderThan(clock.millis() - timeToLive))
+    {
+      msgId2sessId.remove(messageId, mapping);
+      return null;
+    }
+    return mapping.sessionId;
   }
 
   void add(String msgId, String sessionId)
   {
-    msgId2sessId.put(msgId, sessionId);
+    msgId2sessId.put(msgId, new Mapping(sessionId, clock.millis()));
+    evictOverflow();
   }
 
   void overwriteMessageId(String oldMsgId, String newMsgId)
   {
-    String sessionId = msgId2sessId.remove(oldMsgId);
-    if (sessionId == null)
+    Mapping mapping = msgId2sessId.remove(oldMsgId);
+    if (mapping == null)
     {
       throw new IllegalArgumentException("No sessionId found for messageId " + oldMsgId);
     }
-    msgId2sessId.put(newMsgId, sessionId);
+    msgId2sessId.put(newMsgId, new Mapping(mapping.sessionId, clock.millis()));
   }
 
   void remove(String msgId)
   {
     msgId2sessId.remove(msgId);
   }
+
+  /**
+   * @return the number of message IDs currently mapped
+   */
+  public int size()
+  {
+    return msgId2sessId.size();
+  }
+
+  /**
+   * Remove the entries that exceeded their time to live and the entries whose session is no longer active.
+   *
+   * @param isSessionActive tells whether a session ID belongs to an active session
+   * @return the number of removed entries
+   */
+  public int removeStaleEntries(Predicate<String> isSessionActive)
+  {
+    long now = clock.millis();
+    long expiredBefore = now - timeToLive;
+    long inactiveBefore = now - GRACE_PERIOD.toMillis();
+    int sizeBefore = msgId2sessId.size();
+    msgId2sessId.values()
+                .removeIf(m -> m.isOlderThan(expiredBefore)
+                               || m.isOlderThan(inactiveBefore) && !isSessionActive.test(m.sessionId));
+    return Math.max(0, sizeBefore - msgId2sessId.size());
+  }
+
+  private void evictOverflow()
+  {
+    int overflow = msgId2sessId.size() - maxSize;
+    if (overflow <= 0)
+    {
+      return;
+    }
+    synchronized (this)
+    {
+      // drop the oldest tenth at once so that a full map is not sorted again with every new message
+      long toRemove = (long)msgId2sessId.size() - maxSize + maxSize / 10;
+      if (toRemove <= maxSize / 10)
+      {
+        return;
+      }
+      msgId2sessId.entrySet()
+                  .stream()
+                  .sorted(Comparator.comparingLong(e -> e.getValue().created))
+                  .limit(toRemove)
+                  .toList()
+                  .forEach(e -> msgId2sessId.remove(e.getKey(), e.getValue()));
+      log.warn("More than {} PAOS message mappings, removed the {} oldest", maxSize, toRemove);
+    }
+  }
+
+  private record Mapping(String sessionId, long created)
+  {
+
+    boolean isOlderThan(long time)
+    {
+      return created < time;
+    }
+  }
 }
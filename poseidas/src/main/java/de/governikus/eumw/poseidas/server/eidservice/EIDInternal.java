@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,10 +32,13 @@ import de.governikus.eumw.eidascommon.Utils;
 import de.governikus.eumw.poseidas.eidmodel.TerminalData;
 import de.governikus.eumw.poseidas.eidmodel.data.EIDKeys;
 import de.governikus.eumw.poseidas.eidserver.convenience.EIDSequence.Authorizations;
+import de.governikus.eumw.poseidas.eidserver.eac.MasterAndDefectLists;
 import de.governikus.eumw.poseidas.eidserver.ecardid.ECardIDServerFactory;
 import de.governikus.eumw.poseidas.eidserver.ecardid.ECardIDServerI;
 import de.governikus.eumw.poseidas.eidserver.ecardid.SessionInput;
 import de.governikus.eumw.poseidas.server.idprovider.core.AuthenticationSessionManager;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup.WarmupTask;
 import de.governikus.eumw.poseidas.server.pki.TerminalPermissionAO;
 import de.governikus.eumw.poseidas.server.pki.blocklist.BlockListService;
 import de.governikus.eumw.poseidas.server.pki.entities.TerminalPermission;
@@ -58,6 +62,11 @@ public class EIDInternal
 
   private static final String COLON_AND_SPACE = ": ";
 
+  /**
+   * Maximum time a request waits for all startup tasks it needs together
+   */
+  private static final Duration WARMUP_MAX_WAIT = Duration.ofSeconds(5);
+
   private static final Log LOG = LogFactory.getLog(EIDInternal.class);
 
   private final AuthenticationSessionManager sessionManager = AuthenticationSessionManager.getInstance();
@@ -68,6 +77,10 @@ public class EIDInternal
 
   private final BlockListService blockListService;
 
+  private final StartupWarmup startupWarmup;
+
+  private final MasterAndDefectListCache masterAndDefectListCache = new MasterAndDefectListCache();
+
   private static X509Certificate tryGenerateCertFromZip(String logPrefix,
                                                         CertificateFactory certFactory,
                                                         ZipInputStream zis)
@@ -196,6 +209,13 @@ public class EIDInternal
                                     Constants.EID_MINOR_COMMON_INTERNALERROR, "client is disabled",
                                     client.getName() + COLON_AND_SPACE + requestId + COLON_AND_SPACE);
     }
+    String warmupError = getWarmupError(client);
+    if (warmupError != null)
+    {
+      return new EIDRequestResponse(sessionId, requestId, Constants.EID_MAJOR_ERROR,
+                                    Constants.EID_MINOR_COMMON_INTERNALERROR, warmupError,
+                                    client.getName() + COLON_AND_SPACE + requestId + COLON_AND_SPACE);
+    }
     if (!blockListService.hasBlockList(client.getCVCRefID()))
     {
       return new EIDRequestResponse(sessionId, requestId, Constants.EID_MAJOR_ERROR,
@@ -235,6 +255,37 @@ public class EIDInternal
     return null;
   }
 
+  /**
+   * Waits a short time for the startup tasks an authentication for the given client depends on. All tasks share one
+   * deadline.
+   *
+   * @param client the requesting client
+   * @return the reason why the authentication cannot be performed yet, <code>null</code> if all needed tasks are
+   *         finished successfully
+   */
+  private String getWarmupError(ServiceProviderType client)
+  {
+    List<WarmupTask> neededTasks = new ArrayList<>(List.of(WarmupTask.CRL, WarmupTask.CVC_TLS_CHECK));
+    // the Block Lists are loaded one after another, a client with a loaded list need not wait for the others
+    if (!blockListService.hasBlockList(client.getCVCRefID()))
+    {
+      neededTasks.add(0, WarmupTask.BLOCK_LIST);
+    }
+    long deadline = System.nanoTime() + WARMUP_MAX_WAIT.toNanos();
+    for ( WarmupTask task : neededTasks )
+    {
+      if (!startupWarmup.awaitReady(task, Duration.ofNanos(Math.max(0, deadline - System.nanoTime()))))
+      {
+        return "server is starting, startup task " + task + " not finished yet";
+      }
+      if (startupWarmup.hasFailed(task))
+      {
+        return "startup task " + task + " failed";
+      }
+    }
+    return null;
+  }
+
   /**
    * @param refId
    * @return data Object containing all needed values except blacklist
@@ -267,9 +318,22 @@ public class EIDInternal
       throw new IllegalArgumentException("no master list stored");
     }
     TerminalData cvc = tp.getFullCvc();
-    if (masterListData.length >= 2 && isZipData(masterListData))
-    {
-      List<X509Certificate> masterListCerts = addMasterListCertsFromZip(masterListData, session.getLogPrefix());
+    boolean zippedMasterList = masterListData.length >= 2 && isZipData(masterListData);
+    // the lists are only parsed if they are not cached in the stored version
+    MasterAndDefectLists lists = masterAndDefectListCache.get(tp,
+                                                              () -> zippedMasterList
+                                                                ? MasterAndDefectLists.parse(null,
+                                                                                             addMasterListCertsFromZip(masterListData,
+                                                                                                                       session.getLogPrefix()),
+                                                                                             defectListData)
+                                                                : MasterAndDefectLists.parse(masterListData,
+                                                                                             null,
+                                                                                             defectListData));
+    if (zippedMasterList)
+    {
+      List<X509Certificate> masterListCerts = lists == null
+        ? addMasterListCertsFromZip(masterListData, session.getLogPrefix())
+        : new ArrayList<>(lists.getMasterList().getCertificates());
       input = new SessionInputImpl(cvc, tp.getCvcChain(), session.getSessionId(),
 
                                    new BlackListConnectorImpl(blockListService, tp.getSectorID()), masterListCerts,
@@ -282,6 +346,7 @@ public class EIDInternal
                                    new BlackListConnectorImpl(blockListService, tp.getSectorID()), masterListData,
                                    defectListData, request.getTransactionInfo(), session.getLogPrefix());
     }
+    input.setMasterAndDefectLists(lists);
     translateSelector(request, input, cvc.getAuthorizations());
 
     return input;
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.eidservice;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.governikus.eumw.poseidas.eidserver.eac.MasterAndDefectLists;
+import de.governikus.eumw.poseidas.server.pki.entities.TerminalPermission;
+
+
+/**
+ * Keeps the parsed master and defect list per terminal permission so that they are parsed once per stored version
+ * instead of once per eID session. A version is identified by the store dates and sizes of both lists.
+ */
+class MasterAndDefectListCache
+{
+
+  private static final Log LOG = LogFactory.getLog(MasterAndDefectListCache.class);
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Return the parsed lists of the given terminal permission, parsing them if they are not cached in the stored
+   * version.
+   *
+   * @param tp terminal permission holding the lists
+   * @param parser parses the lists of the terminal permission
+   * @return the parsed lists or <code>null</code> if they could not be parsed
+   */
+  MasterAndDefectLists get(TerminalPermission tp, Supplier<MasterAndDefectLists> parser)
+  {
+    Version version = new Version(tp.getMasterListStoreDate(), tp.getDefectListStoreDate(),
+                                  tp.getMasterList() == null ? -1 : tp.getMasterList().length,
+                                  tp.getDefectList() == null ? -1 : tp.getDefectList().length);
+    Entry entry = entries.compute(tp.getRefID(), (refID, current) -> {
+      if (current != null && current.version().equals(version))
+      {
+        return current;
+      }
+      try
+      {
+        return new Entry(version, parser.get());
+      }
+      catch (IllegalArgumentException e)
+      {
+        LOG.debug("Could not parse master or defect list of " + refID, e);
+        return null;
+      }
+    });
+    return entry == null ? null : entry.lists();
+  }
+
+  /**
+   * Number of cached terminal permissions
+   */
+  int size()
+  {
+    return entries.size();
+  }
+
+  private record Version(Date masterListStoreDate, Date defectListStoreDate, int masterListLength,
+    int defectListLength)
+  {}
+
+  private record Entry(Version version, MasterAndDefectLists lists)
+  {}
+}
@@ -16,11 +16,13 @@ import java.util.Set;
 
 import de.governikus.eumw.poseidas.eidmodel.TerminalData;
 import de.governikus.eumw.poseidas.eidmodel.data.EIDKeys;
+import de.governikus.eumw.poseidas.eidserver.eac.MasterAndDefectLists;
 import de.governikus.eumw.poseidas.eidserver.ecardid.BlackListConnector;
 import de.governikus.eumw.poseidas.eidserver.ecardid.SessionInput;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 
 /**
@@ -67,6 +69,9 @@ public class SessionInputImpl implements SessionInput
 
   private final String logPrefix;
 
+  @Setter(AccessLevel.PACKAGE)
+  private transient MasterAndDefectLists masterAndDefectLists;
+
   /**
    * Create new instance giving the CVC, pre-shared key and sessionID
    */
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import jakarta.persistence.Lob;
 
@@ -12,6 +13,7 @@ import jakarta.persistence.Lob;
  * Entity to persist the runtime configuration for the middleware, dvcas and service providers
  */
 @Entity
+@EntityListeners(ConfigurationEntityListener.class)
 @Data
 public class Configuration
 {
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * Event published by the {@link ConfigurationService} whenever a new {@link ConfigurationSnapshot} has been installed,
+ * e.g. after the configuration was saved or imported. Beans caching data derived from the configuration should listen
+ * for this event and drop their caches.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ConfigurationChangedEvent
+{
+
+  /**
+   * The snapshot that is now current
+   */
+  private final ConfigurationSnapshot snapshot;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * JPA entity listener notifying the {@link ConfigurationService} about every change of the {@link Configuration}
+ * entity, including changes that do not go through the service, so that the cached {@link ConfigurationSnapshot} is
+ * never served stale.
+ */
+@RequiredArgsConstructor
+public class ConfigurationEntityListener
+{
+
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void onConfigurationEntityChanged(Configuration configuration)
+  {
+    applicationEventPublisher.publishEvent(new ConfigurationEntityChangedEvent());
+  }
+
+  /**
+   * Internal event signaling that the stored configuration has been changed
+   */
+  static class ConfigurationEntityChangedEvent
+  {}
+}
@@ -24,6 +24,9 @@ import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.opensaml.core.config.InitializationException;
 import org.opensaml.core.xml.io.UnmarshallingException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -55,38 +58,122 @@ import net.shibboleth.utilities.java.support.xml.XMLParserException;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class ConfigurationService
+public class ConfigurationService implements ApplicationEventPublisherAware
 {
 
   private static final long CONFIGURATION_ID = 1L;
 
   private final ConfigurationRepository configurationRepository;
 
+  private final Object snapshotLock = new Object();
+
+  private volatile ConfigurationSnapshot snapshot;
+
+  private long snapshotVersion;
+
+  private ApplicationEventPublisher applicationEventPublisher;
+
+  private final RequestingServiceProviderRegistry requestingServiceProviderRegistry = new RequestingServiceProviderRegistry();
+
+  private final SnapshotScopedCache<KeyPair> keyPairCache = new SnapshotScopedCache<>();
+
   /**
-   * Get the current configuration from the database
+   * Get the current configuration. The configuration is loaded from the database only once and then kept in memory
+   * until it is saved again, so the returned object is a copy that may be modified by the caller.
    *
    * @return The current configuration from the database if present or <code>Optional.empty()</code>
    */
   public Optional<EidasMiddlewareConfig> getConfiguration()
+  {
+    return getConfigurationSnapshot().getConfiguration().map(c -> (EidasMiddlewareConfig)c.clone());
+  }
+
+  /**
+   * Get the current immutable snapshot of the configuration. In contrast to {@link #getConfiguration()} no copy is
+   * created, so the configuration contained in the snapshot must not be modified.
+   *
+   * @return The current configuration snapshot, never <code>null</code>
+   */
+  public ConfigurationSnapshot getConfigurationSnapshot()
+  {
+    ConfigurationSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot != null)
+    {
+      return currentSnapshot;
+    }
+
+    ConfigurationSnapshot loadedSnapshot;
+    synchronized (snapshotLock)
+    {
+      if (snapshot != null)
+      {
+        return snapshot;
+      }
+      loadedSnapshot = installSnapshot(loadConfiguration());
+    }
+    publishSnapshot(loadedSnapshot);
+    return loadedSnapshot;
+  }
+
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher)
+  {
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
+  /**
+   * Drop the current snapshot when the configuration entity was changed, so that it is reloaded on the next access
+   */
+  @EventListener
+  void onConfigurationEntityChanged(ConfigurationEntityListener.ConfigurationEntityChangedEvent event)
+  {
+    synchronized (snapshotLock)
+    {
+      snapshot = null;
+    }
+  }
+
+  private EidasMiddlewareConfig loadConfiguration()
   {
     var optionalConfiguration = configurationRepository.findById(CONFIGURATION_ID);
 
     if (optionalConfiguration.isEmpty() || optionalConfiguration.get().getXmlConfigBlob() == null)
     {
       log.debug("No configuration stored in the database");
-      return Optional.empty();
+      return null;
     }
 
-    String configurationData = new String(optionalConfiguration.get().getXmlConfigBlob(), StandardCharsets.UTF_8);
+    return parseConfiguration(new String(optionalConfiguration.get().getXmlConfigBlob(), StandardCharsets.UTF_8));
+  }
+
+  private EidasMiddlewareConfig parseConfiguration(String configurationData)
+  {
     try
     {
-      var eidasMiddlewareConfig = XmlHelper.unmarshal(configurationData, EidasMiddlewareConfig.class);
-      return Optional.of(eidasMiddlewareConfig);
+      return XmlHelper.unmarshal(configurationData, EidasMiddlewareConfig.class);
     }
     catch (XmlException e)
     {
       log.debug("Cannot unmarshal configuration from database", e);
-      return Optional.empty();
+      return null;
+    }
+  }
+
+  private ConfigurationSnapshot installSnapshot(EidasMiddlewareConfig config)
+  {
+    synchronized (snapshotLock)
+    {
+      snapshotVersion++;
+      snapshot = new ConfigurationSnapshot(snapshotVersion, config);
+      return snapshot;
+    }
+  }
+
+  private void publishSnapshot(ConfigurationSnapshot newSnapshot)
+  {
+    if (applicationEventPublisher != null)
+    {
+      applicationEventPublisher.publishEvent(new ConfigurationChangedEvent(newSnapshot));
     }
   }
 
@@ -129,7 +216,9 @@ public class ConfigurationService
     var entity = new Configuration();
     entity.setId(CONFIGURATION_ID);
     entity.setXmlConfigBlob(config.getBytes(StandardCharsets.UTF_8));
-    return new String(configurationRepository.save(entity).getXmlConfigBlob(), StandardCharsets.UTF_8);
+    String savedConfig = new String(configurationRepository.save(entity).getXmlConfigBlob(), StandardCharsets.UTF_8);
+    publishSnapshot(installSnapshot(parseConfiguration(savedConfig)));
+    return savedConfig;
   }
 
   /**
@@ -153,7 +242,7 @@ public class ConfigurationService
    */
   public String getServerURLWithEidasContextPath()
   {
-    var configuration = getConfiguration();
+    var configuration = getConfigurationSnapshot().getConfiguration();
     if (configuration.isEmpty() || StringUtils.isBlank(configuration.get().getServerUrl()))
     {
       throw new ConfigurationException("Configuration is empty or does not contain a server URL");
@@ -174,7 +263,8 @@ public class ConfigurationService
   }
 
   /**
-   * Get a wrapper for the initialized {@link KeyStore} with the given key pair name
+   * Get a wrapper for the initialized {@link KeyStore} with the given key pair name. The key store is decoded only once
+   * per configuration snapshot, further calls return the same {@link KeyPair}.
    *
    * @param keyPairName The name for this key pair
    * @return The key pair wrapped in a {@link KeyPair} class to provide easier access to the
@@ -182,7 +272,13 @@ public class ConfigurationService
    */
   public KeyPair getKeyPair(String keyPairName)
   {
-    var configuration = getConfiguration();
+    ConfigurationSnapshot currentSnapshot = getConfigurationSnapshot();
+    return keyPairCache.get(currentSnapshot, keyPairName, name -> loadKeyPair(currentSnapshot, name));
+  }
+
+  private KeyPair loadKeyPair(ConfigurationSnapshot currentSnapshot, String keyPairName)
+  {
+    var configuration = currentSnapshot.getConfiguration();
     if (configuration.isEmpty())
     {
       throw new ConfigurationException("No configuration present");
@@ -307,7 +403,7 @@ public class ConfigurationService
    */
   public X509Certificate getCertificate(String certificateName)
   {
-    var configuration = getConfiguration();
+    var configuration = getConfigurationSnapshot().getConfiguration();
     if (configuration.isEmpty())
     {
       throw new ConfigurationException("No configuration present");
@@ -334,9 +430,37 @@ public class ConfigurationService
    */
   public RequestingServiceProvider getProviderByEntityID(String entityID)
   {
-    var metadataSignatureVerificationCertificateName = getConfiguration().map(EidasMiddlewareConfig::getEidasConfiguration)
-                                                                         .map(EidasMiddlewareConfig.EidasConfiguration::getMetadataSignatureVerificationCertificateName)
-                                                                         .orElse(null);
+    ConfigurationSnapshot currentSnapshot = getConfigurationSnapshot();
+    return requestingServiceProviderRegistry.getProvider(currentSnapshot,
+                                                         entityID,
+                                                         id -> verifyProvider(currentSnapshot, id));
+  }
+
+  private RequestingServiceProviderRegistry.Registration verifyProvider(ConfigurationSnapshot currentSnapshot,
+                                                                        String entityID)
+  {
+    try
+    {
+      EidasMetadataNode parsedMetadata = parseProviderMetadata(currentSnapshot, entityID);
+      RequestingServiceProvider rsp = new RequestingServiceProvider(parsedMetadata.getEntityId());
+      rsp.setAssertionConsumerURL(parsedMetadata.getPostEndpoint());
+      rsp.setEncryptionCert(parsedMetadata.getEncCert());
+      rsp.setSignatureCert(parsedMetadata.getSigCert());
+      rsp.setSectorType(parsedMetadata.getSpType());
+      return RequestingServiceProviderRegistry.Registration.valid(rsp, parsedMetadata.getValidUntil());
+    }
+    catch (ConfigurationException e)
+    {
+      return RequestingServiceProviderRegistry.Registration.invalid(e);
+    }
+  }
+
+  private EidasMetadataNode parseProviderMetadata(ConfigurationSnapshot currentSnapshot, String entityID)
+  {
+    var configuration = currentSnapshot.getConfiguration();
+    var metadataSignatureVerificationCertificateName = configuration.map(EidasMiddlewareConfig::getEidasConfiguration)
+                                                                    .map(EidasMiddlewareConfig.EidasConfiguration::getMetadataSignatureVerificationCertificateName)
+                                                                    .orElse(null);
     if (StringUtils.isBlank(metadataSignatureVerificationCertificateName))
     {
       throw new ConfigurationException("No metadata verification certificate present in the configuration");
@@ -344,23 +468,17 @@ public class ConfigurationService
 
     var metadataSignatureVerificationCertificate = getSamlCertificate(metadataSignatureVerificationCertificateName);
 
-    ConnectorMetadataType metadata = getConfiguration().orElseThrow(() -> new ConfigurationException("No configuration present"))
-                                                       .getEidasConfiguration()
-                                                       .getConnectorMetadata()
-                                                       .stream()
-                                                       .filter(meta -> entityID.equals(meta.getEntityID()))
-                                                       .findFirst()
-                                                       .orElseThrow(() -> new ConfigurationException("No connector metadata available with entityID "
-                                                                                                     + entityID));
+    ConnectorMetadataType metadata = configuration.orElseThrow(() -> new ConfigurationException("No configuration present"))
+                                                  .getEidasConfiguration()
+                                                  .getConnectorMetadata()
+                                                  .stream()
+                                                  .filter(meta -> entityID.equals(meta.getEntityID()))
+                                                  .findFirst()
+                                                  .orElseThrow(() -> new ConfigurationException("No connector metadata available with entityID "
+                                                                                                + entityID));
     try (ByteArrayInputStream is = new ByteArrayInputStream(metadata.getValue()))
     {
-      EidasMetadataNode parsedMetadata = EidasSaml.parseMetaDataNode(is, metadataSignatureVerificationCertificate);
-      RequestingServiceProvider rsp = new RequestingServiceProvider(parsedMetadata.getEntityId());
-      rsp.setAssertionConsumerURL(parsedMetadata.getPostEndpoint());
-      rsp.setEncryptionCert(parsedMetadata.getEncCert());
-      rsp.setSignatureCert(parsedMetadata.getSigCert());
-      rsp.setSectorType(parsedMetadata.getSpType());
-      return rsp;
+      return EidasSaml.parseMetaDataNode(is, metadataSignatureVerificationCertificate);
     }
     catch (IOException | CertificateException | XMLParserException | UnmarshallingException | InitializationException
       | ComponentInitializationException | ErrorCodeException e)
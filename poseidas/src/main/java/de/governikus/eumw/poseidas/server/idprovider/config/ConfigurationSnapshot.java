@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import java.util.Optional;
+
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * Immutable, versioned view of the configuration stored in the database. The contained
+ * {@link EidasMiddlewareConfig} is parsed only once and shared between all readers, so it must never be modified. Use
+ * {@link ConfigurationService#getConfiguration()} to obtain a copy that may be changed and saved.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class ConfigurationSnapshot
+{
+
+  /**
+   * Version of this snapshot, incremented each time a new configuration has been loaded or saved
+   */
+  private final long version;
+
+  /**
+   * The parsed configuration or <code>null</code> if no configuration is stored in the database
+   */
+  private final EidasMiddlewareConfig config;
+
+  /**
+   * Get the parsed configuration of this snapshot. The returned object must be treated as read-only.
+   *
+   * @return The configuration or <code>Optional.empty()</code> if no configuration is present
+   */
+  public Optional<EidasMiddlewareConfig> getConfiguration()
+  {
+    return Optional.ofNullable(config);
+  }
+}
@@ -143,7 +143,7 @@ public class CvcTlsCheck
 
         if (!isSupportedEC)
         {
-          throw new UnsupportedECCertificateException("The used EC certificate for TLS is not supported. The eIDAS Middleware will be shutdown.");
+          throw new UnsupportedECCertificateException("The used EC certificate for TLS is not supported. The eIDAS Middleware will not perform online authentications.");
         }
       }
     }
@@ -16,18 +16,16 @@ import java.security.cert.X509Certificate;
 
 
 /**
- * This class is a wrapper class for an entry of a {@link KeyStore}. It contains the key store, the alias and the
- * password for the entry so that the {@link PrivateKey} and {@link java.security.cert.Certificate} can be directly
- * accessed.
+ * This class is a wrapper class for an entry of a {@link KeyStore}. The {@link PrivateKey} and
+ * {@link java.security.cert.Certificate} are read from the key store once when the wrapper is created, so that they can
+ * be accessed repeatedly without decrypting the key store entry again.
  */
 public class KeyPair
 {
 
-  private final KeyStore keyStore;
+  private final PrivateKey key;
 
-  private final String alias;
-
-  private final String password;
+  private final X509Certificate certificate;
 
   /**
    * Create the wrapper for an entry of a {@link KeyStore}.
@@ -38,9 +36,6 @@ public class KeyPair
    */
   public KeyPair(KeyStore keyStore, String alias, String keyPassword)
   {
-    this.keyStore = keyStore;
-    this.password = keyPassword;
-
     try
     {
       // Check if the alias is valid
@@ -48,25 +43,18 @@ public class KeyPair
       {
         throw new ConfigurationException("Keystore does not contain an entry with alias : " + alias);
       }
-      this.alias = alias;
 
       // Check if the keyPassword is valid
-      keyStore.getKey(alias, keyPassword == null ? new char[0] : keyPassword.toCharArray());
+      this.key = (PrivateKey)keyStore.getKey(alias, keyPassword == null ? new char[0] : keyPassword.toCharArray());
     }
     catch (Exception e)
     {
       throw new ConfigurationException("Cannot access the entry of the key store", e);
     }
-  }
 
-  /**
-   * Get the {@link X509Certificate} of this key pair
-   */
-  public X509Certificate getCertificate()
-  {
     try
     {
-      return (X509Certificate)keyStore.getCertificate(alias);
+      this.certificate = (X509Certificate)keyStore.getCertificate(alias);
     }
     catch (KeyStoreException e)
     {
@@ -74,18 +62,19 @@ public class KeyPair
     }
   }
 
+  /**
+   * Get the {@link X509Certificate} of this key pair
+   */
+  public X509Certificate getCertificate()
+  {
+    return certificate;
+  }
+
   /**
    * Get the {@link PrivateKey} of this key pair
    */
   public PrivateKey getKey()
   {
-    try
-    {
-      return (PrivateKey)keyStore.getKey(alias, password == null ? new char[0] : password.toCharArray());
-    }
-    catch (Exception e)
-    {
-      throw new ConfigurationException("Cannot get key for alias " + alias, e);
-    }
+    return key;
   }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Registry of the {@link RequestingServiceProvider} objects created from the connector metadata of the configuration.
+ * The metadata of a connector is parsed and its signature verified only once per {@link ConfigurationSnapshot}, all
+ * further lookups for the same entityID are served without locking. An entry is verified again when the validUntil
+ * of its metadata has been reached. Only entityIDs with connector metadata in the snapshot are cached, as the
+ * entityID of a request is not authenticated when it is looked up.
+ */
+class RequestingServiceProviderRegistry
+{
+
+  private final SnapshotScopedCache<Registration> registrations = new SnapshotScopedCache<>();
+
+  private final Clock clock;
+
+  RequestingServiceProviderRegistry()
+  {
+    this(Clock.systemUTC());
+  }
+
+  RequestingServiceProviderRegistry(Clock clock)
+  {
+    this.clock = clock;
+  }
+
+  /**
+   * Get the service provider for the given entityID. If there is no valid entry for the given snapshot, the loader is
+   * called to parse and verify the metadata.
+   *
+   * @param snapshot The configuration snapshot the service provider must belong to
+   * @param entityID The entityID of the service provider
+   * @param loader Function parsing and verifying the metadata of the given entityID
+   * @return The verified service provider
+   * @throws ConfigurationException if no valid metadata is available for the entityID
+   */
+  RequestingServiceProvider getProvider(ConfigurationSnapshot snapshot,
+                                        String entityID,
+                                        Function<String, Registration> loader)
+  {
+    if (!isConfiguredConnector(snapshot, entityID))
+    {
+      // Do not let unknown entityIDs fill the cache, the loader reports the error
+      return loader.apply(entityID).getProvider();
+    }
+    return registrations.get(snapshot, entityID, loader, r -> !r.isExpired(clock.instant())).getProvider();
+  }
+
+  /**
+   * For tests
+   */
+  int size()
+  {
+    return registrations.size();
+  }
+
+  private static boolean isConfiguredConnector(ConfigurationSnapshot snapshot, String entityID)
+  {
+    return entityID != null && snapshot.getConfiguration()
+                                       .map(EidasMiddlewareConfig::getEidasConfiguration)
+                                       .map(EidasMiddlewareConfig.EidasConfiguration::getConnectorMetadata)
+                                       .stream()
+                                       .flatMap(List::stream)
+                                       .anyMatch(metadata -> Objects.equals(entityID, metadata.getEntityID()));
+  }
+
+  /**
+   * Result of parsing and verifying the metadata of one connector. Either contains the verified service provider or
+   * the error that occurred.
+   */
+  @AllArgsConstructor
+  static class Registration
+  {
+
+    private final RequestingServiceProvider provider;
+
+    private final Instant validUntil;
+
+    private final ConfigurationException error;
+
+    static Registration valid(RequestingServiceProvider provider, Instant validUntil)
+    {
+      return new Registration(provider, validUntil, null);
+    }
+
+    static Registration invalid(ConfigurationException error)
+    {
+      return new Registration(null, null, error);
+    }
+
+    boolean isExpired(Instant now)
+    {
+      return validUntil != null && !now.isBefore(validUntil);
+    }
+
+    RequestingServiceProvider getProvider()
+    {
+      if (error != null)
+      {
+        // Create a new exception so that the stack trace belongs to the current caller
+        throw new ConfigurationException(error.getMessage(), (Exception)error.getCause());
+      }
+      return provider;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import lombok.AllArgsConstructor;
+
+
+/**
+ * Cache for values derived from a {@link ConfigurationSnapshot}. All entries are dropped as soon as a newer snapshot is
+ * used for a lookup, so that a value is never served for a configuration other than the one it was created from. Reads
+ * of existing entries do not lock.
+ *
+ * @param <V> type of the cached values
+ */
+class SnapshotScopedCache<V>
+{
+
+  private volatile Entries<V> entries = new Entries<>(-1, new ConcurrentHashMap<>());
+
+  /**
+   * Get the value for the given key, creating it with the loader if it is not present for the given snapshot.
+   *
+   * @param snapshot The snapshot the value must belong to
+   * @param key The key of the value
+   * @param loader Function creating the value for a key. If it throws an exception, nothing is cached.
+   * @return The cached or newly created value
+   */
+  V get(ConfigurationSnapshot snapshot, String key, Function<String, V> loader)
+  {
+    return get(snapshot, key, loader, v -> true);
+  }
+
+  /**
+   * Get the value for the given key, creating it with the loader if it is not present for the given snapshot or if the
+   * present value is no longer usable.
+   *
+   * @param snapshot The snapshot the value must belong to
+   * @param key The key of the value
+   * @param loader Function creating the value for a key. If it throws an exception, nothing is cached.
+   * @param usable Predicate telling whether a cached value may still be used
+   * @return The cached or newly created value
+   */
+  V get(ConfigurationSnapshot snapshot, String key, Function<String, V> loader, Predicate<V> usable)
+  {
+    Entries<V> current = entries;
+    if (current.version < snapshot.getVersion())
+    {
+      current = switchTo(snapshot.getVersion());
+    }
+    if (current.version != snapshot.getVersion())
+    {
+      // The caller still works with an outdated snapshot, do not mix its values into the current entries
+      return loader.apply(key);
+    }
+
+    V value = current.values.get(key);
+    if (value == null || !usable.test(value))
+    {
+      value = loader.apply(key);
+      current.values.put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * For tests
+   */
+  int size()
+  {
+    return entries.values.size();
+  }
+
+  private synchronized Entries<V> switchTo(long version)
+  {
+    if (entries.version < version)
+    {
+      entries = new Entries<>(version, new ConcurrentHashMap<>());
+    }
+    return entries;
+  }
+
+  @AllArgsConstructor
+  private static class Entries<V>
+  {
+
+    private final long version;
+
+    private final Map<String, V> values;
+  }
+}
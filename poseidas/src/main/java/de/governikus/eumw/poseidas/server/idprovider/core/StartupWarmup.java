@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.idprovider.core;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs the time consuming startup tasks in the background, so that the server can accept requests before all of them
+ * are finished. For each {@link WarmupTask} the readiness can be checked, so that only the requests that need a
+ * component which is not loaded yet have to wait or be rejected.
+ * <p>
+ * A task counts as finished when it has been tried once, regardless of its success. Whether a component is usable
+ * after a failed task must be checked with the component itself, like before. Only a task throwing a
+ * {@link WarmupFailedException} is marked as failed, see {@link #hasFailed(WarmupTask)}.
+ */
+@Component
+@Slf4j
+public class StartupWarmup
+{
+
+  /**
+   * The tasks of the startup warm-up
+   */
+  public enum WarmupTask
+  {
+    /** Loading the Block Lists from the file storage */
+    BLOCK_LIST,
+    /** Loading the CRLs for the master list */
+    CRL,
+    /** Renewal of the master and defect lists */
+    MASTER_AND_DEFECT_LIST,
+    /** Check of the TLS certificates against the CVCs */
+    CVC_TLS_CHECK
+  }
+
+  private final Map<WarmupTask, CompletableFuture<Void>> finishedTasks = new EnumMap<>(WarmupTask.class);
+
+  private final Map<WarmupTask, Boolean> started = new EnumMap<>(WarmupTask.class);
+
+  private final Set<WarmupTask> failedTasks = ConcurrentHashMap.newKeySet();
+
+  private final ExecutorService executor;
+
+  public StartupWarmup()
+  {
+    Arrays.stream(WarmupTask.values()).forEach(task -> finishedTasks.put(task, new CompletableFuture<>()));
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "startup-warmup-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Start a warm-up task in the background. A task is only started once, further calls are ignored.
+   *
+   * @param task the task to start
+   * @param action the work of the task
+   * @param prerequisites the tasks that must be finished before this task starts
+   * @return the future that completes when the task is finished
+   */
+  public synchronized CompletableFuture<Void> start(WarmupTask task, Runnable action, WarmupTask... prerequisites)
+  {
+    CompletableFuture<Void> finished = finishedTasks.get(task);
+    if (started.put(task, Boolean.TRUE) != null)
+    {
+      log.debug("Warm-up task {} already started", task);
+      return finished;
+    }
+    CompletableFuture.allOf(Arrays.stream(prerequisites).map(finishedTasks::get).toArray(CompletableFuture[]::new))
+                     .thenRunAsync(() -> run(task, action), executor)
+                     .whenComplete((result, e) -> finished.complete(null));
+    return finished;
+  }
+
+  private void run(WarmupTask task, Runnable action)
+  {
+    long start = System.currentTimeMillis();
+    log.info("Starting warm-up task {}", task);
+    try
+    {
+      action.run();
+      log.info("Finished warm-up task {} in {} ms", task, System.currentTimeMillis() - start);
+    }
+    catch (WarmupFailedException e)
+    {
+      failedTasks.add(task);
+      log.error("Warm-up task {} failed after {} ms. The eIDAS middleware application will not perform online authentications: {}",
+                task,
+                System.currentTimeMillis() - start,
+                e.getMessage(),
+                e);
+    }
+    catch (Exception e)
+    {
+      log.error("Warm-up task {} failed after {} ms. The eIDAS middleware application may not be ready to perform online authentications.",
+                task,
+                System.currentTimeMillis() - start,
+                e);
+    }
+  }
+
+  /**
+   * Check if a warm-up task is finished.
+   *
+   * @param task the task to check
+   * @return <code>true</code> if the task is finished
+   */
+  public boolean isReady(WarmupTask task)
+  {
+    return finishedTasks.get(task).isDone();
+  }
+
+  /**
+   * Check if a warm-up task failed in a way that the application must not perform online authentications.
+   *
+   * @param task the task to check
+   * @return <code>true</code> if the task threw a {@link WarmupFailedException}
+   */
+  public boolean hasFailed(WarmupTask task)
+  {
+    return failedTasks.contains(task);
+  }
+
+  /**
+   * Wait until a warm-up task is finished.
+   *
+   * @param task the task to wait for
+   * @param maxWait the maximum time to wait
+   * @return <code>true</code> if the task is finished, <code>false</code> if it is still running after the given time
+   */
+  public boolean awaitReady(WarmupTask task, Duration maxWait)
+  {
+    CompletableFuture<Void> finished = finishedTasks.get(task);
+    if (finished.isDone())
+    {
+      return true;
+    }
+    try
+    {
+      finished.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+      return true;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    catch (ExecutionException | TimeoutException e)
+    {
+      return finished.isDone();
+    }
+  }
+
+  @PreDestroy
+  void shutdown()
+  {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Thrown by a warm-up task if the application must not perform online authentications after the task
+   */
+  public static class WarmupFailedException extends RuntimeException
+  {
+
+    public WarmupFailedException(String message, Throwable cause)
+    {
+      super(message, cause);
+    }
+  }
+}
@@ -40,6 +40,7 @@ import de.governikus.eumw.config.ServiceProviderType;
 import de.governikus.eumw.poseidas.cardbase.asn1.npa.CertificateDescription;
 import de.governikus.eumw.poseidas.eidmodel.TerminalData;
 import de.governikus.eumw.poseidas.eidserver.crl.CertificationRevocationListImpl;
+import de.governikus.eumw.poseidas.paosservlet.paos.handler.MessageSessionMapper;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationException;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.idprovider.config.CvcTlsCheck;
@@ -219,6 +220,8 @@ public final class SNMPAgent implements CommandResponder
         }
       case GET_TLS_CERTIFICATE_VALID:
         return getDateAndTime(oid, new CvcTlsCheck(facade, configurationService, null).getTLSExpirationDate());
+      case GET_PAOS_MESSAGE_MAPPINGS:
+        return new VariableBinding(oidConstant.toSNMPOid(), new Integer32(MessageSessionMapper.getInstance().size()));
       default:
         log.warn("No matching case for this OID: {}", oidConstant.getValue());
         throw new IllegalArgumentException("No matching case for this OID: " + oidConstant.getValue());
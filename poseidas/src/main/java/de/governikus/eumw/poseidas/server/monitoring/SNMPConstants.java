@@ -172,6 +172,8 @@ public final class SNMPConstants
 
     GET_TLS_CERTIFICATE_VALID(GLOBAL_PREFIX + "11"),
 
+    GET_PAOS_MESSAGE_MAPPINGS(GLOBAL_PREFIX + "12"),
+
     // provider specific
     // please note it is important for the GET NEXT implementation that PROVIDER_NAME_GET always remains the first
     // provider specific OID
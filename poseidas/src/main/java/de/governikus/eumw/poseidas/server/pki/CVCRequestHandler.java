@@ -53,6 +53,7 @@ import de.governikus.eumw.poseidas.server.monitoring.SNMPTrapSender;
 import de.governikus.eumw.poseidas.server.pki.blocklist.BlockListService;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.DvcaServiceFactory;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector.ContextLock;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.TermAuthService;
 import de.governikus.eumw.poseidas.server.pki.entities.CertInChain;
 import de.governikus.eumw.poseidas.server.pki.entities.PendingCertificateRequest;
@@ -831,9 +832,8 @@ public class CVCRequestHandler extends BerCaRequestHandlerBase
   {
     byte[] obtainedCert = null;
     boolean increaseCounter = false;
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
       TermAuthService service = termAuthService;
       obtainedCert = service.requestCertificate(certReq);
       increaseCounter = true;
@@ -848,7 +848,6 @@ public class CVCRequestHandler extends BerCaRequestHandlerBase
     }
     finally
     {
-      PKIServiceConnector.releaseContextLock();
       if (increaseCounter)
       {
         facade.increaseSequenceNumber(cvcRefId);
@@ -867,16 +866,11 @@ public class CVCRequestHandler extends BerCaRequestHandlerBase
     ECCVCertificate atcvc = new ECCVCertificate(cvc);
     byte[] certificateDescriptionHash = atcvc.getChildElementByPath(ECCVCPath.EXTENSIONS_DISCRETIONARY_DATA_CERTIFICATE_DESCRIPTION_HASH)
                                              .getValue();
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
       TermAuthService wrapper = termAuthService;
       obtainedCert = wrapper.getCertificateDescription(certificateDescriptionHash);
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
     return obtainedCert;
   }
 
@@ -894,10 +888,9 @@ public class CVCRequestHandler extends BerCaRequestHandlerBase
   private byte[][] getCACertificates(String preferedCHR) throws GovManagementException
   {
     byte[][] result;
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
-      log.debug("{}: obtained lock on SSL context for downloading CACerts", cvcRefId);
+      log.debug("{}: obtained lock on DVCA connection for downloading CACerts", cvcRefId);
       TermAuthService service = termAuthService;
       result = service.getCACertificates();
     }
@@ -906,10 +899,6 @@ public class CVCRequestHandler extends BerCaRequestHandlerBase
       log.error("{}: cannot get certificates", cvcRefId, e);
       throw new GovManagementException(GlobalManagementCodes.EC_UNEXPECTED_ERROR, e.getMessage());
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
     // chain contains all the certificates we got, when we got one certificate more than once, take the one
     // which was not self singed. We will use that map later on to fetch the certificates we need.
     Map<String, TerminalData> chain = new HashMap<>();
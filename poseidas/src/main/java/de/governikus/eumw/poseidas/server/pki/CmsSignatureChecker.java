@@ -9,39 +9,46 @@
 
 package de.governikus.eumw.poseidas.server.pki;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-
-import javax.security.auth.x500.X500Principal;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bouncycastle.asn1.pkcs.IssuerAndSerialNumber;
-import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x9.ECNamedCurveTable;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSSignedDataParser;
+import org.bouncycastle.cms.CMSTypedStream;
 import org.bouncycastle.cms.SignerInformation;
 import org.bouncycastle.cms.SignerInformationStore;
 import org.bouncycastle.cms.SignerInformationVerifier;
 import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.operator.DigestCalculatorProvider;
 import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 import org.bouncycastle.util.Store;
 
 import de.governikus.eumw.poseidas.cardbase.ByteUtil;
-import de.governikus.eumw.poseidas.cardserver.CertificateUtil;
 import de.governikus.eumw.poseidas.eidserver.crl.CertificationRevocationListImpl;
 import de.governikus.eumw.utils.key.KeyReader;
 import de.governikus.eumw.utils.key.SecurityProvider;
@@ -67,13 +74,22 @@ public class CmsSignatureChecker
    * the trust anchor that is the base certificate that must be used to verify all other certificates that have been
    * used for signing within the cms-data lock
    */
-  private final Set<X509Certificate> trustAnchors = new HashSet<>();
+  private final TrustAnchors trustAnchors;
+
+  /** encodings of named curves, computed once per curve name */
+  private static final Map<String, byte[]> CURVE_ENCODINGS = new ConcurrentHashMap<>();
 
   private final Set<String> acceptedDigestAlgs = new HashSet<>();
 
   private final Set<String> acceptedSigAlgs = new HashSet<>();
 
-  private final Set<String> acceptedCurves = new HashSet<>();
+  /**
+   * encodings of the accepted curve parameters, <code>null</code> for a curve that could not be encoded so that it
+   * still restricts the accepted curves without matching any
+   */
+  private final List<byte[]> acceptedCurves = new ArrayList<>();
+
+  private final JcaSimpleSignerInfoVerifierBuilder signerInfoVerifierBuilder = new JcaSimpleSignerInfoVerifierBuilder().setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER);
 
   /** holds the signed content after successful verification */
   @Getter
@@ -95,12 +111,12 @@ public class CmsSignatureChecker
 
   public CmsSignatureChecker(X509Certificate trustAnchor)
   {
-    this.trustAnchors.add(Objects.requireNonNull(trustAnchor));
+    this.trustAnchors = new TrustAnchors(Set.of(Objects.requireNonNull(trustAnchor)));
   }
 
   public CmsSignatureChecker(Collection<X509Certificate> trustAnchors)
   {
-    this.trustAnchors.addAll(Objects.requireNonNull(trustAnchors));
+    this.trustAnchors = new TrustAnchors(trustAnchors);
   }
 
   /**
@@ -116,10 +132,29 @@ public class CmsSignatureChecker
                              Collection<String> sigAlgs,
                              Collection<String> curves)
   {
-    this.trustAnchors.addAll(Objects.requireNonNull(trustAnchors));
+    this(new TrustAnchors(trustAnchors), digestAlgs, sigAlgs, curves);
+  }
+
+  /**
+   * Constructor allowing configuration of accepted cryptographic algorithms with already indexed trust anchors.
+   *
+   * @param trustAnchors trust anchors, <code>null</code> not permitted
+   * @param digestAlgs accepted digest algorithms as OID strings, <code>null</code> or empty for accepting any digest
+   * @param sigAlgs accepted signature algorithms as OID strings, <code>null</code> or empty for accepting any algorithm
+   * @param curves accepted elliptic curves as names, <code>null</code> or empty for accepting any curve
+   */
+  public CmsSignatureChecker(TrustAnchors trustAnchors,
+                             Collection<String> digestAlgs,
+                             Collection<String> sigAlgs,
+                             Collection<String> curves)
+  {
+    this.trustAnchors = Objects.requireNonNull(trustAnchors);
     this.acceptedDigestAlgs.addAll(Objects.requireNonNullElse(digestAlgs, Set.of()));
     this.acceptedSigAlgs.addAll(Objects.requireNonNullElse(sigAlgs, Set.of()));
-    this.acceptedCurves.addAll(Objects.requireNonNullElse(curves, Set.of()));
+    for ( String curve : Objects.requireNonNullElse(curves, Set.<String> of()) )
+    {
+      this.acceptedCurves.add(getCurveEncoding(curve));
+    }
   }
 
   /**
@@ -168,13 +203,78 @@ public class CmsSignatureChecker
     throws CMSException, SignatureException
   {
     CMSSignedData cmsSignedData = new CMSSignedData(signedCmsData);
-    SignerInformationStore signers = cmsSignedData.getSignerInfos();
+    verifySigners(cmsSignedData.getSignerInfos(), cmsSignedData.getCertificates(), crlService);
+    signedContentTypeOID = cmsSignedData.getSignedContentTypeOID();
+    verifiedContent = cmsSignedData.getSignedContent().getContent();
+  }
+
+  /**
+   * checks the signature of a signed data file like {@link #checkEnvelopedSignature(byte[])}, but reads the file as a
+   * stream so that the signed content is never held in memory. The signed content is therefore not available with
+   * {@code getVerifiedContent()} afterwards.
+   *
+   * @param signedCmsFile the file containing the signed data
+   * @throws CMSException if the file does not contain valid CMS data
+   * @throws IOException if the file cannot be read
+   */
+  public void checkEnvelopedSignature(Path signedCmsFile) throws CMSException, SignatureException, IOException
+  {
+    checkEnvelopedSignature(signedCmsFile, (contentTypeOID, content) -> {});
+  }
+
+  /**
+   * checks the signature of a signed data file like {@link #checkEnvelopedSignature(Path)} and hands the signed
+   * content to the given consumer while it is read, so that the file is verified and parsed in one pass. The signature
+   * is checked after the consumer returned, so the parsed content must not be used unless this method returns
+   * normally.
+   *
+   * @param signedCmsFile the file containing the signed data
+   * @param contentConsumer reads the signed content, any content not read is skipped afterwards
+   * @throws CMSException if the file does not contain valid CMS data
+   * @throws IOException if the file cannot be read or the consumer fails
+   */
+  public void checkEnvelopedSignature(Path signedCmsFile, SignedContentConsumer contentConsumer)
+    throws CMSException, SignatureException, IOException
+  {
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(signedCmsFile)))
+    {
+      CMSSignedDataParser parser = new CMSSignedDataParser(createDigestCalculatorProvider(), inputStream);
+      CMSTypedStream signedContent = parser.getSignedContent();
+      if (signedContent == null)
+      {
+        throw new SignatureException("No signed content present within signed data");
+      }
+      contentConsumer.accept(parser.getSignedContentTypeOID(), signedContent.getContentStream());
+      // the content must be read completely to calculate the digests for the signature check
+      signedContent.drain();
+      verifySigners(parser.getSignerInfos(), parser.getCertificates(), null);
+      signedContentTypeOID = parser.getSignedContentTypeOID();
+      verifiedContent = null;
+    }
+  }
+
+  private static DigestCalculatorProvider createDigestCalculatorProvider() throws CMSException
+  {
+    try
+    {
+      return new JcaDigestCalculatorProviderBuilder().setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER).build();
+    }
+    catch (OperatorCreationException e)
+    {
+      throw new CMSException("Cannot create digest calculator provider", e);
+    }
+  }
+
+  private void verifySigners(SignerInformationStore signers,
+                             Store<X509CertificateHolder> certificateStorage,
+                             CertificationRevocationListImpl crlService)
+    throws CMSException, SignatureException
+  {
     if (signers.getSigners().isEmpty())
     {
       throw new SignatureException("No signing information present within signed data");
     }
 
-    Store<X509CertificateHolder> certificateStorage = cmsSignedData.getCertificates();
     for ( SignerInformation signer : signers.getSigners() )
     {
       if (!acceptedDigestAlgs.isEmpty() && !acceptedDigestAlgs.contains(signer.getDigestAlgOID()))
@@ -185,20 +285,35 @@ public class CmsSignatureChecker
       {
         throw new SignatureException("Unsupported signature algorithm detected");
       }
-      X509Certificate signatureVerificationCertificate;
+      X509CertificateHolder holder;
+      X509Certificate replacedCertificate = null;
       if (certReplacedRecord != null && isSerialNumberAndIssuerEqualsDocumentSigner(signer))
       {
-        signatureVerificationCertificate = certReplacedRecord.replacedCertificate();
+        replacedCertificate = certReplacedRecord.replacedCertificate();
+        holder = getCertificateHolder(replacedCertificate);
       }
       else
       {
         @SuppressWarnings("unchecked")
-        X509CertificateHolder holder = (X509CertificateHolder)certificateStorage.getMatches(signer.getSID())
-                                                                                .iterator()
-                                                                                .next();
-        ByteArrayInputStream certInputStream = getInputStreamOfCertificateData(holder);
-        signatureVerificationCertificate = KeyReader.readX509Certificate(certInputStream);
-
+        X509CertificateHolder match = (X509CertificateHolder)certificateStorage.getMatches(signer.getSID())
+                                                                               .iterator()
+                                                                               .next();
+        holder = match;
+      }
+      byte[] encodedCertificate = getEncodedCertificateData(holder);
+      TrustAnchors.ValidatedCertificate validated = trustAnchors.getValidatedCertificate(encodedCertificate);
+      X509Certificate signatureVerificationCertificate;
+      if (validated != null)
+      {
+        signatureVerificationCertificate = validated.certificate();
+      }
+      else if (replacedCertificate != null)
+      {
+        signatureVerificationCertificate = replacedCertificate;
+      }
+      else
+      {
+        signatureVerificationCertificate = KeyReader.readX509Certificate(new ByteArrayInputStream(encodedCertificate));
       }
 
       if (!acceptedCurves.isEmpty() && "EC".equals(signatureVerificationCertificate.getPublicKey().getAlgorithm()))
@@ -206,39 +321,33 @@ public class CmsSignatureChecker
         byte[] paramsFromCert;
         try
         {
-          X509CertificateHolder x509CertificateHolderToCheckParmatersFromCerticiate = new X509CertificateHolder(signatureVerificationCertificate.getEncoded());
-          paramsFromCert = x509CertificateHolderToCheckParmatersFromCerticiate.getSubjectPublicKeyInfo()
-                                                                              .getAlgorithm()
-                                                                              .getParameters()
-                                                                              .toASN1Primitive()
-                                                                              .getEncoded();
+          paramsFromCert = holder.getSubjectPublicKeyInfo()
+                                 .getAlgorithm()
+                                 .getParameters()
+                                 .toASN1Primitive()
+                                 .getEncoded();
         }
-        catch (IOException | CertificateEncodingException e)
+        catch (IOException e)
         {
           throw new SignatureException("Unable to extract curve parameters from certificate", e);
         }
 
-        boolean found = acceptedCurves.stream().map(c -> {
-          try
-          {
-            return ECNamedCurveTable.getByName(c).getEncoded();
-          }
-          catch (IOException e)
-          {
-            if (log.isDebugEnabled())
-            {
-              log.debug("Failed to get EC curve from certificate", e);
-            }
-            return null;
-          }
-        }).anyMatch(b -> ByteUtil.equals(b, paramsFromCert));
+        boolean found = acceptedCurves.stream().anyMatch(b -> ByteUtil.equals(b, paramsFromCert));
         if (!found)
         {
           throw new SignatureException("Unsupported elliptic curve detected");
         }
       }
 
-      validateCertificate(signatureVerificationCertificate, crlService);
+      if (validated == null)
+      {
+        X509Certificate issuer = validateCertificate(signatureVerificationCertificate, crlService);
+        trustAnchors.addValidatedCertificate(encodedCertificate, signatureVerificationCertificate, issuer);
+      }
+      else
+      {
+        checkRevocation(validated, crlService);
+      }
 
       // Check Signature
       PublicKey publicKey = signatureVerificationCertificate.getPublicKey();
@@ -250,8 +359,6 @@ public class CmsSignatureChecker
       }
       verifierCertificate = signatureVerificationCertificate;
     }
-    signedContentTypeOID = cmsSignedData.getSignedContentTypeOID();
-    verifiedContent = cmsSignedData.getSignedContent().getContent();
   }
 
   private boolean isSerialNumberAndIssuerEqualsDocumentSigner(SignerInformation signer)
@@ -272,8 +379,7 @@ public class CmsSignatureChecker
   {
     try
     {
-      return new JcaSimpleSignerInfoVerifierBuilder().setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER)
-                                                     .build(publicKey);
+      return signerInfoVerifierBuilder.build(publicKey);
     }
     catch (OperatorCreationException e)
     {
@@ -286,29 +392,85 @@ public class CmsSignatureChecker
   }
 
   /**
-   * tries to get a byte-stream from the given certificate
+   * tries to get the encoding of the given certificate
    *
    * @param holder the certificate data
-   * @return the input stream
+   * @return the encoded certificate
    */
-  private ByteArrayInputStream getInputStreamOfCertificateData(X509CertificateHolder holder) throws SignatureException
+  private byte[] getEncodedCertificateData(X509CertificateHolder holder) throws SignatureException
   {
-    byte[] certificateData;
     try
     {
-      certificateData = holder.getEncoded();
+      return holder.getEncoded();
     }
     catch (IOException e)
     {
       throw new SignatureException("Cannot get bytes of signature certificate", e);
     }
-    return new ByteArrayInputStream(certificateData);
+  }
+
+  private X509CertificateHolder getCertificateHolder(X509Certificate certificate) throws SignatureException
+  {
+    try
+    {
+      return new X509CertificateHolder(certificate.getEncoded());
+    }
+    catch (IOException | CertificateEncodingException e)
+    {
+      throw new SignatureException("Cannot get bytes of signature certificate", e);
+    }
+  }
+
+  private static byte[] getCurveEncoding(String curve)
+  {
+    byte[] encoding = CURVE_ENCODINGS.get(curve);
+    if (encoding != null)
+    {
+      return encoding;
+    }
+    try
+    {
+      encoding = ECNamedCurveTable.getByName(curve).getEncoded();
+    }
+    catch (IOException e)
+    {
+      if (log.isDebugEnabled())
+      {
+        log.debug("Failed to get EC curve from certificate", e);
+      }
+      return null;
+    }
+    CURVE_ENCODINGS.put(curve, encoding);
+    return encoding;
+  }
+
+  /**
+   * checks the revocation status of an already validated certificate and its issuer
+   */
+  private void checkRevocation(TrustAnchors.ValidatedCertificate validated, CertificationRevocationListImpl crl)
+    throws SignatureException
+  {
+    if (crl == null)
+    {
+      return;
+    }
+    if (crl.isOnCRL(validated.certificate()))
+    {
+      throw new SignatureException("verification certificate found on CRL");
+    }
+    if (validated.issuer() != null && crl.isOnCRL(validated.issuer()))
+    {
+      throw new SignatureException("trust anchor certificate found on CRL");
+    }
   }
 
   /**
    * checks if the given certificate was issued by the {@link #trustAnchors} certificate
+   *
+   * @return the issuing trust anchor, <code>null</code> if the certificate is a trust anchor itself
    */
-  private void validateCertificate(X509Certificate verificationCertificate, CertificationRevocationListImpl crl)
+  private X509Certificate validateCertificate(X509Certificate verificationCertificate,
+                                              CertificationRevocationListImpl crl)
     throws SignatureException
   {
     if (crl != null)
@@ -322,21 +484,10 @@ public class CmsSignatureChecker
     final boolean isTrustAnchorItself = trustAnchors.contains(verificationCertificate);
     if (isTrustAnchorItself)
     {
-      return;
-    }
-    Optional<X509Certificate> trustAnchor;
-    // Try to find the issuer with the Authority Key Identifier
-    trustAnchor = trustAnchors.stream()
-                              .filter(CertificateUtil.findIssuerByAuthorityKeyIdentifier(verificationCertificate.getExtensionValue(Extension.authorityKeyIdentifier.getId())))
-                              .findAny();
-    // If this did not find an issuer, try to find it using the Issuer DN
-    if (!trustAnchor.isPresent())
-    {
-      X500Principal verificationCertIssuer = verificationCertificate.getIssuerX500Principal();
-      trustAnchor = trustAnchors.stream()
-                                .filter(cert -> cert.getSubjectX500Principal().equals(verificationCertIssuer))
-                                .findAny();
+      return null;
     }
+    // Try to find the issuer with the Authority Key Identifier, then using the Issuer DN
+    Optional<X509Certificate> trustAnchor = trustAnchors.findIssuer(verificationCertificate);
     // If there is still no trustAnchor, we must abort
     if (!trustAnchor.isPresent())
     {
@@ -362,6 +513,22 @@ public class CmsSignatureChecker
                                                  trustAnchor.get().getSubjectDN().toString()),
                                    e);
     }
+    return trustAnchor.get();
+  }
+
+  /**
+   * Reads the signed content while the signature of a signed data file is checked
+   */
+  @FunctionalInterface
+  public interface SignedContentConsumer
+  {
+
+    /**
+     * @param contentTypeOID the OID of the signed content type
+     * @param content the signed content, must not be closed
+     * @throws IOException if the content cannot be read or is invalid
+     */
+    void accept(String contentTypeOID, InputStream content) throws IOException;
   }
 
   public record CertReplacedRecord(X509Certificate replacedCertificate, IssuerAndSerialNumber issuerAndSerialNumber)
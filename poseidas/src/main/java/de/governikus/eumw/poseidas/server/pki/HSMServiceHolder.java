@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +30,7 @@ import de.governikus.eumw.poseidas.cardserver.service.hsm.impl.PKCS11HSMConfigur
 import de.governikus.eumw.poseidas.gov2server.constants.admin.GlobalManagementCodes;
 import de.governikus.eumw.poseidas.gov2server.constants.admin.ManagementMessage;
 import de.governikus.eumw.poseidas.server.idprovider.core.WarmupListener;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
 import de.governikus.eumw.poseidas.server.pki.entities.ChangeKeyLock;
 
 import lombok.AccessLevel;
@@ -59,9 +61,15 @@ public class HSMServiceHolder implements WarmupListener
 
   private boolean archiveOldKeys;
 
+  /**
+   * Incremented whenever the HSM login or the keys stored in the HSM change
+   */
+  private final AtomicLong keyStateVersion = new AtomicLong();
+
   public HSMServiceHolder(@Value("${hsm.type:}") String hsmTypeStr,
                           @Value("${pkcs11.config:}") String pathToPkcs11Config,
                           @Value("${pkcs11.passwd:}") String pkcs11Passwd,
+                          @Value("${pkcs11.max-sessions:8}") int pkcs11MaxSessions,
                           @Value("${hsm.keys.delete:30}") int deleteOldKeys,
                           @Value("${hsm.keys.archive:false}") boolean archiveOldKeys,
                           @Autowired TerminalPermissionAO facade)
@@ -73,7 +81,7 @@ public class HSMServiceHolder implements WarmupListener
     if ("PKCS11".equalsIgnoreCase(hsmTypeStr))
     {
       hsmType = HSMService.PKCS11_HSM;
-      hsmConfig = new PKCS11HSMConfiguration(pathToPkcs11Config, pkcs11Passwd);
+      hsmConfig = new PKCS11HSMConfiguration(pathToPkcs11Config, pkcs11Passwd, pkcs11MaxSessions);
     }
     else
     {
@@ -106,6 +114,7 @@ public class HSMServiceHolder implements WarmupListener
       try
       {
         service.init(hsmConfig);
+        keyStateChanged();
       }
       catch (HSMException e)
       {
@@ -130,6 +139,7 @@ public class HSMServiceHolder implements WarmupListener
       {
         service.logout();
         service = null;
+        keyStateChanged();
       }
       return GlobalManagementCodes.OK.createMessage();
     }
@@ -161,6 +171,7 @@ public class HSMServiceHolder implements WarmupListener
       }
       // expected for operation without HSM, continue
       service = null;
+      keyStateChanged();
       return GlobalManagementCodes.OK.createMessage();
     }
   }
@@ -292,6 +303,7 @@ public class HSMServiceHolder implements WarmupListener
 
       log.debug("Deleting key {}", alias);
       service.deleteKey(alias);
+      keyStateChanged();
       log.info("key {} successfully deleted", alias);
       deletedKeys.add(alias);
     }
@@ -326,6 +338,7 @@ public class HSMServiceHolder implements WarmupListener
       }
       log.debug("lock for key {} obtained", alias);
       service.deleteKey(alias);
+      keyStateChanged();
     }
   }
 
@@ -349,6 +362,7 @@ public class HSMServiceHolder implements WarmupListener
       }
       log.debug("lock for key {} obtained", alias);
       service.distributeKey(alias);
+      keyStateChanged();
     }
   }
 
@@ -401,4 +415,26 @@ public class HSMServiceHolder implements WarmupListener
     }
     return null;
   }
+
+  private void keyStateChanged()
+  {
+    keyStateVersion.incrementAndGet();
+    if (service != null)
+    {
+      service.invalidateKeyCache();
+    }
+    // the cached SSL contexts for the DVCA communication may use the HSM keys
+    PKIServiceConnector.invalidateConnectionContexts();
+  }
+
+  /**
+   * Returns a counter that changes whenever the HSM login or the keys stored in the HSM change. Can be used to detect
+   * that objects derived from the HSM key store must be created again.
+   *
+   * @return current key state version
+   */
+  public long getKeyStateVersion()
+  {
+    return keyStateVersion.get();
+  }
 }
@@ -28,6 +28,7 @@ import de.governikus.eumw.poseidas.server.monitoring.SNMPConstants;
 import de.governikus.eumw.poseidas.server.monitoring.SNMPConstants.TrapOID;
 import de.governikus.eumw.poseidas.server.monitoring.SNMPTrapSender;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector.ContextLock;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PassiveAuthService;
 import lombok.extern.slf4j.Slf4j;
 
@@ -99,11 +100,9 @@ public class MasterAndDefectListHandler extends BerCaRequestHandlerBase
 
   private byte[] updateDefectList(PassiveAuthService service, MasterList ml) throws MalformedURLException
   {
-    PKIServiceConnector.getContextLock();
-    log.debug("{}: obtained lock on SSL context for downloading defect list", cvcRefId);
-
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
+      log.debug("{}: obtained lock on DVCA connection for downloading defect list", cvcRefId);
       long defectListStart = System.currentTimeMillis();
       byte[] defectList = getDefectList(service, ml);
       if (defectList != null)
@@ -115,19 +114,13 @@ public class MasterAndDefectListHandler extends BerCaRequestHandlerBase
       }
       return defectList;
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
   }
 
   private MasterList updateMasterList(PassiveAuthService service) throws MalformedURLException
   {
-    PKIServiceConnector.getContextLock();
-    log.debug("{}: obtained lock on SSL context for downloading master list", cvcRefId);
-
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
+      log.debug("{}: obtained lock on DVCA connection for downloading master list", cvcRefId);
       long masterListStart = System.currentTimeMillis();
       byte[] masterListBytes = getMasterList(service);
       MasterList masterList;
@@ -147,10 +140,6 @@ public class MasterAndDefectListHandler extends BerCaRequestHandlerBase
       }
       return masterList;
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
   }
 
   byte[] getMasterList(PassiveAuthService service) throws MalformedURLException
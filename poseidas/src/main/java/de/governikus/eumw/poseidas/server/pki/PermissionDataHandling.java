@@ -17,6 +17,7 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.annotation.Scope;
@@ -41,13 +43,16 @@ import de.governikus.eumw.poseidas.gov2server.constants.admin.AdminPoseidasConst
 import de.governikus.eumw.poseidas.gov2server.constants.admin.GlobalManagementCodes;
 import de.governikus.eumw.poseidas.gov2server.constants.admin.IDManagementCodes;
 import de.governikus.eumw.poseidas.gov2server.constants.admin.ManagementMessage;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationException;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.idprovider.config.KeyPair;
 import de.governikus.eumw.poseidas.server.monitoring.SNMPConstants;
 import de.governikus.eumw.poseidas.server.monitoring.SNMPTrapSender;
+import de.governikus.eumw.poseidas.server.pki.ServiceProviderRenewalExecutor.RenewalResult;
 import de.governikus.eumw.poseidas.server.pki.blocklist.BlockListService;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.DvcaServiceFactory;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector.ContextLock;
 import de.governikus.eumw.poseidas.server.pki.entities.CVCUpdateLock;
 import de.governikus.eumw.poseidas.server.pki.entities.TerminalPermission;
 import de.governikus.eumw.poseidas.server.pki.entities.TimerHistory;
@@ -87,6 +92,8 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
 
   private final DvcaServiceFactory dvcaServiceFactory;
 
+  private final ServiceProviderRenewalExecutor renewalExecutor;
+
   private CVCRequestHandler getCvcRequestHandler(ServiceProviderType serviceProvider) throws GovManagementException
   {
     return new CVCRequestHandler(serviceProvider, facade, hsmServiceHolder.getKeyStore(), configurationService,
@@ -164,8 +171,7 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
 
   public void renewMasterAndDefectList(boolean timerExecution)
   {
-    List<String> succeeded = new ArrayList<>();
-    List<String> failed = new ArrayList<>();
+    RenewalResult result = new RenewalResult();
     try
     {
       List<ServiceProviderType> activeServiceProviders = configurationService.getConfiguration()
@@ -184,27 +190,29 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
       }
       else
       {
-        for ( ServiceProviderType sp : activeServiceProviders )
-        {
-          renewMasterAndDefectList(sp, configurationService.getDvcaConfiguration(sp), succeeded, failed);
-        }
+        result = renewalExecutor.renew("master and defect list renewal",
+                                       activeServiceProviders,
+                                       (sp, spResult) -> renewMasterAndDefectList(sp,
+                                                                                  configurationService.getDvcaConfiguration(sp),
+                                                                                  spResult.getSucceeded(),
+                                                                                  spResult.getFailed()));
       }
     }
     catch (Exception e)
     {
-      failed.add("unable to renew any master and defect list: %s".formatted(e.getMessage()));
+      result.getFailed().add("unable to renew any master and defect list: %s".formatted(e.getMessage()));
       log.error("unable to renew any master and defect list", e);
     }
 
     if (timerExecution)
     {
-      if (succeeded.isEmpty() && failed.isEmpty())
+      if (result.isEmpty())
       {
         log.warn("Unexpected empty data for storing in timer history database.");
       }
       else
       {
-        saveTimer(succeeded, failed, TimerHistory.TimerType.GLOBAL_LIST_TIMER);
+        saveTimer(result.getSucceeded(), result.getFailed(), TimerHistory.TimerType.GLOBAL_LIST_TIMER);
       }
     }
   }
@@ -288,13 +296,30 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
     {
       ServiceProviderType provider = getServiceProvider(entityID);
       DvcaConfigurationType dvcaConfiguration = configurationService.getDvcaConfiguration(provider);
-      ManagementMessage result = renewBlackList(provider,
-                                                dvcaConfiguration,
-                                                false,
-                                                new HashSet<>(),
-                                                false,
-                                                new ArrayList<>(),
-                                                new ArrayList<>());
+      ManagementMessage result;
+      if (BlackListLock.getINSTANCE().getBlackListUpdateLock().tryLock())
+      {
+        try
+        {
+          result = renewBlackList(provider,
+                                  dvcaConfiguration,
+                                  false,
+                                  new HashSet<>(),
+                                  false,
+                                  new ArrayList<>(),
+                                  new ArrayList<>());
+        }
+        finally
+        {
+          BlackListLock.getINSTANCE().getBlackListUpdateLock().unlock();
+        }
+      }
+      else
+      {
+        log.debug("Black list is currently being updated, skipping this execution");
+        result = GlobalManagementCodes.EC_UNEXPECTED_ERROR.createMessage("unable to renew block lists");
+      }
+      // the public sector key does not depend on the block list lock
       requestPublicSectorKeyIfNeeded(provider, dvcaConfiguration);
       return result;
     }
@@ -316,41 +341,41 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
 
   public void renewBlackList(boolean delta, boolean timerExecution)
   {
-    List<String> succeeded = new ArrayList<>();
-    List<String> failed = new ArrayList<>();
+    RenewalResult result = new RenewalResult();
     try
     {
       Optional<EidasMiddlewareConfig> config = configurationService.getConfiguration();
       if (config.isEmpty())
       {
-        failed.add("Config is empty.");
+        result.getFailed().add("Config is empty.");
         return;
       }
-      Set<ByteBuffer> alreadyRenewed = new HashSet<>();
+      List<ServiceProviderType> activeServiceProviders = new ArrayList<>();
       for ( ServiceProviderType provider : config.get().getEidConfiguration().getServiceProvider() )
       {
-        if (!provider.isEnabled())
+        if (provider.isEnabled())
+        {
+          activeServiceProviders.add(provider);
+        }
+        else
         {
           log.debug("{}: skip renew of black list for this provider, updateCVC is set to false, CVCRefID: {}",
                     provider.getName(),
                     provider.getCVCRefID());
-          continue;
         }
-        DvcaConfigurationType dvcaConfiguration = configurationService.getDvcaConfiguration(provider);
-        renewBlackList(provider, dvcaConfiguration, true, alreadyRenewed, delta, succeeded, failed);
-        requestPublicSectorKeyIfNeeded(provider, dvcaConfiguration);
       }
+      result = renewBlackLists(activeServiceProviders, delta);
     }
     catch (Exception e)
     {
-      failed.add("unable to renew any blacklist: %s".formatted(e.getMessage()));
+      result.getFailed().add("unable to renew any blacklist: %s".formatted(e.getMessage()));
       log.error("unable to renew any blacklist", e);
     }
 
     if (timerExecution)
     {
       // if all lists are empty there should be no active service provider
-      if (succeeded.isEmpty() && failed.isEmpty())
+      if (result.isEmpty())
       {
         timerHistoryService.saveTimer(TimerHistory.TimerType.BLACK_LIST_TIMER,
                                       "No active service provider found",
@@ -359,8 +384,59 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
       }
       else
       {
-        saveTimer(succeeded, failed, TimerHistory.TimerType.BLACK_LIST_TIMER, delta);
+        saveTimer(result.getSucceeded(), result.getFailed(), TimerHistory.TimerType.BLACK_LIST_TIMER, delta);
+      }
+    }
+  }
+
+  /**
+   * Renew the block lists of the given service providers. The block list received for one service provider usually
+   * contains the lists of all sectors of the same DVCA, so the service providers of one DVCA are renewed one after
+   * another and skipped if their sector is already renewed. Different DVCAs are renewed in parallel.
+   */
+  private RenewalResult renewBlackLists(List<ServiceProviderType> providers, boolean delta)
+  {
+    if (!BlackListLock.getINSTANCE().getBlackListUpdateLock().tryLock())
+    {
+      log.debug("Black list is currently being updated, skipping this execution");
+      RenewalResult result = new RenewalResult();
+      for ( ServiceProviderType provider : providers )
+      {
+        result.getFailed()
+              .add("%s: Black list is currently being updated, skipping this execution.".formatted(provider.getName()));
+        // the public sector key does not depend on the block list lock
+        try
+        {
+          requestPublicSectorKeyIfNeeded(provider, configurationService.getDvcaConfiguration(provider));
+        }
+        catch (ConfigurationException e)
+        {
+          log.error("{}: unable to fetch public sector key: {}", provider.getName(), e.getMessage(), e);
+        }
       }
+      return result;
+    }
+    try
+    {
+      Set<ByteBuffer> alreadyRenewed = ConcurrentHashMap.newKeySet();
+      return renewalExecutor.renew("block list renewal",
+                                   providers,
+                                   ServiceProviderType::getDvcaConfigurationName,
+                                   (provider, providerResult) -> {
+                                     DvcaConfigurationType dvcaConfiguration = configurationService.getDvcaConfiguration(provider);
+                                     renewBlackList(provider,
+                                                    dvcaConfiguration,
+                                                    true,
+                                                    alreadyRenewed,
+                                                    delta,
+                                                    providerResult.getSucceeded(),
+                                                    providerResult.getFailed());
+                                     requestPublicSectorKeyIfNeeded(provider, dvcaConfiguration);
+                                   });
+    }
+    finally
+    {
+      BlackListLock.getINSTANCE().getBlackListUpdateLock().unlock();
     }
   }
 
@@ -390,7 +466,7 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
         return IDManagementCodes.MISSING_TERMINAL_CERTIFICATE.createMessage(prov.getCVCRefID());
       }
       // When we already renewed the blacklist for this sector skip it now.
-      if (alreadyRenewed != null && tp.getSectorID() != null
+      if (tp.getSectorID() != null
           && alreadyRenewed.contains(ByteBuffer.wrap(tp.getSectorID())))
       {
         succeededRenewals.add(providerName);
@@ -399,25 +475,8 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
       RestrictedIdHandler riHandler = new RestrictedIdHandler(prov, facade, hsmServiceHolder.getKeyStore(),
                                                               configurationService, dvcaServiceFactory,
                                                               blockListService);
-      if (alreadyRenewed != null)
-      {
-        if (BlackListLock.getINSTANCE().getBlackListUpdateLock().tryLock())
-        {
-          try
-          {
-            alreadyRenewed.addAll(riHandler.requestBlackList(all, delta));
-          }
-          finally
-          {
-            BlackListLock.getINSTANCE().getBlackListUpdateLock().unlock();
-          }
-        }
-        else
-        {
-          failedRenewals.add("%s: Black list is currently being updated, skipping this execution.".formatted(providerName));
-          log.debug("Black list is currently being updated, skipping this execution");
-        }
-      }
+      // the caller holds the BlackListLock
+      alreadyRenewed.addAll(riHandler.requestBlackList(all, delta));
       if (alreadyRenewed.contains(ByteBuffer.wrap(tp.getSectorID())))
       {
         succeededRenewals.add(providerName);
@@ -480,46 +539,48 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
   @Override
   public void renewOutdatedCVCs()
   {
-    List<String> succeeded = new ArrayList<>();
-    List<String> failed = new ArrayList<>();
-    List<String> renewalNotNeeded = new ArrayList<>();
+    RenewalResult result = new RenewalResult();
     try
     {
       Optional<EidasMiddlewareConfig> config = configurationService.getConfiguration();
       if (config.isEmpty())
       {
-        failed.add("Config is empty");
+        result.getFailed().add("Config is empty");
         return;
       }
       assertHsmAlive();
       Map<String, Date> expirationDateMap = facade.getExpirationDates();
-      List<String> lockedServiceProviders = new ArrayList<>();
-      List<ServiceProviderType> serviceProvider = config.get().getEidConfiguration().getServiceProvider();
-
-      for ( ServiceProviderType sp : serviceProvider )
+      List<String> lockedServiceProviders = Collections.synchronizedList(new ArrayList<>());
+      List<ServiceProviderType> activeServiceProviders = new ArrayList<>();
+      for ( ServiceProviderType sp : config.get().getEidConfiguration().getServiceProvider() )
       {
-        if (!sp.isEnabled())
+        if (sp.isEnabled())
+        {
+          activeServiceProviders.add(sp);
+        }
+        else
         {
           String m = "%s: skip check for renew of cvc for this provider, updateCVC is set to false, CVCRefID: %s".formatted(sp.getName(),
                                                                                                                             sp.getCVCRefID());
           log.debug(m);
-          continue;
         }
+      }
+
+      result = renewalExecutor.renew("CVC renewal", activeServiceProviders, (sp, spResult) -> {
         Optional<String> message = renewCvcForProvider(sp, expirationDateMap, lockedServiceProviders);
         if (message.isEmpty())
         {
-          renewalNotNeeded.add(sp.getName());
+          spResult.getRenewalNotNeeded().add(sp.getName());
         }
         else if (RENEWAL_SUCCESSFUL.equals(message.get()))
         {
-          succeeded.add(sp.getName());
+          spResult.getSucceeded().add(sp.getName());
         }
         else
         {
-          failed.add(message.get());
+          spResult.getFailed().add(message.get());
         }
-      }
-
+      });
     }
     catch (Exception e)
     {
@@ -528,7 +589,7 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
     }
 
     // if all lists are empty there should be no active service provider
-    if (succeeded.isEmpty() && renewalNotNeeded.isEmpty() && failed.isEmpty())
+    if (result.isEmpty())
     {
       timerHistoryService.saveTimer(TimerHistory.TimerType.CVC_RENEWAL_TIMER,
                                     "No active service provider found",
@@ -537,7 +598,11 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
     }
     else
     {
-      saveTimer(succeeded, failed, renewalNotNeeded, TimerHistory.TimerType.CVC_RENEWAL_TIMER, null);
+      saveTimer(result.getSucceeded(),
+                result.getFailed(),
+                result.getRenewalNotNeeded(),
+                TimerHistory.TimerType.CVC_RENEWAL_TIMER,
+                null);
     }
   }
 
@@ -862,10 +927,9 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
       throw new GovManagementException(GlobalManagementCodes.EC_INVALIDCONFIGVALUE, filedNameSslKeysId);
     }
     String serviceProviderName = serviceProvider.getName();
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
-      log.debug("{}: obtained lock on SSL context for connection check", serviceProviderName);
+      log.debug("{}: obtained lock on DVCA connection for connection check", serviceProviderName);
       PKIServiceConnector connector;
       if (hsmServiceHolder.getKeyStore() == null)
       {
@@ -892,10 +956,6 @@ public class PermissionDataHandling implements PermissionDataHandlingMBean
       throw new GovManagementException(GlobalManagementCodes.EXTERNAL_SERVICE_NOT_REACHABLE, pkiUrl, e.getMessage());
 
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
   }
 
   private void assertHsmAlive() throws GovManagementException
@@ -13,11 +13,14 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.KeyStore;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,6 +29,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.bouncycastle.cms.CMSException;
@@ -33,9 +38,11 @@ import org.bouncycastle.cms.CMSException;
 import de.governikus.eumw.config.ServiceProviderType;
 import de.governikus.eumw.poseidas.cardbase.asn1.OID;
 import de.governikus.eumw.poseidas.cardbase.asn1.npa.ECCVCertificate;
+import de.governikus.eumw.poseidas.cardbase.constants.OIDConstants;
 import de.governikus.eumw.poseidas.cardbase.crypto.DigestUtil;
 import de.governikus.eumw.poseidas.eidserver.model.signeddata.BlackList;
 import de.governikus.eumw.poseidas.eidserver.model.signeddata.BlackListDetails;
+import de.governikus.eumw.poseidas.eidserver.model.signeddata.BlackListReader;
 import de.governikus.eumw.poseidas.gov2server.GovManagementException;
 import de.governikus.eumw.poseidas.gov2server.constants.admin.GlobalManagementCodes;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
@@ -46,6 +53,7 @@ import de.governikus.eumw.poseidas.server.pki.blocklist.BlockListService;
 import de.governikus.eumw.poseidas.server.pki.blocklist.BlockListStorageException;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.DvcaServiceFactory;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector.ContextLock;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.RestrictedIdService;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.RestrictedIdService.BlackListResult;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.RestrictedIdService140;
@@ -182,17 +190,12 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
     TerminalPermission data = facade.getTerminalPermission(cvcRefId);
     byte[] sectorId = getSectorID(data);
     byte[] sectorPK;
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
-      log.debug("{}: obtained lock on SSL context for downloading public sector key", cvcRefId);
+      log.debug("{}: obtained lock on DVCA connection for downloading public sector key", cvcRefId);
       RestrictedIdService wrapper = dvcaServiceFactory.createRestrictedIdService(serviceProvider, hsmKeyStore);
       sectorPK = wrapper.getSectorPublicKey(sectorId);
     }
-    finally
-    {
-      PKIServiceConnector.releaseContextLock();
-    }
     facade.storePublicSectorKey(cvcRefId, sectorPK);
   }
 
@@ -209,10 +212,9 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
     log.info("{}: started requestBlackList. All: {} | Delta: {}", cvcRefId, all, delta);
     long blackListStart;
     BlackListResult blResult;
-    try
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
     {
-      PKIServiceConnector.getContextLock();
-      log.debug("{}: obtained lock on SSL context for downloading block list", cvcRefId);
+      log.debug("{}: obtained lock on DVCA connection for downloading block list", cvcRefId);
       TerminalPermission tp = facade.getTerminalPermission(cvcRefId);
       RestrictedIdService wrapper = dvcaServiceFactory.createRestrictedIdService(serviceProvider, hsmKeyStore);
 
@@ -252,7 +254,6 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
     }
     finally
     {
-      PKIServiceConnector.releaseContextLock();
       log.debug("{}: block list request done", cvcRefId);
     }
     if (blResult == null || (blResult.getUri() == null && blResult.getDeltaAdded() == null))
@@ -404,12 +405,23 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
 
   private Set<ByteBuffer> processFullBlackList(boolean all, BlackListResult blResult) throws GovManagementException
   {
-    BlackListContent blackList;
-    blackList = downloadBlackList(blResult);
+    Path blackListFile = downloadBlackList(blResult);
+    try
+    {
+      return processFullBlackList(all, blackListFile);
+    }
+    finally
+    {
+      deleteBlackListFile(blackListFile);
+    }
+  }
+
+  private Set<ByteBuffer> processFullBlackList(boolean all, Path blackListFile) throws GovManagementException
+  {
     log.info("Received full block list");
     if (all)
     {
-      Set<ByteBuffer> updatedSectorIDs = importBlockListCollection(blackList);
+      Set<ByteBuffer> updatedSectorIDs = importBlockListCollection(blackListFile);
       log.info("Successfully finished requestBlackList for {} terminals", updatedSectorIDs.size());
       SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.BLACKLIST_TRAP_LAST_RENEWAL_STATUS, SNMPConstants.LIST_RENEWED);
       return updatedSectorIDs;
@@ -428,7 +440,7 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
       throw new GovManagementException(GlobalManagementCodes.EC_UNEXPECTED_ERROR, e.getMessage());
     }
 
-    Optional<BlockListHolder> optionalEntries = getBlockListInformation(blackList, cvc.getSectorPublicKeyHash());
+    Optional<BlockListHolder> optionalEntries = getBlockListInformation(blackListFile, cvc.getSectorPublicKeyHash());
 
     if (optionalEntries.isEmpty())
     {
@@ -464,18 +476,129 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
     return result;
   }
 
-  private BlackListContent downloadBlackList(BlackListResult blResult) throws GovManagementException
+  private GovManagementException blackListProcessingError(Exception e)
+  {
+    log.warn("Could not read block list file.", e);
+    SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.BLACKLIST_TRAP_LAST_RENEWAL_STATUS,
+                                SNMPConstants.LIST_PROCESSING_ERROR);
+    return new GovManagementException(GlobalManagementCodes.EC_UNEXPECTED_ERROR, e.getMessage());
+  }
+
+  /**
+   * Find the block list entries for the given sector in a full block list file. A list with only one sector is used
+   * regardless of its sector ID, so the entries of the first sector are held in memory in addition to those of the
+   * given sector.
+   */
+  private Optional<BlockListHolder> getBlockListInformation(Path blackListFile, byte[] sectorPublicKeyHash)
+    throws GovManagementException
+  {
+    AtomicInteger sectorCount = new AtomicInteger();
+    // the first sector is kept in case it is the only one
+    FullBlackList blackList = verifyAndReadBlackList(blackListFile,
+                                                     sectorID -> sectorCount.incrementAndGet() == 1
+                                                                 || MessageDigest.isEqual(sectorID,
+                                                                                          sectorPublicKeyHash));
+    return blackList.details()
+                    .stream()
+                    .filter(d -> sectorCount.get() == 1 || MessageDigest.isEqual(d.getSectorID(), sectorPublicKeyHash))
+                    .map(d -> new BlockListHolder(blackList.listId(), d.getSectorID(), d.getSectorSpecificIDs(),
+                                                  blackList.finalEntries()))
+                    .findAny();
+  }
+
+  /**
+   * Check the signature of a full block list file and read the entries of the sectors accepted by the filter while the
+   * signed content is read for the signature check. The file is read only once. The entries of all accepted sectors
+   * are kept in memory until the signature is valid because nothing may be stored before that.
+   */
+  private FullBlackList verifyAndReadBlackList(Path blackListFile, Predicate<byte[]> sectorFilter)
+    throws GovManagementException
+  {
+    X509Certificate blackListTrustAnchor = configurationService.getCertificate(dvcaConfiguration.getBlackListTrustAnchorCertificateName());
+    List<FullBlackList> result = new ArrayList<>(1);
+    try
+    {
+      new CmsSignatureChecker(blackListTrustAnchor).checkEnvelopedSignature(blackListFile, (contentTypeOID, content) -> {
+        if (!OIDConstants.OID_BLOCKLIST.getOIDString().equals(contentTypeOID))
+        {
+          throw new IOException("Found no match for list object identifier: "
+                                + OIDConstants.OID_BLOCKLIST.getOIDString());
+        }
+        BlackListReader reader = new BlackListReader(content);
+        List<BlackListDetails> details = new ArrayList<>();
+        for ( BlackListDetails d = reader.readDetails(sectorFilter) ; d != null ; d = reader.readDetails(sectorFilter) )
+        {
+          details.add(d);
+        }
+        result.add(new FullBlackList(new BigInteger(reader.getListID()).longValueExact(), reader.getFinalEntries(),
+                                     details));
+      });
+    }
+    catch (SignatureException | CMSException e)
+    {
+      log.debug("Signature check on block list not successful", e);
+      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.BLACKLIST_TRAP_LAST_RENEWAL_STATUS,
+                                  SNMPConstants.LIST_SIGNATURE_CHECK_FAILED);
+      throw new GovManagementException(GlobalManagementCodes.EC_UNEXPECTED_ERROR,
+                                       "signature check of block list failed");
+    }
+    catch (IOException | ArithmeticException e)
+    {
+      throw blackListProcessingError(e);
+    }
+    return result.get(0);
+  }
+
+  /**
+   * The entries of the accepted sectors of a full block list
+   */
+  private record FullBlackList(long listId, Integer finalEntries, List<BlackListDetails> details)
+  {}
+
+  /**
+   * Download the full block list to a temporary file. The caller must delete the file.
+   */
+  private Path downloadBlackList(BlackListResult blResult) throws GovManagementException
   {
-    BlackListContent blackList;
+    Path blackListFile;
+    try
+    {
+      blackListFile = Files.createTempFile("blocklist-", ".cms");
+    }
+    catch (IOException e)
+    {
+      log.error("{}: cannot create temporary file for block list download", cvcRefId, e);
+      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.BLACKLIST_TRAP_LAST_RENEWAL_STATUS,
+                                  SNMPConstants.LIST_NOT_RECEIVED);
+      throw new GovManagementException(GlobalManagementCodes.INTERNAL_ERROR);
+    }
+
+    boolean downloaded = false;
     try
     {
-      PKIServiceConnector.getContextLock();
+      downloadBlackList(blResult, blackListFile);
+      downloaded = true;
+      return blackListFile;
+    }
+    finally
+    {
+      if (!downloaded)
+      {
+        deleteBlackListFile(blackListFile);
+      }
+    }
+  }
+
+  private void downloadBlackList(BlackListResult blResult, Path blackListFile) throws GovManagementException
+  {
+    try (ContextLock lock = PKIServiceConnector.getContextLock(serviceProvider.getDvcaConfigurationName()))
+    {
       log.debug("{}: block list file download started", cvcRefId);
       PKIServiceConnector connector = dvcaServiceFactory.getPkiServiceConnector(serviceProvider,
                                                                                 hsmKeyStore,
                                                                                 configurationService.getDvcaConfiguration(serviceProvider),
                                                                                 180);
-      blackList = new BlackListContent(connector.getFile(blResult.getUri()));
+      connector.downloadFile(blResult.getUri(), blackListFile);
     }
     catch (SocketException e)
     {
@@ -497,18 +620,20 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
     }
     finally
     {
-      PKIServiceConnector.releaseContextLock();
       log.debug("{}: block list file download finished", cvcRefId);
     }
-    X509Certificate blackListTrustAnchor = configurationService.getCertificate(dvcaConfiguration.getBlackListTrustAnchorCertificateName());
-    if (!checkBlacklistsSignature(blackList.getContent(), blackListTrustAnchor))
+  }
+
+  private void deleteBlackListFile(Path blackListFile)
+  {
+    try
     {
-      SNMPTrapSender.sendSNMPTrap(SNMPConstants.TrapOID.BLACKLIST_TRAP_LAST_RENEWAL_STATUS,
-                                  SNMPConstants.LIST_SIGNATURE_CHECK_FAILED);
-      throw new GovManagementException(GlobalManagementCodes.EC_UNEXPECTED_ERROR,
-                                       "signature check of block list failed");
+      Files.deleteIfExists(blackListFile);
+    }
+    catch (IOException e)
+    {
+      log.warn("Could not delete temporary block list file {}", blackListFile, e);
     }
-    return blackList;
   }
 
   /**
@@ -615,51 +740,72 @@ public class RestrictedIdHandler extends BerCaRequestHandlerBase
 
   /**
    * For a given collection of full block lists, process every single list where the sectorID matches one of the
-   * terminals.
+   * terminals. The file is verified and read in one pass, the entries of other sectors are skipped. The entries of all
+   * matching sectors are held in memory until the signature has been checked.
    *
-   * @param blockListCollection The collection of full block lists that should be imported
+   * @param blockListCollection The file containing the collection of full block lists that should be imported
    * @return A set containing the sectorIDs of the BlackListDetails that matched the refIDs
    */
-  private Set<ByteBuffer> importBlockListCollection(BlackListContent blockListCollection)
+  private Set<ByteBuffer> importBlockListCollection(Path blockListCollection) throws GovManagementException
   {
     Set<ByteBuffer> result = new HashSet<>();
+    Map<ByteBuffer, TerminalPermission> terminalPermissions = getTerminalPermissionsBySectorID(facade.getTerminalPermissionRefIDList());
+    Predicate<byte[]> sectorFilter = sectorID -> sectorID.length > 0
+                                                 && terminalPermissions.containsKey(ByteBuffer.wrap(sectorID));
+
     log.debug("{}: block list parsing for collection started", cvcRefId);
-    BlackList parsedBlacklist = new BlackList(blockListCollection.getContent());
+    FullBlackList blackList = verifyAndReadBlackList(blockListCollection, sectorFilter);
+    for ( BlackListDetails blacklistDetails : blackList.details() )
+    {
+      TerminalPermission tp = terminalPermissions.get(ByteBuffer.wrap(blacklistDetails.getSectorID()));
+      log.debug("{}: Writing block list from collection started", tp.getRefID());
+      try
+      {
+        blockListService.updateCompleteBlockList(tp,
+                                                 blackList.listId(),
+                                                 blacklistDetails.getSectorID(),
+                                                 blacklistDetails.getSectorSpecificIDs());
+        log.debug("Finished processBlacklistDetails");
+        log.debug("{}: Writing block list from collection into DB finished", tp.getRefID());
+        result.add(ByteBuffer.wrap(blacklistDetails.getSectorID()));
+      }
+      catch (BlockListStorageException e)
+      {
+        log.error("Could not renew block list for terminal %s".formatted(tp.getRefID()), e);
+      }
+    }
     log.debug("{}: block list parsing for collection finished", cvcRefId);
+    return result;
+  }
 
-    // allow gc
-    blockListCollection.clear();
-
-    List<String> allRefIDs = facade.getTerminalPermissionRefIDList();
-    long blackListId = new BigInteger(parsedBlacklist.getListID()).longValueExact();
-
-    parsedBlacklist.getBlacklistDetails().forEach(blacklistDetails -> {
-      if (blackListDetailsSectorIDAvailable(blacklistDetails))
+  /**
+   * Map the sectorIDs of all terminals with a CVC to the terminals. If terminals share a sectorID, the first one is
+   * used like in {@link #findSuitableTerminalPermission(byte[], List)}.
+   */
+  private Map<ByteBuffer, TerminalPermission> getTerminalPermissionsBySectorID(List<String> allRefIDs)
+  {
+    Map<ByteBuffer, TerminalPermission> result = new HashMap<>();
+    for ( String refID : allRefIDs )
+    {
+      TerminalPermission tp = facade.getTerminalPermission(refID);
+      byte[] cvcBytes = tp.getCvc();
+      if (cvcBytes == null)
       {
-        Optional<TerminalPermission> optTp = findSuitableTerminalPermission(blacklistDetails.getSectorID(), allRefIDs);
-        if (optTp.isEmpty())
-        {
-          return;
-        }
-
-        TerminalPermission tp = optTp.get();
-        log.debug("{}: Writing block list from collection started", tp.getRefID());
-        try
-        {
-          blockListService.updateCompleteBlockList(tp,
-                                                   blackListId,
-                                                   blacklistDetails.getSectorID(),
-                                                   blacklistDetails.getSectorSpecificIDs());
-          log.debug("Finished processBlacklistDetails");
-          log.debug("{}: Writing block list from collection into DB finished", tp.getRefID());
-          result.add(ByteBuffer.wrap(blacklistDetails.getSectorID()));
-        }
-        catch (BlockListStorageException e)
+        continue;
+      }
+      try
+      {
+        byte[] sectorID = new ECCVCertificate(cvcBytes).getSectorPublicKeyHash();
+        if (sectorID != null)
         {
-          log.error("Could not renew block list for terminal %s".formatted(tp.getRefID()), e);
+          result.putIfAbsent(ByteBuffer.wrap(sectorID), tp);
         }
       }
-    });
+      catch (IOException e)
+      {
+        log.warn(UNABLE_TO_PARSE_GIVEN_CVC + " for terminal " + tp.getRefID(), e);
+      }
+    }
     return result;
   }
 
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.pki;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.governikus.eumw.config.ServiceProviderType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs the renewal of the CVCs, master and defect lists and block lists for several service providers in parallel.
+ * The number of parallel renewals is limited by the property <code>renewal.parallel-service-providers</code>, the
+ * connections to one DVCA are additionally limited by the
+ * {@link de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector}.
+ * <p>
+ * A failure of the renewal for one service provider does not affect the others. The results are collected per service
+ * provider and returned in the order of the given service providers, so that the timer history is the same as with a
+ * sequential renewal.
+ */
+@Component
+@Slf4j
+public class ServiceProviderRenewalExecutor
+{
+
+  /**
+   * The renewal for one service provider
+   */
+  @FunctionalInterface
+  public interface ProviderRenewal
+  {
+
+    /**
+     * Renew the data of the service provider.
+     *
+     * @param provider the service provider
+     * @param result to add the outcome of the renewal to
+     * @throws Exception if the renewal failed unexpectedly, this is added as failure for this service provider
+     */
+    void renew(ServiceProviderType provider, RenewalResult result) throws Exception;
+  }
+
+  /**
+   * The outcome of a renewal for one or more service providers
+   */
+  @Getter
+  public static final class RenewalResult
+  {
+
+    private final List<String> succeeded = new ArrayList<>();
+
+    private final List<String> failed = new ArrayList<>();
+
+    private final List<String> renewalNotNeeded = new ArrayList<>();
+
+    private void addAll(RenewalResult other)
+    {
+      succeeded.addAll(other.succeeded);
+      failed.addAll(other.failed);
+      renewalNotNeeded.addAll(other.renewalNotNeeded);
+    }
+
+    /**
+     * @return <code>true</code> if no service provider was processed
+     */
+    public boolean isEmpty()
+    {
+      return succeeded.isEmpty() && failed.isEmpty() && renewalNotNeeded.isEmpty();
+    }
+  }
+
+  @Getter
+  private final int parallelism;
+
+  private final ExecutorService executor;
+
+  public ServiceProviderRenewalExecutor(@Value("${renewal.parallel-service-providers:4}") int parallelism)
+  {
+    this.parallelism = Math.max(1, parallelism);
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "renewal-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Renew the data of all given service providers in parallel.
+   *
+   * @param renewalName the name of the renewal for logging
+   * @param providers the service providers
+   * @param renewal the renewal for one service provider
+   * @return the collected results of all service providers
+   */
+  public RenewalResult renew(String renewalName, List<ServiceProviderType> providers, ProviderRenewal renewal)
+  {
+    return renew(renewalName, providers, ServiceProviderType::getName, renewal);
+  }
+
+  /**
+   * Renew the data of all given service providers in parallel. Service providers with the same group key are renewed
+   * one after another in the given order, e.g. when the renewal for the first one also covers the others.
+   *
+   * @param renewalName the name of the renewal for logging
+   * @param providers the service providers
+   * @param groupKey the key of the group of a service provider
+   * @param renewal the renewal for one service provider
+   * @return the collected results of all service providers
+   */
+  public RenewalResult renew(String renewalName,
+                             List<ServiceProviderType> providers,
+                             Function<ServiceProviderType, String> groupKey,
+                             ProviderRenewal renewal)
+  {
+    long start = System.currentTimeMillis();
+    Map<String, List<ServiceProviderType>> groups = new LinkedHashMap<>();
+    providers.forEach(provider -> groups.computeIfAbsent(String.valueOf(groupKey.apply(provider)),
+                                                         key -> new ArrayList<>())
+                                        .add(provider));
+    log.debug("Starting {} for {} service providers in {} groups", renewalName, providers.size(), groups.size());
+
+    List<Future<RenewalResult>> futures = new ArrayList<>();
+    groups.values().forEach(group -> futures.add(executor.submit(() -> renewGroup(renewalName, group, renewal))));
+
+    RenewalResult result = new RenewalResult();
+    int groupIndex = 0;
+    for ( List<ServiceProviderType> group : groups.values() )
+    {
+      result.addAll(await(renewalName, group, futures.get(groupIndex++)));
+    }
+    log.info("Finished {} for {} service providers in {} ms",
+             renewalName,
+             providers.size(),
+             System.currentTimeMillis() - start);
+    return result;
+  }
+
+  private static RenewalResult renewGroup(String renewalName,
+                                          List<ServiceProviderType> group,
+                                          ProviderRenewal renewal)
+  {
+    RenewalResult result = new RenewalResult();
+    for ( ServiceProviderType provider : group )
+    {
+      try
+      {
+        renewal.renew(provider, result);
+      }
+      catch (Exception e)
+      {
+        result.failed.add("%s: unexpected error during %s: %s".formatted(provider.getName(),
+                                                                          renewalName,
+                                                                          e.getMessage()));
+        log.error("{}: unexpected error during {}", provider.getName(), renewalName, e);
+      }
+    }
+    return result;
+  }
+
+  private static RenewalResult await(String renewalName,
+                                     List<ServiceProviderType> group,
+                                     Future<RenewalResult> future)
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return failedGroup(renewalName, group, "interrupted");
+    }
+    catch (ExecutionException | CancellationException e)
+    {
+      log.error("Unexpected error during {}", renewalName, e);
+      return failedGroup(renewalName, group, e.getMessage());
+    }
+  }
+
+  private static RenewalResult failedGroup(String renewalName, List<ServiceProviderType> group, String message)
+  {
+    RenewalResult result = new RenewalResult();
+    group.forEach(provider -> result.failed.add("%s: %s not finished: %s".formatted(provider.getName(),
+                                                                                     renewalName,
+                                                                                     message)));
+    return result;
+  }
+
+  @PreDestroy
+  void shutdown()
+  {
+    executor.shutdownNow();
+  }
+}
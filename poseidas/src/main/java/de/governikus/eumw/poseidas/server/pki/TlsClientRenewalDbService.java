@@ -37,6 +37,7 @@ import de.governikus.eumw.poseidas.cardserver.CertificateUtil;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationException;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.idprovider.config.KeyPair;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.TermAuthServiceBean;
 import de.governikus.eumw.poseidas.server.pki.repositories.PendingCsrRepository;
 import de.governikus.eumw.utils.key.KeyStoreSupporter;
@@ -112,6 +113,8 @@ public class TlsClientRenewalDbService extends TlsClientRenewalService
         newSp.setClientKeyPairName(newSp.getPendingClientKeyPairName());
       }
       succeeded.add(sp.getName());
+      // the cached SSL contexts still use the old key
+      PKIServiceConnector.invalidateConnectionContexts();
       return Optional.empty();
     }
     finally
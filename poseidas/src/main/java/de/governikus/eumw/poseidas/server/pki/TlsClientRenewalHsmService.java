@@ -36,6 +36,7 @@ import de.governikus.eumw.poseidas.cardserver.service.hsm.HSMServiceFactory;
 import de.governikus.eumw.poseidas.cardserver.service.hsm.impl.HSMException;
 import de.governikus.eumw.poseidas.cardserver.service.hsm.impl.HSMService;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.TermAuthServiceBean;
 import de.governikus.eumw.poseidas.server.pki.repositories.PendingCsrRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -99,6 +100,8 @@ public class TlsClientRenewalHsmService extends TlsClientRenewalService
       }
       hsmStore.setKeyEntry(defaultName, hsmStore.getKey(usedName, null), null, new Certificate[]{foundCert.get()});
       succeeded.add(sp.getName());
+      // the cached SSL contexts still use the old key
+      PKIServiceConnector.invalidateConnectionContexts();
       return Optional.empty();
     }
     catch (Exception e)
@@ -118,6 +121,8 @@ public class TlsClientRenewalHsmService extends TlsClientRenewalService
       {
         log.warn(LOG_MESSAGE_DEFAULT_FORMAT, sp.getName(), "Unable to delete pending certificate");
       }
+      // the keys were changed in the key store directly
+      hsm.invalidateKeyCache();
     }
   }
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.server.pki;
+
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import de.governikus.eumw.poseidas.cardserver.CertificateUtil;
+
+
+/**
+ * Immutable set of trust anchor certificates, indexed by subject key identifier and subject DN so that the issuer of a
+ * certificate is found without looking at every trust anchor. Instances can be shared between threads.
+ */
+public final class TrustAnchors
+{
+
+  /**
+   * Upper bound for the number of remembered validated certificates, the cache is cleared if it is reached
+   */
+  private static final int MAX_VALIDATED_CERTIFICATES = 1000;
+
+  private final Set<X509Certificate> certificates;
+
+  /**
+   * Certificates whose signature has been verified with one of these trust anchors, keyed by their encoding. As the
+   * trust anchors do not change, the result stays valid. Revocation is not covered and must be checked on every use.
+   */
+  private final Map<ByteBuffer, ValidatedCertificate> validatedCertificates = new ConcurrentHashMap<>();
+
+  private final Map<String, List<X509Certificate>> bySubjectKeyIdentifier = new HashMap<>();
+
+  private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+
+  /**
+   * @param certificates the trust anchor certificates, <code>null</code> not permitted
+   */
+  public TrustAnchors(Collection<X509Certificate> certificates)
+  {
+    this.certificates = Collections.unmodifiableSet(new LinkedHashSet<>(Objects.requireNonNull(certificates)));
+    for ( X509Certificate certificate : this.certificates )
+    {
+      byte[] subjectKeyIdentifier = CertificateUtil.getSubjectKeyIdentifier(certificate);
+      if (subjectKeyIdentifier != null)
+      {
+        bySubjectKeyIdentifier.computeIfAbsent(Hex.hexify(subjectKeyIdentifier), k -> new ArrayList<>(1))
+                              .add(certificate);
+      }
+      bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), k -> new ArrayList<>(1)).add(certificate);
+    }
+  }
+
+  /**
+   * @return all trust anchor certificates
+   */
+  public Set<X509Certificate> getCertificates()
+  {
+    return certificates;
+  }
+
+  public int size()
+  {
+    return certificates.size();
+  }
+
+  /**
+   * @return <code>true</code> if the given certificate is a trust anchor itself
+   */
+  public boolean contains(X509Certificate certificate)
+  {
+    return certificates.contains(certificate);
+  }
+
+  /**
+   * Find a trust anchor that could have issued the given certificate. The authority key identifier of the certificate
+   * is used first, if it does not match any trust anchor, the issuer DN is used.
+   *
+   * @param certificate the certificate to find the issuer for
+   * @return the candidate issuer, the signature of the certificate is not checked
+   */
+  public Optional<X509Certificate> findIssuer(X509Certificate certificate)
+  {
+    byte[] authorityKeyIdentifier = CertificateUtil.getAuthorityKeyIdentifier(certificate);
+    if (authorityKeyIdentifier != null)
+    {
+      List<X509Certificate> candidates = bySubjectKeyIdentifier.get(Hex.hexify(authorityKeyIdentifier));
+      if (candidates != null)
+      {
+        return Optional.of(candidates.get(0));
+      }
+    }
+    List<X509Certificate> candidates = bySubject.get(certificate.getIssuerX500Principal());
+    return candidates == null ? Optional.empty() : Optional.of(candidates.get(0));
+  }
+
+  /**
+   * @param encoded the encoding of a certificate
+   * @return the decoded certificate together with its issuer if it has already been validated against these trust
+   *         anchors, <code>null</code> otherwise
+   */
+  ValidatedCertificate getValidatedCertificate(byte[] encoded)
+  {
+    return validatedCertificates.get(ByteBuffer.wrap(encoded));
+  }
+
+  /**
+   * Remember that the signature of a certificate has been verified with the given trust anchor.
+   *
+   * @param encoded the encoding of the certificate
+   * @param certificate the decoded certificate
+   * @param issuer the trust anchor which issued the certificate, <code>null</code> if the certificate is a trust
+   *          anchor itself
+   */
+  void addValidatedCertificate(byte[] encoded, X509Certificate certificate, X509Certificate issuer)
+  {
+    if (validatedCertificates.size() >= MAX_VALIDATED_CERTIFICATES)
+    {
+      validatedCertificates.clear();
+    }
+    validatedCertificates.put(ByteBuffer.wrap(encoded.clone()), new ValidatedCertificate(certificate, issuer));
+  }
+
+  /**
+   * A certificate which was found to be issued by a trust anchor
+   */
+  record ValidatedCertificate(X509Certificate certificate, X509Certificate issuer)
+  {}
+}
@@ -1,23 +1,28 @@
 package de.governikus.eumw.poseidas.server.pki.blocklist;
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.annotation.PostConstruct;
 
@@ -25,9 +30,8 @@ import org.apache.commons.codec.binary.Base64;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup.WarmupTask;
 import de.governikus.eumw.poseidas.server.pki.entities.TerminalPermission;
 import de.governikus.eumw.poseidas.server.pki.repositories.TerminalPermissionRepository;
 import lombok.RequiredArgsConstructor;
@@ -36,6 +40,10 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * This service manages the storage, and handling of Block Lists
+ * <p>
+ * The Block List of a sector is an immutable {@link SortedBlockList}. Changes build a new list and replace the old one
+ * in a single step, so the lookups never lock and always see either the complete old or the complete new list. Only
+ * the changes are synchronized with each other.
  */
 @Service
 @RequiredArgsConstructor
@@ -50,14 +58,28 @@ public class BlockListService
 
   private final TerminalPermissionRepository terminalPermissionRepository;
 
-  private final Multimap<String, String> blockListStorage = HashMultimap.create();
+  private final StartupWarmup startupWarmup;
+
+  /**
+   * The Block Lists in memory, key is the base64 encoded sector ID. The values are only replaced, never modified.
+   */
+  private final Map<String, SortedBlockList> blockListStorage = new ConcurrentHashMap<>();
 
-  private final Set<String> cvcRefIdsWithList = new HashSet<>();
+  private final Set<String> cvcRefIdsWithList = ConcurrentHashMap.newKeySet();
 
   /**
-   * Initial loading of the Block Lists from file storage into memory.
+   * Start the initial loading of the Block Lists in the background. The service providers can be used as soon as their
+   * Block List is loaded, see {@link #hasBlockList(String)}.
    */
   @PostConstruct
+  void startInitialLoad()
+  {
+    startupWarmup.start(WarmupTask.BLOCK_LIST, this::initialLoad);
+  }
+
+  /**
+   * Initial loading of the Block Lists from file storage into memory.
+   */
   synchronized void initialLoad()
   {
     File storageFolder = new File(storageFolderName);
@@ -84,7 +106,8 @@ public class BlockListService
         cvcRefIdsWithList.remove(tp.getRefID());
       }
     }
-    log.debug("Finished loading Block List entries. Currently loaded entries: {}", blockListStorage.values().size());
+    log.debug("Finished loading Block List entries. Currently loaded entries: {}",
+              blockListStorage.values().stream().mapToLong(SortedBlockList::size).sum());
   }
 
   /**
@@ -93,7 +116,7 @@ public class BlockListService
    * @param cvcRefId CVCRefID of SP
    * @return <code>true</code> if blocklist available, <code>false</code> otherwise
    */
-  public synchronized boolean hasBlockList(String cvcRefId)
+  public boolean hasBlockList(String cvcRefId)
   {
     return cvcRefIdsWithList.contains(cvcRefId);
   }
@@ -106,7 +129,7 @@ public class BlockListService
    */
   public long count(byte[] sectorID)
   {
-    return blockListStorage.get(encodeSectorIdToBase64String(sectorID)).size();
+    return getBlockList(sectorID).size();
   }
 
   /**
@@ -118,8 +141,12 @@ public class BlockListService
    */
   public boolean isOnBlockList(byte[] sectorID, byte[] specificID)
   {
-    return blockListStorage.containsEntry(encodeSectorIdToBase64String(sectorID),
-                                          encodeSectorIdToBase64String(specificID));
+    return getBlockList(sectorID).contains(specificID);
+  }
+
+  private SortedBlockList getBlockList(byte[] sectorID)
+  {
+    return blockListStorage.getOrDefault(encodeSectorIdToBase64String(sectorID), SortedBlockList.EMPTY);
   }
 
   /**
@@ -137,8 +164,7 @@ public class BlockListService
                                                    List<byte[]> entries)
     throws BlockListStorageException
   {
-    List<String> entriesAsBase64List = entries.parallelStream().map(Base64::encodeBase64String).toList();
-    updateBlockList(terminalPermission, newBlockListID, entriesAsBase64List, newSectorID);
+    updateBlockList(terminalPermission, newBlockListID, SortedBlockList.of(entries), newSectorID);
   }
 
   /**
@@ -159,12 +185,8 @@ public class BlockListService
                                                 Integer expectedSize)
     throws BlockListStorageException, BlockListConsistencyException
   {
-    var newBlockList = new ArrayList<>(blockListStorage.get(encodeSectorIdToBase64String(terminalPermission.getSectorID())));
-
-    List<String> entriesToRemoveAsBase64 = entriesToRemove.parallelStream().map(Base64::encodeBase64String).toList();
-    List<String> entriesToAddAsBase64 = entriesToAdd.parallelStream().map(Base64::encodeBase64String).toList();
-    newBlockList.removeAll(entriesToRemoveAsBase64);
-    newBlockList.addAll(entriesToAddAsBase64);
+    SortedBlockList newBlockList = getBlockList(terminalPermission.getSectorID()).withChanges(entriesToAdd,
+                                                                                              entriesToRemove);
     if (expectedSize != null && expectedSize != newBlockList.size())
     {
       throw new BlockListConsistencyException();
@@ -181,7 +203,7 @@ public class BlockListService
    */
   public synchronized void removeBlockList(TerminalPermission terminalPermission) throws BlockListStorageException
   {
-    blockListStorage.removeAll(encodeSectorIdToBase64String(terminalPermission.getSectorID()));
+    blockListStorage.remove(encodeSectorIdToBase64String(terminalPermission.getSectorID()));
     var blockListFile = buildPathToBlockListFile(terminalPermission.getRefID(),
                                                  terminalPermission.getBlackListVersion());
     try
@@ -201,7 +223,7 @@ public class BlockListService
 
   private void updateBlockList(TerminalPermission terminalPermission,
                                Number blockListID,
-                               List<String> newBlockList,
+                               SortedBlockList newBlockList,
                                byte[] newSectorID)
     throws BlockListStorageException
   {
@@ -218,7 +240,7 @@ public class BlockListService
     writeTemporaryFile(terminalPermission.getRefID(), newBlockList, tmpBlockListFile);
 
     // Check temporary working file
-    validateWrittenFile(terminalPermission.getRefID(), tmpBlockListFile, newBlockList.size());
+    validateWrittenFile(terminalPermission.getRefID(), tmpBlockListFile, newBlockList);
 
     // Exchange files
     var newBlockListFileName = buildPathToBlockListFile(terminalPermission.getRefID(), blockListID);
@@ -234,7 +256,7 @@ public class BlockListService
     }
 
     // Finally update in memory storage
-    blockListStorage.replaceValues(encodeSectorIdToBase64String(newSectorID), newBlockList);
+    blockListStorage.put(encodeSectorIdToBase64String(newSectorID), newBlockList);
     cvcRefIdsWithList.add(terminalPermission.getRefID());
 
     byte[] oldSectorID = terminalPermission.getSectorID();
@@ -244,7 +266,7 @@ public class BlockListService
 
     if (!Arrays.equals(oldSectorID, newSectorID))
     {
-      blockListStorage.removeAll(encodeSectorIdToBase64String(oldSectorID));
+      blockListStorage.remove(encodeSectorIdToBase64String(oldSectorID));
     }
     if (oldBlockListVersion != blockListID.longValue())
     {
@@ -260,17 +282,28 @@ public class BlockListService
     }
   }
 
-  private void validateWrittenFile(String cvcRefId, Path blockListFile, int expectedEntries)
+  /**
+   * Checks the header and the size of the written file, so the entries do not have to be read again.
+   */
+  private void validateWrittenFile(String cvcRefId, Path blockListFile, SortedBlockList blockList)
     throws BlockListStorageException
   {
-    try (Stream<String> stream = Files.lines(blockListFile, StandardCharsets.UTF_8))
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(blockListFile)))
     {
-      long count = stream.count();
-      if (count != expectedEntries)
+      SortedBlockList.Header header = SortedBlockList.readHeader(inputStream);
+      if (header.size() != blockList.size())
       {
         throw new BlockListStorageException("Written Block List for sp with cvcRefId %s entries are incomplete.%nExpected entries: %s%nFound entries: %s".formatted(cvcRefId,
-                                                                                                                                                                    expectedEntries,
-                                                                                                                                                                    count));
+                                                                                                                                                                    blockList.size(),
+                                                                                                                                                                    header.size()));
+      }
+      long fileSize = Files.size(blockListFile);
+      if (!MessageDigest.isEqual(header.checksum(), blockList.getChecksum())
+          || fileSize != blockList.getEncodedLength())
+      {
+        throw new BlockListStorageException("Written Block List for sp with cvcRefId %s is corrupted.%nExpected size: %s%nFound size: %s".formatted(cvcRefId,
+                                                                                                                                                 blockList.getEncodedLength(),
+                                                                                                                                                 fileSize));
       }
     }
     catch (IOException e)
@@ -281,17 +314,13 @@ public class BlockListService
     }
   }
 
-  private void writeTemporaryFile(String cvcRefId, List<String> entries, Path tmpBlockListFile)
+  private void writeTemporaryFile(String cvcRefId, SortedBlockList blockList, Path tmpBlockListFile)
     throws BlockListStorageException
   {
-    try (
-      BufferedWriter bufferedWriter = Files.newBufferedWriter(tmpBlockListFile,
-                                                              StandardCharsets.UTF_8,
-                                                              StandardOpenOption.CREATE);
-      var fileWriter = new PrintWriter(bufferedWriter))
+    try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tmpBlockListFile,
+                                                                                    StandardOpenOption.CREATE)))
     {
-      entries.parallelStream().forEach(fileWriter::println);
-      fileWriter.flush();
+      blockList.writeTo(outputStream);
     }
     catch (IOException e)
     {
@@ -318,12 +347,11 @@ public class BlockListService
   private long readBlockListFileIntoMemory(File blockListFile, TerminalPermission terminalPermission)
     throws BlockListStorageException
   {
-    try (Stream<String> lines = Files.lines(blockListFile.toPath()))
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(blockListFile.toPath())))
     {
-      var blockListEntries = lines.parallel().toList();
-      String sectorID = encodeSectorIdToBase64String(terminalPermission.getSectorID());
-      blockListStorage.replaceValues(sectorID, blockListEntries);
-      return blockListStorage.get(sectorID).size();
+      SortedBlockList blockList = readBlockList(inputStream);
+      blockListStorage.put(encodeSectorIdToBase64String(terminalPermission.getSectorID()), blockList);
+      return blockList.size();
     }
     catch (IOException e)
     {
@@ -332,6 +360,33 @@ public class BlockListService
     }
   }
 
+  /**
+   * Reads a Block List file in the binary format or, for files written by older versions, with one base64 encoded
+   * entry per line.
+   */
+  private static SortedBlockList readBlockList(InputStream inputStream) throws IOException
+  {
+    inputStream.mark(SortedBlockList.magicLength());
+    byte[] header = inputStream.readNBytes(SortedBlockList.magicLength());
+    inputStream.reset();
+    if (SortedBlockList.isBinaryFormat(header))
+    {
+      return SortedBlockList.readFrom(inputStream);
+    }
+
+    List<byte[]> entries = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null)
+    {
+      if (!line.isBlank())
+      {
+        entries.add(Base64.decodeBase64(line.strip()));
+      }
+    }
+    return SortedBlockList.of(entries);
+  }
+
   private File findBlockListFile(String cvcRefId, Long currentBlockListVersion) throws BlockListStorageException
   {
 
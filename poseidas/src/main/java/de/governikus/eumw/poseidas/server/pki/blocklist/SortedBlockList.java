@@ -0,0 +1,543 @@
+package de.governikus.eumw.poseidas.server.pki.blocklist;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+
+/**
+ * Immutable Block List of one sector. The specific IDs are kept as raw bytes in one sorted byte array per ID length, so
+ * an entry costs only its own length in memory and {@link #contains(byte[])} is a binary search. Usually all IDs of a
+ * sector have the same length, so there is only one such array.
+ * <p>
+ * The binary file format is:
+ *
+ * <pre>
+ * magic "EUMWBL" | format version (1 byte) | number of IDs (int) | SHA-256 checksum of the rest (32 bytes)
+ * number of lengths (int)
+ * for each length: ID length (int) | number of IDs (int) | IDs in ascending unsigned order
+ * </pre>
+ */
+public final class SortedBlockList
+{
+
+  /**
+   * The list without entries
+   */
+  public static final SortedBlockList EMPTY = new SortedBlockList(new int[0], new int[0], new byte[0][]);
+
+  private static final byte[] MAGIC = "EUMWBL".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+  private static final int CHECKSUM_LENGTH = 32;
+
+  /**
+   * The ID length of each segment, ascending
+   */
+  private final int[] entryLengths;
+
+  /**
+   * The number of IDs in each segment
+   */
+  private final int[] entryCounts;
+
+  /**
+   * The sorted IDs of each segment, concatenated
+   */
+  private final byte[][] segments;
+
+  private final int size;
+
+  /**
+   * Calculated when first needed
+   */
+  private volatile byte[] checksum;
+
+  private SortedBlockList(int[] entryLengths, int[] entryCounts, byte[][] segments)
+  {
+    this.entryLengths = entryLengths;
+    this.entryCounts = entryCounts;
+    this.segments = segments;
+    this.size = Arrays.stream(entryCounts).sum();
+  }
+
+  /**
+   * Create a Block List from the given IDs. Duplicates are removed.
+   *
+   * @param entries the specific IDs, not modified
+   * @return the Block List
+   */
+  public static SortedBlockList of(Collection<byte[]> entries)
+  {
+    if (entries.isEmpty())
+    {
+      return EMPTY;
+    }
+    Map<Integer, List<byte[]>> entriesByLength = new TreeMap<>();
+    for ( byte[] entry : entries )
+    {
+      entriesByLength.computeIfAbsent(entry.length, k -> new ArrayList<>()).add(entry);
+    }
+    int[] entryLengths = new int[entriesByLength.size()];
+    int[] entryCounts = new int[entriesByLength.size()];
+    byte[][] segments = new byte[entriesByLength.size()][];
+    int segment = 0;
+    for ( Map.Entry<Integer, List<byte[]>> sameLength : entriesByLength.entrySet() )
+    {
+      int entryLength = sameLength.getKey();
+      List<byte[]> sorted = sameLength.getValue();
+      sorted.sort(Arrays::compareUnsigned);
+      byte[] data = new byte[sorted.size() * entryLength];
+      int count = 0;
+      byte[] previous = null;
+      for ( byte[] entry : sorted )
+      {
+        if (previous == null || !Arrays.equals(previous, entry))
+        {
+          System.arraycopy(entry, 0, data, count * entryLength, entryLength);
+          count++;
+          previous = entry;
+        }
+      }
+      entryLengths[segment] = entryLength;
+      entryCounts[segment] = count;
+      segments[segment] = count * entryLength == data.length ? data : Arrays.copyOf(data, count * entryLength);
+      segment++;
+    }
+    return new SortedBlockList(entryLengths, entryCounts, segments);
+  }
+
+  /**
+   * Create a new Block List with the changes of a delta Block List applied. An ID that is both added and removed is on
+   * the new list. The IDs of this list are merged with the sorted changes, so the effort is linear in the size of this
+   * list.
+   *
+   * @param entriesToAdd the IDs to add, not modified
+   * @param entriesToRemove the IDs to remove, not modified
+   * @return the new Block List
+   */
+  public SortedBlockList withChanges(Collection<byte[]> entriesToAdd, Collection<byte[]> entriesToRemove)
+  {
+    SortedBlockList additions = of(entriesToAdd);
+    SortedBlockList removals = of(entriesToRemove);
+    int[] lengths = IntStream.concat(Arrays.stream(entryLengths), Arrays.stream(additions.entryLengths))
+                             .distinct()
+                             .sorted()
+                             .toArray();
+    List<Integer> newEntryLengths = new ArrayList<>();
+    List<Integer> newEntryCounts = new ArrayList<>();
+    List<byte[]> newSegments = new ArrayList<>();
+    for ( int entryLength : lengths )
+    {
+      int current = segmentIndex(entryLength);
+      int added = additions.segmentIndex(entryLength);
+      int removed = removals.segmentIndex(entryLength);
+      byte[] data = new byte[Math.toIntExact((long)(entryCount(current) + additions.entryCount(added)) * entryLength)];
+      int count = merge(entryLength,
+                        current < 0 ? null : segments[current],
+                        entryCount(current),
+                        added < 0 ? null : additions.segments[added],
+                        additions.entryCount(added),
+                        removed < 0 ? null : removals.segments[removed],
+                        removals.entryCount(removed),
+                        data);
+      if (count > 0)
+      {
+        newEntryLengths.add(entryLength);
+        newEntryCounts.add(count);
+        newSegments.add(count * entryLength == data.length ? data : Arrays.copyOf(data, count * entryLength));
+      }
+    }
+    return new SortedBlockList(newEntryLengths.stream().mapToInt(Integer::intValue).toArray(),
+                               newEntryCounts.stream().mapToInt(Integer::intValue).toArray(),
+                               newSegments.toArray(new byte[0][]));
+  }
+
+  /**
+   * Merge the sorted current IDs and the sorted additions into the target, skipping current IDs that are in the sorted
+   * removals.
+   *
+   * @return the number of IDs written to the target
+   */
+  private static int merge(int entryLength,
+                           byte[] current,
+                           int currentCount,
+                           byte[] additions,
+                           int additionCount,
+                           byte[] removals,
+                           int removalCount,
+                           byte[] target)
+  {
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    int count = 0;
+    while (i < currentCount || j < additionCount)
+    {
+      int comparison;
+      if (i == currentCount)
+      {
+        comparison = 1;
+      }
+      else if (j == additionCount)
+      {
+        comparison = -1;
+      }
+      else
+      {
+        comparison = compare(current, i, additions, j, entryLength);
+      }
+
+      if (comparison >= 0)
+      {
+        System.arraycopy(additions, j * entryLength, target, count * entryLength, entryLength);
+        count++;
+        j++;
+        if (comparison == 0)
+        {
+          i++;
+        }
+        continue;
+      }
+
+      while (k < removalCount && compare(removals, k, current, i, entryLength) < 0)
+      {
+        k++;
+      }
+      if (k == removalCount || compare(removals, k, current, i, entryLength) != 0)
+      {
+        System.arraycopy(current, i * entryLength, target, count * entryLength, entryLength);
+        count++;
+      }
+      i++;
+    }
+    return count;
+  }
+
+  private static int compare(byte[] first, int firstIndex, byte[] second, int secondIndex, int entryLength)
+  {
+    return Arrays.compareUnsigned(first,
+                                  firstIndex * entryLength,
+                                  (firstIndex + 1) * entryLength,
+                                  second,
+                                  secondIndex * entryLength,
+                                  (secondIndex + 1) * entryLength);
+  }
+
+  private int segmentIndex(int entryLength)
+  {
+    for ( int segment = 0 ; segment < entryLengths.length ; segment++ )
+    {
+      if (entryLengths[segment] == entryLength)
+      {
+        return segment;
+      }
+    }
+    return -1;
+  }
+
+  private int entryCount(int segment)
+  {
+    return segment < 0 ? 0 : entryCounts[segment];
+  }
+
+  /**
+   * @param specificID the specific ID to check
+   * @return <code>true</code> if the ID is on this Block List
+   */
+  public boolean contains(byte[] specificID)
+  {
+    int segment = segmentIndex(specificID.length);
+    return segment >= 0 && indexOf(segment, specificID) >= 0;
+  }
+
+  private int indexOf(int segment, byte[] specificID)
+  {
+    byte[] data = segments[segment];
+    int entryLength = entryLengths[segment];
+    int low = 0;
+    int high = entryCounts[segment] - 1;
+    while (low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      int offset = middle * entryLength;
+      int comparison = Arrays.compareUnsigned(data, offset, offset + entryLength, specificID, 0, entryLength);
+      if (comparison < 0)
+      {
+        low = middle + 1;
+      }
+      else if (comparison > 0)
+      {
+        high = middle - 1;
+      }
+      else
+      {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the number of IDs on this Block List
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the number of bytes used for the IDs
+   */
+  long getDataSize()
+  {
+    return Arrays.stream(segments).mapToLong(segment -> segment.length).sum();
+  }
+
+  /**
+   * Pass a copy of every ID to the consumer, ordered by length and then ascending.
+   *
+   * @param consumer receives the IDs
+   */
+  public void forEach(Consumer<byte[]> consumer)
+  {
+    for ( int segment = 0 ; segment < entryLengths.length ; segment++ )
+    {
+      int entryLength = entryLengths[segment];
+      for ( int i = 0 ; i < entryCounts[segment] ; i++ )
+      {
+        consumer.accept(Arrays.copyOfRange(segments[segment], i * entryLength, (i + 1) * entryLength));
+      }
+    }
+  }
+
+  /**
+   * @return a copy of every ID, ordered by length and then ascending
+   */
+  public List<byte[]> toList()
+  {
+    List<byte[]> result = new ArrayList<>(size);
+    forEach(result::add);
+    return result;
+  }
+
+  /**
+   * @return the SHA-256 checksum of the entries as stored in the binary file format
+   */
+  public byte[] getChecksum()
+  {
+    byte[] result = checksum;
+    if (result == null)
+    {
+      MessageDigest digest = createChecksumDigest();
+      try
+      {
+        writeSegments(new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest)));
+      }
+      catch (IOException e)
+      {
+        // cannot happen with the null output stream
+        throw new UncheckedIOException(e);
+      }
+      result = digest.digest();
+      checksum = result;
+    }
+    return result.clone();
+  }
+
+  /**
+   * @return the number of bytes written by {@link #writeTo(OutputStream)}
+   */
+  public long getEncodedLength()
+  {
+    long length = MAGIC.length + 1L + Integer.BYTES + CHECKSUM_LENGTH + Integer.BYTES;
+    for ( byte[] segment : segments )
+    {
+      length += 2L * Integer.BYTES + segment.length;
+    }
+    return length;
+  }
+
+  /**
+   * Write this Block List in the binary file format. The output only depends on the IDs, so equal lists always
+   * produce equal files.
+   *
+   * @param outputStream the stream to write to, not closed
+   * @throws IOException if writing fails
+   */
+  public void writeTo(OutputStream outputStream) throws IOException
+  {
+    DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+    dataOutputStream.write(MAGIC);
+    dataOutputStream.writeByte(FORMAT_VERSION);
+    dataOutputStream.writeInt(size);
+    dataOutputStream.write(getChecksum());
+    writeSegments(dataOutputStream);
+    dataOutputStream.flush();
+  }
+
+  private void writeSegments(DataOutputStream dataOutputStream) throws IOException
+  {
+    dataOutputStream.writeInt(entryLengths.length);
+    for ( int segment = 0 ; segment < entryLengths.length ; segment++ )
+    {
+      dataOutputStream.writeInt(entryLengths[segment]);
+      dataOutputStream.writeInt(entryCounts[segment]);
+      dataOutputStream.write(segments[segment]);
+    }
+  }
+
+  /**
+   * Check if the data starts like a Block List in the binary file format.
+   *
+   * @param header the first bytes of a file
+   * @return <code>true</code> if the file is in the binary format
+   */
+  public static boolean isBinaryFormat(byte[] header)
+  {
+    return header.length >= MAGIC.length && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+  }
+
+  /**
+   * @return the number of bytes needed to recognize the binary format with {@link #isBinaryFormat(byte[])}
+   */
+  public static int magicLength()
+  {
+    return MAGIC.length;
+  }
+
+  /**
+   * Read only the header of a Block List in the binary file format.
+   *
+   * @param inputStream the stream to read from, not closed
+   * @return the header
+   * @throws IOException if the data cannot be read or is not in a supported format
+   */
+  public static Header readHeader(InputStream inputStream) throws IOException
+  {
+    DataInputStream dataInputStream = new DataInputStream(inputStream);
+    byte[] magic = new byte[MAGIC.length];
+    dataInputStream.readFully(magic);
+    if (!isBinaryFormat(magic))
+    {
+      throw new IOException("Not a binary Block List");
+    }
+    int formatVersion = dataInputStream.readUnsignedByte();
+    if (formatVersion != FORMAT_VERSION)
+    {
+      throw new IOException("Unsupported Block List format version " + formatVersion);
+    }
+    int size = dataInputStream.readInt();
+    byte[] checksum = new byte[CHECKSUM_LENGTH];
+    dataInputStream.readFully(checksum);
+    return new Header(size, checksum);
+  }
+
+  /**
+   * Read a Block List in the binary file format and check it against the entry count and checksum of its header.
+   *
+   * @param inputStream the stream to read from, not closed
+   * @return the Block List
+   * @throws IOException if the data cannot be read, is not in a supported format or does not match the header
+   */
+  public static SortedBlockList readFrom(InputStream inputStream) throws IOException
+  {
+    Header header = readHeader(inputStream);
+    MessageDigest digest = createChecksumDigest();
+    DataInputStream dataInputStream = new DataInputStream(new DigestInputStream(inputStream, digest));
+    int segmentCount = dataInputStream.readInt();
+    if (segmentCount < 0)
+    {
+      throw new IOException("Invalid number of ID lengths " + segmentCount);
+    }
+    int[] entryLengths = new int[segmentCount];
+    int[] entryCounts = new int[segmentCount];
+    byte[][] segments = new byte[segmentCount][];
+    for ( int segment = 0 ; segment < segmentCount ; segment++ )
+    {
+      entryLengths[segment] = dataInputStream.readInt();
+      entryCounts[segment] = dataInputStream.readInt();
+      if (entryLengths[segment] <= 0 || entryCounts[segment] < 0
+          || (long)entryLengths[segment] * entryCounts[segment] > Integer.MAX_VALUE - 8
+          || segment > 0 && entryLengths[segment] <= entryLengths[segment - 1])
+      {
+        throw new IOException("Invalid Block List segment");
+      }
+      segments[segment] = new byte[entryLengths[segment] * entryCounts[segment]];
+      dataInputStream.readFully(segments[segment]);
+    }
+    if (!MessageDigest.isEqual(header.checksum(), digest.digest()))
+    {
+      throw new IOException("Block List checksum does not match");
+    }
+    SortedBlockList blockList = new SortedBlockList(entryLengths, entryCounts, segments);
+    if (blockList.size() != header.size())
+    {
+      throw new IOException("Block List contains %s entries instead of %s".formatted(blockList.size(),
+                                                                                    header.size()));
+    }
+    blockList.checkSorted();
+    blockList.checksum = header.checksum();
+    return blockList;
+  }
+
+  private static MessageDigest createChecksumDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException(CHECKSUM_ALGORITHM + " is not available", e);
+    }
+  }
+
+  /**
+   * Make sure that the IDs read from a file are strictly ascending, otherwise the binary search would fail.
+   */
+  private void checkSorted() throws IOException
+  {
+    for ( int segment = 0 ; segment < entryLengths.length ; segment++ )
+    {
+      byte[] data = segments[segment];
+      int entryLength = entryLengths[segment];
+      for ( int i = 1 ; i < entryCounts[segment] ; i++ )
+      {
+        int offset = i * entryLength;
+        if (Arrays.compareUnsigned(data, offset - entryLength, offset, data, offset, offset + entryLength) >= 0)
+        {
+          throw new IOException("Block List entries are not sorted");
+        }
+      }
+    }
+  }
+
+  /**
+   * The header of a Block List file
+   *
+   * @param size the number of IDs
+   * @param checksum the checksum of the IDs, see {@link SortedBlockList#getChecksum()}
+   */
+  public record Header(int size, byte[] checksum)
+  {}
+}
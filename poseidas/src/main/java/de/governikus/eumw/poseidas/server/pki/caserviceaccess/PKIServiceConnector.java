@@ -10,28 +10,42 @@
 package de.governikus.eumw.poseidas.server.pki.caserviceaccess;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.SecureRandom;
 import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509KeyManager;
@@ -46,17 +60,26 @@ import org.apache.cxf.endpoint.Client;
 import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.transport.http.HTTPConduit;
 import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.tomcat.util.net.Constants;
 import org.bouncycastle.jsse.util.SNISocketFactory;
 
 import de.governikus.eumw.eidascommon.Utils;
+import de.governikus.eumw.poseidas.cardbase.Hex;
 import de.governikus.eumw.poseidas.server.pki.caserviceaccess.logging.MessageLoggingInterceptor;
 import de.governikus.eumw.utils.key.SecurityProvider;
+import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 
 
@@ -101,9 +124,25 @@ public class PKIServiceConnector
 
   private static final String DVCA_MTLS_ALIAS = "dvca-mtls";
 
-  private static boolean sslContextLocked = false;
+  /**
+   * Maximum number of concurrent connections to one DVCA
+   */
+  static final int MAX_CONNECTIONS_PER_DVCA = 4;
+
+  private static final long CONTEXT_LOCK_MAX_WAIT_MINUTES = 2;
+
+  private static final Map<String, Semaphore> DVCA_CONNECTION_PERMITS = new ConcurrentHashMap<>();
+
+  /**
+   * Maximum time an idle pooled connection is kept
+   */
+  private static final long CONNECTION_TIME_TO_LIVE_MINUTES = 1;
 
-  private static long lockStealTime;
+  /**
+   * Cached SSL contexts and connection pools, key is the entity ID. Each context remembers the certificates it was
+   * built from and is replaced and closed when they change.
+   */
+  private static final Map<String, ConnectionContext> CONNECTION_CONTEXTS = new ConcurrentHashMap<>();
 
   private final X509Certificate sslServersCert;
 
@@ -215,45 +254,41 @@ public class PKIServiceConnector
   }
 
   /**
-   * Block as long as another thread uses the SSL context. After calling this method, a client can set its own static
-   * properties to the SSL context without breaking some other process.
+   * Block as long as the maximum number of connections to the given DVCA is in use. Each connector creates its own SSL
+   * context, so the communication with other DVCAs and other connections to the same DVCA up to the limit are not
+   * blocked. If no connection becomes free within two minutes, the communication fails.
+   *
+   * @param dvcaName name of the DVCA configuration
+   * @return the lock to be closed when the communication is finished
+   * @throws WebServiceException if no connection became free in time or the thread was interrupted
    */
-  public static synchronized void getContextLock()
+  public static ContextLock getContextLock(String dvcaName)
+  {
+    return getContextLock(dvcaName, CONTEXT_LOCK_MAX_WAIT_MINUTES, TimeUnit.MINUTES);
+  }
+
+  static ContextLock getContextLock(String dvcaName, long maxWait, TimeUnit unit)
   {
-    long now = System.currentTimeMillis();
-    while (sslContextLocked && now < lockStealTime)
+    Semaphore permits = DVCA_CONNECTION_PERMITS.computeIfAbsent(dvcaName,
+                                                                name -> new Semaphore(MAX_CONNECTIONS_PER_DVCA, true));
+    try
     {
-      try
+      if (!permits.tryAcquire(maxWait, unit))
       {
-        PKIServiceConnector.class.wait(lockStealTime - now);
+        LOG.error(dvcaName + ": no free connection to the DVCA after " + maxWait + " " + unit.name().toLowerCase()
+                  + ", not connecting");
+        throw new WebServiceException(dvcaName + ": no free connection to the DVCA");
       }
-      catch (InterruptedException e)
-      {
-        LOG.error("Thread was interrupted while waiting for the SSL context lock", e);
-        // Reinterrupt the current thread to make sure we are not ignoring the interrupt signal
-        Thread.currentThread().interrupt();
-      }
-      now = System.currentTimeMillis();
     }
-    if (sslContextLocked)
+    catch (InterruptedException e)
     {
-      LOG.error("stealing lock on SSL context: another thread did not release it after two minutes",
-                new Exception("this is only for printing the stack trace"));
+      LOG.error(dvcaName + ": Thread was interrupted while waiting for a connection to the DVCA", e);
+      // Reinterrupt the current thread to make sure we are not ignoring the interrupt signal
+      Thread.currentThread().interrupt();
+      throw new WebServiceException(dvcaName + ": interrupted while waiting for a connection to the DVCA", e);
     }
-    final long twoMinutesInMillis = 2 * 60 * 1000L;
-    lockStealTime = System.currentTimeMillis() + twoMinutesInMillis;
-    sslContextLocked = true;
-    SSL_LOGGER.debug("Starting communication");
-  }
-
-  /**
-   * Release the lock on the SSL context - other threads may now set their static properties
-   */
-  public static synchronized void releaseContextLock()
-  {
-    SSL_LOGGER.debug("Communication finished");
-    sslContextLocked = false;
-    PKIServiceConnector.class.notifyAll();
+    SSL_LOGGER.debug(dvcaName + ": Starting communication");
+    return new ContextLock(dvcaName, permits);
   }
 
   /**
@@ -265,25 +300,183 @@ public class PKIServiceConnector
    */
   public byte[] getFile(String uri) throws IOException
   {
-    CloseableHttpClient client;
+    ConnectionContext context = acquireConnectionContext();
+    try (CloseableHttpResponse response = context.getHttpClient().execute(new HttpGet(uri)))
+    {
+      return Utils.readBytesFromStream(response.getEntity().getContent());
+    }
+    finally
+    {
+      context.release();
+    }
+  }
+
+  /**
+   * Get a file via configured transport HTTP GET and write the content to the given path without holding it in
+   * memory.
+   *
+   * @param uri the location of the file
+   * @param target the file to write, replaced if it exists
+   * @throws IOException if the download fails or the server does not answer with status 200
+   */
+  public void downloadFile(String uri, Path target) throws IOException
+  {
+    ConnectionContext context = acquireConnectionContext();
+    try (CloseableHttpResponse response = context.getHttpClient().execute(new HttpGet(uri)))
+    {
+      int statusCode = response.getStatusLine().getStatusCode();
+      if (statusCode != HttpStatus.SC_OK)
+      {
+        throw new IOException("Download of " + uri + " failed with status " + statusCode);
+      }
+      try (InputStream content = response.getEntity().getContent())
+      {
+        Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally
+    {
+      context.release();
+    }
+  }
+
+  /**
+   * Get the cached SSL context and connection pool for the keys and the trusted server certificate of this connector,
+   * create them if not present. Reusing them saves the setup and allows TLS session resumption and keep-alive
+   * connections. A cached context of the same entity built from other certificates is replaced and closed.
+   */
+  private ConnectionContext getConnectionContext() throws IOException
+  {
     try
     {
-      SSLContext ctx = createSSLContext();
-      SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(ctx,
-                                                                                   new String[]{Constants.SSL_PROTO_TLSv1_2},
-                                                                                   ENABLED_CIPHER_SUITES,
-                                                                                   SSLConnectionSocketFactory.getDefaultHostnameVerifier());
-      client = HttpClients.custom().useSystemProperties().setSSLSocketFactory(sslSocketFactory).build();
+      String key = String.valueOf(entityID);
+      String identity = getConnectionContextIdentity();
+      ConnectionContext created = null;
+      while (true)
+      {
+        ConnectionContext context = CONNECTION_CONTEXTS.get(key);
+        if (context != null && context.identity.equals(identity))
+        {
+          return context;
+        }
+        if (created == null)
+        {
+          created = new ConnectionContext(identity, createSSLContext());
+        }
+        if (context == null ? CONNECTION_CONTEXTS.putIfAbsent(key, created) == null
+          : CONNECTION_CONTEXTS.replace(key, context, created))
+        {
+          if (context == null)
+          {
+            SSL_LOGGER.debug(entityID + ": Created new SSL context");
+          }
+          else
+          {
+            SSL_LOGGER.debug(entityID + ": Replaced SSL context for changed certificates");
+            context.close();
+          }
+          return created;
+        }
+      }
     }
-    catch (CertificateException | NoSuchAlgorithmException | UnrecoverableKeyException | KeyStoreException
-      | KeyManagementException | NoSuchProviderException e)
+    catch (GeneralSecurityException e)
     {
-      throw new IOException("Cannot create http client", e);
+      throw new IOException("Cannot create SSL context", e);
     }
-    try (CloseableHttpResponse response = client.execute(new HttpGet(uri)))
+  }
+
+  /**
+   * Get the connection context and register a request on it, so that it is not shut down before
+   * {@link ConnectionContext#release()} is called.
+   */
+  private ConnectionContext acquireConnectionContext() throws IOException
+  {
+    while (true)
     {
-      return Utils.readBytesFromStream(response.getEntity().getContent());
+      ConnectionContext context = getConnectionContext();
+      if (context.acquire())
+      {
+        return context;
+      }
+      // closed concurrently, the next call finds the replacement
+    }
+  }
+
+  /**
+   * For tests
+   */
+  SSLContext getCachedSSLContext() throws IOException
+  {
+    return getConnectionContext().sslContext;
+  }
+
+  /**
+   * For tests
+   */
+  PoolStats getConnectionPoolStats() throws IOException
+  {
+    ConnectionContext context = getConnectionContext();
+    context.getHttpClient();
+    return context.connectionManager.getTotalStats();
+  }
+
+  /**
+   * Identifies the certificates the SSL context is built from. Keys are not read, a renewed key comes with a new
+   * certificate, otherwise {@link #invalidateConnectionContexts()} must be called.
+   */
+  private String getConnectionContextIdentity() throws GeneralSecurityException
+  {
+    return (hsmMode ? "hsm:" : "file:") + fingerprint(getClientCertificate()) + ":" + fingerprint(sslServersCert);
+  }
+
+  private Certificate getClientCertificate() throws KeyStoreException
+  {
+    if (hsmMode)
+    {
+      // the AliasKeyManager uses only this one
+      return clientCertAndKey.getCertificate(entityID);
+    }
+    Certificate clientCert = clientCertAndKey.getCertificate(DVCA_MTLS_ALIAS);
+    if (clientCert != null)
+    {
+      return clientCert;
+    }
+    for ( String alias : Collections.list(clientCertAndKey.aliases()) )
+    {
+      if (clientCertAndKey.isKeyEntry(alias))
+      {
+        return clientCertAndKey.getCertificate(alias);
+      }
+    }
+    return null;
+  }
+
+  private static String fingerprint(Certificate cert) throws GeneralSecurityException
+  {
+    if (cert == null)
+    {
+      return "none";
+    }
+    return Hex.hexify(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()));
+  }
+
+  /**
+   * Remove and close all cached SSL contexts and connection pools. Must be called when the TLS client keys or the HSM
+   * login change. Requests currently in progress are finished before the connection pools are shut down.
+   */
+  public static void invalidateConnectionContexts()
+  {
+    List<ConnectionContext> removed = new ArrayList<>();
+    for ( String key : CONNECTION_CONTEXTS.keySet() )
+    {
+      ConnectionContext context = CONNECTION_CONTEXTS.remove(key);
+      if (context != null)
+      {
+        removed.add(context);
+      }
     }
+    removed.forEach(ConnectionContext::close);
+    SSL_LOGGER.debug("Removed " + removed.size() + " cached SSL contexts");
   }
 
   private SSLContext createSSLContext() throws NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException,
@@ -372,14 +565,15 @@ public class PKIServiceConnector
       policy.setReceiveTimeout(MILLISECOND_FACTOR * timeout);
       conduit.setClient(policy);
       TLSClientParameters tlsClientParameters = new TLSClientParameters();
-      SSLContext sslContext = createSSLContext();
       URI serverURI = new URI(uri);
       // CXF uses the SocketFactory from the TLSClientParamters for the HttpsURLConnection. The default
       // ProvSSLContextSpi does not use an SNI (Server Name Indication) for the connection. This can lead to problems if
       // the DVCA is running on a server on which several domains are accessible under the same IP address, but these
       // have different TLS certificates. This can lead to the server displaying the wrong TLS certificate. The
       // SNISocketFactory must be used for SNI to be used.
-      tlsClientParameters.setSSLSocketFactory(new SNISocketFactory(sslContext.getSocketFactory(), serverURI.toURL()));
+      // The socket factory is cached, because the HttpsURLConnection reuses keep-alive connections only for the same
+      // socket factory.
+      tlsClientParameters.setSSLSocketFactory(getConnectionContext().getSocketFactory(serverURI.toURL()));
       tlsClientParameters.setCipherSuites(Arrays.asList(ENABLED_CIPHER_SUITES));
       conduit.setTlsClientParameters(tlsClientParameters);
     }
@@ -391,14 +585,9 @@ public class PKIServiceConnector
       }
       throw e;
     }
-    catch (GeneralSecurityException e)
-    {
-      LOG.error(entityID + ": should not have happened because certs and keys were already parsed", e);
-      throw e;
-    }
     catch (IOException e)
     {
-      LOG.error(entityID + ": should not have happened because no I/O is done", e);
+      LOG.error(entityID + ": should not have happened because certs and keys were already parsed", e);
       throw e;
     }
   }
@@ -481,4 +670,160 @@ public class PKIServiceConnector
       return wrapped.getServerAliases(keyType, issuers);
     }
   }
+
+  /**
+   * Lock on a connection to a DVCA, see {@link PKIServiceConnector#getContextLock(String)}. Closing it more than once
+   * has no effect.
+   */
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class ContextLock implements AutoCloseable
+  {
+
+    private final String dvcaName;
+
+    private final Semaphore permits;
+
+    private boolean released;
+
+    /**
+     * Release the connection, other threads may now connect to the DVCA.
+     */
+    @Override
+    public synchronized void close()
+    {
+      if (released)
+      {
+        return;
+      }
+      released = true;
+      SSL_LOGGER.debug(dvcaName + ": Communication finished");
+      permits.release();
+    }
+  }
+
+  /**
+   * SSL context with the socket factories and the pooled http client built from it, shared by all connectors of the
+   * same entity with the same certificates. When closed, the pool is shut down as soon as no request is in progress.
+   */
+  private static final class ConnectionContext
+  {
+
+    /**
+     * The certificates the SSL context is built from
+     */
+    private final String identity;
+
+    private final SSLContext sslContext;
+
+    /**
+     * Socket factories with SNI, key is the address of the server
+     */
+    private final Map<String, SSLSocketFactory> socketFactories = new ConcurrentHashMap<>();
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    /**
+     * Number of requests in progress using the http client
+     */
+    private int requests;
+
+    private boolean closed;
+
+    ConnectionContext(String identity, SSLContext sslContext)
+    {
+      this.identity = identity;
+      this.sslContext = sslContext;
+    }
+
+    SSLSocketFactory getSocketFactory(URL serverURL)
+    {
+      return socketFactories.computeIfAbsent(serverURL.getProtocol() + "://" + serverURL.getAuthority(),
+                                             address -> new SNISocketFactory(sslContext.getSocketFactory(),
+                                                                             serverURL));
+    }
+
+    synchronized CloseableHttpClient getHttpClient()
+    {
+      if (httpClient == null)
+      {
+        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
+                                                                                     new String[]{Constants.SSL_PROTO_TLSv1_2},
+                                                                                     ENABLED_CIPHER_SUITES,
+                                                                                     SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+                                                                    .register("http",
+                                                                              PlainConnectionSocketFactory.getSocketFactory())
+                                                                    .register("https", sslSocketFactory)
+                                                                    .build();
+        connectionManager = new PoolingHttpClientConnectionManager(registry, null, null, null,
+                                                                   CONNECTION_TIME_TO_LIVE_MINUTES, TimeUnit.MINUTES);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_DVCA);
+        httpClient = HttpClients.custom().useSystemProperties().setConnectionManager(connectionManager).build();
+      }
+      return httpClient;
+    }
+
+    /**
+     * Register a request using the http client.
+     *
+     * @return <code>false</code> if this context is already closed and must not be used
+     */
+    synchronized boolean acquire()
+    {
+      if (closed)
+      {
+        return false;
+      }
+      requests++;
+      return true;
+    }
+
+    /**
+     * Unregister a request registered with {@link #acquire()}.
+     */
+    synchronized void release()
+    {
+      requests--;
+      if (closed && requests == 0)
+      {
+        shutdown();
+      }
+    }
+
+    /**
+     * Close the http client and shut down the connection pool as soon as no request is in progress. Connections
+     * created with the socket factories are not affected.
+     */
+    synchronized void close()
+    {
+      if (closed)
+      {
+        return;
+      }
+      closed = true;
+      if (requests == 0)
+      {
+        shutdown();
+      }
+    }
+
+    private void shutdown()
+    {
+      if (httpClient == null)
+      {
+        return;
+      }
+      try
+      {
+        httpClient.close();
+      }
+      catch (IOException e)
+      {
+        SSL_LOGGER.debug("Cannot close http client", e);
+      }
+      connectionManager.shutdown();
+    }
+  }
 }
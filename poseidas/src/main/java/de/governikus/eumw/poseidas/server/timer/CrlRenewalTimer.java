@@ -16,6 +16,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import jakarta.annotation.PreDestroy;
+
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.scheduling.Trigger;
 import org.springframework.stereotype.Component;
@@ -76,6 +78,12 @@ public class CrlRenewalTimer implements Runnable
     }
   }
 
+  @PreDestroy
+  void shutdown()
+  {
+    CertificationRevocationListImpl.shutdown();
+  }
+
   Trigger getCrlTrigger(List<Instant> nextExecutions)
   {
     return triggerContext -> {
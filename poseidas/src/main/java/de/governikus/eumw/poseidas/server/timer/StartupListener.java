@@ -1,22 +1,27 @@
 package de.governikus.eumw.poseidas.server.timer;
 
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.context.WebServerInitializedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import de.governikus.eumw.poseidas.cardserver.eac.protocol.EACServer;
 import de.governikus.eumw.poseidas.eidserver.crl.CertificationRevocationListImpl;
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
 import de.governikus.eumw.poseidas.server.idprovider.config.CvcTlsCheck;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup.WarmupFailedException;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup.WarmupTask;
 import de.governikus.eumw.poseidas.server.pki.PermissionDataHandling;
 import de.governikus.eumw.poseidas.server.pki.TerminalPermissionAO;
 import de.governikus.eumw.utils.key.exceptions.UnsupportedECCertificateException;
-import lombok.AllArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 
 
 @Component
-@AllArgsConstructor
-@Slf4j
+@RequiredArgsConstructor
 public class StartupListener
 {
 
@@ -28,29 +33,48 @@ public class StartupListener
 
   private final ConfigurationService configurationService;
 
+  private final StartupWarmup startupWarmup;
+
+  @Value("${crl.storage-folder:crl-data}")
+  private String crlStorageFolderName;
+
   @EventListener
   public void onApplicationEvent(WebServerInitializedEvent event)
   {
-    try
-    {
-      initCRL();
-      cvcTlsCheck.check();
-    }
-    catch (UnsupportedECCertificateException e)
-    {
-      log.error(e.getMessage());
-      System.exit(1);
-    }
-    catch (Exception e)
+    // the server accepts requests while these tasks are running, see StartupWarmup for the readiness
+    EACServer.prepareEphemeralKeyPairs();
+    startupWarmup.start(WarmupTask.CRL, this::initCRL);
+    startupWarmup.start(WarmupTask.MASTER_AND_DEFECT_LIST, this::renewMasterAndDefectList, WarmupTask.CRL);
+    // the check connects to the own server URL, so it cannot run before the server accepts requests
+    startupWarmup.start(WarmupTask.CVC_TLS_CHECK, this::checkCvcTls);
+  }
+
+  private void initCRL()
+  {
+    if (crlStorageFolderName != null && !crlStorageFolderName.isBlank())
     {
-      log.error("Error during startup. The eIDAS middleware application may not be ready to perform online authentications.",
-                e);
+      CertificationRevocationListImpl.setStorageFolder(Path.of(crlStorageFolderName));
     }
+    CertificationRevocationListImpl.tryInitialize(configurationService, facade);
   }
 
-  private void initCRL()
+  private void renewMasterAndDefectList()
   {
     permissionDataHandling.renewMasterAndDefectList();
+    // on the first start there is no stored master list to initialize the CRL with before the renewal
     CertificationRevocationListImpl.tryInitialize(configurationService, facade);
   }
+
+  private void checkCvcTls()
+  {
+    try
+    {
+      cvcTlsCheck.check();
+    }
+    catch (UnsupportedECCertificateException e)
+    {
+      // online authentications are rejected instead of shutting down the server while requests are served
+      throw new WarmupFailedException(e.getMessage(), e);
+    }
+  }
 }
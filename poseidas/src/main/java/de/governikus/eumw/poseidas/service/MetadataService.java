@@ -9,6 +9,9 @@
 
 package de.governikus.eumw.poseidas.service;
 
+import java.time.Instant;
+
+
 /**
  * The {@link MetadataService} interface provides one method to get metadata.
  */
@@ -23,4 +26,20 @@ public interface MetadataService
    */
   byte[] getMetadata();
 
+  /**
+   * Returns the metadata together with its creation time and entity tag. Implementations may return a cached document
+   * as long as it is still valid.
+   *
+   * @return the signed metadata or <code>null</code> if no metadata could be created
+   */
+  default SignedMetadata getSignedMetadata()
+  {
+    byte[] metadata = getMetadata();
+    if (metadata == null || metadata.length == 0)
+    {
+      return null;
+    }
+    return new SignedMetadata(metadata, Instant.now());
+  }
+
 }
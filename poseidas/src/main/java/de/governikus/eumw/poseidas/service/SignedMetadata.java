@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import lombok.Getter;
+
+
+/**
+ * A signed metadata document together with the information needed to answer conditional HTTP requests for it.
+ */
+@Getter
+public class SignedMetadata
+{
+
+  /**
+   * The signed metadata document
+   */
+  private final byte[] document;
+
+  /**
+   * The point in time the document was created, truncated to seconds as used in HTTP headers
+   */
+  private final Instant created;
+
+  /**
+   * Entity tag derived from the SHA-256 hash of the document
+   */
+  private final String etag;
+
+  public SignedMetadata(byte[] document, Instant created)
+  {
+    this.document = document;
+    this.created = created.truncatedTo(ChronoUnit.SECONDS);
+    this.etag = "\"" + hash(document) + "\"";
+  }
+
+  /**
+   * Returns the document as a string
+   */
+  public String getDocumentAsString()
+  {
+    return new String(document, StandardCharsets.UTF_8);
+  }
+
+  private static String hash(byte[] document)
+  {
+    try
+    {
+      return Hex.hexify(MessageDigest.getInstance("SHA-256").digest(document));
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException("SHA-256 not supported", e);
+    }
+  }
+}
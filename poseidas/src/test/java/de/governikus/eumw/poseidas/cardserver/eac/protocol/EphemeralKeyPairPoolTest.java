@@ -0,0 +1,148 @@
+package de.governikus.eumw.poseidas.cardserver.eac.protocol;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.interfaces.ECPrivateKey;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import de.governikus.eumw.poseidas.cardbase.asn1.npa.SecurityInfos;
+import de.governikus.eumw.poseidas.cardbase.asn1.npa.si.ChipAuthenticationDomainParameterInfo;
+import de.governikus.eumw.poseidas.cardbase.asn1.npa.si.DomainParameterInfo;
+import de.governikus.eumw.poseidas.cardbase.crypto.ec.ECUtil;
+import de.governikus.eumw.poseidas.cardbase.crypto.key.KeyHandler;
+import de.governikus.eumw.poseidas.cardserver.eac.crypto.impl.KeyHandlerEC;
+
+
+class EphemeralKeyPairPoolTest
+{
+
+  private static final byte[] EF_CARD_ACCESS = Hex.parse("3181c13012060a04007f0007020204020202010202010d300d060804007f00070202020201023012060a04007f00070202030202020102020129301c060904007f000702020302300c060704007f0007010202010d020129303e060804007f000702020831323012060a04007f0007020203020202010202012d301c060904007f000702020302300c060704007f0007010202010d02012d302a060804007f0007020206161e687474703a2f2f6273692e62756e642e64652f6369662f6e70612e786d6c");
+
+  private static final int POOL_SIZE = 4;
+
+  private ChipAuthenticationDomainParameterInfo params;
+
+  private KeyHandler keyHandler;
+
+  private int fieldSize;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    SecurityInfos efCardAccess = new SecurityInfos();
+    efCardAccess.decode(EF_CARD_ACCESS);
+    params = efCardAccess.getChipAuthenticationDomainParameterInfo().get(0);
+    fieldSize = ECUtil.parameterSpecFromDomainParameters(params).getCurve().getField().getFieldSize() / 8;
+    keyHandler = Mockito.spy(new KeyHandlerEC(fieldSize));
+  }
+
+  @Test
+  void testFallbackAndBackgroundFilling() throws Exception
+  {
+    EphemeralKeyPairPool pool = new EphemeralKeyPairPool(POOL_SIZE);
+
+    // nothing pre-generated yet
+    Assertions.assertNotNull(pool.take(params, keyHandler));
+    Mockito.verify(keyHandler, Mockito.times(1)).generateKeyPair(params);
+
+    awaitFilled(pool);
+    for ( int i = 0 ; i < POOL_SIZE ; i++ )
+    {
+      KeyPair keyPair = pool.take(params, keyHandler);
+      Assertions.assertEquals(ECUtil.parameterSpecFromDomainParameters(params).getOrder(),
+                              ((ECPrivateKey)keyPair.getPrivate()).getParams().getOrder());
+    }
+    // all taken from the pool
+    Mockito.verify(keyHandler, Mockito.times(1)).generateKeyPair(params);
+  }
+
+  @Test
+  void testKeyPairsAreUsedOnce() throws Exception
+  {
+    EphemeralKeyPairPool pool = new EphemeralKeyPairPool(POOL_SIZE);
+    pool.take(params, keyHandler);
+    awaitFilled(pool);
+
+    AtomicInteger generated = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<KeyPair>> futures = new ArrayList<>();
+      for ( int i = 0 ; i < 100 ; i++ )
+      {
+        // key handlers are not thread safe, each session has its own
+        futures.add(executor.submit(() -> pool.take(params, new KeyHandlerEC(fieldSize)
+        {
+
+          @Override
+          public KeyPair generateKeyPair(DomainParameterInfo domainParameters) throws IOException,
+            NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException
+          {
+            generated.incrementAndGet();
+            return super.generateKeyPair(domainParameters);
+          }
+        })));
+      }
+      Set<BigInteger> privateValues = new HashSet<>();
+      for ( Future<KeyPair> future : futures )
+      {
+        KeyPair keyPair = future.get(30, TimeUnit.SECONDS);
+        Assertions.assertTrue(privateValues.add(((ECPrivateKey)keyPair.getPrivate()).getS()));
+      }
+      Assertions.assertEquals(100, privateValues.size());
+      // at least the pre-generated key pairs were used
+      Assertions.assertTrue(generated.get() <= 100 - POOL_SIZE);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testWarmUp() throws Exception
+  {
+    EphemeralKeyPairPool pool = new EphemeralKeyPairPool(POOL_SIZE);
+    pool.warmUp(params);
+    awaitFilled(pool);
+
+    Assertions.assertNotNull(pool.take(params, keyHandler));
+    Mockito.verify(keyHandler, Mockito.never()).generateKeyPair(params);
+  }
+
+  @Test
+  void testDestroy()
+  {
+    // key implementations not supporting destroy are ignored
+    Assertions.assertDoesNotThrow(() -> EphemeralKeyPairPool.destroy(keyHandler.generateKeyPair(params)));
+    Assertions.assertDoesNotThrow(() -> EphemeralKeyPairPool.destroy(null));
+  }
+
+  private void awaitFilled(EphemeralKeyPairPool pool) throws Exception
+  {
+    long end = System.currentTimeMillis() + 30_000;
+    while (pool.available(params) < POOL_SIZE && System.currentTimeMillis() < end)
+    {
+      Thread.sleep(10);
+    }
+    Assertions.assertEquals(POOL_SIZE, pool.available(params));
+  }
+}
@@ -0,0 +1,115 @@
+package de.governikus.eumw.poseidas.cardserver.service.hsm.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.governikus.eumw.poseidas.cardbase.constants.OIDConstants;
+import de.governikus.eumw.utils.key.SecurityProvider;
+
+
+class BOSHSMSimulatorServiceTest
+{
+
+  private static final ECGenParameterSpec SPEC = new ECGenParameterSpec("brainpoolP256r1");
+
+  private static final byte[] DATA = "data".getBytes(StandardCharsets.UTF_8);
+
+  private final BOSHSMSimulatorService service = BOSHSMSimulatorService.getInstance();
+
+  @Test
+  void testConcurrentSignatures() throws Exception
+  {
+    String alias = "concurrent";
+    KeyPair keyPair = service.generateKeyPair("EC", SPEC, alias, null, true, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for ( int i = 0 ; i < 500 ; i++ )
+      {
+        results.add(executor.submit(() -> service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA)));
+      }
+      for ( Future<byte[]> result : results )
+      {
+        Assertions.assertTrue(verify(keyPair.getPublic(), result.get(30, TimeUnit.SECONDS)));
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+      service.deleteKey(alias);
+    }
+  }
+
+  @Test
+  void testReplacedKeyIsUsed() throws Exception
+  {
+    String alias = "replaced";
+    KeyPair first = service.generateKeyPair("EC", SPEC, alias, null, true, 0);
+    Assertions.assertTrue(verify(first.getPublic(), service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA)));
+
+    KeyPair second = service.generateKeyPair("EC", SPEC, alias, null, true, 0);
+    Assertions.assertTrue(verify(second.getPublic(), service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA)));
+
+    // keys can also be put into the key provider directly
+    KeyPair third = generateKeyPair();
+    LocalCertAndKeyProvider.getInstance().addKey(alias, third.getPrivate().getEncoded());
+    Assertions.assertTrue(verify(third.getPublic(), service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA)));
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> service.generateKeyPair("EC", SPEC, alias, null, false, 0));
+
+    service.deleteKey(alias);
+    Assertions.assertFalse(service.containsKey(alias));
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA));
+  }
+
+  @Test
+  void testSessionKeyIsEvicted() throws Exception
+  {
+    String alias = "session";
+    KeyPair keyPair = generateKeyPair();
+    LocalCertAndKeyProvider.getInstance().addSessionKey(alias, keyPair.getPrivate().getEncoded());
+    LocalCertAndKeyProvider.getInstance().addSessionKey(alias, keyPair.getPrivate().getEncoded());
+    Assertions.assertTrue(verify(keyPair.getPublic(), service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA)));
+    Assertions.assertTrue(service.isCached(alias));
+
+    // still used by the second session
+    LocalCertAndKeyProvider.getInstance().removeSessionKey(alias);
+    Assertions.assertTrue(service.isCached(alias));
+
+    LocalCertAndKeyProvider.getInstance().removeSessionKey(alias);
+    Assertions.assertFalse(service.isCached(alias));
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> service.sign(alias, OIDConstants.OID_TA_ECDSA_SHA_256, DATA));
+  }
+
+  private static boolean verify(PublicKey publicKey, byte[] signature) throws Exception
+  {
+    Signature verifier = Signature.getInstance("SHA256withCVC-ECDSA", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    verifier.initVerify(publicKey);
+    verifier.update(DATA);
+    return verifier.verify(signature);
+  }
+
+  private static KeyPair generateKeyPair() throws Exception
+  {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    kpg.initialize(SPEC);
+    return kpg.generateKeyPair();
+  }
+}
@@ -0,0 +1,302 @@
+package de.governikus.eumw.poseidas.cardserver.service.hsm.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.SignatureSpi;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import de.governikus.eumw.poseidas.cardbase.ByteUtil;
+import de.governikus.eumw.poseidas.cardbase.asn1.ASN1;
+import de.governikus.eumw.utils.key.SecurityProvider;
+
+
+/**
+ * Tests the {@link SigningKeyPool} under concurrent load, using a software key store as stand-in for the HSM.
+ */
+class SigningKeyPoolTest
+{
+
+  private static final String ALIAS = "cvc-ref-id";
+
+  private static final String ALGORITHM = "SHA256withECDSA";
+
+  private static final int MAX_SESSIONS = 3;
+
+  private static final AtomicInteger CURRENT_SIGNATURES = new AtomicInteger();
+
+  private static final AtomicInteger MAX_SIGNATURES = new AtomicInteger();
+
+  private KeyPair keyPair;
+
+  private KeyStore keyStore;
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    keyPair = generateKeyPair("brainpoolP256r1");
+    keyStore = mockKeyStore(keyPair);
+    executor = Executors.newFixedThreadPool(8);
+    CURRENT_SIGNATURES.set(0);
+    MAX_SIGNATURES.set(0);
+  }
+
+  @AfterEach
+  void tearDown()
+  {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testSignsConcurrentlyWithBoundedSessions() throws Exception
+  {
+    SigningKeyPool pool = new SigningKeyPool(keyStore, new SlowProvider(), MAX_SESSIONS);
+    List<Future<byte[]>> results = new ArrayList<>();
+    List<byte[]> data = new ArrayList<>();
+    for ( int i = 0 ; i < 200 ; i++ )
+    {
+      byte[] toBeSigned = ("data " + i).getBytes(StandardCharsets.UTF_8);
+      data.add(toBeSigned);
+      results.add(executor.submit(() -> pool.sign(ALIAS, ALGORITHM, true, toBeSigned)));
+    }
+
+    Signature verifier = Signature.getInstance("SHA256withPLAIN-ECDSA", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    for ( int i = 0 ; i < results.size() ; i++ )
+    {
+      byte[] rawSignature = results.get(i).get(30, TimeUnit.SECONDS);
+      Assertions.assertEquals(64, rawSignature.length);
+      verifier.initVerify(keyPair.getPublic());
+      verifier.update(data.get(i));
+      Assertions.assertTrue(verifier.verify(rawSignature));
+    }
+    Assertions.assertEquals(MAX_SESSIONS, MAX_SIGNATURES.get());
+    // the key is only looked up once
+    Mockito.verify(keyStore, Mockito.times(1)).getKey(ALIAS, null);
+    Mockito.verify(keyStore, Mockito.times(1)).getCertificate(ALIAS);
+  }
+
+  @Test
+  void testInvalidate() throws Exception
+  {
+    SigningKeyPool pool = new SigningKeyPool(keyStore, SecurityProvider.BOUNCY_CASTLE_PROVIDER, MAX_SESSIONS);
+    byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+    pool.sign(ALIAS, ALGORITHM, false, data);
+    pool.sign(ALIAS, ALGORITHM, false, data);
+    Mockito.verify(keyStore, Mockito.times(1)).getKey(ALIAS, null);
+
+    pool.invalidate(ALIAS);
+    pool.sign(ALIAS, ALGORITHM, false, data);
+    Mockito.verify(keyStore, Mockito.times(2)).getKey(ALIAS, null);
+
+    // a deleted key is not used any more
+    Mockito.when(keyStore.getKey(ALIAS, null)).thenReturn(null);
+    pool.invalidateAll();
+    Assertions.assertThrows(InvalidKeyException.class, () -> pool.sign(ALIAS, ALGORITHM, false, data));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"brainpoolP256r1", "brainpoolP384r1", "brainpoolP512r1", "secp521r1"})
+  void testConvertToRawMatchesAsn1(String curve) throws Exception
+  {
+    KeyPair ecKeyPair = generateKeyPair(curve);
+    int fieldLength = (((ECPublicKey)ecKeyPair.getPublic()).getParams().getCurve().getField().getFieldSize() + 7)
+                      / 8;
+    Signature signer = Signature.getInstance("SHA256withECDSA", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    Signature verifier = Signature.getInstance("SHA256withPLAIN-ECDSA", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    for ( int i = 0 ; i < 200 ; i++ )
+    {
+      byte[] data = ("data " + i).getBytes(StandardCharsets.UTF_8);
+      signer.initSign(ecKeyPair.getPrivate());
+      signer.update(data);
+      byte[] sig = signer.sign();
+
+      byte[] raw = SigningKeyPool.convertToRaw(sig, fieldLength);
+
+      Assertions.assertEquals(2 * fieldLength, raw.length);
+      Assertions.assertArrayEquals(convertWithAsn1(sig, fieldLength), raw);
+      verifier.initVerify(ecKeyPair.getPublic());
+      verifier.update(data);
+      Assertions.assertTrue(verifier.verify(raw));
+    }
+  }
+
+  @Test
+  void testConvertToRawRejectsInvalidInput()
+  {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> SigningKeyPool.convertToRaw(new byte[0], 32));
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> SigningKeyPool.convertToRaw(new byte[]{0x30, 0x03, 0x02, 0x01, 0x01}, 32));
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> SigningKeyPool.convertToRaw(new byte[]{0x30, 0x06, 0x02, 0x01, 0x01, 0x02, 0x02,
+                                                                         0x01},
+                                                              32));
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> SigningKeyPool.convertToRaw(new byte[]{0x31, 0x06, 0x02, 0x01, 0x01, 0x02, 0x01,
+                                                                         0x01},
+                                                              32));
+    // value longer than the field
+    Assertions.assertThrows(IllegalArgumentException.class,
+                            () -> SigningKeyPool.convertToRaw(new byte[]{0x30, 0x07, 0x02, 0x02, 0x01, 0x01, 0x02,
+                                                                         0x01, 0x01},
+                                                              1));
+    Assertions.assertArrayEquals(new byte[]{0x00, 0x01, 0x00, 0x02},
+                                 SigningKeyPool.convertToRaw(new byte[]{0x30, 0x07, 0x02, 0x02, 0x00, 0x01, 0x02,
+                                                                        0x01, 0x02},
+                                                             2));
+  }
+
+  /**
+   * The former conversion used before the {@link SigningKeyPool}
+   */
+  private static byte[] convertWithAsn1(byte[] sig, int trimLen) throws Exception
+  {
+    ASN1[] children = new ASN1(sig).getChildElements();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write(ByteUtil.trimByteArray(children[0].getValue(), trimLen));
+    baos.write(ByteUtil.trimByteArray(children[1].getValue(), trimLen));
+    return baos.toByteArray();
+  }
+
+  private static KeyPair generateKeyPair(String curve) throws Exception
+  {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    kpg.initialize(new ECGenParameterSpec(curve));
+    return kpg.generateKeyPair();
+  }
+
+  private static KeyStore mockKeyStore(KeyPair keyPair) throws Exception
+  {
+    Certificate certificate = Mockito.mock(Certificate.class);
+    Mockito.when(certificate.getPublicKey()).thenReturn(keyPair.getPublic());
+    KeyStore keyStore = Mockito.mock(KeyStore.class);
+    Mockito.when(keyStore.getKey(ALIAS, null)).thenReturn(keyPair.getPrivate());
+    Mockito.when(keyStore.getCertificate(ALIAS)).thenReturn(certificate);
+    return keyStore;
+  }
+
+  /**
+   * Provider with a slow signature like an HSM, counting the signatures in progress
+   */
+  private static final class SlowProvider extends Provider
+  {
+
+    SlowProvider()
+    {
+      super("SlowProvider", "1.0", "slow signatures for tests");
+      putService(new Service(this, "Signature", ALGORITHM, SlowSignature.class.getName(), null, null)
+      {
+
+        @Override
+        public Object newInstance(Object constructorParameter)
+        {
+          return new SlowSignature();
+        }
+      });
+    }
+  }
+
+  private static final class SlowSignature extends SignatureSpi
+  {
+
+    private Signature delegate;
+
+    @Override
+    protected void engineInitSign(PrivateKey privateKey) throws InvalidKeyException
+    {
+      try
+      {
+        delegate = Signature.getInstance(ALGORITHM, SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+      }
+      catch (Exception e)
+      {
+        throw new InvalidKeyException(e);
+      }
+      delegate.initSign(privateKey);
+    }
+
+    @Override
+    protected void engineUpdate(byte b) throws SignatureException
+    {
+      delegate.update(b);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] b, int off, int len) throws SignatureException
+    {
+      delegate.update(b, off, len);
+    }
+
+    @Override
+    protected byte[] engineSign() throws SignatureException
+    {
+      MAX_SIGNATURES.accumulateAndGet(CURRENT_SIGNATURES.incrementAndGet(), Math::max);
+      try
+      {
+        Thread.sleep(5);
+        return delegate.sign();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new SignatureException(e);
+      }
+      finally
+      {
+        CURRENT_SIGNATURES.decrementAndGet();
+      }
+    }
+
+    @Override
+    protected void engineInitVerify(PublicKey publicKey)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected boolean engineVerify(byte[] sigBytes)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @Deprecated
+    protected void engineSetParameter(String param, Object value)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @Deprecated
+    protected Object engineGetParameter(String param)
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
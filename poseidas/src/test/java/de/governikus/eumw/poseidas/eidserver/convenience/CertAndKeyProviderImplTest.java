@@ -0,0 +1,93 @@
+package de.governikus.eumw.poseidas.eidserver.convenience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.governikus.eumw.poseidas.cardbase.Hex;
+import de.governikus.eumw.poseidas.cardserver.service.hsm.impl.LocalCertAndKeyProvider;
+import de.governikus.eumw.poseidas.eidmodel.TerminalData;
+
+
+class CertAndKeyProviderImplTest
+{
+
+  private static final byte[] TERMINAL_CVC = Hex.parse("7f218201487f4e8201005f290100420e44454553544456314130303030317f494f060a04007f0007020202020386410457dcc1d8e2564196999e929499445cd41d4b98fd4c9cad27c3c8415cf12cddff9a6511410ce0844ad857d227408b509fec6687ab93bdcfc8d6e917baf6eda8d25f201044454553545445524d314130303030317f4c12060904007f00070301020253053c0ff3ffff5f25060106010000045f2406010601000005655e732d060904007f0007030103018020e2478043bdfe340e4029fceaf46c4001d57b33c3e65929fdedcdd32597f94236732d060904007f0007030103028020144969238b6ae406c90f22f1092bb83cc834020128d70b70fca6ca43bdc1d50f5f37403a9f4294b21c6ed37732853da4a538b1b55f68caf70b9b5f74b144869c1818b42f48d281af0963b5e49faa18c9935bf775d0b3e214fd71615d037efcd6af6522");
+
+  private static final String DV_HOLDER = "DEESTDV1A00001";
+
+  private static final String TERMINAL_HOLDER = "DEESTTERM1A00001";
+
+  @Test
+  void testCertChainIsCached() throws Exception
+  {
+    CertAndKeyProviderImpl provider = new CertAndKeyProviderImpl();
+    // certificate not known yet
+    Assertions.assertNull(provider.getCertChain(DV_HOLDER, TERMINAL_HOLDER));
+
+    provider.addCert(TERMINAL_CVC);
+    List<byte[]> chain = provider.getCertChain(DV_HOLDER, TERMINAL_HOLDER);
+    Assertions.assertEquals(1, chain.size());
+    Assertions.assertArrayEquals(TERMINAL_CVC, chain.get(0));
+
+    // changing the returned list does not change the cached chain
+    chain.clear();
+    List<byte[]> cachedChain = provider.getCertChain(DV_HOLDER, TERMINAL_HOLDER);
+    Assertions.assertEquals(1, cachedChain.size());
+    Assertions.assertArrayEquals(TERMINAL_CVC, cachedChain.get(0));
+
+    Assertions.assertNull(provider.getCertChain("DEESTDV1A00002", TERMINAL_HOLDER));
+  }
+
+  @Test
+  void testConcurrentSessions() throws Exception
+  {
+    CertAndKeyProviderImpl provider = new CertAndKeyProviderImpl();
+    byte[] key = {1, 2, 3};
+    TerminalData terminalData = new TerminalData(TERMINAL_CVC, null, key, null, null);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<List<byte[]>>> futures = new ArrayList<>();
+      for ( int i = 0 ; i < 200 ; i++ )
+      {
+        futures.add(executor.submit(() -> {
+          provider.addTerminalCVC(terminalData);
+          return provider.getCertChain(DV_HOLDER, TERMINAL_HOLDER);
+        }));
+      }
+      for ( Future<List<byte[]>> future : futures )
+      {
+        Assertions.assertEquals(1, future.get(30, TimeUnit.SECONDS).size());
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    Assertions.assertArrayEquals(key, provider.getKeyByHolder(TERMINAL_HOLDER));
+  }
+
+  @Test
+  void testSessionKeyIsRemovedAfterLastSession()
+  {
+    LocalCertAndKeyProvider localProvider = LocalCertAndKeyProvider.getInstance();
+    byte[] key = {1, 2, 3};
+    localProvider.addSessionKey(TERMINAL_HOLDER, key);
+    localProvider.addSessionKey(TERMINAL_HOLDER, key);
+
+    localProvider.removeSessionKey(TERMINAL_HOLDER);
+    Assertions.assertArrayEquals(key, localProvider.getKeyByHolder(TERMINAL_HOLDER));
+
+    localProvider.removeSessionKey(TERMINAL_HOLDER);
+    Assertions.assertNull(localProvider.getKeyByHolder(TERMINAL_HOLDER));
+    // removing again does no harm
+    localProvider.removeSessionKey(TERMINAL_HOLDER);
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.eidserver.convenience.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.governikus.eumw.poseidas.eidserver.ecardid.SessionInput;
+import de.governikus.eumw.poseidas.paosservlet.paos.handler.PaosHandlerException;
+
+
+@DisplayName("The SessionManager")
+class SessionManagerTest
+{
+
+  private static final int MESSAGES_PER_SESSION = 200;
+
+  private final SessionManager sessionManager = SessionManager.getInstance();
+
+  private final AtomicLong validTo = new AtomicLong(Long.MAX_VALUE);
+
+  private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+  @AfterEach
+  void removeSessions()
+  {
+    validTo.set(0);
+    sessionManager.removeInvalidSessions();
+  }
+
+  @Test
+  @DisplayName("locks each session individually")
+  void testSessionIsLockedIndividually() throws Exception
+  {
+    List<String> sessionIds = createSessions(2);
+
+    Session first = sessionManager.getSession(sessionIds.get(0));
+    PaosHandlerException exception = Assertions.assertThrows(PaosHandlerException.class,
+                                                             () -> sessionManager.getSession(sessionIds.get(0)));
+    Assertions.assertEquals(403, exception.getStatus());
+
+    // another session is not affected by the lock
+    Session second = sessionManager.getSession(sessionIds.get(1));
+    Assertions.assertNotSame(first, second);
+
+    sessionManager.unlockSession(first);
+    Assertions.assertSame(first, sessionManager.getSession(sessionIds.get(0)));
+    sessionManager.unlockSession(first);
+    sessionManager.unlockSession(second);
+  }
+
+  @Test
+  @DisplayName("removes invalid sessions while they are in use")
+  void testRemoveInvalidSessionsWhileLocked() throws Exception
+  {
+    String sessionId = createSessions(1).get(0);
+    Session session = sessionManager.getSession(sessionId);
+
+    validTo.set(0);
+    sessionManager.removeInvalidSessions();
+
+    Assertions.assertNull(sessionManager.getSession(sessionId));
+    // unlocking a removed session must not fail
+    sessionManager.unlockSession(session);
+  }
+
+  @Test
+  @DisplayName("neither loses nor mixes up sessions used in parallel")
+  void testParallelSessions() throws Exception
+  {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    int sessionsPerThread = 25;
+    ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+    try
+    {
+      // create the sessions in parallel
+      List<Future<List<String>>> created = new ArrayList<>();
+      for ( int t = 0 ; t < threads ; t++ )
+      {
+        created.add(executor.submit(() -> createSessions(sessionsPerThread)));
+      }
+      List<List<String>> sessionIdsPerThread = new ArrayList<>();
+      for ( Future<List<String>> future : created )
+      {
+        sessionIdsPerThread.add(future.get(1, TimeUnit.MINUTES));
+      }
+
+      Future<?> cleanup = executor.submit(() -> {
+        while (!Thread.currentThread().isInterrupted())
+        {
+          sessionManager.removeInvalidSessions();
+        }
+      });
+      List<Future<?>> conversations = new ArrayList<>();
+      for ( List<String> ownSessions : sessionIdsPerThread )
+      {
+        conversations.add(executor.submit(() -> {
+          for ( int m = 0 ; m < MESSAGES_PER_SESSION ; m++ )
+          {
+            for ( String sessionId : ownSessions )
+            {
+              // each thread uses its own sessions, so a session must never be locked by another request
+              Session session = sessionManager.getSession(sessionId);
+              Assertions.assertSame(sessions.get(sessionId), session);
+              sessionManager.unlockSession(session);
+            }
+          }
+          return null;
+        }));
+      }
+      for ( Future<?> conversation : conversations )
+      {
+        conversation.get(1, TimeUnit.MINUTES);
+      }
+      cleanup.cancel(true);
+
+      // no session lost by the cleanup and none left locked
+      for ( List<String> ownSessions : sessionIdsPerThread )
+      {
+        for ( String sessionId : ownSessions )
+        {
+          Assertions.assertTrue(sessionManager.isSessionActive(sessionId));
+          Session session = sessionManager.getSession(sessionId);
+          Assertions.assertSame(sessions.get(sessionId), session);
+          sessionManager.unlockSession(session);
+        }
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("hands out a session to only one of several parallel requests")
+  void testParallelRequestsForOneSession() throws Exception
+  {
+    String sessionId = createSessions(1).get(0);
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List<Future<Session>> requests = new ArrayList<>();
+      for ( int t = 0 ; t < threads ; t++ )
+      {
+        requests.add(executor.submit(() -> {
+          start.await();
+          try
+          {
+            return sessionManager.getSession(sessionId);
+          }
+          catch (PaosHandlerException e)
+          {
+            Assertions.assertEquals(403, e.getStatus());
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      int locked = 0;
+      for ( Future<Session> request : requests )
+      {
+        if (request.get(1, TimeUnit.MINUTES) != null)
+        {
+          locked++;
+        }
+      }
+      Assertions.assertEquals(1, locked);
+      sessionManager.unlockSession(sessions.get(sessionId));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("keeps the first session started for an ID")
+  void testParallelStartKeepsFirstSession() throws Exception
+  {
+    String sessionId = createSessions(1).get(0);
+    Session first = sessions.get(sessionId);
+    SessionInput sessionInput = Mockito.mock(SessionInput.class);
+    Mockito.when(sessionInput.getSessionID()).thenReturn(sessionId);
+    sessionManager.sessionPut(sessionInput, Mockito.mock(Session.class));
+
+    Session session = sessionManager.getSession(sessionId);
+    Assertions.assertSame(first, session);
+    sessionManager.unlockSession(session);
+  }
+
+  @Test
+  @DisplayName("releases the key material of timed out sessions")
+  void testRemoveInvalidSessionsReleasesSession()
+  {
+    String sessionId = UUID.randomUUID().toString();
+    SessionInput sessionInput = Mockito.mock(SessionInput.class);
+    Mockito.when(sessionInput.getSessionID()).thenReturn(sessionId);
+    Session session = Mockito.mock(Session.class);
+    Mockito.when(session.getValidTo()).thenReturn(0L);
+    sessionManager.sessionPut(sessionInput, session);
+
+    sessionManager.removeInvalidSessions();
+
+    Assertions.assertFalse(sessionManager.isSessionActive(sessionId));
+    Mockito.verify(session).release();
+  }
+
+  private List<String> createSessions(int count)
+  {
+    List<String> sessionIds = new ArrayList<>();
+    for ( int i = 0 ; i < count ; i++ )
+    {
+      String sessionId = UUID.randomUUID().toString();
+      SessionInput sessionInput = Mockito.mock(SessionInput.class);
+      Mockito.when(sessionInput.getSessionID()).thenReturn(sessionId);
+      Session session = Mockito.mock(Session.class, Mockito.withSettings().stubOnly());
+      Mockito.when(session.getValidTo()).thenAnswer(invocation -> validTo.get());
+      sessionManager.sessionPut(sessionInput, session);
+      sessions.put(sessionId, session);
+      sessionIds.add(sessionId);
+    }
+    return sessionIds;
+  }
+}
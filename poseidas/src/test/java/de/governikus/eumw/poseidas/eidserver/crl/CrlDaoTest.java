@@ -9,13 +9,17 @@
 
 package de.governikus.eumw.poseidas.eidserver.crl;
 
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import de.governikus.eumw.utils.key.SecurityProvider;
+
 
 @DisplayName("The CrlDao")
 class CrlDaoTest
@@ -47,4 +51,18 @@ class CrlDaoTest
 
     Assertions.assertTrue(isCrlOlderThan24Hours);
   }
+
+  @Test
+  @DisplayName("finds a revoked certificate by its serial number")
+  void revokedCertificateIsFound() throws Exception
+  {
+    CertificateFactory cf = CertificateFactory.getInstance("X509", SecurityProvider.BOUNCY_CASTLE_PROVIDER);
+    X509CRL crl = (X509CRL)cf.generateCRL(CrlDaoTest.class.getResourceAsStream("/root.crl"));
+    X509Certificate revoked = (X509Certificate)cf.generateCertificate(CrlDaoTest.class.getResourceAsStream("/ia.crt"));
+    X509Certificate notRevoked = (X509Certificate)cf.generateCertificate(CrlDaoTest.class.getResourceAsStream("/ca.crt"));
+    CrlDao crlDao = new CrlDao(crl, LAST_UPDATE_TIME_WITHIN_24H);
+
+    Assertions.assertTrue(crlDao.isRevoked(revoked));
+    Assertions.assertFalse(crlDao.isRevoked(notRevoked));
+  }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.eidserver.crl;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
+
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationService;
+import de.governikus.eumw.utils.key.SecurityProvider;
+
+
+/**
+ * Tests the caching of CRLs in {@link CertificationRevocationListImpl} against a local HTTP server acting as CRL
+ * distribution point.
+ */
+@DisplayName("The CRL cache")
+class CrlRefreshTest
+{
+
+  private static final String CRL_PATH = "/csca.crl";
+
+  private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+  private ClientAndServer distributionPoint;
+
+  private String crlUrl;
+
+  private KeyPair cscaKeyPair;
+
+  private X509Certificate cscaCertificate;
+
+  private ConfigurationService configurationService;
+
+  @TempDir
+  Path storageFolder;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    distributionPoint = ClientAndServer.startClientAndServer();
+    crlUrl = "http://localhost:" + distributionPoint.getPort() + CRL_PATH;
+    cscaKeyPair = createKeyPair();
+    cscaCertificate = createCscaCertificate(cscaKeyPair, crlUrl);
+    configurationService = Mockito.mock(ConfigurationService.class);
+  }
+
+  @AfterEach
+  void tearDown()
+  {
+    CertificationRevocationListImpl.reset();
+    distributionPoint.stop();
+  }
+
+  @Test
+  @DisplayName("serves a CRL older than the cache time while a new one is downloaded")
+  void servesStaleCrlWhileRefreshing() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl crl = initialize();
+    crl.getCrlCache().set(crlUrl, initialCrl, System.currentTimeMillis() - 2 * ONE_DAY);
+
+    X509CRL renewedCrl = createCrl(cscaKeyPair, 2, new Date(System.currentTimeMillis() + ONE_DAY));
+    distributionPoint.reset();
+    respondWith(renewedCrl, 1500);
+
+    long start = System.currentTimeMillis();
+    List<X509CRL> results = callConcurrently(10, () -> crl.getX509CRL(crlUrl));
+    Assertions.assertTrue(System.currentTimeMillis() - start < 1000, "Stale CRL must be served without waiting");
+    results.forEach(result -> Assertions.assertEquals(initialCrl, result));
+
+    waitFor(() -> renewedCrl.equals(crl.getCrlCache().get(crlUrl).getX509CRL()));
+    Assertions.assertFalse(crl.getCrlCache().get(crlUrl).isCrlOlderThan24Hours());
+    distributionPoint.verify(HttpRequest.request().withPath(CRL_PATH), VerificationTimes.exactly(1));
+  }
+
+  @Test
+  @DisplayName("downloads a missing CRL only once for concurrent requests")
+  void deduplicatesConcurrentDownloads() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl crl = initialize();
+    crl.getCrlCache().set(crlUrl, null);
+    distributionPoint.reset();
+    respondWith(initialCrl, 1000);
+
+    List<X509CRL> results = callConcurrently(8, () -> crl.getX509CRL(crlUrl));
+
+    results.forEach(result -> Assertions.assertEquals(initialCrl, result));
+    distributionPoint.verify(HttpRequest.request().withPath(CRL_PATH), VerificationTimes.exactly(1));
+  }
+
+  @Test
+  @DisplayName("keeps serving a CRL older than the cache time when the distribution point fails")
+  void keepsStaleCrlWhenDistributionPointFails() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl crl = initialize();
+    crl.getCrlCache().set(crlUrl, initialCrl, System.currentTimeMillis() - 2 * ONE_DAY);
+    distributionPoint.reset();
+    distributionPoint.when(HttpRequest.request().withPath(CRL_PATH))
+                     .respond(HttpResponse.response().withStatusCode(500));
+
+    Assertions.assertEquals(initialCrl, crl.getX509CRL(crlUrl));
+    waitFor(() -> distributionPoint.retrieveRecordedRequests(HttpRequest.request().withPath(CRL_PATH)).length > 0);
+    waitFor(() -> !crl.isFetchPending(crlUrl));
+    Assertions.assertEquals(initialCrl, crl.getX509CRL(crlUrl));
+    Assertions.assertTrue(crl.getCrlCache().get(crlUrl).isCrlOlderThan24Hours());
+  }
+
+  @Test
+  @DisplayName("does not serve an expired CRL when the distribution point fails")
+  void expiredCrlIsNotServed() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl crl = initialize();
+    X509CRL expiredCrl = createCrl(cscaKeyPair, 0, new Date(System.currentTimeMillis() - 1000));
+    crl.getCrlCache().set(crlUrl, expiredCrl, System.currentTimeMillis());
+    distributionPoint.reset();
+    distributionPoint.when(HttpRequest.request().withPath(CRL_PATH))
+                     .respond(HttpResponse.response().withStatusCode(500));
+
+    Assertions.assertNull(crl.getX509CRL(crlUrl));
+    Assertions.assertTrue(crl.isOnCRL(cscaCertificate));
+  }
+
+  @Test
+  @DisplayName("uses the stored CRL after a restart when the distribution point fails")
+  void usesStoredCrlAfterRestart() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl.setStorageFolder(storageFolder);
+    initialize();
+
+    CertificationRevocationListImpl.reset();
+    distributionPoint.reset();
+    distributionPoint.when(HttpRequest.request().withPath(CRL_PATH))
+                     .respond(HttpResponse.response().withStatusCode(500));
+    CertificationRevocationListImpl.setStorageFolder(storageFolder);
+    CertificationRevocationListImpl crl = initialize();
+
+    Assertions.assertEquals(initialCrl, crl.getX509CRL(crlUrl));
+    distributionPoint.verify(HttpRequest.request().withPath(CRL_PATH), VerificationTimes.exactly(0));
+  }
+
+  @Test
+  @DisplayName("ignores a stored CRL that cannot be verified")
+  void ignoresUnverifiableStoredCrl() throws Exception
+  {
+    X509CRL foreignCrl = createCrl(createKeyPair(), 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    new CrlFileStore(storageFolder).write(crlUrl, foreignCrl);
+    distributionPoint.when(HttpRequest.request().withPath(CRL_PATH))
+                     .respond(HttpResponse.response().withStatusCode(500));
+    CertificationRevocationListImpl.setStorageFolder(storageFolder);
+
+    Assertions.assertThrows(IllegalStateException.class, this::initialize);
+  }
+
+  @Test
+  @DisplayName("renews the CRLs of several distribution points in parallel")
+  void renewsInParallel() throws Exception
+  {
+    X509CRL initialCrl = createCrl(cscaKeyPair, 1, new Date(System.currentTimeMillis() + ONE_DAY));
+    respondWith(initialCrl, 0);
+    CertificationRevocationListImpl crl = initialize();
+    String baseUrl = "http://localhost:" + distributionPoint.getPort();
+    crl.getCrlCache().set(baseUrl + "/second.crl", initialCrl);
+    crl.getCrlCache().set(baseUrl + "/third.crl", initialCrl);
+    crl.getCrlCache().set(baseUrl + "/failing.crl", initialCrl);
+    distributionPoint.reset();
+    X509CRL renewedCrl = createCrl(cscaKeyPair, 2, new Date(System.currentTimeMillis() + ONE_DAY));
+    distributionPoint.when(HttpRequest.request().withPath("/failing.crl"))
+                     .respond(HttpResponse.response().withStatusCode(500).withDelay(TimeUnit.MILLISECONDS, 1000));
+    distributionPoint.when(HttpRequest.request())
+                     .respond(HttpResponse.response()
+                                          .withStatusCode(200)
+                                          .withBody(renewedCrl.getEncoded())
+                                          .withDelay(TimeUnit.MILLISECONDS, 1000));
+
+    long start = System.currentTimeMillis();
+    CertificationRevocationListImpl.RenewCrlsLists result = crl.renewCrls();
+
+    Assertions.assertTrue(System.currentTimeMillis() - start < 3000, "CRLs must be renewed in parallel");
+    Assertions.assertEquals(3, result.succeeded().size());
+    Assertions.assertEquals(List.of(baseUrl + "/failing.crl"), result.failed());
+    Assertions.assertEquals(renewedCrl, crl.getX509CRL(crlUrl));
+    Assertions.assertEquals(initialCrl, crl.getX509CRL(baseUrl + "/failing.crl"));
+  }
+
+  private CertificationRevocationListImpl initialize()
+  {
+    CertificationRevocationListImpl.initialize(Set.of(cscaCertificate), cscaCertificate, null, configurationService);
+    return CertificationRevocationListImpl.getInstance();
+  }
+
+  private void respondWith(X509CRL crl, long delayMillis) throws Exception
+  {
+    distributionPoint.when(HttpRequest.request().withPath(CRL_PATH))
+                     .respond(HttpResponse.response()
+                                          .withStatusCode(200)
+                                          .withBody(crl.getEncoded())
+                                          .withDelay(TimeUnit.MILLISECONDS, delayMillis));
+  }
+
+  private static <T> List<T> callConcurrently(int threads, Callable<T> task) throws Exception
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List<Future<T>> futures = new ArrayList<>();
+      for ( int i = 0 ; i < threads ; i++ )
+      {
+        futures.add(executor.submit(task));
+      }
+      List<T> results = new ArrayList<>();
+      for ( Future<T> future : futures )
+      {
+        results.add(future.get(10, TimeUnit.SECONDS));
+      }
+      return results;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void waitFor(Callable<Boolean> condition) throws Exception
+  {
+    long end = System.currentTimeMillis() + 10_000;
+    while (System.currentTimeMillis() < end)
+    {
+      try
+      {
+        if (condition.call())
+        {
+          return;
+        }
+      }
+      catch (RuntimeException e)
+      {
+        // condition not yet met
+      }
+      Thread.sleep(50);
+    }
+    Assertions.fail("Condition not met in time");
+  }
+
+  private static KeyPair createKeyPair() throws Exception
+  {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    return generator.generateKeyPair();
+  }
+
+  private static X509Certificate createCscaCertificate(KeyPair keyPair, String crlUrl) throws Exception
+  {
+    X500Principal subject = new X500Principal("CN=TEST CSCA, C=DE");
+    JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+    JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject, BigInteger.ONE,
+                                                                          new Date(System.currentTimeMillis() - ONE_DAY),
+                                                                          new Date(System.currentTimeMillis()
+                                                                                   + 365 * ONE_DAY),
+                                                                          subject, keyPair.getPublic());
+    builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+    builder.addExtension(Extension.subjectKeyIdentifier,
+                         false,
+                         extensionUtils.createSubjectKeyIdentifier(keyPair.getPublic()));
+    DistributionPointName distributionPointName = new DistributionPointName(new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier,
+                                                                                                             crlUrl)));
+    builder.addExtension(Extension.cRLDistributionPoints,
+                         false,
+                         new CRLDistPoint(new DistributionPoint[]{new DistributionPoint(distributionPointName, null,
+                                                                                        null)}));
+    return new JcaX509CertificateConverter().setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER)
+                                            .getCertificate(builder.build(getSigner(keyPair)));
+  }
+
+  private static X509CRL createCrl(KeyPair keyPair, int crlNumber, Date nextUpdate) throws Exception
+  {
+    JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+    X509v2CRLBuilder builder = new JcaX509v2CRLBuilder(new X500Principal("CN=TEST CSCA, C=DE"),
+                                                       new Date(System.currentTimeMillis() - 1000));
+    builder.setNextUpdate(nextUpdate);
+    builder.addExtension(Extension.authorityKeyIdentifier,
+                         false,
+                         extensionUtils.createAuthorityKeyIdentifier(keyPair.getPublic()));
+    builder.addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(crlNumber)));
+    return new JcaX509CRLConverter().setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER)
+                                    .getCRL(builder.build(getSigner(keyPair)));
+  }
+
+  private static ContentSigner getSigner(KeyPair keyPair) throws Exception
+  {
+    return new JcaContentSignerBuilder("SHA256withRSA").setProvider(SecurityProvider.BOUNCY_CASTLE_PROVIDER)
+                                                       .build(keyPair.getPrivate());
+  }
+}
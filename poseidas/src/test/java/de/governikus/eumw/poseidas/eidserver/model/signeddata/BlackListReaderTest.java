@@ -0,0 +1,106 @@
+package de.governikus.eumw.poseidas.eidserver.model.signeddata;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bouncycastle.cms.CMSSignedDataParser;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+
+class BlackListReaderTest
+{
+
+  @ParameterizedTest
+  @ValueSource(strings = {"blacklist-complete30x2", "blacklistv2-complete30x2", "blacklist-delta+10x2",
+                          "blacklistv2-delta-5x2"})
+  void testReadsSameAsBlackList(String fileName) throws Exception
+  {
+    Path file = getFile(fileName);
+    BlackList blackList = new BlackList(Files.readAllBytes(file));
+    Assertions.assertEquals(2, blackList.getBlacklistDetails().size());
+
+    List<BlackListDetails> details = new ArrayList<>();
+    try (InputStream content = getSignedContent(file))
+    {
+      BlackListReader reader = new BlackListReader(content);
+      Assertions.assertEquals(blackList.getVersion(), reader.getVersion());
+      Assertions.assertEquals(blackList.getType(), reader.getType());
+      Assertions.assertArrayEquals(blackList.getListID(), reader.getListID());
+      Assertions.assertArrayEquals(blackList.getDeltaBase(), reader.getDeltaBase());
+      Assertions.assertEquals(blackList.getFinalEntries(), reader.getFinalEntries());
+      for ( BlackListDetails d = reader.readDetails(sectorID -> true) ; d != null ; d = reader.readDetails(sectorID -> true) )
+      {
+        details.add(d);
+      }
+    }
+
+    Assertions.assertEquals(blackList.getBlacklistDetails().size(), details.size());
+    for ( int i = 0 ; i < details.size() ; i++ )
+    {
+      BlackListDetails expected = blackList.getBlacklistDetails().get(i);
+      Assertions.assertArrayEquals(expected.getSectorID(), details.get(i).getSectorID());
+      Assertions.assertArrayEquals(expected.getSectorSpecificIDs().toArray(byte[][]::new),
+                                   details.get(i).getSectorSpecificIDs().toArray(byte[][]::new));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"blacklist-complete30x2", "blacklistv2-complete30x2"})
+  void testSkipsOtherSectors(String fileName) throws Exception
+  {
+    Path file = getFile(fileName);
+    BlackList blackList = new BlackList(Files.readAllBytes(file));
+    byte[] secondSectorID = blackList.getBlacklistDetails().get(1).getSectorID();
+
+    try (InputStream content = getSignedContent(file))
+    {
+      BlackListReader reader = new BlackListReader(content);
+      BlackListDetails details = reader.readDetails(sectorID -> Arrays.equals(sectorID, secondSectorID));
+      Assertions.assertNotNull(details);
+      Assertions.assertArrayEquals(secondSectorID, details.getSectorID());
+      Assertions.assertEquals(30, details.getSectorSpecificIDs().size());
+      Assertions.assertNull(reader.readDetails(sectorID -> true));
+    }
+  }
+
+  @Test
+  void testRejectsOtherContent() throws Exception
+  {
+    // a signed master list has another content type
+    Path masterList = Path.of(BlackListReaderTest.class.getResource("/masterlist/MASTERLIST.bin").toURI());
+    byte[] masterListBytes = Files.readAllBytes(masterList);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BlackList(masterListBytes));
+    try (InputStream content = getSignedContent(masterList))
+    {
+      Assertions.assertThrows(IOException.class, () -> new BlackListReader(content));
+    }
+    Assertions.assertThrows(IOException.class, () -> new BlackListReader(new ByteArrayInputStream(new byte[0])));
+    // truncated after the version
+    Assertions.assertThrows(IOException.class,
+                            () -> new BlackListReader(new ByteArrayInputStream(new byte[]{0x30, 0x03, 0x02, 0x01,
+                                                                                          0x00})));
+  }
+
+  private static InputStream getSignedContent(Path file) throws Exception
+  {
+    CMSSignedDataParser parser = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().build(),
+                                                         Files.readAllBytes(file));
+    return parser.getSignedContent().getContentStream();
+  }
+
+  private static Path getFile(String fileName) throws URISyntaxException
+  {
+    return Path.of(BlackListReaderTest.class.getResource("/blockList/" + fileName).toURI());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 Governikus KG. Licensed under the EUPL, Version 1.2 or as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence"); You may not use this work except in compliance
+ * with the Licence. You may obtain a copy of the Licence at: http://joinup.ec.europa.eu/software/page/eupl Unless
+ * required by applicable law or agreed to in writing, software distributed under the Licence is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the Licence for the
+ * specific language governing permissions and limitations under the Licence.
+ */
+
+package de.governikus.eumw.poseidas.paosservlet.paos.handler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+
+@DisplayName("The MessageSessionMapper")
+class MessageSessionMapperTest
+{
+
+  private static final Duration TIME_TO_LIVE = Duration.ofMinutes(15);
+
+  private final AtomicLong now = new AtomicLong(1_000_000L);
+
+  private Clock clock;
+
+  @BeforeEach
+  void setUp()
+  {
+    clock = Mockito.mock(Clock.class);
+    Mockito.when(clock.millis()).thenAnswer(invocation -> now.get());
+  }
+
+  @Test
+  @DisplayName("follows the message IDs of a conversation")
+  void testConversation()
+  {
+    MessageSessionMapper mapper = new MessageSessionMapper(TIME_TO_LIVE, 100, clock);
+    mapper.add("msg1", "session");
+    mapper.overwriteMessageId("msg1", "msg2");
+
+    Assertions.assertNull(mapper.getSessionId("msg1"));
+    Assertions.assertEquals("session", mapper.getSessionId("msg2"));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> mapper.overwriteMessageId("msg1", "msg3"));
+
+    mapper.remove("msg2");
+    Assertions.assertEquals(0, mapper.size());
+  }
+
+  @Test
+  @DisplayName("forgets message IDs after the time to live")
+  void testTimeToLive()
+  {
+    MessageSessionMapper mapper = new MessageSessionMapper(TIME_TO_LIVE, 100, clock);
+    mapper.add("msg1", "session1");
+    mapper.add("msg2", "session2");
+
+    now.addAndGet(TIME_TO_LIVE.toMillis() - 1);
+    Assertions.assertEquals("session1", mapper.getSessionId("msg1"));
+    Assertions.assertEquals(0, mapper.removeStaleEntries(id -> true));
+
+    now.addAndGet(2);
+    Assertions.assertNull(mapper.getSessionId("msg1"));
+    Assertions.assertEquals(1, mapper.removeStaleEntries(id -> true));
+    Assertions.assertEquals(0, mapper.size());
+  }
+
+  @Test
+  @DisplayName("removes message IDs of sessions that are no longer active")
+  void testInactiveSessionsAreRemoved()
+  {
+    MessageSessionMapper mapper = new MessageSessionMapper(TIME_TO_LIVE, 100, clock);
+    mapper.add("msg1", "active");
+    mapper.add("msg2", "stopped");
+
+    // recently added entries are kept even if the session is unknown
+    Assertions.assertEquals(0, mapper.removeStaleEntries(Set.of("active")::contains));
+
+    now.addAndGet(Duration.ofMinutes(2).toMillis());
+    Assertions.assertEquals(1, mapper.removeStaleEntries(Set.of("active")::contains));
+    Assertions.assertEquals("active", mapper.getSessionId("msg1"));
+    Assertions.assertNull(mapper.getSessionId("msg2"));
+  }
+
+  @Test
+  @DisplayName("stays bounded with many aborted sessions")
+  void testManyAbortedSessions()
+  {
+    int maxSize = 1_000;
+    MessageSessionMapper mapper = new MessageSessionMapper(TIME_TO_LIVE, maxSize, clock);
+    for ( int i = 0 ; i < 100_000 ; i++ )
+    {
+      // each conversation sends its first message and is never continued
+      mapper.add("msg" + i, "session" + i);
+      now.incrementAndGet();
+      Assertions.assertTrue(mapper.size() <= maxSize, "Size " + mapper.size() + " exceeds " + maxSize);
+    }
+
+    // the latest conversations are still available
+    Assertions.assertEquals("session99999", mapper.getSessionId("msg99999"));
+    Assertions.assertNull(mapper.getSessionId("msg0"));
+
+    now.addAndGet(TIME_TO_LIVE.toMillis());
+    mapper.removeStaleEntries(id -> true);
+    Assertions.assertEquals(0, mapper.size());
+  }
+}
@@ -99,6 +99,30 @@ class ConfigurationServiceTest
     Assertions.assertEquals(config, configurationService.getConfiguration().get());
   }
 
+  @Test
+  void testSnapshotIsReplacedOnSave() throws Exception
+  {
+    EidasMiddlewareConfig config = ConfigurationTestHelper.createValidConfiguration();
+    configurationService.saveConfiguration(config, true);
+
+    // Subsequent reads share the same snapshot
+    ConfigurationSnapshot snapshot = configurationService.getConfigurationSnapshot();
+    Assertions.assertSame(snapshot, configurationService.getConfigurationSnapshot());
+    Assertions.assertEquals(config, snapshot.getConfiguration().get());
+
+    // Modifying a returned configuration must not change the snapshot
+    var copy = configurationService.getConfiguration().get();
+    copy.setServerUrl("https://changed.example");
+    Assertions.assertEquals(config.getServerUrl(), snapshot.getConfiguration().get().getServerUrl());
+    Assertions.assertEquals(config, configurationService.getConfiguration().get());
+
+    // Saving installs a new snapshot with a higher version
+    configurationService.saveConfiguration(copy, true);
+    ConfigurationSnapshot newSnapshot = configurationService.getConfigurationSnapshot();
+    Assertions.assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+    Assertions.assertEquals("https://changed.example", newSnapshot.getConfiguration().get().getServerUrl());
+  }
+
   @Test
   void testGetKeyPairs() throws Exception
   {
@@ -133,6 +157,11 @@ class ConfigurationServiceTest
     keyPair = configurationService.getKeyPair("jks-keypair");
     Assertions.assertNotNull(keyPair.getKey());
     Assertions.assertNotNull(keyPair.getCertificate());
+
+    // The key store is decoded only once as long as the configuration is unchanged
+    Assertions.assertSame(keyPair, configurationService.getKeyPair("jks-keypair"));
+    configurationService.saveConfiguration(configuration, true);
+    Assertions.assertNotSame(keyPair, configurationService.getKeyPair("jks-keypair"));
   }
 
   @Test
@@ -477,6 +506,42 @@ class ConfigurationServiceTest
     Assertions.assertEquals("The signature check failed.", configurationException.getCause().getMessage());
   }
 
+  @Test
+  void testGetProviderIsVerifiedOncePerConfiguration() throws Exception
+  {
+    EidasMiddlewareConfig validConfig = ConfigurationTestHelper.createValidConfiguration();
+    validConfig.getKeyData()
+               .getCertificate()
+               .add(new CertificateType("sigCert",
+                                        ConfigurationServiceTest.class.getResourceAsStream("/configuration/metadata-signer.cer")
+                                                                      .readAllBytes(),
+                                        null, null));
+    validConfig.getEidasConfiguration().setMetadataSignatureVerificationCertificateName("sigCert");
+    validConfig.getEidasConfiguration()
+               .getConnectorMetadata()
+               .add(new ConnectorMetadataType(ConfigurationServiceTest.class.getResourceAsStream("/configuration/metadata-9443.xml")
+                                                                            .readAllBytes(),
+                                              "https://localhost:9443/eIDASDemoApplication/Metadata"));
+    configurationService.saveConfiguration(validConfig, false);
+
+    // The same verified provider is returned as long as the configuration is unchanged
+    RequestingServiceProvider provider = configurationService.getProviderByEntityID("https://localhost:9443/eIDASDemoApplication/Metadata");
+    Assertions.assertSame(provider,
+                          configurationService.getProviderByEntityID("https://localhost:9443/eIDASDemoApplication/Metadata"));
+
+    // Saving the configuration leads to a new verification
+    configurationService.saveConfiguration(validConfig, false);
+    RequestingServiceProvider reloadedProvider = configurationService.getProviderByEntityID("https://localhost:9443/eIDASDemoApplication/Metadata");
+    Assertions.assertNotSame(provider, reloadedProvider);
+    Assertions.assertEquals(provider.getEntityID(), reloadedProvider.getEntityID());
+
+    // Removing the metadata makes the provider unavailable
+    validConfig.getEidasConfiguration().getConnectorMetadata().clear();
+    configurationService.saveConfiguration(validConfig, false);
+    Assertions.assertThrows(ConfigurationException.class,
+                            () -> configurationService.getProviderByEntityID("https://localhost:9443/eIDASDemoApplication/Metadata"));
+  }
+
   @Test
   void testDownloadConfigWithoutKeys() throws Exception
   {
@@ -56,7 +56,7 @@ class CvcTlsCheckTest
 
   private static final String CERTIFICATE_VALID = "certificate valid";
 
-  private static final HSMServiceHolder HSM_SERVICE_DUMMY = new HSMServiceHolder(null, null, null, 2, false, null);
+  private static final HSMServiceHolder HSM_SERVICE_DUMMY = new HSMServiceHolder(null, null, null, 8, 2, false, null);
 
   public static final String DVCA_CONFIGURATION_NAME = "dvcaConfig";
 
@@ -256,7 +256,7 @@ class CvcTlsCheckTest
     Mockito.doReturn(Optional.of(cer)).when(spyCheck).getOwnTlsCertificate("https://localhost:8450");
     UnsupportedECCertificateException unsupportedECCertificateException = assertThrows(UnsupportedECCertificateException.class,
                                                                                        () -> spyCheck.check());
-    assertEquals("The used EC certificate for TLS is not supported. The eIDAS Middleware will be shutdown.",
+    assertEquals("The used EC certificate for TLS is not supported. The eIDAS Middleware will not perform online authentications.",
                  unsupportedECCertificateException.getMessage());
   }
 
@@ -0,0 +1,94 @@
+package de.governikus.eumw.poseidas.server.idprovider.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import de.governikus.eumw.config.ConnectorMetadataType;
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import de.governikus.eumw.eidasmiddleware.eid.RequestingServiceProvider;
+import de.governikus.eumw.poseidas.server.idprovider.config.RequestingServiceProviderRegistry.Registration;
+
+
+class RequestingServiceProviderRegistryTest
+{
+
+  private static final String ENTITY_ID = "https://connector/metadata";
+
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+  private final AtomicInteger verifications = new AtomicInteger();
+
+  private Clock clock;
+
+  private RequestingServiceProviderRegistry registry;
+
+  private ConfigurationSnapshot snapshot;
+
+  @BeforeEach
+  void setUp()
+  {
+    clock = Mockito.mock(Clock.class);
+    Mockito.when(clock.instant()).thenReturn(NOW);
+    registry = new RequestingServiceProviderRegistry(clock);
+
+    EidasMiddlewareConfig config = new EidasMiddlewareConfig();
+    EidasMiddlewareConfig.EidasConfiguration eidasConfiguration = new EidasMiddlewareConfig.EidasConfiguration();
+    eidasConfiguration.getConnectorMetadata()
+                      .add(new ConnectorMetadataType("metadata".getBytes(StandardCharsets.UTF_8), ENTITY_ID));
+    config.setEidasConfiguration(eidasConfiguration);
+    snapshot = new ConfigurationSnapshot(1, config);
+  }
+
+  @Test
+  void testVerifiedAgainAfterValidUntil()
+  {
+    Function<String, Registration> loader = id -> {
+      verifications.incrementAndGet();
+      return Registration.valid(new RequestingServiceProvider(id), NOW.plus(Duration.ofHours(1)));
+    };
+
+    RequestingServiceProvider provider = registry.getProvider(snapshot, ENTITY_ID, loader);
+    Mockito.when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(59)));
+    Assertions.assertSame(provider, registry.getProvider(snapshot, ENTITY_ID, loader));
+    Assertions.assertEquals(1, verifications.get());
+
+    // the validUntil of the metadata has been reached
+    Mockito.when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(1)));
+    RequestingServiceProvider reverified = registry.getProvider(snapshot, ENTITY_ID, loader);
+    Assertions.assertNotSame(provider, reverified);
+    Assertions.assertEquals(2, verifications.get());
+  }
+
+  @Test
+  void testUnknownEntityIdsAreNotCached()
+  {
+    Function<String, Registration> loader = id -> {
+      verifications.incrementAndGet();
+      return Registration.invalid(new ConfigurationException("No connector metadata available with entityID " + id));
+    };
+
+    for ( int i = 0 ; i < 100 ; i++ )
+    {
+      String unknownEntityId = UUID.randomUUID().toString();
+      Assertions.assertThrows(ConfigurationException.class,
+                              () -> registry.getProvider(snapshot, unknownEntityId, loader));
+    }
+    Assertions.assertThrows(ConfigurationException.class, () -> registry.getProvider(snapshot, null, loader));
+    Assertions.assertEquals(101, verifications.get());
+    Assertions.assertEquals(0, registry.size());
+
+    // the configured connector is still cached, also if its metadata is invalid
+    Assertions.assertThrows(ConfigurationException.class, () -> registry.getProvider(snapshot, ENTITY_ID, loader));
+    Assertions.assertEquals(1, registry.size());
+  }
+}
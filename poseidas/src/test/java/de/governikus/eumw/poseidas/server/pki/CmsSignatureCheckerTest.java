@@ -7,6 +7,7 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.bouncycastle.asn1.pkcs.IssuerAndSerialNumber;
@@ -74,6 +75,47 @@ class CmsSignatureCheckerTest
     Assertions.assertDoesNotThrow(() -> cmsSignatureChecker.checkEnvelopedSignature(signedCmsData));
   }
 
+  @Test
+  void testValidatedSignerIsReusedWithoutSkippingSignatureCheck() throws Exception
+  {
+    KeyStore trustAnchorKeyStore = getTrustAnchorKeyStore();
+    KeyStore signatureKeyStore = getSignatureKeyStore();
+    PrivateKey signatureKey = (PrivateKey)signatureKeyStore.getKey("signature-cert", "123456".toCharArray());
+    X509Certificate signatureCertificate = (X509Certificate)signatureKeyStore.getCertificate("signature-cert");
+    X509Certificate trustAnchor = (X509Certificate)trustAnchorKeyStore.getCertificate("trust-anchor");
+    TrustAnchors trustAnchors = new TrustAnchors(List.of(trustAnchor));
+
+    byte[] signedCmsData = signData("RAW_DATA_TO_BE_SIGNED".getBytes(StandardCharsets.UTF_8),
+                                    signatureKey,
+                                    signatureCertificate);
+    CmsSignatureChecker firstChecker = new CmsSignatureChecker(trustAnchors, null, null, null);
+    Assertions.assertDoesNotThrow(() -> firstChecker.checkEnvelopedSignature(signedCmsData));
+    Assertions.assertNotNull(trustAnchors.getValidatedCertificate(signatureCertificate.getEncoded()));
+
+    CmsSignatureChecker secondChecker = new CmsSignatureChecker(trustAnchors, null, null, null);
+    Assertions.assertDoesNotThrow(() -> secondChecker.checkEnvelopedSignature(signedCmsData));
+    Assertions.assertEquals(signatureCertificate, secondChecker.getVerifierCertificate());
+
+    // the signer certificate is known but the signature itself must still be checked
+    byte[] manipulatedData = signedCmsData.clone();
+    int contentIndex = indexOf(manipulatedData, "RAW_DATA_TO_BE_SIGNED".getBytes(StandardCharsets.UTF_8));
+    manipulatedData[contentIndex] = 'X';
+    CmsSignatureChecker thirdChecker = new CmsSignatureChecker(trustAnchors, null, null, null);
+    Assertions.assertThrows(Exception.class, () -> thirdChecker.checkEnvelopedSignature(manipulatedData));
+  }
+
+  private static int indexOf(byte[] data, byte[] part)
+  {
+    for ( int i = 0 ; i <= data.length - part.length ; i++ )
+    {
+      if (Arrays.equals(data, i, i + part.length, part, 0, part.length))
+      {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("part not found");
+  }
+
   private KeyStore getSignatureKeyStore() throws IOException
   {
     try (InputStream input = getClass().getResourceAsStream("/keys/signature-cert.p12"))
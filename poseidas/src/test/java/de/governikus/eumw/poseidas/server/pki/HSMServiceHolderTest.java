@@ -228,7 +228,7 @@ class HSMServiceHolderTest
                                        boolean archiveOldKeys,
                                        TerminalPermissionAO facade)
     {
-      super(hsmTypeStr, "NOOP", "NOOP", deleteOldKeys, archiveOldKeys, facade);
+      super(hsmTypeStr, "NOOP", "NOOP", 8, deleteOldKeys, archiveOldKeys, facade);
     }
 
     @Override
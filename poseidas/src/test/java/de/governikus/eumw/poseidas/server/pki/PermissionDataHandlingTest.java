@@ -12,6 +12,11 @@ import java.sql.Date;
 import java.time.LocalDate;
 import java.util.Base64;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -359,6 +364,50 @@ class PermissionDataHandlingTest
     terminalPermissionRepository.save(terminalPermission);
   }
 
+  @Test
+  void testSectorKeyIsRequestedWhileBlockListIsLocked() throws Exception
+  {
+    saveConfiguration();
+    saveTerminal(ConfigurationTestHelper.CVC_REF_ID, SECTOR_ID_B64, CVC_SP_1);
+    saveTerminal(SECOND_SP_CVC_REF_ID, SECTOR_ID2_B64, CVC_SP_2);
+    Mockito.doReturn(restrictedIdService)
+           .when(dvcaServiceFactory)
+           .createRestrictedIdService(Mockito.any(), Mockito.any());
+
+    // another block list renewal is in progress
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<?> lockHolder = executor.submit(() -> {
+      BlackListLock.getINSTANCE().getBlackListUpdateLock().lock();
+      try
+      {
+        locked.countDown();
+        release.await();
+      }
+      finally
+      {
+        BlackListLock.getINSTANCE().getBlackListUpdateLock().unlock();
+      }
+      return null;
+    });
+    try
+    {
+      Assertions.assertTrue(locked.await(10, TimeUnit.SECONDS));
+      permissionDataHandling.renewBlackList(false, false);
+    }
+    finally
+    {
+      release.countDown();
+      lockHolder.get(10, TimeUnit.SECONDS);
+      executor.shutdownNow();
+    }
+
+    Mockito.verify(restrictedIdService, Mockito.never()).getBlacklistResult(Mockito.any(), Mockito.any());
+    Mockito.verify(restrictedIdService).getSectorPublicKey(Base64.getDecoder().decode(SECTOR_ID_B64));
+    Mockito.verify(restrictedIdService).getSectorPublicKey(Base64.getDecoder().decode(SECTOR_ID2_B64));
+  }
+
   private void processCompleteBlockList(int version) throws Exception
   {
     // Mock RIService
@@ -389,7 +438,9 @@ class PermissionDataHandlingTest
                                                                                  + (version == 2 ? "v2" : "")
                                                                                  + "-complete30x2")
                                                             .readAllBytes();
-    Mockito.when(pkiServiceConnector.getFile("https://downloadBLHere.de")).thenReturn(blockListBytes);
+    Mockito.doAnswer(invocation -> Files.write(invocation.getArgument(1), blockListBytes))
+           .when(pkiServiceConnector)
+           .downloadFile(Mockito.eq("https://downloadBLHere.de"), Mockito.any(Path.class));
 
     // Renew BL for all SP
     permissionDataHandling.renewBlackList(false, false);
@@ -0,0 +1,176 @@
+package de.governikus.eumw.poseidas.server.pki;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import de.governikus.eumw.config.ServiceProviderType;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationTestHelper;
+import de.governikus.eumw.poseidas.server.idprovider.config.KeyPair;
+import de.governikus.eumw.poseidas.server.pki.ServiceProviderRenewalExecutor.RenewalResult;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector;
+
+
+/**
+ * Tests the parallel renewal for several service providers, using local mock DVCA endpoints with different latency.
+ */
+class ServiceProviderRenewalExecutorTest
+{
+
+  private static final String LIST_PATH = "/dvca/list";
+
+  private static final String LIST = "list";
+
+  private static final long DELAY = 500;
+
+  private final List<ClientAndServer> dvcas = new ArrayList<>();
+
+  private PKIServiceConnector connector;
+
+  private ServiceProviderRenewalExecutor executor;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    EidasMiddlewareConfig configuration = ConfigurationTestHelper.createConfigurationWithClientKeyPair();
+    KeyPair clientKeyPair = ConfigurationTestHelper.getKeyPair("client-keypair", configuration);
+    connector = new PKIServiceConnector(30, clientKeyPair.getCertificate(), clientKeyPair.getKey(),
+                                        List.of(clientKeyPair.getCertificate()), ConfigurationTestHelper.CVC_REF_ID);
+    executor = new ServiceProviderRenewalExecutor(4);
+  }
+
+  @AfterEach
+  void tearDown()
+  {
+    executor.shutdown();
+    dvcas.forEach(ClientAndServer::stop);
+  }
+
+  @Test
+  void testRenewsInParallel()
+  {
+    // one DVCA for each service provider, with different latency
+    List<ServiceProviderType> providers = new ArrayList<>();
+    for ( int i = 0 ; i < 8 ; i++ )
+    {
+      providers.add(createProvider("sp" + i, startDvca(DELAY + i * 50L)));
+    }
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    long start = System.currentTimeMillis();
+    RenewalResult result = executor.renew("test renewal", providers, (provider, providerResult) -> {
+      maximum.accumulateAndGet(current.incrementAndGet(), Math::max);
+      try
+      {
+        download(provider);
+        providerResult.getSucceeded().add(provider.getName());
+      }
+      finally
+      {
+        current.decrementAndGet();
+      }
+    });
+    long duration = System.currentTimeMillis() - start;
+
+    Assertions.assertEquals(List.of("sp0", "sp1", "sp2", "sp3", "sp4", "sp5", "sp6", "sp7"), result.getSucceeded());
+    Assertions.assertTrue(result.getFailed().isEmpty());
+    Assertions.assertEquals(executor.getParallelism(), maximum.get());
+    // two rounds of parallel renewals instead of one renewal after another
+    Assertions.assertTrue(duration < 8 * DELAY, "Renewals were not parallel, duration " + duration);
+  }
+
+  @Test
+  void testFailureIsIsolated()
+  {
+    ClientAndServer dvca = startDvca(DELAY);
+    ClientAndServer failingDvca = ClientAndServer.startClientAndServer();
+    dvcas.add(failingDvca);
+    failingDvca.when(HttpRequest.request().withPath(LIST_PATH)).respond(HttpResponse.response().withStatusCode(500));
+    List<ServiceProviderType> providers = List.of(createProvider("sp0", dvca),
+                                                  createProvider("failing", failingDvca),
+                                                  createProvider("sp1", dvca));
+
+    RenewalResult result = executor.renew("test renewal", providers, (provider, providerResult) -> {
+      download(provider);
+      providerResult.getSucceeded().add(provider.getName());
+    });
+
+    Assertions.assertEquals(List.of("sp0", "sp1"), result.getSucceeded());
+    Assertions.assertEquals(1, result.getFailed().size());
+    Assertions.assertTrue(result.getFailed().get(0).startsWith("failing: unexpected error during test renewal"));
+  }
+
+  @Test
+  void testGroupIsRenewedSequentially()
+  {
+    ClientAndServer dvca = startDvca(DELAY);
+    List<ServiceProviderType> providers = List.of(createProvider("sp0", dvca),
+                                                  createProvider("sp1", dvca),
+                                                  createProvider("sp2", dvca));
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    RenewalResult result = executor.renew("test renewal",
+                                          providers,
+                                          ServiceProviderType::getDvcaConfigurationName,
+                                          (provider, providerResult) -> {
+                                            maximum.accumulateAndGet(current.incrementAndGet(), Math::max);
+                                            try
+                                            {
+                                              download(provider);
+                                              providerResult.getSucceeded().add(provider.getName());
+                                            }
+                                            finally
+                                            {
+                                              current.decrementAndGet();
+                                            }
+                                          });
+
+    Assertions.assertEquals(List.of("sp0", "sp1", "sp2"), result.getSucceeded());
+    Assertions.assertEquals(1, maximum.get());
+  }
+
+  private ClientAndServer startDvca(long delayMillis)
+  {
+    ClientAndServer dvca = ClientAndServer.startClientAndServer();
+    dvcas.add(dvca);
+    dvca.when(HttpRequest.request().withPath(LIST_PATH))
+        .respond(HttpResponse.response()
+                             .withStatusCode(200)
+                             .withBody(LIST)
+                             .withDelay(TimeUnit.MILLISECONDS, delayMillis));
+    return dvca;
+  }
+
+  private static ServiceProviderType createProvider(String name, ClientAndServer dvca)
+  {
+    // the DVCA configuration name is used for the address of the mock DVCA
+    return new ServiceProviderType(name, true, name, String.valueOf(dvca.getPort()), null, null);
+  }
+
+  private void download(ServiceProviderType provider) throws IOException
+  {
+    String uri = "http://localhost:" + provider.getDvcaConfigurationName() + LIST_PATH;
+    try (PKIServiceConnector.ContextLock lock = PKIServiceConnector.getContextLock(provider.getDvcaConfigurationName()))
+    {
+      byte[] content = connector.getFile(uri);
+      if (!LIST.equals(new String(content, StandardCharsets.UTF_8)))
+      {
+        throw new IOException("unexpected content from " + uri);
+      }
+    }
+  }
+}
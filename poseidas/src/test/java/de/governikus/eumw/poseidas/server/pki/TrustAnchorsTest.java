@@ -0,0 +1,50 @@
+package de.governikus.eumw.poseidas.server.pki;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.governikus.eumw.utils.key.KeyStoreSupporter;
+
+
+class TrustAnchorsTest
+{
+
+  @Test
+  void testFindIssuer() throws Exception
+  {
+    X509Certificate trustAnchor = getCertificate("/keys/trust-anchor.p12", "trust-anchor");
+    X509Certificate signatureCertificate = getCertificate("/keys/signature-cert.p12", "signature-cert");
+
+    TrustAnchors trustAnchors = new TrustAnchors(List.of(trustAnchor, trustAnchor));
+    Assertions.assertEquals(1, trustAnchors.size());
+    Assertions.assertTrue(trustAnchors.contains(trustAnchor));
+    Assertions.assertFalse(trustAnchors.contains(signatureCertificate));
+    Assertions.assertEquals(trustAnchor, trustAnchors.findIssuer(signatureCertificate).orElseThrow());
+  }
+
+  @Test
+  void testFindIssuerNotPresent() throws Exception
+  {
+    X509Certificate signatureCertificate = getCertificate("/keys/signature-cert.p12", "signature-cert");
+
+    TrustAnchors trustAnchors = new TrustAnchors(List.of());
+    Assertions.assertEquals(0, trustAnchors.size());
+    Assertions.assertTrue(trustAnchors.findIssuer(signatureCertificate).isEmpty());
+  }
+
+  private X509Certificate getCertificate(String path, String alias) throws IOException, KeyStoreException
+  {
+    try (InputStream input = getClass().getResourceAsStream(path))
+    {
+      KeyStore keyStore = KeyStoreSupporter.readKeyStore(input, KeyStoreSupporter.KeyStoreType.PKCS12, "123456");
+      return (X509Certificate)keyStore.getCertificate(alias);
+    }
+  }
+}
@@ -3,13 +3,23 @@ package de.governikus.eumw.poseidas.server.pki.blocklist;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
@@ -24,12 +34,15 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.test.context.ContextConfiguration;
 
 import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationTestHelper;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup;
+import de.governikus.eumw.poseidas.server.idprovider.core.StartupWarmup.WarmupTask;
 import de.governikus.eumw.poseidas.server.pki.entities.TerminalPermission;
 import de.governikus.eumw.poseidas.server.pki.repositories.TerminalPermissionRepository;
 
 
 @SpringBootTest
 @ContextConfiguration(initializers = BlockListServiceTest.Initializer.class, classes = {BlockListService.class,
+                                                                                        StartupWarmup.class,
                                                                                         BlockListServiceTest.MockedBeans.class})
 class BlockListServiceTest
 {
@@ -49,8 +62,20 @@ class BlockListServiceTest
   @Autowired
   TerminalPermissionRepository terminalPermissionRepository;
 
+  @Autowired
+  StartupWarmup startupWarmup;
+
   private final static TerminalPermission terminalPermission = createTerminalPermission();
 
+  @BeforeEach
+  void clearInvocations()
+  {
+    // the initial load runs in the background and uses the repository mock, too
+    Assertions.assertTrue(startupWarmup.awaitReady(WarmupTask.BLOCK_LIST, Duration.ofSeconds(30)));
+    // the repository mock is shared by all tests
+    Mockito.clearInvocations(terminalPermissionRepository);
+  }
+
   @Test
   void testBlockListServiceFullUpdate() throws Exception
   {
@@ -97,6 +122,91 @@ class BlockListServiceTest
                                                 ConfigurationTestHelper.CVC_REF_ID + ".version-42")));
   }
 
+  @Test
+  void testLoadBinaryAndLegacyTextFiles() throws Exception
+  {
+    blockListService.updateCompleteBlockList(terminalPermission,
+                                             43,
+                                             SECTOR_ID,
+                                             generateRandomBlockListEntriesWithSpecificId());
+    blockListService.initialLoad();
+    Assertions.assertEquals(11, blockListService.count(SECTOR_ID));
+    Assertions.assertTrue(blockListService.isOnBlockList(SECTOR_ID, SPECIFIC_ID));
+
+    // Files written by older versions contain one base64 encoded entry per line
+    List<String> lines = new ArrayList<>();
+    generateRandomBlockListEntries(4).forEach(entry -> lines.add(Base64.getEncoder().encodeToString(entry)));
+    lines.add(Base64.getEncoder().encodeToString(SPECIFIC_ID));
+    Files.write(blockListService.buildPathToBlockListFile(ConfigurationTestHelper.CVC_REF_ID, 41), lines);
+    terminalPermission.setBlackListVersion(41L);
+    blockListService.initialLoad();
+    Assertions.assertTrue(blockListService.hasBlockList(ConfigurationTestHelper.CVC_REF_ID));
+    Assertions.assertEquals(5, blockListService.count(SECTOR_ID));
+    Assertions.assertTrue(blockListService.isOnBlockList(SECTOR_ID, SPECIFIC_ID));
+  }
+
+  @Test
+  void testLookupsDuringUpdates() throws Exception
+  {
+    // entries on both lists must be found at any time, the count must always match one of the lists
+    List<byte[]> commonEntries = generateRandomBlockListEntries(1000);
+    List<byte[]> firstOnly = generateRandomBlockListEntries(300_000);
+    List<byte[]> secondOnly = generateRandomBlockListEntries(100_000);
+    List<byte[]> firstEntries = new ArrayList<>(commonEntries);
+    firstEntries.addAll(firstOnly);
+    List<byte[]> secondEntries = new ArrayList<>(commonEntries);
+    secondEntries.addAll(secondOnly);
+    Set<Long> validCounts = Set.of((long)firstEntries.size(), (long)secondEntries.size());
+    blockListService.updateCompleteBlockList(terminalPermission, 42, SECTOR_ID, firstEntries);
+
+    AtomicBoolean updating = new AtomicBoolean(true);
+    AtomicLong failures = new AtomicLong();
+    AtomicLong lookups = new AtomicLong();
+    ExecutorService readers = Executors.newFixedThreadPool(4);
+    List<Future<?>> results = new ArrayList<>();
+    for ( int i = 0 ; i < 4 ; i++ )
+    {
+      results.add(readers.submit(() -> {
+        while (updating.get())
+        {
+          byte[] entry = commonEntries.get(ThreadLocalRandom.current().nextInt(commonEntries.size()));
+          if (!blockListService.isOnBlockList(SECTOR_ID, entry)
+              || !validCounts.contains(blockListService.count(SECTOR_ID)))
+          {
+            failures.incrementAndGet();
+          }
+          lookups.incrementAndGet();
+        }
+      }));
+    }
+
+    try
+    {
+      for ( int version = 43 ; version < 49 ; version += 2 )
+      {
+        blockListService.updateDeltaBlockList(terminalPermission,
+                                              version,
+                                              secondOnly,
+                                              firstOnly,
+                                              secondEntries.size());
+        blockListService.updateCompleteBlockList(terminalPermission, version + 1, SECTOR_ID, firstEntries);
+      }
+    }
+    finally
+    {
+      updating.set(false);
+      readers.shutdown();
+    }
+    for ( Future<?> result : results )
+    {
+      result.get(10, TimeUnit.SECONDS);
+    }
+
+    Assertions.assertTrue(lookups.get() > 0);
+    Assertions.assertEquals(0, failures.get());
+    Assertions.assertEquals(firstEntries.size(), blockListService.count(SECTOR_ID));
+  }
+
   @Test
   void testPathEncoding()
   {
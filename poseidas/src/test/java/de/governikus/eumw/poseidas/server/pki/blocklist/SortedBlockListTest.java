@@ -0,0 +1,228 @@
+package de.governikus.eumw.poseidas.server.pki.blocklist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+
+class SortedBlockListTest
+{
+
+  private static final int ENTRY_LENGTH = 32;
+
+  private static final int LIST_SIZE = 10_000;
+
+  private static final int LOOKUPS = 1_000;
+
+  private static final String SECTOR_ID = "q9WMX/cplbudRA4hPEIbRezuOnHJMTt2XxP0z2vsY+M=";
+
+  private final Random random = new Random(42);
+
+  @Test
+  void testContains()
+  {
+    List<byte[]> entries = randomEntries(100);
+    byte[] shortEntry = {1, 2, 3};
+    entries.add(shortEntry);
+    // duplicates are removed
+    entries.add(entries.get(0).clone());
+    SortedBlockList blockList = SortedBlockList.of(entries);
+
+    Assertions.assertEquals(101, blockList.size());
+    Assertions.assertEquals(100L * ENTRY_LENGTH + shortEntry.length, blockList.getDataSize());
+    entries.forEach(entry -> Assertions.assertTrue(blockList.contains(entry)));
+    randomEntries(100).forEach(entry -> Assertions.assertFalse(blockList.contains(entry)));
+    Assertions.assertFalse(blockList.contains(new byte[]{1, 2}));
+    Assertions.assertFalse(SortedBlockList.EMPTY.contains(shortEntry));
+    Assertions.assertEquals(101, blockList.toList().size());
+  }
+
+  @Test
+  void testContainsWithUnsignedOrder()
+  {
+    SortedBlockList blockList = SortedBlockList.of(List.of(new byte[]{(byte)0xFF}, new byte[]{0x00}, new byte[]{0x7F}));
+    Assertions.assertTrue(blockList.contains(new byte[]{(byte)0xFF}));
+    Assertions.assertTrue(blockList.contains(new byte[]{0x00}));
+    Assertions.assertTrue(blockList.contains(new byte[]{0x7F}));
+    Assertions.assertFalse(blockList.contains(new byte[]{(byte)0x80}));
+  }
+
+  @Test
+  void testWriteAndRead() throws IOException
+  {
+    List<byte[]> entries = randomEntries(1000);
+    entries.add(new byte[]{1, 2, 3});
+    SortedBlockList blockList = SortedBlockList.of(entries);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    blockList.writeTo(outputStream);
+    SortedBlockList readBlockList = SortedBlockList.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    Assertions.assertEquals(blockList.size(), readBlockList.size());
+    Assertions.assertEquals(blockList.getEncodedLength(), outputStream.size());
+    entries.forEach(entry -> Assertions.assertTrue(readBlockList.contains(entry)));
+
+    SortedBlockList.Header header = SortedBlockList.readHeader(new ByteArrayInputStream(outputStream.toByteArray()));
+    Assertions.assertEquals(1001, header.size());
+    Assertions.assertArrayEquals(blockList.getChecksum(), header.checksum());
+    Assertions.assertArrayEquals(blockList.getChecksum(), readBlockList.getChecksum());
+  }
+
+  @Test
+  void testWriteIsDeterministic() throws IOException
+  {
+    List<byte[]> entries = randomEntries(1000);
+    List<byte[]> shuffled = new ArrayList<>(entries);
+    Collections.shuffle(shuffled, random);
+    // duplicates do not change the result
+    shuffled.add(entries.get(0).clone());
+
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    SortedBlockList.of(entries).writeTo(first);
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    SortedBlockList.of(shuffled).writeTo(second);
+
+    Assertions.assertArrayEquals(first.toByteArray(), second.toByteArray());
+  }
+
+  @Test
+  void testReadRejectsInvalidData() throws IOException
+  {
+    byte[] text = "q9WMX/cplbudRA4hPEIbRezuOnHJMTt2XxP0z2vsY+M=\n".getBytes(StandardCharsets.UTF_8);
+    Assertions.assertFalse(SortedBlockList.isBinaryFormat(text));
+    Assertions.assertThrows(IOException.class, () -> SortedBlockList.readFrom(new ByteArrayInputStream(text)));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    SortedBlockList.of(randomEntries(10)).writeTo(outputStream);
+    byte[] data = outputStream.toByteArray();
+    Assertions.assertTrue(SortedBlockList.isBinaryFormat(data));
+
+    // truncated file
+    Assertions.assertThrows(IOException.class,
+                            () -> SortedBlockList.readFrom(new ByteArrayInputStream(Arrays.copyOf(data,
+                                                                                                  data.length - 1))));
+
+    // changed entry
+    byte[] changed = data.clone();
+    changed[changed.length - 1]++;
+    Assertions.assertThrows(IOException.class, () -> SortedBlockList.readFrom(new ByteArrayInputStream(changed)));
+
+    // entries out of order
+    byte[] unsorted = data.clone();
+    int lastEntry = unsorted.length - ENTRY_LENGTH;
+    System.arraycopy(data, lastEntry - ENTRY_LENGTH, unsorted, lastEntry, ENTRY_LENGTH);
+    System.arraycopy(data, lastEntry, unsorted, lastEntry - ENTRY_LENGTH, ENTRY_LENGTH);
+    Assertions.assertThrows(IOException.class, () -> SortedBlockList.readFrom(new ByteArrayInputStream(unsorted)));
+  }
+
+  @Test
+  void testWithChanges()
+  {
+    byte[] kept = {1, 1, 1};
+    byte[] removed = {2, 2, 2};
+    byte[] added = {3, 3, 3};
+    byte[] removedAndAdded = {4, 4, 4};
+    byte[] otherLength = {5};
+    SortedBlockList blockList = SortedBlockList.of(List.of(kept, removed, removedAndAdded));
+
+    SortedBlockList changed = blockList.withChanges(List.of(added, removedAndAdded, otherLength),
+                                                    List.of(removed, removedAndAdded, new byte[]{9, 9, 9}));
+
+    Assertions.assertEquals(4, changed.size());
+    Assertions.assertTrue(changed.contains(kept));
+    Assertions.assertFalse(changed.contains(removed));
+    Assertions.assertTrue(changed.contains(added));
+    Assertions.assertTrue(changed.contains(removedAndAdded));
+    Assertions.assertTrue(changed.contains(otherLength));
+    // the original list is not modified
+    Assertions.assertEquals(3, blockList.size());
+    Assertions.assertTrue(blockList.contains(removed));
+    Assertions.assertEquals(0, blockList.withChanges(List.of(), blockList.toList()).size());
+  }
+
+  /**
+   * Compares the delta application with the former one, removing and adding base64 strings in a list.
+   */
+  @Test
+  void testWithChangesMatchesListImplementation()
+  {
+    for ( int run = 0 ; run < 5 ; run++ )
+    {
+      List<byte[]> entries = randomEntries(20_000);
+      List<byte[]> entriesToRemove = new ArrayList<>(entries.subList(0, 2_000));
+      entriesToRemove.addAll(randomEntries(500));
+      List<byte[]> entriesToAdd = randomEntries(2_000);
+      entriesToAdd.addAll(entries.subList(1_500, 2_500));
+      Collections.shuffle(entriesToRemove, random);
+      Collections.shuffle(entriesToAdd, random);
+
+      List<String> expected = new ArrayList<>(toBase64(entries));
+      expected.removeAll(toBase64(entriesToRemove));
+      expected.addAll(toBase64(entriesToAdd));
+      Set<String> expectedEntries = new HashSet<>(expected);
+
+      SortedBlockList changed = SortedBlockList.of(entries).withChanges(entriesToAdd, entriesToRemove);
+
+      Assertions.assertEquals(expectedEntries.size(), changed.size());
+      Assertions.assertEquals(expectedEntries, new HashSet<>(toBase64(changed.toList())));
+    }
+  }
+
+  /**
+   * Compares the lookups with the former storage of base64 strings in a {@link HashMultimap}.
+   */
+  @Test
+  void testLookupsMatchMultimap()
+  {
+    List<byte[]> entries = randomEntries(LIST_SIZE);
+    List<byte[]> lookups = new ArrayList<>(LOOKUPS);
+    for ( int i = 0 ; i < LOOKUPS ; i++ )
+    {
+      lookups.add(i % 2 == 0 ? entries.get(random.nextInt(LIST_SIZE)).clone() : randomEntries(1).get(0));
+    }
+
+    Multimap<String, String> multimap = HashMultimap.create();
+    entries.forEach(entry -> multimap.put(SECTOR_ID, Base64.getEncoder().encodeToString(entry)));
+    SortedBlockList blockList = SortedBlockList.of(entries);
+
+    for ( byte[] lookup : lookups )
+    {
+      Assertions.assertEquals(multimap.containsEntry(SECTOR_ID, Base64.getEncoder().encodeToString(lookup)),
+                              blockList.contains(lookup));
+    }
+    Assertions.assertEquals(LIST_SIZE, blockList.size());
+    Assertions.assertEquals((long)LIST_SIZE * ENTRY_LENGTH, blockList.getDataSize());
+  }
+
+  private List<byte[]> randomEntries(int count)
+  {
+    List<byte[]> entries = new ArrayList<>(count);
+    for ( int i = 0 ; i < count ; i++ )
+    {
+      byte[] entry = new byte[ENTRY_LENGTH];
+      random.nextBytes(entry);
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  private static List<String> toBase64(List<byte[]> entries)
+  {
+    return entries.stream().map(Base64.getEncoder()::encodeToString).toList();
+  }
+}
@@ -0,0 +1,273 @@
+package de.governikus.eumw.poseidas.server.pki.caserviceaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import jakarta.xml.ws.WebServiceException;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
+
+import de.governikus.eumw.config.EidasMiddlewareConfig;
+import de.governikus.eumw.poseidas.server.idprovider.config.ConfigurationTestHelper;
+import de.governikus.eumw.poseidas.server.idprovider.config.KeyPair;
+import de.governikus.eumw.poseidas.server.pki.caserviceaccess.PKIServiceConnector.ContextLock;
+
+
+/**
+ * Tests the concurrent communication with DVCAs, using local mock DVCA endpoints with artificial latency.
+ */
+class PKIServiceConnectorTest
+{
+
+  private static final String WSDL_PATH = "/dvca/ta";
+
+  private static final String WSDL = "<wsdl:definitions/>";
+
+  private ClientAndServer slowDvca;
+
+  private ClientAndServer fastDvca;
+
+  private KeyPair clientKeyPair;
+
+  private PKIServiceConnector connector;
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() throws Exception
+  {
+    slowDvca = ClientAndServer.startClientAndServer();
+    fastDvca = ClientAndServer.startClientAndServer();
+    EidasMiddlewareConfig configuration = ConfigurationTestHelper.createConfigurationWithClientKeyPair();
+    clientKeyPair = ConfigurationTestHelper.getKeyPair("client-keypair", configuration);
+    PKIServiceConnector.invalidateConnectionContexts();
+    connector = createConnector(ConfigurationTestHelper.CVC_REF_ID);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown()
+  {
+    executor.shutdownNow();
+    slowDvca.stop();
+    fastDvca.stop();
+  }
+
+  @Test
+  void testConnectionsToOneDvcaAreBounded() throws Exception
+  {
+    respondWithDelay(slowDvca, 300);
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    int requests = 3 * PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA;
+
+    long start = System.currentTimeMillis();
+    List<Future<byte[]>> results = new ArrayList<>();
+    for ( int i = 0 ; i < requests ; i++ )
+    {
+      results.add(executor.submit(() -> getWsdl("bounded-dvca", slowDvca, current, maximum)));
+    }
+    for ( Future<byte[]> result : results )
+    {
+      Assertions.assertEquals(WSDL, new String(result.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+    }
+    long duration = System.currentTimeMillis() - start;
+
+    Assertions.assertEquals(PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA, maximum.get());
+    // three rounds of parallel requests instead of one request after another
+    Assertions.assertTrue(duration >= 900, "Too many parallel connections, duration " + duration);
+    Assertions.assertTrue(duration < requests * 300L, "Connections were not parallel, duration " + duration);
+  }
+
+  @Test
+  void testSlowDvcaDoesNotBlockOtherDvca() throws Exception
+  {
+    respondWithDelay(slowDvca, 3000);
+    respondWithDelay(fastDvca, 0);
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    // use all connections to the slow DVCA and queue some more
+    List<Future<byte[]>> slowResults = new ArrayList<>();
+    for ( int i = 0 ; i < PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA + 2 ; i++ )
+    {
+      slowResults.add(executor.submit(() -> getWsdl("slow-dvca", slowDvca, current, maximum)));
+    }
+    while (current.get() < PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA)
+    {
+      Thread.sleep(10);
+    }
+
+    long start = System.currentTimeMillis();
+    byte[] fastResult = executor.submit(() -> getWsdl("fast-dvca", fastDvca, new AtomicInteger(), new AtomicInteger()))
+                                .get(30, TimeUnit.SECONDS);
+    long duration = System.currentTimeMillis() - start;
+
+    Assertions.assertEquals(WSDL, new String(fastResult, StandardCharsets.UTF_8));
+    Assertions.assertTrue(duration < 2000, "Request to other DVCA was blocked for " + duration + " ms");
+    Assertions.assertTrue(slowResults.stream().noneMatch(Future::isDone));
+    for ( Future<byte[]> result : slowResults )
+    {
+      Assertions.assertEquals(WSDL, new String(result.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void testReleaseOnlyOnce() throws Exception
+  {
+    ContextLock lock = PKIServiceConnector.getContextLock("release-dvca");
+    lock.close();
+    lock.close();
+
+    // a second release of the same lock must not allow more connections
+    respondWithDelay(slowDvca, 300);
+    AtomicInteger current = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    List<Future<byte[]>> results = new ArrayList<>();
+    for ( int i = 0 ; i < 2 * PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA ; i++ )
+    {
+      results.add(executor.submit(() -> getWsdl("release-dvca", slowDvca, current, maximum)));
+    }
+    for ( Future<byte[]> result : results )
+    {
+      result.get(30, TimeUnit.SECONDS);
+    }
+    Assertions.assertEquals(PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA, maximum.get());
+  }
+
+  @Test
+  void testNoConnectionWithoutPermit() throws Exception
+  {
+    List<ContextLock> locks = new ArrayList<>();
+    for ( int i = 0 ; i < PKIServiceConnector.MAX_CONNECTIONS_PER_DVCA ; i++ )
+    {
+      locks.add(PKIServiceConnector.getContextLock("busy-dvca"));
+    }
+    Assertions.assertThrows(WebServiceException.class,
+                            () -> PKIServiceConnector.getContextLock("busy-dvca", 100, TimeUnit.MILLISECONDS));
+
+    // a free connection can be used again
+    locks.remove(0).close();
+    locks.add(PKIServiceConnector.getContextLock("busy-dvca", 100, TimeUnit.MILLISECONDS));
+    locks.forEach(ContextLock::close);
+  }
+
+  @Test
+  void testReusesSslContextUntilInvalidated() throws Exception
+  {
+    SSLContext sslContext = connector.getCachedSSLContext();
+    Assertions.assertSame(sslContext, createConnector(ConfigurationTestHelper.CVC_REF_ID).getCachedSSLContext());
+    Assertions.assertNotSame(sslContext, createConnector("other-entity").getCachedSSLContext());
+
+    PKIServiceConnector.invalidateConnectionContexts();
+    Assertions.assertNotSame(sslContext, connector.getCachedSSLContext());
+  }
+
+  @Test
+  void testChangedCertificateReplacesSslContext() throws Exception
+  {
+    respondWithDelay(slowDvca, 500);
+    String uri = "http://localhost:" + slowDvca.getPort() + WSDL_PATH + "?wsdl";
+    SSLContext sslContext = connector.getCachedSSLContext();
+    Future<byte[]> inProgress = executor.submit(() -> connector.getFile(uri));
+    Thread.sleep(100);
+
+    // same entity with another trusted server certificate
+    X509Certificate otherServerCert = (X509Certificate)CertificateFactory.getInstance("X509")
+                                                                         .generateCertificate(PKIServiceConnectorTest.class.getResourceAsStream("/TEST_csca_germany.cer"));
+    PKIServiceConnector otherConnector = new PKIServiceConnector(30, otherServerCert, clientKeyPair.getKey(),
+                                                                 List.of(clientKeyPair.getCertificate()),
+                                                                 ConfigurationTestHelper.CVC_REF_ID);
+    SSLContext otherSslContext = otherConnector.getCachedSSLContext();
+    Assertions.assertNotSame(sslContext, otherSslContext);
+    Assertions.assertSame(otherSslContext, otherConnector.getCachedSSLContext());
+
+    // the request started with the replaced context is finished before its pool is shut down
+    Assertions.assertEquals(WSDL, new String(inProgress.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+    Assertions.assertEquals(WSDL, new String(otherConnector.getFile(uri), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testInvalidateWaitsForRequestsInProgress() throws Exception
+  {
+    respondWithDelay(slowDvca, 500);
+    String uri = "http://localhost:" + slowDvca.getPort() + WSDL_PATH + "?wsdl";
+    Future<byte[]> inProgress = executor.submit(() -> connector.getFile(uri));
+    Thread.sleep(100);
+
+    PKIServiceConnector.invalidateConnectionContexts();
+
+    Assertions.assertEquals(WSDL, new String(inProgress.get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+    Assertions.assertEquals(WSDL, new String(connector.getFile(uri), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testReusesPooledConnections() throws Exception
+  {
+    respondWithDelay(fastDvca, 0);
+    String uri = "http://localhost:" + fastDvca.getPort() + WSDL_PATH + "?wsdl";
+    for ( int i = 0 ; i < 5 ; i++ )
+    {
+      // a new connector with the same keys uses the same pool
+      byte[] wsdl = createConnector(ConfigurationTestHelper.CVC_REF_ID).getFile(uri);
+      Assertions.assertEquals(WSDL, new String(wsdl, StandardCharsets.UTF_8));
+    }
+
+    PoolStats poolStats = connector.getConnectionPoolStats();
+    Assertions.assertEquals(0, poolStats.getLeased());
+    Assertions.assertEquals(1, poolStats.getAvailable());
+    fastDvca.verify(HttpRequest.request().withPath(WSDL_PATH), VerificationTimes.exactly(5));
+  }
+
+  private PKIServiceConnector createConnector(String entityID) throws GeneralSecurityException
+  {
+    // the mock DVCAs use plain http, so the server certificate is not checked
+    return new PKIServiceConnector(30, clientKeyPair.getCertificate(), clientKeyPair.getKey(),
+                                   List.of(clientKeyPair.getCertificate()), entityID);
+  }
+
+  private byte[] getWsdl(String dvcaName, ClientAndServer dvca, AtomicInteger current, AtomicInteger maximum)
+    throws Exception
+  {
+    try (ContextLock lock = PKIServiceConnector.getContextLock(dvcaName))
+    {
+      maximum.accumulateAndGet(current.incrementAndGet(), Math::max);
+      try
+      {
+        return connector.getFile("http://localhost:" + dvca.getPort() + WSDL_PATH + "?wsdl");
+      }
+      finally
+      {
+        current.decrementAndGet();
+      }
+    }
+  }
+
+  private static void respondWithDelay(ClientAndServer dvca, long delayMillis)
+  {
+    dvca.when(HttpRequest.request().withPath(WSDL_PATH))
+        .respond(HttpResponse.response()
+                             .withStatusCode(200)
+                             .withBody(WSDL)
+                             .withDelay(TimeUnit.MILLISECONDS, delayMillis));
+  }
+}